@@ -5,6 +5,7 @@ import java.io.File;
 import org.eclipse.ui.plugin.AbstractUIPlugin;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
+import org.telosys.tools.commons.jdbc.ConnectionPoolManager;
 import org.telosys.tools.eclipse.plugin.commons.PluginLogger;
 
 /**
@@ -104,6 +105,8 @@ public class TelosysTools extends AbstractUIPlugin
 	public void stop(BundleContext bundleContext) throws Exception 
 	{
 		PluginLogger.log("Plugin stop()...");
+		//--- Close the JDBC connections kept by the pools ( v 2.1.1 )
+		ConnectionPoolManager.closeAll();
 		super.stop(bundleContext);
 	}
 
@@ -3,7 +3,8 @@ package org.telosys.tools.eclipse.plugin.commons;
 import org.telosys.tools.commons.GenericLogger;
 
 /**
- *  
+ * Logger keeping the messages in memory for the text widget <br>
+ * Thread-safe : can be used by the generation workers and the connections pool monitor 
  * 
  * @author Laurent GUERIN
  *
@@ -17,15 +18,15 @@ public class TextWidgetLogger extends GenericLogger // implements  TelosysToolsL
 		super();
 	}
 	//----------------------------------------------------------------------------------
-	protected void print(String s) {
+	protected synchronized void print(String s) {
 		stringBuilder.append( s + "\n");
 	}
 	//----------------------------------------------------------------------------------
-	public String getContent() {
+	public synchronized String getContent() {
 		return stringBuilder.toString();
 	}
 	//----------------------------------------------------------------------------------
-	public void clear() {
+	public synchronized void clear() {
 		stringBuilder = new StringBuilder() ;
 	}
 
@@ -12,8 +12,10 @@ import org.eclipse.ui.PartInitException;
 import org.eclipse.ui.forms.editor.FormEditor;
 import org.telosys.tools.commons.TelosysToolsException;
 import org.telosys.tools.commons.TelosysToolsLogger;
+import org.telosys.tools.commons.dbcfg.DatabaseConfiguration;
 import org.telosys.tools.commons.dbcfg.DatabasesConfigurations;
 import org.telosys.tools.commons.dbcfg.DbConfigManager;
+import org.telosys.tools.commons.jdbc.ConnectionPoolManager;
 import org.telosys.tools.eclipse.plugin.commons.EclipseWksUtil;
 import org.telosys.tools.eclipse.plugin.commons.MsgBox;
 import org.telosys.tools.eclipse.plugin.commons.PluginLogger;
@@ -150,6 +152,18 @@ public class DbConfigEditor extends FormEditor
 		}
 	}
 	
+	/* (non-Javadoc)
+	 * @see org.eclipse.ui.forms.editor.FormEditor#dispose()
+	 */
+	public void dispose() {
+		PluginLogger.log(this, "dispose()..." );
+		//--- Close the connection pools of the databases ( they use the logger of this editor ) ( v 2.1.1 )
+		for ( DatabaseConfiguration databaseConfiguration : databasesConfigurations.getDatabaseConfigurationsList() ) {
+			ConnectionPoolManager.closeConnectionPool(databaseConfiguration);
+		}
+		super.dispose();
+	}
+	
 	public TelosysToolsLogger getLogger ()
 	{		
 		return _logger ;
@@ -51,6 +51,7 @@ import org.telosys.tools.commons.dbcfg.DatabaseConfiguration;
 import org.telosys.tools.commons.dbcfg.DatabaseType;
 import org.telosys.tools.commons.dbcfg.DatabasesConfigurations;
 import org.telosys.tools.commons.jdbc.ConnectionManager;
+import org.telosys.tools.commons.jdbc.ConnectionPoolManager;
 import org.telosys.tools.db.metadata.ColumnMetaData;
 import org.telosys.tools.db.metadata.ForeignKeyColumnMetaData;
 import org.telosys.tools.db.metadata.MetaDataManager;
@@ -70,7 +71,7 @@ import org.telosys.tools.repository.RepositoryUpdator;
 import org.telosys.tools.repository.UpdateLogWriter;
 import org.telosys.tools.repository.changelog.ChangeLog;
 import org.telosys.tools.repository.model.RepositoryModel;
-import org.telosys.tools.repository.persistence.StandardFilePersistenceManager;
+import org.telosys.tools.repository.persistence.CachedFilePersistenceManager;
 import org.telosys.tools.repository.rules.RepositoryRulesProvider;
 
 
@@ -1294,7 +1295,8 @@ import org.telosys.tools.repository.rules.RepositoryRulesProvider;
         if ( null == cm ) return null ;
 
         try {
-			return cm.getConnection(databaseConfiguration);
+			// Connection borrowed from the pool of this database ( returned to the pool by "closeConnection" )
+			return ConnectionPoolManager.getConnectionPool(cm, databaseConfiguration, _editor.getTextWidgetLogger()).getConnection();
 		} catch (TelosysToolsException e) {
 			logException(e);
 			Throwable cause = e.getCause();
@@ -2017,7 +2019,7 @@ import org.telosys.tools.repository.rules.RepositoryRulesProvider;
 		try {
 			File file = EclipseWksUtil.toFile(repositoryFile);
 			logger.info("Saving repository in file " + file.getAbsolutePath() );
-			StandardFilePersistenceManager pm = new StandardFilePersistenceManager(file, logger);
+			CachedFilePersistenceManager pm = new CachedFilePersistenceManager(file, logger);
 			pm.save(repo);
 			logger.info("Repository saved.");
 			
@@ -2048,7 +2050,7 @@ import org.telosys.tools.repository.rules.RepositoryRulesProvider;
 		//--- 1) LOAD the repository from the file
 		File repositoryFile = getRepositoryFile( db.getDatabaseName() );
 		logger.info("Load repository from file " + repositoryFile.getAbsolutePath());
-		StandardFilePersistenceManager persistenceManager = new StandardFilePersistenceManager(repositoryFile, logger);
+		CachedFilePersistenceManager persistenceManager = new CachedFilePersistenceManager(repositoryFile, logger);
 		RepositoryModel repositoryModel = persistenceManager.load();		
 		logger.info("Repository loaded : " + repositoryModel.getNumberOfEntities() + " entitie(s)"  );
 
@@ -102,7 +102,7 @@ public class GenerationTask {
 		ProgressMonitorDialog progressMonitorDialog = new ProgressMonitorDialog( Util.getActiveWindowShell() ) ;
 		try {
 			telosysToolsLogger.log("Run generation task ..."  );
-			progressMonitorDialog.run(false, false, generationTask);
+			progressMonitorDialog.run(false, true, generationTask); // cancelable ( v 2.1.1 )
 			telosysToolsLogger.log("End of generation task."  );
 			
 			GenerationTaskResult result = generationTask.getResult() ;
@@ -10,22 +10,22 @@ import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.jface.operation.IRunnableWithProgress;
+import org.eclipse.swt.widgets.Display;
 import org.telosys.tools.commons.TelosysToolsLogger;
 import org.telosys.tools.commons.io.CopyHandler;
 import org.telosys.tools.commons.io.OverwriteChooser;
-import org.telosys.tools.commons.variables.Variable;
 import org.telosys.tools.eclipse.plugin.commons.CopyHandlerForRefresh;
 import org.telosys.tools.eclipse.plugin.commons.MsgBox;
 import org.telosys.tools.eclipse.plugin.commons.TelosysPluginException;
 import org.telosys.tools.eclipse.plugin.commons.dialogbox.OverwriteChooserDialogBox;
 import org.telosys.tools.eclipse.plugin.config.ProjectConfig;
 import org.telosys.tools.generator.BundleResourcesManager;
-import org.telosys.tools.generator.Generator;
+import org.telosys.tools.generator.GenerationManager;
+import org.telosys.tools.generator.GenerationMonitor;
 import org.telosys.tools.generator.GeneratorException;
 import org.telosys.tools.generator.config.GeneratorConfig;
 import org.telosys.tools.generator.context.Target;
 import org.telosys.tools.generator.target.TargetDefinition;
-import org.telosys.tools.repository.model.Entity;
 import org.telosys.tools.repository.model.RepositoryModel;
 
 
@@ -151,13 +151,12 @@ public class GenerationTaskWithProgress implements IRunnableWithProgress
 		// From _projectConfig.getProjectVariables : invalid variables $WEB, $SRC ... not in the list !!!
 		// Variable[] projectVariables = _projectConfig.getProjectVariables();
 		//Variable[] projectVariables = _generatorConfig.getProjectConfiguration().getAllVariables();
-		Variable[] projectVariables = _generatorConfig.getTelosysToolsCfg().getAllVariables();
 		
 		//--- 1) Copy the given resources (or do nothing if null)
 		int numberOfResourcesCopied = copyResourcesIfAny(_resourcesTargets);
 
 		//--- 2) Launch the generation
-		int numberOfFilesGenerated = generateSelectedTargets(progressMonitor, projectVariables);
+		int numberOfFilesGenerated = generateSelectedTargets(progressMonitor);
 	/***
 		// count = total number of work units into which the main task is been subdivided
 		progressMonitor.beginTask("Bulk generation in progress", totalWorkTasks ); 
@@ -252,12 +251,11 @@ public class GenerationTaskWithProgress implements IRunnableWithProgress
 	/**
 	 * Generates all the "selected targets" ( once or for each entity depending on the target's type ) 
 	 * @param progressMonitor
-	 * @param variables
 	 * @return
 	 * @throws InvocationTargetException
 	 * @throws InterruptedException
 	 */
-	private int generateSelectedTargets(IProgressMonitor progressMonitor, Variable[] variables ) 
+	private int generateSelectedTargets(IProgressMonitor progressMonitor) 
 				throws InvocationTargetException, InterruptedException 
 	{
 		//--- Separate targets in 2 list : "ONCE" and "ENTITY"
@@ -297,42 +295,21 @@ public class GenerationTaskWithProgress implements IRunnableWithProgress
 //		}
 		
 		
-		int numberOfFilesGenerated = 0 ; 
-		//--- For each entity
-		for ( String entityName : _selectedEntities ) {
-			
-			_logger.log(this, "run : entity " + entityName );
-			Entity entity = _repositoryModel.getEntityByName(entityName);
-			if ( entity != null )
-			{
-				//--- For each "entity target" 
-				for ( TargetDefinition targetDefinition : entityTargets ) {
-					
-					//--- Get a specialized target for the current entity
-					Target target = new Target( targetDefinition, entity.getName(), 
-							entity.getBeanJavaClass(), variables );
-					
-					//numberOfFilesGenerated = numberOfFilesGenerated + generateTarget(progressMonitor, target, selectedEntities); 
-					numberOfFilesGenerated = numberOfFilesGenerated + generateTarget(progressMonitor, target, _selectedEntities); 
-					
-				}
-				//--- One TARGET done
-			}
-			else
-			{
-				_logger.error("Entity '" + entityName + "' not found in the repository") ;
-			}
-			
-			//--- One ENTITY done
-		} // end of "For each entity"
-		
-		//--- Finally, generate the "ONCE" targets ( NEW in version 2.0.3 / Feb 2013 )
-		for ( TargetDefinition targetDefinition : onceTargets ) {
-			Target target = new Target( targetDefinition, "", "", variables );
-			//numberOfFilesGenerated = numberOfFilesGenerated + generateTarget(progressMonitor, target, selectedEntities); 
-			numberOfFilesGenerated = numberOfFilesGenerated + generateTarget(progressMonitor, target, _selectedEntities); 
+		//--- Generate the "ENTITY" targets for each entity, then the "ONCE" targets ( v 2.1.1 )
+		List<Target> generatedTargets = null ;
+		try {
+			GenerationManager generationManager = new GenerationManager(_repositoryModel, _generatorConfig, _logger);
+			generatedTargets = generationManager.generate(_selectedEntities, _selectedTargets, 
+					new GenerationProgressMonitor(progressMonitor) );
+		} catch (GeneratorException e) {
+			// if the "run" method must propagate a checked exception, 
+			// it should wrap it inside an InvocationTargetException; 
+			throw new InvocationTargetException(e);
 		}
 		
+		//--- Refresh the generated files
+		int numberOfFilesGenerated = refreshGeneratedTargets(generatedTargets); 
+		
 		//--- Notifies that the work is done; that is, either the main task is completed or the user canceled it.
 		progressMonitor.done();
 		
@@ -345,44 +322,14 @@ public class GenerationTaskWithProgress implements IRunnableWithProgress
 	}
 	//--------------------------------------------------------------------------------------------------
 	/**
-	 * Generates the given target. <br>
-	 * More than one file can be generated if the embedded generator is used in the template.
-	 * @param progressMonitor
-	 * @param target
-	 * @param selectedEntities
-	 * @return
-	 * @throws InvocationTargetException
+	 * Refresh the generated files in the workspace 
+	 * @param generatedTargets
+	 * @return the number of files generated
 	 * @throws InterruptedException
 	 */
-	//private int generateTarget(IProgressMonitor progressMonitor, Target target, List<JavaBeanClass> selectedEntities) 
-//	private int generateTarget(IProgressMonitor progressMonitor, Target target, List<EntityInContext> selectedEntities) 
-//					throws InvocationTargetException, InterruptedException 
-	private int generateTarget(IProgressMonitor progressMonitor, Target target, List<String> selectedEntitiesNames) 
-					throws InvocationTargetException, InterruptedException 
+	private int refreshGeneratedTargets(List<Target> generatedTargets) throws InterruptedException 
 	{
-
 		int count = 0 ;
-		_logger.log(this, "Generate TARGET : entity name '" + target.getEntityName() + "' - target file '" + target.getFile() + "' ");
-		
-		_currentTarget = target ;
-		
-		progressMonitor.subTask("Entity '" + target.getEntityName() + "' : target file '" + target.getFile() + "' ");
-		
-		//--- Possible multiple generated targets for one main target (with embedded generator)
-		LinkedList<Target> generatedTargets = new LinkedList<Target>();
-		try {
-			//Generator generator = new Generator(target, _generatorConfig, _logger);
-			Generator generator = new Generator(target, _generatorConfig, _repositoryModel, _logger); // v 2.0.7
-			//generator.setSelectedEntitiesInContext(selectedEntities); // New [2013-02-04]
-			generator.generateTarget(target, _repositoryModel, selectedEntitiesNames, generatedTargets);						
-			
-		} catch (GeneratorException e) {
-			// if the "run" method must propagate a checked exception, 
-			// it should wrap it inside an InvocationTargetException; 
-			throw new InvocationTargetException(e);
-		}
-
-		//--- Refresh the generated files
 		for ( Target generatedTarget : generatedTargets ) {
 			_logger.log(this, "Refresh generated target : " + generatedTarget.getFile() );
 
@@ -396,16 +343,50 @@ public class GenerationTaskWithProgress implements IRunnableWithProgress
 			}
 			
 			//--- One more file : increment result count
-			//_result++ ;
 			count++ ;
 		}
+		return count ;
+	}
+	
+	//--------------------------------------------------------------------------------------------------
+	/**
+	 * Generation monitor mapped on the Eclipse progress monitor <br>
+	 * ( called in the current thread, in the order of the targets )
+	 */
+	private class GenerationProgressMonitor implements GenerationMonitor {
 		
-		//--- One TARGET done
-		// Notifies that a given number of work unit of the main task has been completed. 
-		// Note that this amount represents an installment, as opposed to a cumulative amount of work done to date.
-		progressMonitor.worked(1); // One unit done (not cumulative)
+		private final IProgressMonitor _progressMonitor ;
 		
-		return count ;
+		public GenerationProgressMonitor(IProgressMonitor progressMonitor) {
+			super();
+			_progressMonitor = progressMonitor ;
+		}
+
+		public boolean isCanceled() {
+			// The task is not forked : the pending UI events must be dispatched 
+			// by the task itself to keep the "Cancel" button responsive 
+			Display display = Display.getCurrent(); // null if not in the UI thread
+			if ( display != null ) {
+				while ( display.readAndDispatch() ) {
+					// dispatch all the pending events
+				}
+			}
+			// Returns whether cancellation of current operation has been requested
+			return _progressMonitor.isCanceled() ;
+		}
+
+		public void beginTarget(Target target) {
+			_logger.log(GenerationTaskWithProgress.this, "Generate TARGET : entity name '" + target.getEntityName() + "' - target file '" + target.getFile() + "' ");
+			_currentTarget = target ;
+			_progressMonitor.subTask("Entity '" + target.getEntityName() + "' : target file '" + target.getFile() + "' ");
+		}
+
+		public void endTarget(Target target, List<Target> generatedTargets) {
+			//--- One TARGET done
+			// Notifies that a given number of work unit of the main task has been completed. 
+			// Note that this amount represents an installment, as opposed to a cumulative amount of work done to date.
+			_progressMonitor.worked(1); // One unit done (not cumulative)
+		}
 	}
 	
 	//--------------------------------------------------------------------------------------------------
@@ -25,7 +25,7 @@ import org.telosys.tools.eclipse.plugin.config.ProjectConfig;
 import org.telosys.tools.eclipse.plugin.config.ProjectConfigManager;
 import org.telosys.tools.generator.target.TargetDefinition;
 import org.telosys.tools.repository.model.RepositoryModel;
-import org.telosys.tools.repository.persistence.StandardFilePersistenceManager;
+import org.telosys.tools.repository.persistence.CachedFilePersistenceManager;
 
 /**
  * Main entry point for the DBRepository editor <br>
@@ -109,7 +109,7 @@ public class RepositoryEditor extends FormEditor
 	{
 		File repositoryFile = EclipseWksUtil.toFile(iFile);
 		_logger.info("Load repository from file " + repositoryFile.getAbsolutePath());
-		StandardFilePersistenceManager persistenceManager = new StandardFilePersistenceManager(repositoryFile, _logger);
+		CachedFilePersistenceManager persistenceManager = new CachedFilePersistenceManager(repositoryFile, _logger);
 		RepositoryModel repositoryModel = null ;
 		try {
 			repositoryModel = persistenceManager.load();
@@ -128,7 +128,7 @@ public class RepositoryEditor extends FormEditor
 		File repositoryFile = EclipseWksUtil.toFile(iFile);
 
 		_logger.info("Save repository in file " + repositoryFile.getAbsolutePath());
-		StandardFilePersistenceManager persistenceManager = new StandardFilePersistenceManager(repositoryFile, _logger);
+		CachedFilePersistenceManager persistenceManager = new CachedFilePersistenceManager(repositoryFile, _logger);
 		try {
 			persistenceManager.save(repositoryModel);
 			_logger.info("Repository saved.");
@@ -19,11 +19,33 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.zip.ZipFile;
 
 public class ZipUtil {
 
+	private final static int BUFFER_SIZE = 128 * 1024 ;
+	
+	/**
+	 * Minimum number of files to use several threads 
+	 */
+	private final static int PARALLEL_THRESHOLD = 16 ;
+	
 	//---------------------------------------------------------------------------------------------
 	/**
 	 * Unzip the given ZIP file in the output folder, without the root folder part 
@@ -33,6 +55,25 @@ public class ZipUtil {
 	 */
 	public static void unzip(final String zipFile, final String outputFolder,
 			final boolean createFolder) throws Exception {
+		unzip(zipFile, outputFolder, createFolder, Runtime.getRuntime().availableProcessors(), false);
+	}
+	
+	//---------------------------------------------------------------------------------------------
+	/**
+	 * Unzip the given ZIP file in the output folder, without the root folder part <br>
+	 * The entries are read from the ZIP central directory and extracted in parallel <br>
+	 * Each file is checked with the CRC stored in the ZIP file <br>
+	 * An entry located outside of the output folder ( "../foo" ) is rejected 
+	 * @param zipFile
+	 * @param outputFolder
+	 * @param createFolder
+	 * @param threads the maximum number of files extracted at the same time
+	 * @param skipUnchanged if true the files already existing with the same size and CRC are not written again
+	 * @return the number of files written
+	 * @since 2.1.1
+	 */
+	public static int unzip(final String zipFile, final String outputFolder,
+			final boolean createFolder, int threads, boolean skipUnchanged ) throws Exception {
 
 		log("UnZip file '" + zipFile + "'");
 		log("        in '" + outputFolder + "'");
@@ -49,43 +90,46 @@ public class ZipUtil {
 		}
 
 		try {
-
-			//--- Read each entry in the zip file
-			ZipInputStream zis = new ZipInputStream(new FileInputStream(zipFile));
-			
-			ZipEntry zipEntry = zis.getNextEntry();
-			while (zipEntry != null) {
-
-				final String zipEntryName = zipEntry.getName();
-				log(" . unzip entry '" + zipEntryName + "'");
-
-				// cut the root folder ( remove "basic-templates-TT207-master" ) 
-				String entryDestination = cutEntryName( zipEntryName ) ;
-				if ( entryDestination.length() > 0 ) {
-					//--- Install this entry
-					// build the destination file name
-					File destinationFile = new File(outputFolder + File.separator + entryDestination );
-					// unzip ( file or directory )
-					log("   install : " + zipEntryName );
-					log("        in : " + destinationFile.getAbsolutePath() );
-					if ( zipEntry.isDirectory() ) {
-						destinationFile.mkdirs(); // create directory (including parents)
-					}
-					else {
-						unzipEntry(zis, destinationFile); // extract to file
+			ZipFile zip = new ZipFile(zipFile);
+			try {
+				//--- Read the entries in the central directory 
+				TreeSet<File> directories = new TreeSet<File>(); // parents first
+				List<ZipEntry> fileEntries = new ArrayList<ZipEntry>();
+				List<File> destinationFiles = new ArrayList<File>();
+				Enumeration<? extends ZipEntry> entries = zip.entries();
+				while ( entries.hasMoreElements() ) {
+					ZipEntry zipEntry = entries.nextElement();
+					// cut the root folder ( remove "basic-templates-TT207-master" ) 
+					String entryDestination = cutEntryName( zipEntry.getName() ) ;
+					if ( entryDestination.length() > 0 ) {
+						checkEntryName(zipEntry.getName(), entryDestination);
+						File destinationFile = new File(folder, entryDestination);
+						if ( zipEntry.isDirectory() ) {
+							directories.add(destinationFile);
+						}
+						else {
+							directories.add(destinationFile.getParentFile());
+							fileEntries.add(zipEntry);
+							destinationFiles.add(destinationFile);
+						}
 					}
 				}
-				else {
-					log("   root entry => do not extract");
+				
+				//--- Create all the directories before the files
+				for ( File directory : directories ) {
+					if ( ! directory.isDirectory() && ! directory.mkdirs() ) {
+						throw new IOException("Cannot create folder '" + directory + "'");
+					}
 				}
 				
-				zipEntry = zis.getNextEntry();
+				//--- Extract the files 
+				int written = extractFiles(zip, fileEntries, destinationFiles, threads, skipUnchanged);
+				log("Done : " + written + " file(s) written");
+				return written ;
+			}
+			finally {
+				zip.close();
 			}
-
-			zis.closeEntry();
-			zis.close();
-
-			log("Done");
 
 		} catch (IOException ex) {
 			log("IOException : " + ex.getMessage() );
@@ -93,6 +137,192 @@ public class ZipUtil {
 		}
 	}
 	
+	//---------------------------------------------------------------------------------------------
+	/**
+	 * Rejects the entries with an absolute path or a ".." part ( "zip slip" )
+	 * @param entryName
+	 * @param entryDestination
+	 * @throws IOException
+	 */
+	private static void checkEntryName(String entryName, String entryDestination) throws IOException {
+		boolean valid = entryDestination.charAt(0) != '/' && entryDestination.charAt(0) != '\\' 
+				&& entryDestination.indexOf(':') < 0 ;
+		if ( valid ) {
+			for ( String part : entryDestination.split("[/\\\\]") ) {
+				if ( "..".equals(part) ) {
+					valid = false ;
+					break ;
+				}
+			}
+		}
+		if ( ! valid ) {
+			throw new IOException("Invalid entry '" + entryName + "' (outside of the destination folder)");
+		}
+	}
+	
+	//---------------------------------------------------------------------------------------------
+	private static int extractFiles(final ZipFile zip, final List<ZipEntry> fileEntries, final List<File> destinationFiles, 
+			int threads, final boolean skipUnchanged) throws IOException {
+		
+		int n = fileEntries.size() ;
+		int threadsCount = Math.min(threads, n / PARALLEL_THRESHOLD + 1) ;
+		if ( threadsCount <= 1 ) {
+			//--- Small file : current thread
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int written = 0 ;
+			for ( int i = 0 ; i < n ; i++ ) {
+				if ( extractFile(zip, fileEntries.get(i), destinationFiles.get(i), skipUnchanged, buffer) ) {
+					written++ ;
+				}
+			}
+			return written ;
+		}
+		
+		//--- Large files first ( better balance between the threads )
+		List<Integer> order = new ArrayList<Integer>(n);
+		for ( int i = 0 ; i < n ; i++ ) {
+			order.add(Integer.valueOf(i));
+		}
+		Collections.sort(order, new Comparator<Integer>() {
+			public int compare(Integer i1, Integer i2) {
+				long size1 = fileEntries.get(i1.intValue()).getSize();
+				long size2 = fileEntries.get(i2.intValue()).getSize();
+				return size1 < size2 ? 1 : ( size1 > size2 ? -1 : 0 ) ;
+			}
+		});
+		
+		//--- One buffer per thread
+		final ThreadLocal<byte[]> buffers = new ThreadLocal<byte[]>() {
+			@Override
+			protected byte[] initialValue() {
+				return new byte[BUFFER_SIZE];
+			}
+		};
+		ExecutorService executor = Executors.newFixedThreadPool(threadsCount);
+		try {
+			List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>(n);
+			for ( final Integer i : order ) {
+				futures.add( executor.submit( new Callable<Boolean>() {
+					public Boolean call() throws Exception {
+						return Boolean.valueOf( extractFile(zip, fileEntries.get(i.intValue()), destinationFiles.get(i.intValue()), 
+								skipUnchanged, buffers.get() ) );
+					}
+				} ) );
+			}
+			int written = 0 ;
+			for ( Future<Boolean> future : futures ) {
+				if ( getResult(future).booleanValue() ) {
+					written++ ;
+				}
+			}
+			return written ;
+		}
+		finally {
+			//--- No more extraction, and wait for the files in progress ( the zip file is closed after this method )
+			executor.shutdownNow();
+			awaitTermination(executor);
+		}
+	}
+	
+	/**
+	 * Waits for the end of the workers still reading the zip file ( a file extraction cannot be interrupted )
+	 * @param executor
+	 */
+	private static void awaitTermination(ExecutorService executor) {
+		boolean interrupted = false ;
+		while ( ! executor.isTerminated() ) {
+			try {
+				executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				interrupted = true ; // wait anyway : the zip file cannot be closed before the end of the workers
+			}
+		}
+		if ( interrupted ) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	private static Boolean getResult(Future<Boolean> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Unzip interrupted");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if ( cause instanceof IOException ) {
+				throw (IOException) cause ;
+			}
+			if ( cause instanceof RuntimeException ) {
+				throw (RuntimeException) cause ;
+			}
+			throw new RuntimeException("Unzip error", cause);
+		}
+	}
+	
+	//---------------------------------------------------------------------------------------------
+	/**
+	 * Extracts the given entry (a single file stored in the zip file) and checks its CRC
+	 * @param zip
+	 * @param zipEntry
+	 * @param destinationFile
+	 * @param skipUnchanged
+	 * @param buffer
+	 * @return true if the file has been written, false if unchanged
+	 * @throws IOException
+	 */
+	private static boolean extractFile(ZipFile zip, ZipEntry zipEntry, File destinationFile, 
+			boolean skipUnchanged, byte[] buffer) throws IOException {
+
+		if ( skipUnchanged && zipEntry.getCrc() != -1 && destinationFile.isFile() 
+				&& destinationFile.length() == zipEntry.getSize() 
+				&& computeCrc(destinationFile, buffer) == zipEntry.getCrc() ) {
+			return false ; // same file already on disk
+		}
+		
+		CRC32 crc = new CRC32();
+		long size = 0 ;
+		InputStream in = zip.getInputStream(zipEntry);
+		try {
+			OutputStream out = new FileOutputStream(destinationFile);
+			try {
+				int len;
+				while ((len = in.read(buffer)) > 0) {
+					out.write(buffer, 0, len);
+					crc.update(buffer, 0, len);
+					size += len ;
+				}
+			}
+			finally {
+				out.close();
+			}
+		}
+		finally {
+			in.close();
+		}
+		if ( ( zipEntry.getCrc() != -1 && crc.getValue() != zipEntry.getCrc() ) 
+				|| ( zipEntry.getSize() != -1 && size != zipEntry.getSize() ) ) {
+			destinationFile.delete();
+			throw new IOException("Invalid entry '" + zipEntry.getName() + "' (CRC error)");
+		}
+		return true ;
+	}
+	
+	private static long computeCrc(File file, byte[] buffer) throws IOException {
+		CRC32 crc = new CRC32();
+		InputStream in = new FileInputStream(file);
+		try {
+			int len;
+			while ((len = in.read(buffer)) > 0) {
+				crc.update(buffer, 0, len);
+			}
+		}
+		finally {
+			in.close();
+		}
+		return crc.getValue();
+	}
+	
 	//---------------------------------------------------------------------------------------------
 	private static int getFirstSeparator(final String entryName) {
 		
@@ -118,27 +348,6 @@ public class ZipUtil {
         }
 	}
 	
-	//---------------------------------------------------------------------------------------------
-	/**
-	 * Unzip the given entry (a single file stored in the zip file)
-	 * @param zis entry input stream
-	 * @param newFile the new file to be created
-	 * @throws IOException
-	 */
-	private static void unzipEntry(ZipInputStream zis, File newFile) throws IOException {
-
-		// create non existent parent folders (to avoid FileNotFoundException) ???
-		// new File(newFile.getParent()).mkdirs();
-
-		byte[] buffer = new byte[1024];
-		FileOutputStream fos = new FileOutputStream(newFile);
-		int len;
-		while ((len = zis.read(buffer)) > 0) {
-			fos.write(buffer, 0, len);
-		}
-		fos.close();
-	}
-
 //	//---------------------------------------------------------------------------------------------
 //	/**
 //	 * Return the substring located AFTER the first occurrence of the given separator. <br>
@@ -22,8 +22,10 @@ import java.util.List;
 import org.telosys.tools.commons.FileUtil;
 import org.telosys.tools.commons.ZipUtil;
 import org.telosys.tools.commons.cfg.TelosysToolsCfg;
+import org.telosys.tools.commons.github.GitHubCache;
 import org.telosys.tools.commons.github.GitHubClient;
 import org.telosys.tools.commons.github.GitHubRepository;
+import org.telosys.tools.commons.http.DownloadListener;
 
 
 /**
@@ -34,6 +36,8 @@ import org.telosys.tools.commons.github.GitHubRepository;
  */
 public class BundlesManager {
 
+	private final static String CACHE_FOLDER = ".cache" ; // in the downloads folder
+
 	private final TelosysToolsCfg cfg ;
 	
 	//--------------------------------------------------------------------------------------------------
@@ -56,6 +60,15 @@ public class BundlesManager {
 		return cfg.getDownloadsFolderAbsolutePath() ;
 	}
 	
+	//--------------------------------------------------------------------------------------------------
+	/**
+	 * Returns the cache used for the GitHub requests ( located in the DOWNLOADS folder )
+	 * @return
+	 */
+	private GitHubCache getGitHubCache() {
+		return new GitHubCache( new File( getDownloadsFolderFullPath(), CACHE_FOLDER ) );
+	}
+	
 	//--------------------------------------------------------------------------------------------------
 	/**
 	 * Returns the BUNDLES folder's full path in the file system <br>
@@ -127,13 +140,30 @@ public class BundlesManager {
 	 * @return
 	 */
 	public BundleStatus downloadBundle( String userName, String bundleName, String downloadFolderInProject )  {
+		return downloadBundle( userName, bundleName, downloadFolderInProject, null ) ;
+	}
+	
+	//--------------------------------------------------------------------------------------------------
+	/**
+	 * Download a bundle (GitHub repo) in a specific project folder, with a listener notified of the progress <br>
+	 * ( an interrupted download is resumed on the next call )
+	 * @param userName
+	 * @param bundleName
+	 * @param downloadFolderInProject
+	 * @param listener the download listener (or null if none)
+	 * @return
+	 * @since 2.1.1
+	 */
+	public BundleStatus downloadBundle( String userName, String bundleName, String downloadFolderInProject, 
+			DownloadListener listener )  {
 		BundleStatus status = new BundleStatus();
 		GitHubClient gitHubClient = new GitHubClient( cfg.getProperties() ) ; 
 		String destinationFile = buildDestinationFileName(bundleName, downloadFolderInProject) ;
 		status.log("-> Download bundle '" + bundleName + "' ");
 		status.log("   in '" + destinationFile + "' ");
 		try {
-			gitHubClient.downloadRepository(userName, bundleName, destinationFile);
+			long bytesCount = gitHubClient.downloadRepository(userName, bundleName, destinationFile, listener, getGitHubCache());
+			status.log("   " + bytesCount + " bytes downloaded ");
 			status.setDone(true);
 			status.setMessage("OK, bundle '" + bundleName + "' downloaded.");
 			status.setZipFile(destinationFile);
@@ -158,7 +188,7 @@ public class BundlesManager {
 	public List<String> getBundlesList( String userName ) throws Exception {
 		List<String> bundles = new LinkedList<String>();
 		GitHubClient gitHubClient = new GitHubClient( cfg.getProperties() ) ; 
-		List<GitHubRepository> repositories = gitHubClient.getRepositories( userName );
+		List<GitHubRepository> repositories = gitHubClient.getRepositories( userName, getGitHubCache() );
 		for ( GitHubRepository repo : repositories ) {
 // Removed in ver 2.1.0 ( "size" is not reliable in the GitHub API ) 
 //							if ( repo.getSize() > 0 ) {
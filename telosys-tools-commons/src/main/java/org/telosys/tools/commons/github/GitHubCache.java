@@ -0,0 +1,415 @@
+/**
+ *  Copyright (C) 2008-2014  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.commons.github;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.telosys.tools.commons.FileUtil;
+
+/**
+ * Local cache for the GitHub resources ( repositories list and repositories ZIP files ) <br>
+ * <br>
+ * On disk ( in the given cache folder ) : <br>
+ * . "user/repos.json" + "user/repos.properties" : the last repositories list with its "ETag" and "Last-Modified" <br>
+ * . "user/repo.zip.properties" : the "ETag", "Last-Modified" and SHA-1 of the last ZIP file downloaded <br>
+ * . "blobs/sha1.zip" : the ZIP files stored by content (the same content is stored only once) <br>
+ * <br>
+ * In memory : the repositories lists, kept during a "time to live" ( 5 minutes by default ) <br>
+ * 
+ * @author Laurent Guerin
+ *
+ * @since 2.1.1
+ */
+public class GitHubCache {
+
+	private final static long DEFAULT_REPOSITORIES_TTL = 5 * 60 * 1000 ; // 5 minutes 
+	
+	private final static String BLOBS_FOLDER        = "blobs" ;
+	private final static String REPOSITORIES        = "repos" ;
+	private final static String ZIP_SUFFIX          = ".zip" ;
+	private final static String PROPERTIES_SUFFIX   = ".properties" ;
+	
+	private final static String ETAG          = "etag" ;
+	private final static String LAST_MODIFIED = "lastModified" ;
+	private final static String SHA1          = "sha1" ;
+	private final static String SIZE          = "size" ;
+	
+	private final static class CachedRepositories {
+		private final List<GitHubRepository> repositories ;
+		private final long time ;
+		CachedRepositories(List<GitHubRepository> repositories, long time) {
+			this.repositories = repositories ;
+			this.time = time ;
+		}
+	}
+	
+	private final static Map<String,CachedRepositories> repositoriesInMemory = new HashMap<String,CachedRepositories>();
+	
+	private static long repositoriesTimeToLive = DEFAULT_REPOSITORIES_TTL ;
+	
+	private final File cacheFolder ;
+	
+	//--------------------------------------------------------------------------------------------------
+	/**
+	 * Constructor
+	 * @param cacheFolder the folder where to store the cached files (created if necessary)
+	 */
+	public GitHubCache(File cacheFolder) {
+		super();
+		this.cacheFolder = cacheFolder ;
+	}
+	
+	/**
+	 * Returns the folder where the cached files are stored
+	 * @return
+	 */
+	public File getCacheFolder() {
+		return cacheFolder ;
+	}
+	
+	//--------------------------------------------------------------------------------------------------
+	// Repositories lists in memory
+	//--------------------------------------------------------------------------------------------------
+	/**
+	 * Set the time during which a repositories list is kept in memory ( 0 for no memory cache )
+	 * @param millis
+	 */
+	public static void setRepositoriesTimeToLive(long millis) {
+		synchronized (repositoriesInMemory) {
+			repositoriesTimeToLive = millis ;
+		}
+	}
+	
+	/**
+	 * Returns the repositories list kept in memory for the given user (or null if none or expired)
+	 * @param userName
+	 * @return a copy of the list 
+	 */
+	public List<GitHubRepository> getRepositoriesFromMemory(String userName) {
+		synchronized (repositoriesInMemory) {
+			CachedRepositories cached = repositoriesInMemory.get(userName);
+			if ( cached != null ) {
+				if ( System.currentTimeMillis() - cached.time < repositoriesTimeToLive ) {
+					return new LinkedList<GitHubRepository>(cached.repositories) ;
+				}
+				repositoriesInMemory.remove(userName); // expired
+			}
+			return null ;
+		}
+	}
+	
+	/**
+	 * Keeps the given repositories list in memory 
+	 * @param userName
+	 * @param repositories
+	 */
+	public void putRepositoriesInMemory(String userName, List<GitHubRepository> repositories) {
+		synchronized (repositoriesInMemory) {
+			repositoriesInMemory.put(userName, 
+					new CachedRepositories(new LinkedList<GitHubRepository>(repositories), System.currentTimeMillis()));
+		}
+	}
+	
+	/**
+	 * Removes all the repositories lists kept in memory
+	 */
+	public static void clearMemory() {
+		synchronized (repositoriesInMemory) {
+			repositoriesInMemory.clear();
+		}
+	}
+	
+	//--------------------------------------------------------------------------------------------------
+	// Conditional requests
+	//--------------------------------------------------------------------------------------------------
+	/**
+	 * Returns the conditional request headers ( "If-None-Match", "If-Modified-Since" ) for the given metadata
+	 * @param metadata
+	 * @return the headers (void if no cached version)
+	 */
+	public Map<String,String> buildConditionalHeaders(Properties metadata) {
+		Map<String,String> headers = new HashMap<String,String>();
+		String eTag = metadata.getProperty(ETAG);
+		if ( eTag != null ) {
+			headers.put("If-None-Match", eTag);
+		}
+		String lastModified = metadata.getProperty(LAST_MODIFIED);
+		if ( lastModified != null ) {
+			headers.put("If-Modified-Since", lastModified);
+		}
+		return headers ;
+	}
+	
+	//--------------------------------------------------------------------------------------------------
+	// Repositories list on disk
+	//--------------------------------------------------------------------------------------------------
+	/**
+	 * Returns the metadata of the repositories list stored for the given user (void if none)
+	 * @param userName
+	 * @return
+	 */
+	public Properties getRepositoriesMetadata(String userName) {
+		if ( getRepositoriesFile(userName).isFile() ) {
+			return loadProperties( getMetadataFile(userName, REPOSITORIES) );
+		}
+		return new Properties(); // no usable cached version
+	}
+	
+	/**
+	 * Returns the repositories list (JSON) stored for the given user (or null if none)
+	 * @param userName
+	 * @return
+	 * @throws IOException
+	 */
+	public String loadRepositoriesJSON(String userName) throws IOException {
+		File file = getRepositoriesFile(userName);
+		if ( ! file.isFile() ) {
+			return null ;
+		}
+		return new String(readFile(file), "UTF-8");
+	}
+	
+	/**
+	 * Stores the repositories list (JSON) for the given user with its "ETag" and "Last-Modified" headers
+	 * @param userName
+	 * @param json
+	 * @param eTag
+	 * @param lastModified
+	 * @throws IOException
+	 */
+	public void storeRepositoriesJSON(String userName, String json, String eTag, String lastModified) throws IOException {
+		File file = getRepositoriesFile(userName);
+		createFolder(file.getParentFile());
+		writeFile(file, json.getBytes("UTF-8"));
+		Properties metadata = new Properties();
+		setProperty(metadata, ETAG, eTag);
+		setProperty(metadata, LAST_MODIFIED, lastModified);
+		storeProperties(getMetadataFile(userName, REPOSITORIES), metadata);
+	}
+	
+	private File getRepositoriesFile(String userName) {
+		return new File(new File(cacheFolder, userName), REPOSITORIES + ".json");
+	}
+	
+	//--------------------------------------------------------------------------------------------------
+	// ZIP files
+	//--------------------------------------------------------------------------------------------------
+	/**
+	 * Returns the metadata of the ZIP file stored for the given repository (void if none)
+	 * @param userName
+	 * @param repoName
+	 * @return
+	 */
+	public Properties getRepositoryZipMetadata(String userName, String repoName) {
+		if ( getRepositoryZip(userName, repoName) != null ) {
+			return loadProperties( getMetadataFile(userName, repoName + ZIP_SUFFIX) );
+		}
+		return new Properties(); // no usable cached version
+	}
+	
+	/**
+	 * Returns the ZIP file stored for the given repository (or null if none)
+	 * @param userName
+	 * @param repoName
+	 * @return
+	 */
+	public File getRepositoryZip(String userName, String repoName) {
+		String sha1 = loadProperties( getMetadataFile(userName, repoName + ZIP_SUFFIX) ).getProperty(SHA1);
+		if ( sha1 != null ) {
+			File blob = getBlobFile(sha1);
+			if ( blob.isFile() ) {
+				return blob ;
+			}
+		}
+		return null ;
+	}
+	
+	/**
+	 * Stores the given ZIP file (downloaded) for the given repository with its "ETag" and "Last-Modified" headers <br>
+	 * The file is stored only if this content is not already in the cache <br>
+	 * The previous version is removed if it is not used by another repository
+	 * @param userName
+	 * @param repoName
+	 * @param zipFile
+	 * @param eTag
+	 * @param lastModified
+	 * @return the ZIP file in the cache
+	 * @throws Exception
+	 */
+	public File storeRepositoryZip(String userName, String repoName, File zipFile, String eTag, String lastModified) throws Exception {
+		File metadataFile = getMetadataFile(userName, repoName + ZIP_SUFFIX);
+		String previousSha1 = loadProperties(metadataFile).getProperty(SHA1);
+		
+		String sha1 = computeSha1(zipFile);
+		File blob = getBlobFile(sha1);
+		if ( ! blob.isFile() || blob.length() != zipFile.length() ) {
+			FileUtil.copy(zipFile, blob, true);
+		}
+		
+		Properties metadata = new Properties();
+		setProperty(metadata, ETAG, eTag);
+		setProperty(metadata, LAST_MODIFIED, lastModified);
+		metadata.setProperty(SHA1, sha1);
+		metadata.setProperty(SIZE, String.valueOf(zipFile.length()) );
+		createFolder(metadataFile.getParentFile());
+		storeProperties(metadataFile, metadata);
+		
+		//--- Remove the previous content if not used anymore
+		if ( previousSha1 != null && ! previousSha1.equals(sha1) && ! isBlobUsed(previousSha1) ) {
+			getBlobFile(previousSha1).delete();
+		}
+		return blob ;
+	}
+	
+	private boolean isBlobUsed(String sha1) {
+		File[] usersFolders = cacheFolder.listFiles();
+		if ( usersFolders != null ) {
+			for ( File userFolder : usersFolders ) {
+				File[] files = userFolder.listFiles();
+				if ( files == null || userFolder.getName().equals(BLOBS_FOLDER) ) continue ;
+				for ( File file : files ) {
+					if ( file.getName().endsWith(ZIP_SUFFIX + PROPERTIES_SUFFIX) 
+							&& sha1.equals( loadProperties(file).getProperty(SHA1) ) ) {
+						return true ;
+					}
+				}
+			}
+		}
+		return false ;
+	}
+	
+	private File getBlobFile(String sha1) {
+		return new File(new File(cacheFolder, BLOBS_FOLDER), sha1 + ZIP_SUFFIX);
+	}
+	
+	/**
+	 * Returns the SHA-1 of the given file (hexadecimal)
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public static String computeSha1(File file) throws IOException {
+		MessageDigest md ;
+		try {
+			md = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException("SHA-1 not available", e);
+		}
+		InputStream in = new FileInputStream(file);
+		try {
+			byte[] buffer = new byte[64 * 1024];
+			int n ;
+			while ( ( n = in.read(buffer) ) > 0 ) {
+				md.update(buffer, 0, n);
+			}
+		}
+		finally {
+			in.close();
+		}
+		StringBuilder sb = new StringBuilder(40);
+		for ( byte b : md.digest() ) {
+			sb.append( Character.forDigit((b >> 4) & 0xF, 16) );
+			sb.append( Character.forDigit(b & 0xF, 16) );
+		}
+		return sb.toString();
+	}
+	
+	//--------------------------------------------------------------------------------------------------
+	// Files utilities
+	//--------------------------------------------------------------------------------------------------
+	private File getMetadataFile(String userName, String name) {
+		return new File(new File(cacheFolder, userName), name + PROPERTIES_SUFFIX);
+	}
+	
+	private void setProperty(Properties properties, String key, String value) {
+		if ( value != null ) {
+			properties.setProperty(key, value);
+		}
+	}
+	
+	private Properties loadProperties(File file) {
+		Properties properties = new Properties();
+		if ( file.isFile() ) {
+			try {
+				InputStream in = new FileInputStream(file);
+				try {
+					properties.load(in);
+				}
+				finally {
+					in.close();
+				}
+			} catch (IOException e) {
+				// unreadable cache file : no cached version
+				return new Properties();
+			}
+		}
+		return properties ;
+	}
+	
+	private void storeProperties(File file, Properties properties) throws IOException {
+		OutputStream out = new FileOutputStream(file);
+		try {
+			properties.store(out, "GitHub cache");
+		}
+		finally {
+			out.close();
+		}
+	}
+	
+	private void createFolder(File folder) throws IOException {
+		if ( ! folder.isDirectory() && ! folder.mkdirs() ) {
+			throw new IOException("Cannot create folder '" + folder + "'");
+		}
+	}
+	
+	private byte[] readFile(File file) throws IOException {
+		byte[] content = new byte[(int) file.length()];
+		InputStream in = new FileInputStream(file);
+		try {
+			int offset = 0 ;
+			int n ;
+			while ( offset < content.length && ( n = in.read(content, offset, content.length - offset) ) > 0 ) {
+				offset += n ;
+			}
+		}
+		finally {
+			in.close();
+		}
+		return content ;
+	}
+	
+	private void writeFile(File file, byte[] content) throws IOException {
+		OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(content);
+		}
+		finally {
+			out.close();
+		}
+	}
+}
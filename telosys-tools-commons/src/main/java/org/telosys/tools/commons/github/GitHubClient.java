@@ -15,15 +15,20 @@
  */
 package org.telosys.tools.commons.github;
 
+import java.io.File;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
+import org.telosys.tools.commons.FileUtil;
+import org.telosys.tools.commons.http.DownloadListener;
 import org.telosys.tools.commons.http.HttpClient;
+import org.telosys.tools.commons.http.HttpDownloader;
 import org.telosys.tools.commons.http.HttpResponse;
 
 /**
@@ -63,6 +68,11 @@ public class GitHubClient {
 	 */
 	public String getRepositoriesJSON( String userName ) {
 
+		HttpResponse response = getRepositoriesResponse(userName, null);
+		return new String(response.getBodyContent());
+	}
+
+	private HttpResponse getRepositoriesResponse( String userName, Map<String,String> headers ) {
 		String urlString = GIT_HUB_HOST_URL + "/users/" + userName + "/repos" ;
 //		HttpClientConfig httpClientConfig = null ;
 //		if ( proxyProperties != null ) {
@@ -70,13 +80,11 @@ public class GitHubClient {
 //		}
 //		HttpClient httpClient = new HttpClient(httpClientConfig);
 		HttpClient httpClient = new HttpClient(proxyProperties);
-		HttpResponse response;
 		try {
-			response = httpClient.get(urlString, null);
+			return httpClient.get(urlString, headers);
 		} catch (Exception e) {
 			throw new RuntimeException ("Http error", e);
 		}
-		return new String(response.getBodyContent());
 	}
 
 	/**
@@ -86,15 +94,54 @@ public class GitHubClient {
 	 */
 	public List<GitHubRepository> getRepositories( String userName ) throws Exception{
 
+		return parseRepositories( getRepositoriesJSON( userName ) );
+	}
+
+	/**
+	 * Returns the repositories available on GitHub for the given user name, using the given cache <br>
+	 * . the list is kept in memory during the cache "time to live" <br>
+	 * . the last list is stored on disk and requested again with "If-None-Match" / "If-Modified-Since" 
+	 * @param userName
+	 * @param cache the cache (or null if none)
+	 * @return
+	 * @since 2.1.1
+	 */
+	public List<GitHubRepository> getRepositories( String userName, GitHubCache cache ) throws Exception{
+
+		if ( cache == null ) {
+			return getRepositories( userName );
+		}
+		List<GitHubRepository> repositories = cache.getRepositoriesFromMemory(userName);
+		if ( repositories != null ) {
+			return repositories ;
+		}
+		HttpResponse response = getRepositoriesResponse(userName, 
+				cache.buildConditionalHeaders( cache.getRepositoriesMetadata(userName) ) );
+		String json = null ;
+		if ( response.getStatusCode() == 304 ) {
+			json = cache.loadRepositoriesJSON(userName); // not modified
+		}
+		if ( json == null ) {
+			json = new String(response.getBodyContent());
+			if ( response.getStatusCode() == 200 ) {
+				cache.storeRepositoriesJSON(userName, json, response.getHeader("ETag"), response.getHeader("Last-Modified"));
+			}
+		}
+		repositories = parseRepositories( json );
+		cache.putRepositoriesInMemory(userName, repositories);
+		return repositories ;
+	}
+	
+	private List<GitHubRepository> parseRepositories( String json ) throws Exception{
+
 		List<GitHubRepository> repositories = new LinkedList<GitHubRepository>();
-		String json = getRepositoriesJSON( userName );
 		JSONParser parser = new JSONParser();
 		try {
 			Object oList = parser.parse(json);
 			if ( oList instanceof JSONArray ) {
 				JSONArray repositoriesArray = (JSONArray) oList ;
 				for ( Object repositoryObject: repositoriesArray ) {
-					JSONObject repo = (JSONObject) repositoryObject ; 
+					JSONObject repo = (JSONObject) repositoryObject ; 
 					long   id   = getLongAttribute(repo, "id");
 					String name = getStringAttribute(repo, "name", "(#"+id+"-no-name)");
 					String description = getStringAttribute(repo, "description", "(no-description)");
@@ -170,6 +217,20 @@ public class GitHubClient {
 	 * @return file size (bytes count)
 	 */
 	public final long downloadRepository(String userName, String repoName, String destinationFile) throws Exception {
+		return downloadRepository(userName, repoName, destinationFile, null);
+	}
+
+	/**
+	 * Download a GitHub repository (zip file) with a listener notified of the download progress
+	 * @param userName GitHub user name
+	 * @param repoName GitHub repository name
+	 * @param destinationFile the full file name on the filesystem 
+	 * @param listener the download listener (or null if none)
+	 * @return file size (bytes count)
+	 * @since 2.1.1
+	 */
+	public final long downloadRepository(String userName, String repoName, String destinationFile, 
+			DownloadListener listener) throws Exception {
 		String url = GitHubUtil.buildGitHubURL(userName, repoName, GIT_HUB_REPO_URL_PATTERN);
 
 		long bytesCount = 0 ;
@@ -179,7 +240,44 @@ public class GitHubClient {
 //		} catch (Exception e) {
 //			throw new Exception ("Cannot download file (http error)", e);
 //		}
-		bytesCount = httpClient.downloadFile(url, destinationFile);
+		bytesCount = httpClient.downloadFile(url, destinationFile, listener);
+		return bytesCount ;
+	}
+
+	/**
+	 * Download a GitHub repository (zip file) using the given cache <br>
+	 * The ZIP file is requested with "If-None-Match" / "If-Modified-Since" and copied from the cache if unchanged
+	 * @param userName GitHub user name
+	 * @param repoName GitHub repository name
+	 * @param destinationFile the full file name on the filesystem 
+	 * @param listener the download listener (or null if none)
+	 * @param cache the cache (or null if none)
+	 * @return file size (bytes count)
+	 * @since 2.1.1
+	 */
+	public final long downloadRepository(String userName, String repoName, String destinationFile, 
+			DownloadListener listener, GitHubCache cache) throws Exception {
+		if ( cache == null ) {
+			return downloadRepository(userName, repoName, destinationFile, listener);
+		}
+		String url = GitHubUtil.buildGitHubURL(userName, repoName, GIT_HUB_REPO_URL_PATTERN);
+
+		HttpDownloader downloader = new HttpDownloader();
+		downloader.setListener(listener);
+		downloader.setRequestHeaders( cache.buildConditionalHeaders( cache.getRepositoryZipMetadata(userName, repoName) ) );
+		HttpClient httpClient = new HttpClient(proxyProperties);
+		long bytesCount = httpClient.downloadFile(url, destinationFile, downloader);
+		File destination = new File(destinationFile);
+		if ( bytesCount == HttpDownloader.NOT_MODIFIED ) {
+			//--- Unchanged : copy from the cache
+			File zipFile = cache.getRepositoryZip(userName, repoName);
+			FileUtil.copy(zipFile, destination, false);
+			if ( listener != null ) {
+				listener.downloadCompleted(zipFile.length());
+			}
+			return zipFile.length() ;
+		}
+		cache.storeRepositoryZip(userName, repoName, destination, downloader.getETag(), downloader.getLastModified());
 		return bytesCount ;
 	}
 }
@@ -0,0 +1,48 @@
+/**
+ *  Copyright (C) 2008-2014  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.commons.http;
+
+/**
+ * Listener notified during a file download ( see HttpClient.downloadFile ) <br>
+ * NB : with a parallel download the methods can be called by different threads (never at the same time)
+ * 
+ * @author Laurent Guerin
+ *
+ * @since 2.1.1
+ */
+public interface DownloadListener {
+
+	/**
+	 * Called when the download starts
+	 * @param url the URL downloaded
+	 * @param contentLength the total size of the file ( -1 if unknown )
+	 * @param resumedFrom the number of bytes already downloaded by a previous attempt ( 0 if none )
+	 */
+	public void downloadStarted(String url, long contentLength, long resumedFrom);
+
+	/**
+	 * Called each time a block of bytes has been written in the file 
+	 * @param bytesDownloaded the number of bytes downloaded (including the bytes of a resumed download)
+	 * @param contentLength the total size of the file ( -1 if unknown )
+	 */
+	public void downloadProgress(long bytesDownloaded, long contentLength);
+
+	/**
+	 * Called when the file is complete
+	 * @param fileSize the size of the downloaded file
+	 */
+	public void downloadCompleted(long fileSize);
+}
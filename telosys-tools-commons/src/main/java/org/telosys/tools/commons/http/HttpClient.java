@@ -16,9 +16,7 @@
 package org.telosys.tools.commons.http;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
@@ -300,38 +298,52 @@ public class HttpClient {
 	 * @return the number of bytes (file size)
 	 */
 	public long downloadFile(String url, String destFileName ) throws Exception {
-		return downloadFile(getURL(url), destFileName );
+		return downloadFile(getURL(url), destFileName, (DownloadListener) null );
 	}
 	
-	private long downloadFile(URL url, String destFileName ) throws Exception {
+	/**
+	 * Downloads a file from the given URL to the given file name <br>
+	 * An interrupted download is resumed and a large file is downloaded with parallel requests <br>
+	 * if the server supports the "Range" requests ( see HttpDownloader )
+	 * @param url the URL to be downloaded
+	 * @param destFileName the destination for the downloaded file 
+	 * @param listener the listener notified of the download progress (or null if none)
+	 * @return the number of bytes (file size)
+	 * @since 2.1.1
+	 */
+	public long downloadFile(String url, String destFileName, DownloadListener listener ) throws Exception {
+		return downloadFile(getURL(url), destFileName, listener );
+	}
+	
+	/**
+	 * Downloads a file from the given URL to the given file name with a specific downloader <br>
+	 * (for example a downloader with conditional request headers)
+	 * @param url the URL to be downloaded
+	 * @param destFileName the destination for the downloaded file 
+	 * @param downloader the downloader to be used 
+	 * @return the number of bytes (file size) or HttpDownloader.NOT_MODIFIED
+	 * @since 2.1.1
+	 */
+	public long downloadFile(String url, String destFileName, HttpDownloader downloader ) throws Exception {
+		return downloadFile(getURL(url), destFileName, downloader );
+	}
+	
+	private long downloadFile(URL url, String destFileName, DownloadListener listener ) throws Exception {
+		HttpDownloader downloader = new HttpDownloader();
+		downloader.setListener(listener);
+		return downloadFile(url, destFileName, downloader );
+	}
+	
+	private long downloadFile(URL url, String destFileName, HttpDownloader downloader ) throws Exception {
 
 		config(configuration);
 		checkDestination(destFileName);
 		
-        long totalBytesRead = 0L;		
         try {
-			url.openConnection();
-			InputStream reader = url.openStream();
-			
-	        FileOutputStream writer = new FileOutputStream(destFileName);
-	        int BUFFER_SIZE = 128 * 1024 ;
-	        byte[] buffer = new byte[BUFFER_SIZE];
-	        int bytesRead = 0;
-	 
-	        while ((bytesRead = reader.read(buffer)) > 0)
-	        {  
-	           writer.write(buffer, 0, bytesRead);
-	           buffer = new byte[BUFFER_SIZE];
-	           totalBytesRead += bytesRead;
-	        }
-
-	        writer.close();
-	        reader.close();
-	 
+        	return downloader.download(url, new File(destFileName));
 		} catch (IOException e) {
 			throw new Exception ("IOException", e);
 		}
-		return totalBytesRead ;
 	}
 	
 	private void checkDestination(String destFileName) throws Exception {
@@ -0,0 +1,528 @@
+/**
+ *  Copyright (C) 2008-2014  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.commons.http;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Download engine used by the HttpClient <br>
+ * . the file is downloaded in a temporary ".part" file renamed at the end <br>
+ * . an interrupted download is resumed with a "Range" request ( if the server supports it ) <br>
+ *   only if the file has not changed on the server ( "If-Range" with the validator of the first response <br>
+ *   kept in a ".part.validator" file ), else the download restarts from the beginning <br>
+ * . a large file is downloaded with N parallel "Range" requests if the server advertises "Accept-Ranges: bytes" <br>
+ * 
+ * @author Laurent Guerin
+ *
+ * @since 2.1.1
+ */
+public class HttpDownloader {
+
+	public final static String PART_FILE_SUFFIX = ".part" ;
+	
+	public final static String VALIDATOR_FILE_SUFFIX = ".part.validator" ;
+	
+	private final static String VALIDATOR_ENCODING = "UTF-8" ;
+	
+	/**
+	 * Value returned by "download" if the server responds "304 Not Modified" to a conditional request
+	 */
+	public final static long NOT_MODIFIED = -1 ;
+	
+	private final static int  DEFAULT_BUFFER_SIZE      = 64 * 1024 ;
+	private final static int  DEFAULT_SEGMENTS         = 4 ;
+	private final static long DEFAULT_MIN_SEGMENT_SIZE = 1024 * 1024 ; // 1 MB
+	
+	private int     bufferSize     = DEFAULT_BUFFER_SIZE ;
+	private int     segments       = DEFAULT_SEGMENTS ;
+	private long    minSegmentSize = DEFAULT_MIN_SEGMENT_SIZE ;
+	private boolean resume         = true ;
+	
+	private DownloadListener listener = null ;
+	
+	private Map<String,String> requestHeaders = null ;
+	
+	private String eTag = null ;
+	private String lastModified = null ;
+	
+	/**
+	 * Constructor
+	 */
+	public HttpDownloader() {
+		super();
+	}
+
+	/**
+	 * Set the size of the buffer used by each download stream ( 64 KB by default )
+	 * @param bufferSize
+	 */
+	public void setBufferSize(int bufferSize) {
+		this.bufferSize = bufferSize ;
+	}
+
+	/**
+	 * Set the maximum number of parallel segments ( 4 by default, 1 for a sequential download )
+	 * @param segments
+	 */
+	public void setSegments(int segments) {
+		this.segments = segments > 0 ? segments : 1 ;
+	}
+
+	/**
+	 * Set the minimum size of a segment ( 1 MB by default ) <br>
+	 * A file is downloaded in parallel only if it contains at least 2 segments
+	 * @param minSegmentSize
+	 */
+	public void setMinSegmentSize(long minSegmentSize) {
+		this.minSegmentSize = minSegmentSize ;
+	}
+
+	/**
+	 * Set the "resume" mode ( true by default ) : if a ".part" file exists, the download continues at the end of this file <br>
+	 * ( only if the file has not changed on the server since the beginning of the ".part" file )
+	 * @param resume
+	 */
+	public void setResume(boolean resume) {
+		this.resume = resume ;
+	}
+
+	/**
+	 * Set the listener notified of the download progress (or null if none)
+	 * @param listener
+	 */
+	public void setListener(DownloadListener listener) {
+		this.listener = listener ;
+	}
+
+	/**
+	 * Set the additional headers of the first request, for example the conditional request headers <br>
+	 * ( "If-None-Match", "If-Modified-Since" ) <br>
+	 * The headers are not sent when an interrupted download is resumed
+	 * @param requestHeaders
+	 */
+	public void setRequestHeaders(Map<String,String> requestHeaders) {
+		this.requestHeaders = requestHeaders ;
+	}
+
+	/**
+	 * Returns the "ETag" header of the last download response (or null if none)
+	 * @return
+	 */
+	public String getETag() {
+		return eTag ;
+	}
+
+	/**
+	 * Returns the "Last-Modified" header of the last download response (or null if none)
+	 * @return
+	 */
+	public String getLastModified() {
+		return lastModified ;
+	}
+
+	//---------------------------------------------------------------------
+	/**
+	 * Downloads the given URL in the given file 
+	 * @param url
+	 * @param destination
+	 * @return the file size, or NOT_MODIFIED if the server responds "304 Not Modified" (destination unchanged) 
+	 * @throws IOException
+	 */
+	public long download(URL url, File destination) throws IOException 
+	{
+		File partFile = new File(destination.getPath() + PART_FILE_SUFFIX);
+		File validatorFile = new File(destination.getPath() + VALIDATOR_FILE_SUFFIX);
+		//--- A ".part" file can be resumed only with the validator of the response that started it
+		String validator = ( resume && partFile.isFile() ) ? readValidator(validatorFile) : null ;
+		long resumeFrom = ( validator != null ) ? partFile.length() : 0 ;
+		if ( resumeFrom == 0 ) {
+			partFile.delete();
+			validatorFile.delete();
+		}
+
+		//--- First request : the whole file or the end of the file (resume if unchanged)
+		HttpURLConnection connection = openConnection(url, resumeFrom, -1, 
+				resumeFrom == 0 ? requestHeaders : ifRangeHeader(validator) );
+		long fileSize ;
+		try {
+			int status = connection.getResponseCode();
+			if ( resumeFrom > 0 && status == HttpURLConnection.HTTP_PARTIAL 
+					&& ! validator.equals( getValidator(connection) ) ) {
+				//--- "If-Range" ignored by the server and file changed : restart from the beginning
+				connection.disconnect();
+				partFile.delete();
+				validatorFile.delete();
+				resumeFrom = 0 ;
+				connection = openConnection(url, 0, -1, requestHeaders);
+				status = connection.getResponseCode();
+			}
+			eTag = connection.getHeaderField("ETag");
+			lastModified = connection.getHeaderField("Last-Modified");
+			if ( status == HttpURLConnection.HTTP_NOT_MODIFIED ) {
+				return NOT_MODIFIED ;
+			}
+			if ( resumeFrom > 0 && status == 416 ) { 
+				//--- Requested range not satisfiable : the ".part" file is complete if its size is the file size
+				String contentRange = connection.getHeaderField("Content-Range"); // "bytes */size"
+				if ( contentRange == null || ! contentRange.trim().endsWith("/" + resumeFrom) ) {
+					partFile.delete();
+					throw new IOException("Invalid partial file (deleted) for '" + url + "'");
+				}
+				fileSize = resumeFrom ;
+				notifyStarted(url, fileSize, resumeFrom);
+			}
+			else {
+				checkStatus(connection, status);
+				if ( status != HttpURLConnection.HTTP_PARTIAL ) {
+					resumeFrom = 0 ; // range not supported or file changed : restart from the beginning
+				}
+				if ( resumeFrom == 0 ) {
+					//--- New ".part" file : keep the validator of this response for a future resume
+					validator = getValidator(connection);
+					writeValidator(validatorFile, validator);
+				}
+				long length = getContentLength(connection) ;
+				long contentLength = length >= 0 ? resumeFrom + length : -1 ;
+				notifyStarted(url, contentLength, resumeFrom);
+				
+				int segmentsCount = getSegmentsCount(connection, contentLength - resumeFrom) ;
+				if ( segmentsCount > 1 ) {
+					fileSize = downloadInParallel(url, connection, partFile, resumeFrom, contentLength, segmentsCount, 
+							ifRangeHeader(validator) );
+				}
+				else {
+					fileSize = downloadSequentially(connection, partFile, resumeFrom, contentLength);
+				}
+			}
+		}
+		finally {
+			connection.disconnect();
+		}
+		
+		//--- Download complete : ".part" file => destination file
+		if ( destination.exists() && ! destination.delete() ) {
+			throw new IOException("Cannot delete file '" + destination + "'");
+		}
+		if ( ! partFile.renameTo(destination) ) {
+			throw new IOException("Cannot rename '" + partFile + "' to '" + destination + "'");
+		}
+		validatorFile.delete();
+		notifyCompleted(fileSize);
+		return fileSize ;
+	}
+	
+	private HttpURLConnection openConnection(URL url, long from, long to, Map<String,String> headers) throws IOException 
+	{
+		URLConnection urlConnection = url.openConnection();
+		if ( ! ( urlConnection instanceof HttpURLConnection ) ) {
+			throw new IOException("Not an HTTP URL '" + url + "'");
+		}
+		HttpURLConnection connection = (HttpURLConnection) urlConnection ;
+		if ( from > 0 || to >= 0 ) {
+			connection.setRequestProperty("Range", "bytes=" + from + "-" + ( to >= 0 ? String.valueOf(to) : "" ) );
+		}
+		if ( headers != null ) {
+			for ( Map.Entry<String,String> header : headers.entrySet() ) {
+				connection.setRequestProperty(header.getKey(), header.getValue());
+			}
+		}
+		connection.connect();
+		return connection ;
+	}
+	
+	//---------------------------------------------------------------------
+	/**
+	 * Returns the validator identifying the version of the file sent in the given response <br>
+	 * ( a strong "ETag", else the "Last-Modified" date, or null if none ) <br>
+	 * NB : a weak ETag ( "W/..." ) cannot be used in a "If-Range" header
+	 * @param connection
+	 * @return
+	 */
+	private String getValidator(HttpURLConnection connection) 
+	{
+		String etag = connection.getHeaderField("ETag");
+		if ( etag != null && etag.trim().length() > 0 && ! etag.trim().startsWith("W/") ) {
+			return etag.trim() ;
+		}
+		String date = connection.getHeaderField("Last-Modified");
+		if ( date != null && date.trim().length() > 0 ) {
+			return date.trim() ;
+		}
+		return null ;
+	}
+	
+	private Map<String,String> ifRangeHeader(String validator) 
+	{
+		if ( validator == null ) {
+			return null ;
+		}
+		Map<String,String> headers = new HashMap<String,String>();
+		headers.put("If-Range", validator);
+		return headers ;
+	}
+	
+	/**
+	 * Reads the validator stored with the ".part" file 
+	 * @param validatorFile
+	 * @return the validator or null if none ( the ".part" file cannot be resumed )
+	 */
+	private String readValidator(File validatorFile) 
+	{
+		if ( ! validatorFile.isFile() || validatorFile.length() == 0 || validatorFile.length() > 1024 ) {
+			return null ;
+		}
+		byte[] bytes = new byte[(int) validatorFile.length()];
+		try {
+			InputStream in = new FileInputStream(validatorFile);
+			try {
+				int offset = 0 ;
+				int n ;
+				while ( offset < bytes.length && ( n = in.read(bytes, offset, bytes.length - offset) ) > 0 ) {
+					offset = offset + n ;
+				}
+			}
+			finally {
+				in.close();
+			}
+			String validator = new String(bytes, VALIDATOR_ENCODING).trim() ;
+			return validator.length() > 0 ? validator : null ;
+		} catch (IOException e) {
+			return null ;
+		}
+	}
+	
+	private void writeValidator(File validatorFile, String validator) throws IOException 
+	{
+		if ( validator == null ) {
+			validatorFile.delete(); // no validator : the ".part" file will not be resumed
+			return ;
+		}
+		OutputStream out = new FileOutputStream(validatorFile);
+		try {
+			out.write(validator.getBytes(VALIDATOR_ENCODING));
+		}
+		finally {
+			out.close();
+		}
+	}
+	
+	//---------------------------------------------------------------------
+	private void checkStatus(HttpURLConnection connection, int status) throws IOException 
+	{
+		if ( status != HttpURLConnection.HTTP_OK && status != HttpURLConnection.HTTP_PARTIAL ) {
+			throw new IOException("HTTP error " + status + " (" + connection.getResponseMessage() + ") for '" + connection.getURL() + "'");
+		}
+	}
+	
+	private long getContentLength(HttpURLConnection connection) 
+	{
+		String s = connection.getHeaderField("Content-Length");
+		if ( s != null ) {
+			try {
+				return Long.parseLong(s.trim());
+			} catch (NumberFormatException e) {
+				// unknown length
+			}
+		}
+		return -1 ;
+	}
+	
+	private int getSegmentsCount(HttpURLConnection connection, long remainingLength) 
+	{
+		if ( segments <= 1 || remainingLength < 2 * minSegmentSize ) {
+			return 1 ; // unknown length or too small
+		}
+		String acceptRanges = connection.getHeaderField("Accept-Ranges");
+		if ( acceptRanges == null || ! acceptRanges.trim().equalsIgnoreCase("bytes") ) {
+			return 1 ;
+		}
+		return (int) Math.min(segments, remainingLength / minSegmentSize) ;
+	}
+	
+	//---------------------------------------------------------------------
+	private long downloadSequentially(HttpURLConnection connection, File partFile, 
+			long resumeFrom, long contentLength) throws IOException 
+	{
+		RandomAccessFile file = new RandomAccessFile(partFile, "rw");
+		try {
+			file.setLength(resumeFrom); // remove the bytes of an unusable ".part" file
+			FileChannel channel = file.getChannel();
+			AtomicLong downloaded = new AtomicLong(resumeFrom);
+			long end = copy(connection.getInputStream(), channel, resumeFrom, -1, downloaded, contentLength);
+			if ( contentLength >= 0 && end != contentLength ) {
+				throw new IOException("Incomplete download : " + end + " bytes received, " + contentLength + " expected");
+			}
+			return end ;
+		}
+		finally {
+			file.close();
+		}
+	}
+	
+	private long downloadInParallel(final URL url, HttpURLConnection firstConnection, File partFile, 
+			long resumeFrom, final long contentLength, int segmentsCount, 
+			final Map<String,String> ifRangeHeader) throws IOException 
+	{
+		RandomAccessFile file = new RandomAccessFile(partFile, "rw");
+		final FileChannel channel = file.getChannel();
+		final AtomicLong downloaded = new AtomicLong(resumeFrom);
+		long segmentSize = ( contentLength - resumeFrom ) / segmentsCount ;
+		long firstSegmentEnd = resumeFrom + segmentSize ; // exclusive 
+		long firstSegmentPosition = resumeFrom ;
+		ExecutorService executor = Executors.newFixedThreadPool(segmentsCount - 1);
+		try {
+			file.setLength(contentLength);
+			
+			//--- Segments 2 to N : new "Range" requests 
+			List<Future<Long>> futures = new ArrayList<Future<Long>>(segmentsCount - 1);
+			for ( int i = 1 ; i < segmentsCount ; i++ ) {
+				final long from = resumeFrom + i * segmentSize ;
+				final long to   = ( i == segmentsCount - 1 ) ? contentLength : from + segmentSize ; // exclusive
+				futures.add( executor.submit( new Callable<Long>() {
+					public Long call() throws Exception {
+						// "If-Range" : the whole file ( not a "206" ) if it has changed since the first request
+						HttpURLConnection connection = openConnection(url, from, to - 1, ifRangeHeader);
+						try {
+							if ( connection.getResponseCode() != HttpURLConnection.HTTP_PARTIAL ) {
+								throw new IOException("Range not supported (HTTP " + connection.getResponseCode() + ")");
+							}
+							return Long.valueOf( copy(connection.getInputStream(), channel, from, to, downloaded, contentLength) ) ;
+						}
+						finally {
+							connection.disconnect();
+						}
+					}
+				} ) );
+			}
+			
+			//--- Segment 1 : the beginning of the first response
+			IOException error = null ;
+			try {
+				firstSegmentPosition = copy(firstConnection.getInputStream(), channel, resumeFrom, firstSegmentEnd, downloaded, contentLength);
+			} catch (IOException e) {
+				error = e ;
+			}
+			for ( Future<Long> future : futures ) {
+				try {
+					future.get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					if ( error == null ) error = new IOException("Download interrupted");
+				} catch (ExecutionException e) {
+					if ( error == null ) {
+						Throwable cause = e.getCause();
+						error = cause instanceof IOException ? (IOException) cause : new IOException("Download error", cause);
+					}
+				}
+			}
+			if ( error == null && firstSegmentPosition < firstSegmentEnd ) {
+				error = new IOException("Incomplete download : " + firstSegmentPosition + " bytes received for the first segment");
+			}
+			if ( error != null ) {
+				//--- Keep only the contiguous bytes for the next attempt
+				file.setLength(firstSegmentPosition);
+				throw error ;
+			}
+			return contentLength ;
+		}
+		finally {
+			executor.shutdownNow();
+			file.close();
+		}
+	}
+	
+	/**
+	 * Copies the input stream in the file channel at the given position with a single buffer
+	 * @param in
+	 * @param channel
+	 * @param position the position in the file 
+	 * @param end the end position (exclusive) or -1 to copy until the end of the stream 
+	 * @param downloaded the global counter of downloaded bytes
+	 * @param contentLength the total size (for the listener)
+	 * @return the position after the last byte written
+	 * @throws IOException
+	 */
+	private long copy(InputStream in, FileChannel channel, long position, long end, 
+			AtomicLong downloaded, long contentLength) throws IOException 
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+		byte[] bytes = buffer.array();
+		long current = position ;
+		try {
+			while ( end < 0 || current < end ) {
+				int max = end < 0 ? bytes.length : (int) Math.min(bytes.length, end - current) ;
+				int n = in.read(bytes, 0, max);
+				if ( n < 0 ) {
+					break ;
+				}
+				buffer.clear();
+				buffer.limit(n);
+				while ( buffer.hasRemaining() ) {
+					current += channel.write(buffer, current);
+				}
+				notifyProgress(downloaded.addAndGet(n), contentLength);
+			}
+		}
+		finally {
+			in.close();
+		}
+		return current ;
+	}
+	
+	//---------------------------------------------------------------------
+	private void notifyStarted(URL url, long contentLength, long resumedFrom) {
+		if ( listener != null ) {
+			synchronized (listener) {
+				listener.downloadStarted(url.toString(), contentLength, resumedFrom);
+			}
+		}
+	}
+	private void notifyProgress(long bytesDownloaded, long contentLength) {
+		if ( listener != null ) {
+			synchronized (listener) {
+				listener.downloadProgress(bytesDownloaded, contentLength);
+			}
+		}
+	}
+	private void notifyCompleted(long fileSize) {
+		if ( listener != null ) {
+			synchronized (listener) {
+				listener.downloadCompleted(fileSize);
+			}
+		}
+	}
+}
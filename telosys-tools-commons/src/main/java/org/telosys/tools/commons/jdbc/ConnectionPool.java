@@ -0,0 +1,540 @@
+/**
+ *  Copyright (C) 2008-2014  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.commons.jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Properties;
+
+import org.telosys.tools.commons.GenericTool;
+import org.telosys.tools.commons.TelosysToolsException;
+import org.telosys.tools.commons.TelosysToolsLogger;
+import org.telosys.tools.commons.dbcfg.DatabaseConfiguration;
+
+/**
+ * Pool of JDBC connections for a database configuration <br>
+ * The maximum number of connections is the "poolSize" of the database configuration <br>
+ * <br>
+ * The connections returned by the pool are given back to the pool when they are closed <br>
+ * Features : <br>
+ * . validation of the idle connections when they are borrowed <br>
+ * . eviction of the connections idle for too long <br>
+ * . detection of the connections not returned to the pool (leaks) <br>
+ * . statistics <br>
+ * 
+ * @author Laurent Guerin
+ *
+ * @since 2.1.1
+ */
+public class ConnectionPool extends GenericTool
+{
+	private final static long DEFAULT_MAX_WAIT          = 30 * 1000 ;     // 30 seconds
+	private final static long DEFAULT_IDLE_TIMEOUT      = 10 * 60 * 1000 ; // 10 minutes
+	private final static long DEFAULT_LEAK_THRESHOLD    =  5 * 60 * 1000 ; // 5 minutes
+	private final static long DEFAULT_VALIDATION_INTERVAL = 500 ;          // 0.5 second
+	private final static int  DEFAULT_VALIDATION_TIMEOUT  = 2 ;            // 2 seconds
+	
+	private final ConnectionManager connectionManager ;
+	private final String            driverClassName ;
+	private final String            jdbcUrl ;
+	private final Properties        properties ;
+	private final int               maxSize ;
+	
+	private long maxWait              = DEFAULT_MAX_WAIT ;
+	private long idleTimeout          = DEFAULT_IDLE_TIMEOUT ;
+	private long leakThreshold        = DEFAULT_LEAK_THRESHOLD ;
+	private long validationInterval   = DEFAULT_VALIDATION_INTERVAL ;
+	private int  validationTimeout    = DEFAULT_VALIDATION_TIMEOUT ;
+	
+	//--- Pool state (guarded by "this")
+	private final LinkedList<PooledConnection> idleConnections     = new LinkedList<PooledConnection>(); // most recent first
+	private final LinkedList<PooledConnection> borrowedConnections = new LinkedList<PooledConnection>();
+	private int     pendingCreations = 0 ;
+	private boolean closed = false ;
+	
+	//--- Statistics (guarded by "this")
+	private long createdCount = 0 ;
+	private long destroyedCount = 0 ;
+	private long borrowedCount = 0 ;
+	private long validationFailuresCount = 0 ;
+	private long evictedCount = 0 ;
+	private long leaksCount = 0 ;
+	private long waitsCount = 0 ;
+	private long waitTime = 0 ;
+	
+	/**
+	 * Physical connection managed by the pool
+	 */
+	private final static class PooledConnection {
+		private final Connection connection ;
+		private long       lastReturnTime ;
+		private long       borrowTime = 0 ;
+		private Throwable  borrowStack = null ;
+		private boolean    leakReported = false ;
+		
+		PooledConnection(Connection connection) {
+			this.connection = connection ;
+			this.lastReturnTime = System.currentTimeMillis();
+		}
+	}
+	
+	/**
+	 * Leaked connection to be reported ( copied with the pool lock )
+	 */
+	private final static class Leak {
+		private final long       duration ;
+		private final Throwable  borrowStack ;
+		
+		Leak(long duration, Throwable borrowStack) {
+			this.duration = duration ;
+			this.borrowStack = borrowStack ;
+		}
+	}
+	
+	/**
+	 * Connection given to the caller : a proxy on the physical connection <br>
+	 * "close()" gives the physical connection back to the pool
+	 */
+	private final class ConnectionHandle implements InvocationHandler {
+		private final PooledConnection pooledConnection ;
+		private boolean handleClosed = false ;
+		
+		ConnectionHandle(PooledConnection pooledConnection) {
+			this.pooledConnection = pooledConnection ;
+		}
+		
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if ( "close".equals(name) && method.getParameterTypes().length == 0 ) {
+				synchronized (this) {
+					if ( handleClosed ) return null ; // already returned to the pool
+					handleClosed = true ;
+				}
+				returnConnection(pooledConnection);
+				return null ;
+			}
+			if ( "isClosed".equals(name) && method.getParameterTypes().length == 0 ) {
+				synchronized (this) {
+					if ( handleClosed ) return Boolean.TRUE ;
+				}
+			}
+			else if ( "equals".equals(name) && method.getParameterTypes().length == 1 ) {
+				return Boolean.valueOf( proxy == args[0] );
+			}
+			else if ( "hashCode".equals(name) && method.getParameterTypes().length == 0 ) {
+				return Integer.valueOf( System.identityHashCode(proxy) );
+			}
+			else if ( "toString".equals(name) && method.getParameterTypes().length == 0 ) {
+				return "Pooled connection (" + pooledConnection.connection + ")" ;
+			}
+			else {
+				synchronized (this) {
+					if ( handleClosed ) {
+						throw new SQLException("Connection closed (returned to the pool)");
+					}
+				}
+			}
+			try {
+				return method.invoke(pooledConnection.connection, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}
+	}
+	
+	//-----------------------------------------------------------------------------
+	/**
+	 * Constructor 
+	 * @param connectionManager the manager used to open the physical connections
+	 * @param databaseConfiguration the database configuration ( the values are copied ) 
+	 * @param logger
+	 */
+	public ConnectionPool(ConnectionManager connectionManager, DatabaseConfiguration databaseConfiguration, TelosysToolsLogger logger) 
+	{
+		super(logger);
+		this.connectionManager = connectionManager ;
+		this.driverClassName = databaseConfiguration.getDriverClass() ;
+		this.jdbcUrl = databaseConfiguration.getJdbcUrl() ;
+		this.properties = new Properties();
+		if ( databaseConfiguration.getUser() != null ) {
+			this.properties.put("user", databaseConfiguration.getUser() );
+		}
+		if ( databaseConfiguration.getPassword() != null ) {
+			this.properties.put("password", databaseConfiguration.getPassword() );
+		}
+		this.maxSize = databaseConfiguration.getPoolSize() > 0 ? databaseConfiguration.getPoolSize() : 1 ;
+	}
+
+	//-----------------------------------------------------------------------------
+	/**
+	 * Returns the maximum number of connections ( the database "poolSize" ) 
+	 * @return
+	 */
+	public int getMaxSize() {
+		return maxSize ;
+	}
+	
+	/**
+	 * Returns the JDBC URL of the database
+	 * @return
+	 */
+	public String getJdbcUrl() {
+		return jdbcUrl ;
+	}
+
+	/**
+	 * Set the maximum time to wait for a connection when all the connections are in use ( 30 seconds by default )
+	 * @param millis
+	 */
+	public synchronized void setMaxWait(long millis) {
+		this.maxWait = millis ;
+	}
+
+	/**
+	 * Set the time after which an idle connection is closed ( 10 minutes by default, 0 for no eviction )
+	 * @param millis
+	 */
+	public synchronized void setIdleTimeout(long millis) {
+		this.idleTimeout = millis ;
+	}
+
+	/**
+	 * Set the time after which a borrowed connection is considered as leaked ( 5 minutes by default, 0 for no detection ) <br>
+	 * The stack of the borrower is logged for each leaked connection
+	 * @param millis
+	 */
+	public synchronized void setLeakThreshold(long millis) {
+		this.leakThreshold = millis ;
+	}
+
+	/**
+	 * Set the time during which a connection returned to the pool is not validated again when borrowed <br>
+	 * ( 0.5 second by default, 0 to validate the connection each time )
+	 * @param millis
+	 */
+	public synchronized void setValidationInterval(long millis) {
+		this.validationInterval = millis ;
+	}
+
+	/**
+	 * Set the timeout used to validate a connection ( 2 seconds by default )
+	 * @param seconds
+	 */
+	public synchronized void setValidationTimeout(int seconds) {
+		this.validationTimeout = seconds ;
+	}
+
+	//-----------------------------------------------------------------------------
+	/**
+	 * Returns a connection from the pool (a new physical connection is opened if the pool is not full) <br>
+	 * Waits for a returned connection if all the connections are in use <br>
+	 * The connection must be closed to be returned to the pool
+	 * @return
+	 * @throws TelosysToolsException
+	 */
+	public Connection getConnection() throws TelosysToolsException
+	{
+		return borrowConnection(true);
+	}
+	
+	/**
+	 * Returns a connection from the pool or null if all the connections are in use (never waits) 
+	 * @return
+	 * @throws TelosysToolsException
+	 */
+	public Connection tryGetConnection() throws TelosysToolsException
+	{
+		return borrowConnection(false);
+	}
+	
+	private Connection borrowConnection(boolean wait) throws TelosysToolsException
+	{
+		while ( true ) {
+			PooledConnection pooledConnection = null ;
+			long validationThreshold ;
+			//--- Evicted connections closed and leaks reported out of the lock
+			checkConnections();
+			synchronized (this) {
+				long now = System.currentTimeMillis();
+				long deadline = now + maxWait ;
+				boolean waited = false ;
+				while ( ! closed && idleConnections.isEmpty() && totalSize() >= maxSize ) {
+					if ( ! wait ) return null ;
+					long remaining = deadline - System.currentTimeMillis() ;
+					if ( remaining <= 0 ) {
+						waitsCount++ ;
+						waitTime += maxWait ;
+						throwException("No connection available in the pool after " + maxWait + " ms (pool size = " + maxSize + ")");
+					}
+					waited = true ;
+					try {
+						wait(remaining);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throwException("Interrupted while waiting for a connection", e);
+					}
+				}
+				if ( waited ) {
+					waitsCount++ ;
+					waitTime += System.currentTimeMillis() - now ;
+				}
+				if ( closed ) {
+					throwException("Connection pool closed");
+				}
+				if ( ! idleConnections.isEmpty() ) {
+					pooledConnection = idleConnections.removeFirst() ;
+				}
+				else {
+					pendingCreations++ ; // reserve the place for the new connection
+				}
+				validationThreshold = validationInterval ;
+			}
+			
+			if ( pooledConnection == null ) {
+				//--- New physical connection (out of the lock)
+				try {
+					pooledConnection = new PooledConnection( connectionManager.getConnection(driverClassName, jdbcUrl, properties) );
+				}
+				finally {
+					synchronized (this) {
+						pendingCreations-- ;
+						if ( pooledConnection != null ) {
+							createdCount++ ;
+						}
+						else {
+							notifyAll(); // the reserved place is free again
+						}
+					}
+				}
+				return lend(pooledConnection) ;
+			}
+			//--- Validation on borrow (out of the lock)
+			if ( System.currentTimeMillis() - pooledConnection.lastReturnTime < validationThreshold
+					|| isValid(pooledConnection.connection) ) {
+				return lend(pooledConnection) ;
+			}
+			synchronized (this) {
+				validationFailuresCount++ ;
+			}
+			log("Invalid connection removed from the pool");
+			destroy(pooledConnection);
+		}
+	}
+	
+	private Connection lend(PooledConnection pooledConnection) 
+	{
+		synchronized (this) {
+			pooledConnection.borrowTime = System.currentTimeMillis();
+			pooledConnection.borrowStack = leakThreshold > 0 ? new Throwable("Connection borrowed here") : null ;
+			pooledConnection.leakReported = false ;
+			borrowedConnections.add(pooledConnection);
+			borrowedCount++ ;
+		}
+		return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), 
+				new Class<?>[] { Connection.class }, new ConnectionHandle(pooledConnection) );
+	}
+	
+	private void returnConnection(PooledConnection pooledConnection) 
+	{
+		boolean reusable = resetConnection(pooledConnection.connection);
+		synchronized (this) {
+			borrowedConnections.remove(pooledConnection);
+			pooledConnection.borrowStack = null ;
+			if ( reusable && ! closed ) {
+				pooledConnection.lastReturnTime = System.currentTimeMillis();
+				idleConnections.addFirst(pooledConnection);
+				notifyAll();
+				return ;
+			}
+		}
+		destroy(pooledConnection);
+	}
+	
+	/**
+	 * Restores the default state of a returned connection 
+	 * @param connection
+	 * @return true if the connection can be reused
+	 */
+	private boolean resetConnection(Connection connection) 
+	{
+		try {
+			if ( connection.isClosed() ) {
+				return false ;
+			}
+			if ( ! connection.getAutoCommit() ) {
+				connection.rollback();
+				connection.setAutoCommit(true);
+			}
+			return true ;
+		} catch (SQLException e) {
+			return false ;
+		}
+	}
+	
+	private boolean isValid(Connection connection) 
+	{
+		try {
+			if ( connection.isClosed() ) {
+				return false ;
+			}
+			try {
+				return connection.isValid(validationTimeout);
+			} catch (AbstractMethodError e) {
+				// JDBC 3 driver : no "isValid" 
+			} catch (SQLFeatureNotSupportedException e) {
+				// "isValid" not supported by the driver
+			}
+			connection.getCatalog();
+			return true ;
+		} catch (SQLException e) {
+			return false ;
+		}
+	}
+	
+	private void destroy(PooledConnection pooledConnection) 
+	{
+		try {
+			pooledConnection.connection.close();
+		} catch (SQLException e) {
+			log("Cannot close pooled connection : " + e.getMessage() );
+		}
+		synchronized (this) {
+			destroyedCount++ ;
+			notifyAll(); // a new connection can be created
+		}
+	}
+	
+	private int totalSize() {
+		return idleConnections.size() + borrowedConnections.size() + pendingCreations ;
+	}
+	
+	//-----------------------------------------------------------------------------
+	/**
+	 * Closes the connections idle for more than the "idle timeout" and reports the leaked connections <br>
+	 * ( called on each borrow and periodically by the ConnectionPoolManager ) <br>
+	 * The connections are closed and the leaks are logged without holding the pool lock <br>
+	 * ( the logger is used by the check thread : it must be thread-safe )
+	 */
+	public void checkConnections() 
+	{
+		List<PooledConnection> evictedConnections ;
+		List<Leak> leaks ;
+		synchronized (this) {
+			long now = System.currentTimeMillis() ;
+			leaks = detectLeaks(now);
+			evictedConnections = evictIdleConnections(now);
+		}
+		for ( Leak leak : leaks ) {
+			logError("Connection not returned to the pool after " + leak.duration + " ms (" + jdbcUrl + ")");
+			if ( leak.borrowStack != null ) {
+				logException(leak.borrowStack);
+			}
+		}
+		for ( PooledConnection pooledConnection : evictedConnections ) {
+			destroy(pooledConnection);
+		}
+	}
+	
+	/**
+	 * Removes the connections idle for too long from the pool ( must be called with the pool lock )
+	 * @param now
+	 * @return the connections to be closed
+	 */
+	private List<PooledConnection> evictIdleConnections(long now) 
+	{
+		List<PooledConnection> evictedConnections = new LinkedList<PooledConnection>();
+		if ( idleTimeout <= 0 ) return evictedConnections ;
+		Iterator<PooledConnection> iterator = idleConnections.iterator();
+		while ( iterator.hasNext() ) {
+			PooledConnection pooledConnection = iterator.next();
+			if ( now - pooledConnection.lastReturnTime > idleTimeout ) {
+				iterator.remove();
+				evictedCount++ ;
+				evictedConnections.add(pooledConnection);
+			}
+		}
+		return evictedConnections ;
+	}
+	
+	/**
+	 * Marks the connections borrowed for too long as leaked ( must be called with the pool lock )
+	 * @param now
+	 * @return the new leaks to be reported
+	 */
+	private List<Leak> detectLeaks(long now) 
+	{
+		List<Leak> leaks = new LinkedList<Leak>();
+		if ( leakThreshold <= 0 ) return leaks ;
+		for ( PooledConnection pooledConnection : borrowedConnections ) {
+			if ( ! pooledConnection.leakReported && now - pooledConnection.borrowTime > leakThreshold ) {
+				pooledConnection.leakReported = true ;
+				leaksCount++ ;
+				leaks.add( new Leak(now - pooledConnection.borrowTime, pooledConnection.borrowStack) );
+			}
+		}
+		return leaks ;
+	}
+	
+	//-----------------------------------------------------------------------------
+	/**
+	 * Returns the current statistics of the pool
+	 * @return
+	 */
+	public synchronized ConnectionPoolStatistics getStatistics() 
+	{
+		return new ConnectionPoolStatistics(maxSize, 
+				borrowedConnections.size(), idleConnections.size(), 
+				createdCount, destroyedCount, borrowedCount, 
+				validationFailuresCount, evictedCount, leaksCount, 
+				waitsCount, waitTime );
+	}
+	
+	/**
+	 * Returns true if the pool has been closed
+	 * @return
+	 */
+	public synchronized boolean isClosed() {
+		return closed ;
+	}
+	
+	/**
+	 * Closes the pool : the idle connections are closed immediately, <br>
+	 * the borrowed connections are closed when they are returned
+	 */
+	public void close() 
+	{
+		LinkedList<PooledConnection> connections ;
+		synchronized (this) {
+			if ( closed ) return ;
+			closed = true ;
+			connections = new LinkedList<PooledConnection>(idleConnections);
+			idleConnections.clear();
+			notifyAll(); // the waiting threads get an error
+		}
+		for ( PooledConnection pooledConnection : connections ) {
+			destroy(pooledConnection);
+		}
+		log("Connection pool closed (" + jdbcUrl + ")");
+	}
+}
@@ -0,0 +1,152 @@
+/**
+ *  Copyright (C) 2008-2014  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.commons.jdbc;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.telosys.tools.commons.TelosysToolsException;
+import org.telosys.tools.commons.TelosysToolsLogger;
+import org.telosys.tools.commons.dbcfg.DatabaseConfiguration;
+
+/**
+ * Registry of the connection pools ( one pool for each database : driver, URL, user and password ) <br>
+ * The pools are kept until they are closed, in order to reuse the connections for all the operations <br>
+ * on the same database (meta-data loading, repository generation/update, etc) <br>
+ * The idle connections and the leaks are checked periodically by a background "daemon" thread <br>
+ * 
+ * @author Laurent Guerin
+ *
+ * @since 2.1.1
+ */
+public class ConnectionPoolManager
+{
+	private final static long CHECK_PERIOD = 30 * 1000 ; // 30 seconds
+	
+	private final static Map<String,ConnectionPool> pools = new HashMap<String,ConnectionPool>();
+	
+	private static Timer checkTimer = null ;
+	
+	/**
+	 * Private constructor (static methods only)
+	 */
+	private ConnectionPoolManager() {
+	}
+	
+	private static String buildKey(DatabaseConfiguration databaseConfiguration) {
+		return databaseConfiguration.getDriverClass() 
+				+ "|" + databaseConfiguration.getJdbcUrl() 
+				+ "|" + databaseConfiguration.getUser() 
+				+ "|" + databaseConfiguration.getPassword() ;
+	}
+	
+	/**
+	 * Returns the connection pool for the given database configuration <br>
+	 * The pool is created if it doesn't exist yet or if its size is not the current "poolSize" of the configuration
+	 * @param connectionManager the manager used to open the physical connections (used only at pool creation)
+	 * @param databaseConfiguration
+	 * @param logger
+	 * @return
+	 * @throws TelosysToolsException
+	 */
+	public static ConnectionPool getConnectionPool(ConnectionManager connectionManager, 
+			DatabaseConfiguration databaseConfiguration, TelosysToolsLogger logger) throws TelosysToolsException
+	{
+		if ( null == connectionManager ) {
+			throw new TelosysToolsException("ConnectionManager parameter is null");
+		}
+		if ( null == databaseConfiguration ) {
+			throw new TelosysToolsException("DatabaseConfiguration parameter is null");
+		}
+		String key = buildKey(databaseConfiguration);
+		int poolSize = databaseConfiguration.getPoolSize() > 0 ? databaseConfiguration.getPoolSize() : 1 ;
+		ConnectionPool previousPool = null ;
+		ConnectionPool pool ;
+		synchronized (pools) {
+			pool = pools.get(key);
+			if ( pool != null && ( pool.isClosed() || pool.getMaxSize() != poolSize ) ) {
+				previousPool = pool ; // pool size changed
+				pool = null ;
+			}
+			if ( pool == null ) {
+				pool = new ConnectionPool(connectionManager, databaseConfiguration, logger);
+				pools.put(key, pool);
+				startCheckTimer();
+			}
+		}
+		if ( previousPool != null ) {
+			previousPool.close();
+		}
+		return pool ;
+	}
+	
+	/**
+	 * Closes and removes the connection pool of the given database configuration (if any)
+	 * @param databaseConfiguration
+	 */
+	public static void closeConnectionPool(DatabaseConfiguration databaseConfiguration) 
+	{
+		ConnectionPool pool ;
+		synchronized (pools) {
+			pool = pools.remove( buildKey(databaseConfiguration) );
+		}
+		if ( pool != null ) {
+			pool.close();
+		}
+	}
+	
+	/**
+	 * Closes and removes all the connection pools
+	 */
+	public static void closeAll() 
+	{
+		List<ConnectionPool> list ;
+		synchronized (pools) {
+			list = new LinkedList<ConnectionPool>(pools.values());
+			pools.clear();
+			if ( checkTimer != null ) {
+				checkTimer.cancel();
+				checkTimer = null ;
+			}
+		}
+		for ( ConnectionPool pool : list ) {
+			pool.close();
+		}
+	}
+	
+	private static void startCheckTimer() 
+	{
+		if ( checkTimer == null ) {
+			checkTimer = new Timer("ConnectionPoolManager", true); // daemon 
+			checkTimer.schedule(new TimerTask() {
+				@Override
+				public void run() {
+					List<ConnectionPool> list ;
+					synchronized (pools) {
+						list = new LinkedList<ConnectionPool>(pools.values());
+					}
+					for ( ConnectionPool pool : list ) {
+						pool.checkConnections();
+					}
+				}
+			}, CHECK_PERIOD, CHECK_PERIOD);
+		}
+	}
+}
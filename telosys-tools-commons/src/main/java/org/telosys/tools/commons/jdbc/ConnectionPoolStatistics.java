@@ -0,0 +1,154 @@
+/**
+ *  Copyright (C) 2008-2014  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.commons.jdbc;
+
+/**
+ * Statistics of a connection pool ( snapshot at a given time )
+ * 
+ * @author Laurent Guerin
+ *
+ * @since 2.1.1
+ */
+public class ConnectionPoolStatistics
+{
+	private final int  maxSize ;
+	private final int  activeConnections ;
+	private final int  idleConnections ;
+	private final long createdConnections ;
+	private final long destroyedConnections ;
+	private final long borrows ;
+	private final long validationFailures ;
+	private final long evictions ;
+	private final long leaks ;
+	private final long waits ;
+	private final long waitTime ;
+	
+	public ConnectionPoolStatistics(int maxSize, int activeConnections, int idleConnections, 
+			long createdConnections, long destroyedConnections, long borrows, 
+			long validationFailures, long evictions, long leaks, 
+			long waits, long waitTime) {
+		super();
+		this.maxSize = maxSize;
+		this.activeConnections = activeConnections;
+		this.idleConnections = idleConnections;
+		this.createdConnections = createdConnections;
+		this.destroyedConnections = destroyedConnections;
+		this.borrows = borrows;
+		this.validationFailures = validationFailures;
+		this.evictions = evictions;
+		this.leaks = leaks;
+		this.waits = waits;
+		this.waitTime = waitTime;
+	}
+
+	/**
+	 * Returns the maximum number of connections of the pool
+	 * @return
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Returns the number of connections currently borrowed
+	 * @return
+	 */
+	public int getActiveConnections() {
+		return activeConnections;
+	}
+
+	/**
+	 * Returns the number of connections currently available in the pool
+	 * @return
+	 */
+	public int getIdleConnections() {
+		return idleConnections;
+	}
+
+	/**
+	 * Returns the number of physical connections opened by the pool
+	 * @return
+	 */
+	public long getCreatedConnections() {
+		return createdConnections;
+	}
+
+	/**
+	 * Returns the number of physical connections closed by the pool
+	 * @return
+	 */
+	public long getDestroyedConnections() {
+		return destroyedConnections;
+	}
+
+	/**
+	 * Returns the number of connections borrowed since the pool creation
+	 * @return
+	 */
+	public long getBorrows() {
+		return borrows;
+	}
+
+	/**
+	 * Returns the number of invalid connections detected when borrowed
+	 * @return
+	 */
+	public long getValidationFailures() {
+		return validationFailures;
+	}
+
+	/**
+	 * Returns the number of connections closed after the idle timeout
+	 * @return
+	 */
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Returns the number of connections not returned to the pool after the leak threshold
+	 * @return
+	 */
+	public long getLeaks() {
+		return leaks;
+	}
+
+	/**
+	 * Returns the number of borrows that had to wait for a connection
+	 * @return
+	 */
+	public long getWaits() {
+		return waits;
+	}
+
+	/**
+	 * Returns the total time (in milliseconds) spent waiting for a connection
+	 * @return
+	 */
+	public long getWaitTime() {
+		return waitTime;
+	}
+
+	@Override
+	public String toString() {
+		return "ConnectionPoolStatistics [maxSize=" + maxSize 
+				+ ", active=" + activeConnections + ", idle=" + idleConnections 
+				+ ", created=" + createdConnections + ", destroyed=" + destroyedConnections 
+				+ ", borrows=" + borrows + ", validationFailures=" + validationFailures 
+				+ ", evictions=" + evictions + ", leaks=" + leaks 
+				+ ", waits=" + waits + ", waitTime=" + waitTime + "]";
+	}
+}
@@ -0,0 +1,222 @@
+/**
+ *  Copyright (C) 2008-2014  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.commons.jdbc;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Streaming parser for SQL scripts : returns the SQL statements one by one <br>
+ * without loading the whole script in memory <br>
+ * <br>
+ * The delimiter is recognized only outside of : <br>
+ * . the quoted strings ( 'abc;def' ) and quoted identifiers ( "abc;def" ) <br>
+ * . the line comments ( -- comment ) and block comments ( &#47;* comment *&#47; ) <br>
+ * The comments are removed from the statements. <br>
+ * 
+ * @author Laurent Guerin
+ *
+ * @since 2.1.1
+ */
+public class SqlScriptParser 
+{
+	private final static int EOF = -1 ;
+	
+	private final Reader  reader ;
+	private final String  delimiter ;
+	private final boolean fullLineDelimiter ;
+	
+	private final StringBuilder buffer = new StringBuilder(256);
+	
+	private int lookahead = EOF - 1 ; // no character read in advance
+	
+	private int lineNumber = 1 ;
+	private int statementLineNumber = 0 ;
+
+	/**
+	 * Constructor
+	 * @param reader the script 
+	 * @param delimiter the statements delimiter ( ";" for example ) 
+	 * @param fullLineDelimiter true if the delimiter must be alone on its line ( "GO" for example )
+	 */
+	public SqlScriptParser(Reader reader, String delimiter, boolean fullLineDelimiter) {
+		super();
+		this.reader = ( reader instanceof BufferedReader ) ? reader : new BufferedReader(reader) ;
+		this.delimiter = delimiter ;
+		this.fullLineDelimiter = fullLineDelimiter ;
+	}
+	
+	/**
+	 * Returns the line number where the last statement returned by "nextStatement" starts
+	 * @return
+	 */
+	public int getStatementLineNumber() {
+		return statementLineNumber ;
+	}
+	
+	private int read() throws IOException {
+		int c ;
+		if ( lookahead >= EOF ) {
+			c = lookahead ;
+			lookahead = EOF - 1 ;
+		}
+		else {
+			c = reader.read();
+		}
+		if ( c == '\n' ) {
+			lineNumber++ ;
+		}
+		return c ;
+	}
+	
+	private void unread(int c) {
+		if ( c == '\n' ) {
+			lineNumber-- ;
+		}
+		lookahead = c ;
+	}
+	
+	/**
+	 * Returns the next SQL statement (without delimiter) or null at the end of the script
+	 * @return
+	 * @throws IOException
+	 */
+	public String nextStatement() throws IOException 
+	{
+		buffer.setLength(0);
+		statementLineNumber = 0 ;
+		int lineStart = 0 ; // position of the current line in the buffer
+		int c ;
+		while ( ( c = read() ) != EOF ) {
+			if ( c == '\'' || c == '"' ) {
+				markStart();
+				readQuoted(c);
+			}
+			else if ( c == '-' && peek() == '-' ) {
+				skipLineComment();
+			}
+			else if ( c == '/' && peek() == '*' ) {
+				read();
+				skipBlockComment();
+				buffer.append(' ');
+			}
+			else if ( c == '\n' || c == '\r' ) {
+				if ( fullLineDelimiter && delimiter.equals( buffer.substring(lineStart).trim() ) ) {
+					buffer.setLength(lineStart);
+					String statement = buffer.toString().trim();
+					if ( statement.length() > 0 ) {
+						return statement ;
+					}
+					statementLineNumber = 0 ;
+				}
+				buffer.append(' ');
+				lineStart = buffer.length();
+			}
+			else {
+				if ( ! Character.isWhitespace(c) ) {
+					markStart();
+				}
+				buffer.append((char)c);
+				if ( ! fullLineDelimiter && endsWithDelimiter() ) {
+					buffer.setLength( buffer.length() - delimiter.length() );
+					String statement = buffer.toString().trim();
+					if ( statement.length() > 0 ) {
+						return statement ;
+					}
+					//--- Empty statement ( ";;" ) : continue 
+					buffer.setLength(0);
+					lineStart = 0 ;
+					statementLineNumber = 0 ;
+				}
+			}
+		}
+		//--- End of script : last statement without delimiter (if any) 
+		if ( fullLineDelimiter && delimiter.equals( buffer.substring(lineStart).trim() ) ) {
+			buffer.setLength(lineStart);
+		}
+		String statement = buffer.toString().trim();
+		return statement.length() > 0 ? statement : null ;
+	}
+
+	private void markStart() {
+		if ( statementLineNumber == 0 ) {
+			statementLineNumber = lineNumber ;
+		}
+	}
+	
+	private int peek() throws IOException {
+		int c = read();
+		unread(c);
+		return c ;
+	}
+	
+	private boolean endsWithDelimiter() {
+		int n = delimiter.length() ;
+		int start = buffer.length() - n ;
+		if ( start < 0 ) {
+			return false ;
+		}
+		for ( int i = 0 ; i < n ; i++ ) {
+			if ( buffer.charAt(start + i) != delimiter.charAt(i) ) {
+				return false ;
+			}
+		}
+		return true ;
+	}
+	
+	/**
+	 * Copies a quoted string or identifier ( a doubled quote is an escaped quote )
+	 * @param quote
+	 * @throws IOException
+	 */
+	private void readQuoted(int quote) throws IOException {
+		buffer.append((char)quote);
+		int c ;
+		while ( ( c = read() ) != EOF ) {
+			buffer.append((char)c);
+			if ( c == quote ) {
+				if ( peek() == quote ) {
+					buffer.append((char)read()); // escaped quote
+				}
+				else {
+					return ;
+				}
+			}
+		}
+	}
+	
+	private void skipLineComment() throws IOException {
+		int c ;
+		while ( ( c = read() ) != EOF ) {
+			if ( c == '\n' || c == '\r' ) {
+				unread(c); // end of line processed as usual
+				return ;
+			}
+		}
+	}
+	
+	private void skipBlockComment() throws IOException {
+		int previous = 0 ;
+		int c ;
+		while ( ( c = read() ) != EOF ) {
+			if ( previous == '*' && c == '/' ) {
+				return ;
+			}
+			previous = c ;
+		}
+	}
+}
@@ -15,6 +15,7 @@
  */
 package org.telosys.tools.commons.jdbc;
 
+import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.LineNumberReader;
@@ -29,6 +30,8 @@ public class SqlScriptRunner {
 
     private static final String DEFAULT_DELIMITER = ";";
 
+    private static final int DEFAULT_COMMIT_INTERVAL = 1000;
+
     private Connection connection;
 
     private boolean stopOnError;
@@ -40,6 +43,12 @@ public class SqlScriptRunner {
     private String delimiter = DEFAULT_DELIMITER;
     private boolean fullLineDelimiter = false;
 
+    private int batchSize = 0; // 0 or 1 : one statement at a time (default)
+    private int commitInterval = DEFAULT_COMMIT_INTERVAL;
+
+    private long statementsCount = 0;
+    private long duration = 0;
+
     /**
      * Default constructor
      */
@@ -55,6 +64,57 @@ public class SqlScriptRunner {
         this.fullLineDelimiter = fullLineDelimiter;
     }
 
+    /**
+     * Set the batch size : if greater than 1 the script is run in "batch mode" <br>
+     * . the script is parsed as a stream ( delimiters in quotes and comments are ignored ) <br>
+     * . consecutive DML statements (INSERT, UPDATE, DELETE, MERGE) are executed by batches <br>
+     * . the statements are not printed, only the statements/sec at the end <br>
+     * Default value : 0 (one statement at a time)
+     * @param batchSize
+     * @since 2.1.1
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Set the number of statements between 2 commits in "batch mode" with "auto commit" <br>
+     * (without "auto commit" there's only one commit at the end of the script) <br>
+     * Default value : 1000 
+     * @param commitInterval
+     * @since 2.1.1
+     */
+    public void setCommitInterval(int commitInterval) {
+        this.commitInterval = commitInterval;
+    }
+
+    /**
+     * Returns the number of statements executed by the last script
+     * @return
+     * @since 2.1.1
+     */
+    public long getStatementsCount() {
+        return statementsCount;
+    }
+
+    /**
+     * Returns the duration (in milliseconds) of the last script
+     * @return
+     * @since 2.1.1
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * Returns the number of statements per second of the last script
+     * @return
+     * @since 2.1.1
+     */
+    public long getStatementsPerSecond() {
+        return duration > 0 ? ( statementsCount * 1000 ) / duration : statementsCount ;
+    }
+
     /**
      * Setter for logWriter property
      *
@@ -77,10 +137,12 @@ public class SqlScriptRunner {
 
     public void runScript(String fileName) throws IOException, SQLException 
     {
-		FileReader fr = new FileReader(fileName);
-		SqlScriptRunner r = new SqlScriptRunner(connection, true, true);
-		r.runScript(fr);
-		fr.close();
+		BufferedReader br = new BufferedReader(new FileReader(fileName));
+		try {
+			runScript(br);
+		} finally {
+			br.close();
+		}
     }
     
     /**
@@ -93,10 +155,24 @@ public class SqlScriptRunner {
         try {
             boolean originalAutoCommit = connection.getAutoCommit();
             try {
-                if (originalAutoCommit != this.autoCommit) {
-                    connection.setAutoCommit(this.autoCommit);
+                statementsCount = 0;
+                long start = System.currentTimeMillis();
+                if (batchSize > 1) {
+                    // manual commits (see commit interval)
+                    connection.setAutoCommit(false);
+                    runScriptInBatchMode(connection, reader);
+                } else {
+                    if (originalAutoCommit != this.autoCommit) {
+                        connection.setAutoCommit(this.autoCommit);
+                    }
+                    runScript(connection, reader);
+                }
+                duration = System.currentTimeMillis() - start;
+                if (batchSize > 1) {
+                    println(statementsCount + " statement(s) executed in " + duration + " ms ("
+                            + getStatementsPerSecond() + " statements/sec)");
+                    flush();
                 }
-                runScript(connection, reader);
             } finally {
                 connection.setAutoCommit(originalAutoCommit);
             }
@@ -174,6 +250,7 @@ public class SqlScriptRunner {
                             printlnError(e);
                         }
                     }
+                    statementsCount++;
 
                     if (autoCommit && !conn.getAutoCommit()) {
                         conn.commit();
@@ -229,6 +306,136 @@ public class SqlScriptRunner {
         }
     }
 
+    /**
+     * Runs an SQL script in "batch mode" : one statement reused for all the SQL commands, <br>
+     * consecutive DML statements executed by batches 
+     *
+     * @param conn
+     *            - the connection to use for the script (not in auto-commit mode)
+     * @param reader
+     *            - the source of the script
+     * @throws SQLException
+     * @throws IOException
+     */
+    private void runScriptInBatchMode(Connection conn, Reader reader) throws IOException,
+            SQLException {
+        SqlScriptParser parser = new SqlScriptParser(reader, getDelimiter(), fullLineDelimiter);
+        Statement statement = conn.createStatement();
+        int batchCount = 0; // statements in the current batch
+        int batchLineNumber = 0; // line of the first statement of the current batch
+        long uncommitted = 0;
+        String command = null;
+        try {
+            while ((command = parser.nextStatement()) != null) {
+                if (isBatchable(command)) {
+                    if (batchCount == 0) {
+                        batchLineNumber = parser.getStatementLineNumber();
+                    }
+                    statement.addBatch(command);
+                    batchCount++;
+                    if (batchCount >= batchSize) {
+                        executeBatch(statement, batchLineNumber);
+                        batchCount = 0;
+                    }
+                } else {
+                    //--- Non DML statement : pending batch first
+                    if (batchCount > 0) {
+                        executeBatch(statement, batchLineNumber);
+                        batchCount = 0;
+                    }
+                    execute(statement, command, parser.getStatementLineNumber());
+                }
+                statementsCount++;
+                uncommitted++;
+                if (autoCommit && commitInterval > 0 && uncommitted >= commitInterval && batchCount == 0) {
+                    conn.commit();
+                    uncommitted = 0;
+                }
+            }
+            command = null;
+            if (batchCount > 0) {
+                executeBatch(statement, batchLineNumber);
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            printlnError("Error executing: " + ( command != null ? command : "batch at line " + batchLineNumber ) );
+            printlnError(e);
+            throw e;
+        } finally {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                // Ignore
+            }
+            conn.rollback(); // nothing to rollback if the script is complete
+            flush();
+        }
+    }
+
+    private void executeBatch(Statement statement, int lineNumber) throws SQLException {
+        try {
+            statement.executeBatch();
+        } catch (BatchUpdateException e) {
+            if (stopOnError) {
+                throw e;
+            }
+            printlnError("Error executing batch (statements from line " + lineNumber + ")");
+            printlnError(e);
+        } finally {
+            statement.clearBatch();
+        }
+    }
+
+    private void execute(Statement statement, String command, int lineNumber) throws SQLException {
+        boolean hasResults = false;
+        try {
+            hasResults = statement.execute(command);
+        } catch (SQLException e) {
+            if (stopOnError) {
+                throw e;
+            }
+            printlnError("Error executing (line " + lineNumber + "): " + command);
+            printlnError(e);
+        }
+        if (hasResults) {
+            ResultSet rs = statement.getResultSet();
+            try {
+                ResultSetMetaData md = rs.getMetaData();
+                int cols = md.getColumnCount();
+                StringBuilder sb = new StringBuilder();
+                for (int i = 1; i <= cols; i++) {
+                    sb.append(md.getColumnLabel(i)).append("\t");
+                }
+                println(sb);
+                while (rs.next()) {
+                    sb.setLength(0);
+                    for (int i = 1; i <= cols; i++) {
+                        sb.append(rs.getString(i)).append("\t");
+                    }
+                    println(sb);
+                }
+            } finally {
+                rs.close();
+            }
+        }
+    }
+
+    /**
+     * Returns true if the given SQL command is a DML statement (can be executed in a batch)
+     * @param command
+     * @return
+     */
+    private boolean isBatchable(String command) {
+        return startsWithKeyword(command, "INSERT") || startsWithKeyword(command, "UPDATE")
+                || startsWithKeyword(command, "DELETE") || startsWithKeyword(command, "MERGE");
+    }
+
+    private boolean startsWithKeyword(String command, String keyword) {
+        int n = keyword.length();
+        return command.length() > n && command.regionMatches(true, 0, keyword, 0, n)
+                && !Character.isLetterOrDigit(command.charAt(n)) && command.charAt(n) != '_';
+    }
+
     private String getDelimiter() {
         return delimiter;
     }
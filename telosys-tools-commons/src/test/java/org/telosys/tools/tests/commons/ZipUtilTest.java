@@ -1,5 +1,11 @@
 package org.telosys.tools.tests.commons;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
 import junit.framework.TestCase;
 
 import org.telosys.tools.commons.ZipUtil;
@@ -55,4 +61,124 @@ public class ZipUtilTest extends TestCase {
 		System.out.println("Expected error : " + error.getMessage() );
 		assertNotNull(error);
 	}
+
+	//----------------------------------------------------------------------------------
+	private File folder ;
+
+	@Override
+	protected void setUp() throws Exception {
+		folder = File.createTempFile("telosys-unzip", "");
+		folder.delete();
+		folder.mkdirs();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		delete(folder);
+	}
+
+	private void delete(File file) {
+		File[] files = file.listFiles();
+		if ( files != null ) {
+			for ( File f : files ) {
+				delete(f);
+			}
+		}
+		file.delete();
+	}
+
+	private File createZip(String name, int filesCount, String... extraEntries) throws IOException {
+		File zipFile = new File(folder, name);
+		ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zipFile));
+		try {
+			out.putNextEntry(new ZipEntry("bundle-master/"));
+			out.putNextEntry(new ZipEntry("bundle-master/empty/"));
+			for ( int i = 0 ; i < filesCount ; i++ ) {
+				out.putNextEntry(new ZipEntry("bundle-master/dir" + (i % 5) + "/sub/file" + i + ".vm"));
+				out.write(("content of file " + i).getBytes("UTF-8"));
+			}
+			for ( String entry : extraEntries ) {
+				out.putNextEntry(new ZipEntry(entry));
+				out.write("x".getBytes("UTF-8"));
+			}
+		}
+		finally {
+			out.close();
+		}
+		return zipFile ;
+	}
+
+	public void testUnZipParallel() throws Exception {
+		File zipFile = createZip("bundle.zip", 100);
+		File output = new File(folder, "out");
+		int written = ZipUtil.unzip(zipFile.getAbsolutePath(), output.getAbsolutePath(), true, 4, false);
+		assertEquals(100, written);
+		assertTrue(new File(output, "empty").isDirectory());
+		for ( int i = 0 ; i < 100 ; i++ ) {
+			File file = new File(output, "dir" + (i % 5) + "/sub/file" + i + ".vm");
+			assertTrue(file.isFile());
+			assertEquals(("content of file " + i).length(), file.length());
+		}
+	}
+
+	public void testUnZipSkipUnchanged() throws Exception {
+		File zipFile = createZip("bundle.zip", 20);
+		File output = new File(folder, "out");
+		assertEquals(20, ZipUtil.unzip(zipFile.getAbsolutePath(), output.getAbsolutePath(), true, 2, true) );
+		//--- Second time : nothing to write 
+		assertEquals(0, ZipUtil.unzip(zipFile.getAbsolutePath(), output.getAbsolutePath(), true, 2, true) );
+		//--- Changed file (same size) : written again
+		FileOutputStream out = new FileOutputStream(new File(output, "dir0/sub/file0.vm"));
+		out.write("CONTENT OF FILE 0".getBytes("UTF-8"));
+		out.close();
+		assertEquals(1, ZipUtil.unzip(zipFile.getAbsolutePath(), output.getAbsolutePath(), true, 2, true) );
+		//--- Without the option : all written
+		assertEquals(20, ZipUtil.unzip(zipFile.getAbsolutePath(), output.getAbsolutePath(), true, 2, false) );
+	}
+
+	private int countFiles(File file) {
+		File[] files = file.listFiles();
+		if ( files == null ) {
+			return 1 ;
+		}
+		int count = 0 ;
+		for ( File f : files ) {
+			count = count + countFiles(f);
+		}
+		return count ;
+	}
+	
+	public void testUnZipParallelError() throws Exception {
+		File zipFile = createZip("bundle.zip", 200, "bundle-master/dir0/sub/error.vm");
+		File output = new File(folder, "out");
+		// a folder with the same name as a file => cannot be written 
+		assertTrue(new File(output, "dir0/sub/error.vm").mkdirs());
+		Exception error = null ;
+		try {
+			ZipUtil.unzip(zipFile.getAbsolutePath(), output.getAbsolutePath(), true, 4, false);
+		} catch (Exception e) {
+			error = e ;
+		}
+		assertNotNull(error);
+		System.out.println("Expected error : " + error.getCause().getMessage() );
+		//--- All the workers are terminated : no more file written after the error 
+		int count = countFiles(output);
+		Thread.sleep(200);
+		assertEquals(count, countFiles(output));
+	}
+
+	public void testUnZipSlip() throws Exception {
+		File zipFile = createZip("evil.zip", 2, "bundle-master/../../evil.txt");
+		File output = new File(folder, "out");
+		Exception error = null ;
+		try {
+			ZipUtil.unzip(zipFile.getAbsolutePath(), output.getAbsolutePath(), true);
+		} catch (Exception e) {
+			error = e ;
+		}
+		assertNotNull(error);
+		System.out.println("Expected error : " + error.getCause().getMessage() );
+		assertFalse(new File(folder, "evil.txt").exists());
+		assertFalse(new File(folder.getParentFile(), "evil.txt").exists());
+	}
 }
@@ -0,0 +1,120 @@
+package org.telosys.tools.tests.commons.github;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import junit.framework.TestCase;
+
+import org.telosys.tools.commons.github.GitHubCache;
+import org.telosys.tools.commons.github.GitHubRepository;
+
+public class GitHubCacheTest extends TestCase {
+
+	private File folder ;
+	
+	@Override
+	protected void setUp() throws Exception {
+		folder = File.createTempFile("telosys-github-cache", "");
+		folder.delete();
+		folder.mkdirs();
+		GitHubCache.clearMemory();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		GitHubCache.clearMemory();
+		GitHubCache.setRepositoriesTimeToLive(5 * 60 * 1000);
+		delete(folder);
+	}
+	
+	private void delete(File file) {
+		File[] files = file.listFiles();
+		if ( files != null ) {
+			for ( File f : files ) {
+				delete(f);
+			}
+		}
+		file.delete();
+	}
+	
+	private File createFile(String name, String content) throws IOException {
+		File file = new File(folder, name);
+		FileOutputStream out = new FileOutputStream(file);
+		out.write(content.getBytes());
+		out.close();
+		return file ;
+	}
+	
+	private int countBlobs() {
+		File[] blobs = new File(new File(folder, "cache"), "blobs").listFiles();
+		return blobs != null ? blobs.length : 0 ;
+	}
+	
+	public void testRepositoriesInMemory() throws Exception {
+		GitHubCache cache = new GitHubCache(new File(folder, "cache"));
+		assertNull(cache.getRepositoriesFromMemory("user1"));
+		
+		List<GitHubRepository> repositories = new LinkedList<GitHubRepository>();
+		repositories.add(new GitHubRepository(1, "repo1", "desc", 10));
+		cache.putRepositoriesInMemory("user1", repositories);
+		assertEquals(1, cache.getRepositoriesFromMemory("user1").size());
+		assertNull(cache.getRepositoriesFromMemory("user2"));
+		
+		GitHubCache.setRepositoriesTimeToLive(0); // expired 
+		assertNull(cache.getRepositoriesFromMemory("user1"));
+	}
+
+	public void testRepositoriesOnDisk() throws Exception {
+		GitHubCache cache = new GitHubCache(new File(folder, "cache"));
+		assertTrue(cache.buildConditionalHeaders(cache.getRepositoriesMetadata("user1")).isEmpty());
+		assertNull(cache.loadRepositoriesJSON("user1"));
+		
+		cache.storeRepositoriesJSON("user1", "[ { \"id\" : 1 } ]", "\"abc\"", "Mon, 01 Jun 2015 10:00:00 GMT");
+		assertEquals("[ { \"id\" : 1 } ]", cache.loadRepositoriesJSON("user1"));
+		Map<String,String> headers = cache.buildConditionalHeaders(cache.getRepositoriesMetadata("user1"));
+		assertEquals("\"abc\"", headers.get("If-None-Match"));
+		assertEquals("Mon, 01 Jun 2015 10:00:00 GMT", headers.get("If-Modified-Since"));
+	}
+
+	public void testRepositoryZip() throws Exception {
+		GitHubCache cache = new GitHubCache(new File(folder, "cache"));
+		assertNull(cache.getRepositoryZip("user1", "repo1"));
+		assertTrue(cache.getRepositoryZipMetadata("user1", "repo1").isEmpty());
+		
+		File zip1 = createFile("zip1.zip", "content 1");
+		File blob1 = cache.storeRepositoryZip("user1", "repo1", zip1, "\"e1\"", null);
+		assertEquals(GitHubCache.computeSha1(zip1) + ".zip", blob1.getName());
+		assertEquals(blob1, cache.getRepositoryZip("user1", "repo1"));
+		Properties metadata = cache.getRepositoryZipMetadata("user1", "repo1");
+		assertEquals("\"e1\"", metadata.getProperty("etag"));
+		assertEquals(1, cache.buildConditionalHeaders(metadata).size());
+		
+		//--- Same content for another repository : stored once
+		File zip2 = createFile("zip2.zip", "content 1");
+		assertEquals(blob1, cache.storeRepositoryZip("user2", "repo2", zip2, "\"e2\"", null));
+		assertEquals(1, countBlobs());
+		
+		//--- New version of repo1 : previous content still used by repo2 
+		File zip3 = createFile("zip3.zip", "content 3");
+		File blob3 = cache.storeRepositoryZip("user1", "repo1", zip3, "\"e3\"", null);
+		assertEquals(2, countBlobs());
+		assertTrue(blob1.exists());
+		
+		//--- New version of repo2 : previous content not used anymore
+		File zip4 = createFile("zip4.zip", "content 4");
+		cache.storeRepositoryZip("user2", "repo2", zip4, "\"e4\"", null);
+		assertEquals(2, countBlobs());
+		assertFalse(blob1.exists());
+		assertTrue(blob3.exists());
+	}
+	
+	public void testSha1() throws Exception {
+		File file = createFile("abc.txt", "abc");
+		assertEquals("a9993e364706816aba3e25717850c26c9cd0d89d", GitHubCache.computeSha1(file));
+	}
+}
@@ -0,0 +1,306 @@
+package org.telosys.tools.tests.commons.http;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.telosys.tools.commons.http.DownloadListener;
+import org.telosys.tools.commons.http.HttpDownloader;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Downloads with a local HTTP server 
+ */
+public class HttpDownloaderTest extends TestCase {
+
+	private final static int FILE_SIZE = 3 * 1024 * 1024 + 123 ;
+	
+	private final byte[] data = new byte[FILE_SIZE] ;
+	
+	private HttpServer server ;
+	private boolean acceptRanges = true ;
+	private boolean ifRangeSupported = true ;
+	private String  eTag = "\"v1\"" ;
+	private final List<String> ranges = new LinkedList<String>();
+	private final List<String> ifRanges = new LinkedList<String>();
+	private File folder ;
+	
+	@Override
+	protected void setUp() throws Exception {
+		new Random(123).nextBytes(data);
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/file.zip", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				serve(exchange);
+			}
+		});
+		server.start();
+		folder = File.createTempFile("telosys-download", "");
+		folder.delete();
+		folder.mkdirs();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		server.stop(0);
+		for ( File file : folder.listFiles() ) {
+			file.delete();
+		}
+		folder.delete();
+	}
+	
+	private void serve(HttpExchange exchange) throws IOException {
+		exchange.getResponseHeaders().add("ETag", eTag);
+		if ( eTag.equals( exchange.getRequestHeaders().getFirst("If-None-Match") ) ) {
+			exchange.sendResponseHeaders(304, -1);
+			exchange.close();
+			return ;
+		}
+		String range = exchange.getRequestHeaders().getFirst("Range");
+		String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+		if ( ifRange != null ) {
+			synchronized (ifRanges) {
+				ifRanges.add(ifRange);
+			}
+			if ( ifRangeSupported && ! ifRange.equals(eTag) ) {
+				range = null ; // file changed : the whole file
+			}
+		}
+		int from = 0 ;
+		int to = FILE_SIZE - 1 ;
+		int status = 200 ;
+		if ( acceptRanges ) {
+			exchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+			if ( range != null ) {
+				synchronized (ranges) {
+					ranges.add(range);
+				}
+				String[] bounds = range.substring("bytes=".length()).split("-", -1);
+				from = Integer.parseInt(bounds[0]);
+				if ( bounds[1].length() > 0 ) {
+					to = Integer.parseInt(bounds[1]);
+				}
+				if ( from >= FILE_SIZE ) {
+					exchange.getResponseHeaders().add("Content-Range", "bytes */" + FILE_SIZE);
+					exchange.sendResponseHeaders(416, -1);
+					exchange.close();
+					return ;
+				}
+				exchange.getResponseHeaders().add("Content-Range", "bytes " + from + "-" + to + "/" + FILE_SIZE);
+				status = 206 ;
+			}
+		}
+		exchange.sendResponseHeaders(status, to - from + 1);
+		OutputStream out = exchange.getResponseBody();
+		out.write(data, from, to - from + 1);
+		out.close();
+	}
+	
+	private URL getURL() throws Exception {
+		return new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/file.zip");
+	}
+	
+	private void checkFile(File file) throws IOException {
+		assertTrue(file.exists());
+		assertEquals(FILE_SIZE, file.length());
+		byte[] content = new byte[FILE_SIZE];
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		raf.readFully(content);
+		raf.close();
+		assertTrue(Arrays.equals(data, content));
+		assertFalse(new File(file.getPath() + HttpDownloader.PART_FILE_SUFFIX).exists());
+	}
+	
+	/**
+	 * Writes the ".part" file and its validator as after an interrupted download 
+	 * @param destination
+	 * @param length
+	 * @param validator the validator of the interrupted download (or null if none)
+	 * @throws IOException
+	 */
+	private void writePartFile(File destination, int length, String validator) throws IOException {
+		FileOutputStream out = new FileOutputStream(destination.getPath() + HttpDownloader.PART_FILE_SUFFIX);
+		out.write(data, 0, length);
+		out.close();
+		if ( validator != null ) {
+			out = new FileOutputStream(destination.getPath() + HttpDownloader.VALIDATOR_FILE_SUFFIX);
+			out.write(validator.getBytes("UTF-8"));
+			out.close();
+		}
+	}
+	
+	private void changeFile() {
+		new Random(456).nextBytes(data);
+		eTag = "\"v2\"" ;
+	}
+	
+	private static class TestListener implements DownloadListener {
+		long contentLength = 0 ;
+		long resumedFrom = 0 ;
+		long lastProgress = 0 ;
+		long fileSize = 0 ;
+		public void downloadStarted(String url, long contentLength, long resumedFrom) {
+			this.contentLength = contentLength ;
+			this.resumedFrom = resumedFrom ;
+		}
+		public void downloadProgress(long bytesDownloaded, long contentLength) {
+			assertTrue(bytesDownloaded > lastProgress);
+			lastProgress = bytesDownloaded ;
+		}
+		public void downloadCompleted(long fileSize) {
+			this.fileSize = fileSize ;
+		}
+	}
+
+	public void testSequentialDownload() throws Exception {
+		acceptRanges = false ;
+		File file = new File(folder, "file1.zip");
+		HttpDownloader downloader = new HttpDownloader();
+		TestListener listener = new TestListener();
+		downloader.setListener(listener);
+		assertEquals(FILE_SIZE, downloader.download(getURL(), file));
+		checkFile(file);
+		assertEquals(0, ranges.size());
+		assertEquals(FILE_SIZE, listener.contentLength);
+		assertEquals(FILE_SIZE, listener.lastProgress);
+		assertEquals(FILE_SIZE, listener.fileSize);
+	}
+
+	public void testParallelDownload() throws Exception {
+		File file = new File(folder, "file2.zip");
+		HttpDownloader downloader = new HttpDownloader();
+		downloader.setSegments(4);
+		downloader.setMinSegmentSize(256 * 1024);
+		TestListener listener = new TestListener();
+		downloader.setListener(listener);
+		assertEquals(FILE_SIZE, downloader.download(getURL(), file));
+		checkFile(file);
+		assertEquals(3, ranges.size()); // first segment from the initial request
+		assertEquals(FILE_SIZE, listener.lastProgress);
+	}
+
+	public void testResume() throws Exception {
+		File file = new File(folder, "file3.zip");
+		writePartFile(file, 100000, "\"v1\"");
+		HttpDownloader downloader = new HttpDownloader();
+		downloader.setSegments(1);
+		TestListener listener = new TestListener();
+		downloader.setListener(listener);
+		assertEquals(FILE_SIZE, downloader.download(getURL(), file));
+		checkFile(file);
+		assertEquals(1, ranges.size());
+		assertEquals("bytes=100000-", ranges.get(0));
+		assertEquals("\"v1\"", ifRanges.get(0));
+		assertEquals(100000, listener.resumedFrom);
+		assertEquals(FILE_SIZE, listener.contentLength);
+		assertFalse(new File(file.getPath() + HttpDownloader.VALIDATOR_FILE_SUFFIX).exists());
+	}
+
+	public void testResumeWithoutValidator() throws Exception {
+		File file = new File(folder, "file7.zip");
+		writePartFile(file, 100000, null);
+		HttpDownloader downloader = new HttpDownloader();
+		downloader.setSegments(1);
+		assertEquals(FILE_SIZE, downloader.download(getURL(), file));
+		checkFile(file);
+		assertEquals(0, ranges.size()); // not resumed : the version of the ".part" file is unknown
+	}
+
+	public void testResumeFileChanged() throws Exception {
+		File file = new File(folder, "file8.zip");
+		writePartFile(file, 100000, "\"v1\"");
+		changeFile();
+		HttpDownloader downloader = new HttpDownloader();
+		downloader.setSegments(1);
+		TestListener listener = new TestListener();
+		downloader.setListener(listener);
+		assertEquals(FILE_SIZE, downloader.download(getURL(), file));
+		checkFile(file); // new version only
+		assertEquals("\"v1\"", ifRanges.get(0));
+		assertEquals(0, listener.resumedFrom);
+	}
+
+	public void testResumeFileChangedIfRangeIgnored() throws Exception {
+		ifRangeSupported = false ;
+		File file = new File(folder, "file9.zip");
+		writePartFile(file, 100000, "\"v1\"");
+		changeFile();
+		HttpDownloader downloader = new HttpDownloader();
+		downloader.setSegments(1);
+		assertEquals(FILE_SIZE, downloader.download(getURL(), file));
+		checkFile(file); // new version only
+		assertEquals(1, ranges.size()); // "206" with another ETag => restarted without range
+	}
+
+	public void testInterruptedDownloadKeepsValidator() throws Exception {
+		File file = new File(folder, "file10.zip");
+		server.removeContext("/file.zip");
+		server.createContext("/file.zip", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				//--- Interrupted after 1000 bytes
+				exchange.getResponseHeaders().add("ETag", eTag);
+				exchange.sendResponseHeaders(200, FILE_SIZE);
+				OutputStream out = exchange.getResponseBody();
+				out.write(data, 0, 1000);
+				out.flush();
+				exchange.close();
+			}
+		});
+		HttpDownloader downloader = new HttpDownloader();
+		downloader.setSegments(1);
+		try {
+			downloader.download(getURL(), file);
+			fail("IOException expected");
+		} catch (IOException e) {
+			// expected
+		}
+		assertTrue(new File(file.getPath() + HttpDownloader.PART_FILE_SUFFIX).exists());
+		File validatorFile = new File(file.getPath() + HttpDownloader.VALIDATOR_FILE_SUFFIX);
+		assertTrue(validatorFile.exists());
+		assertEquals(eTag.length(), validatorFile.length());
+	}
+
+	public void testResumeNotSupported() throws Exception {
+		acceptRanges = false ;
+		File file = new File(folder, "file4.zip");
+		writePartFile(file, 100, "\"v1\"");
+		assertEquals(FILE_SIZE, new HttpDownloader().download(getURL(), file));
+		checkFile(file);
+	}
+
+	public void testResumeCompleteFile() throws Exception {
+		File file = new File(folder, "file5.zip");
+		writePartFile(file, FILE_SIZE, "\"v1\"");
+		assertEquals(FILE_SIZE, new HttpDownloader().download(getURL(), file));
+		checkFile(file);
+		assertEquals("bytes=" + FILE_SIZE + "-", ranges.get(0));
+	}
+
+	public void testConditionalRequest() throws Exception {
+		File file = new File(folder, "file6.zip");
+		HttpDownloader downloader = new HttpDownloader();
+		assertEquals(FILE_SIZE, downloader.download(getURL(), file));
+		assertEquals("\"v1\"", downloader.getETag());
+		
+		Map<String,String> headers = new HashMap<String,String>();
+		headers.put("If-None-Match", downloader.getETag());
+		downloader.setRequestHeaders(headers);
+		assertEquals(HttpDownloader.NOT_MODIFIED, downloader.download(getURL(), file));
+		checkFile(file); // unchanged
+	}
+}
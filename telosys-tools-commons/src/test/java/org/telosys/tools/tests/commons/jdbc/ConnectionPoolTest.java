@@ -0,0 +1,187 @@
+package org.telosys.tools.tests.commons.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.telosys.tools.commons.ConsoleLogger;
+import org.telosys.tools.commons.GenericLogger;
+import org.telosys.tools.commons.TelosysToolsException;
+import org.telosys.tools.commons.dbcfg.DatabaseConfiguration;
+import org.telosys.tools.commons.jdbc.ConnectionManager;
+import org.telosys.tools.commons.jdbc.ConnectionPool;
+import org.telosys.tools.commons.jdbc.ConnectionPoolManager;
+import org.telosys.tools.commons.jdbc.ConnectionPoolStatistics;
+
+public class ConnectionPoolTest extends TestCase {
+
+	private DatabaseConfiguration getDatabaseConfiguration(String dbName, int poolSize) {
+		DatabaseConfiguration databaseConfiguration = new DatabaseConfiguration();
+		databaseConfiguration.setDriverClass("org.h2.Driver");
+		databaseConfiguration.setJdbcUrl("jdbc:h2:mem:" + dbName);
+		databaseConfiguration.setUser("sa");
+		databaseConfiguration.setPassword("");
+		databaseConfiguration.setPoolSize(poolSize);
+		return databaseConfiguration ;
+	}
+	
+	private ConnectionPool createPool(String dbName, int poolSize) throws TelosysToolsException {
+		ConnectionManager cm = new ConnectionManager( new ConsoleLogger() );
+		return new ConnectionPool(cm, getDatabaseConfiguration(dbName, poolSize), new ConsoleLogger() );
+	}
+	
+	public void testReuse() throws TelosysToolsException, SQLException {
+		ConnectionPool pool = createPool("pool1", 2);
+		assertEquals(2, pool.getMaxSize());
+		
+		Connection c1 = pool.getConnection();
+		Connection c2 = pool.getConnection();
+		assertNotNull(c1);
+		assertNotNull(c2);
+		assertNull(pool.tryGetConnection()); // pool full
+		assertEquals(2, pool.getStatistics().getActiveConnections());
+		
+		c1.close();
+		assertTrue(c1.isClosed());
+		c1.close(); // no effect
+		assertEquals(1, pool.getStatistics().getIdleConnections());
+		try {
+			c1.createStatement();
+			fail("SQLException expected");
+		} catch (SQLException e) {
+			// OK : connection returned to the pool
+		}
+		
+		Connection c3 = pool.getConnection(); // reused connection
+		assertFalse(c3.isClosed());
+		c3.createStatement().close();
+		c3.close();
+		c2.close();
+		
+		ConnectionPoolStatistics statistics = pool.getStatistics();
+		System.out.println(statistics);
+		assertEquals(2, statistics.getCreatedConnections());
+		assertEquals(3, statistics.getBorrows());
+		assertEquals(0, statistics.getActiveConnections());
+		assertEquals(2, statistics.getIdleConnections());
+		
+		pool.close();
+		assertEquals(0, pool.getStatistics().getIdleConnections());
+		assertEquals(2, pool.getStatistics().getDestroyedConnections());
+	}
+
+	public void testValidationOnBorrow() throws TelosysToolsException, SQLException {
+		ConnectionPool pool = createPool("pool2", 1);
+		pool.setValidationInterval(0);
+		
+		Connection c1 = pool.getConnection();
+		Connection physical = c1.unwrap(Connection.class);
+		c1.close();
+		physical.close(); // connection broken while idle in the pool
+		
+		Connection c2 = pool.getConnection();
+		assertFalse(c2.isClosed());
+		c2.close();
+		
+		ConnectionPoolStatistics statistics = pool.getStatistics();
+		assertEquals(1, statistics.getValidationFailures());
+		assertEquals(2, statistics.getCreatedConnections());
+		pool.close();
+	}
+
+	public void testMaxWait() throws TelosysToolsException, SQLException {
+		ConnectionPool pool = createPool("pool3", 1);
+		pool.setMaxWait(100);
+		
+		Connection c1 = pool.getConnection();
+		try {
+			pool.getConnection();
+			fail("TelosysToolsException expected");
+		} catch (TelosysToolsException e) {
+			// OK : no connection available
+		}
+		assertEquals(1, pool.getStatistics().getWaits());
+		c1.close();
+		pool.close();
+	}
+
+	public void testIdleEvictionAndLeaks() throws Exception {
+		ConnectionPool pool = createPool("pool4", 2);
+		pool.setIdleTimeout(1);
+		pool.setLeakThreshold(1);
+		
+		Connection c1 = pool.getConnection();
+		Connection c2 = pool.getConnection();
+		c1.close();
+		Thread.sleep(20);
+		pool.checkConnections();
+		
+		ConnectionPoolStatistics statistics = pool.getStatistics();
+		assertEquals(1, statistics.getEvictions());
+		assertEquals(0, statistics.getIdleConnections());
+		assertEquals(1, statistics.getLeaks()); // c2 not returned 
+		
+		pool.checkConnections();
+		assertEquals(1, pool.getStatistics().getLeaks()); // reported once
+		c2.close();
+		pool.close();
+	}
+
+	public void testIdleEvictionAndLeaksOnBorrow() throws Exception {
+		final List<String> messages = new LinkedList<String>();
+		GenericLogger logger = new GenericLogger() {
+			@Override
+			protected synchronized void print(String s) {
+				messages.add(s);
+			}
+		};
+		ConnectionManager cm = new ConnectionManager( new ConsoleLogger() );
+		ConnectionPool pool = new ConnectionPool(cm, getDatabaseConfiguration("pool5", 2), logger);
+		pool.setIdleTimeout(1);
+		pool.setLeakThreshold(1);
+		
+		Connection c1 = pool.getConnection();
+		Connection physical = c1.unwrap(Connection.class);
+		Connection c2 = pool.getConnection();
+		c1.close();
+		Thread.sleep(20);
+		Connection c3 = pool.getConnection(); // evicts c1 and reports c2
+		
+		ConnectionPoolStatistics statistics = pool.getStatistics();
+		assertEquals(1, statistics.getEvictions());
+		assertEquals(1, statistics.getDestroyedConnections());
+		assertTrue(physical.isClosed()); // evicted connection closed
+		assertEquals(1, statistics.getLeaks()); 
+		boolean leakLogged = false ;
+		for ( String message : messages ) {
+			if ( message.startsWith("[ERROR] Connection not returned to the pool") ) {
+				leakLogged = true ;
+			}
+		}
+		assertTrue(leakLogged);
+		c2.close();
+		c3.close();
+		pool.close();
+	}
+
+	public void testConnectionPoolManager() throws TelosysToolsException {
+		ConnectionManager cm = new ConnectionManager( new ConsoleLogger() );
+		DatabaseConfiguration databaseConfiguration = getDatabaseConfiguration("pool5", 2);
+		
+		ConnectionPool pool1 = ConnectionPoolManager.getConnectionPool(cm, databaseConfiguration, null);
+		ConnectionPool pool2 = ConnectionPoolManager.getConnectionPool(cm, databaseConfiguration, null);
+		assertSame(pool1, pool2);
+		
+		databaseConfiguration.setPoolSize(3);
+		ConnectionPool pool3 = ConnectionPoolManager.getConnectionPool(cm, databaseConfiguration, null);
+		assertNotSame(pool1, pool3);
+		assertTrue(pool1.isClosed());
+		assertEquals(3, pool3.getMaxSize());
+		
+		ConnectionPoolManager.closeAll();
+		assertTrue(pool3.isClosed());
+	}
+}
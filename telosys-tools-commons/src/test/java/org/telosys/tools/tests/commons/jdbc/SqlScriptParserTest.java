@@ -0,0 +1,77 @@
+package org.telosys.tools.tests.commons.jdbc;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.LinkedList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.telosys.tools.commons.jdbc.SqlScriptParser;
+
+public class SqlScriptParserTest extends TestCase {
+
+	private List<String> parse(String script, String delimiter, boolean fullLineDelimiter) throws IOException {
+		SqlScriptParser parser = new SqlScriptParser(new StringReader(script), delimiter, fullLineDelimiter);
+		List<String> statements = new LinkedList<String>();
+		String statement ;
+		while ( ( statement = parser.nextStatement() ) != null ) {
+			System.out.println("[" + statement + "]");
+			statements.add(statement);
+		}
+		return statements ;
+	}
+	
+	public void testSimpleStatements() throws IOException {
+		List<String> statements = parse("CREATE TABLE T (ID INT);\nINSERT INTO T VALUES (1); INSERT INTO T VALUES (2);\n\n", ";", false);
+		assertEquals(3, statements.size());
+		assertEquals("CREATE TABLE T (ID INT)", statements.get(0));
+		assertEquals("INSERT INTO T VALUES (1)", statements.get(1));
+		assertEquals("INSERT INTO T VALUES (2)", statements.get(2));
+	}
+
+	public void testMultiLineStatement() throws IOException {
+		List<String> statements = parse("CREATE TABLE T (\n  ID INT,\n  NAME VARCHAR(20)\n) ;\nSELECT * FROM T", ";", false);
+		assertEquals(2, statements.size());
+		assertEquals("CREATE TABLE T (   ID INT,   NAME VARCHAR(20) )", statements.get(0));
+		assertEquals("SELECT * FROM T", statements.get(1)); // last statement without delimiter
+	}
+
+	public void testQuotedDelimiters() throws IOException {
+		List<String> statements = parse("INSERT INTO T VALUES ('a;b', 'it''s;') ;\nSELECT \"x;y\" FROM T;", ";", false);
+		assertEquals(2, statements.size());
+		assertEquals("INSERT INTO T VALUES ('a;b', 'it''s;')", statements.get(0));
+		assertEquals("SELECT \"x;y\" FROM T", statements.get(1));
+	}
+
+	public void testComments() throws IOException {
+		List<String> statements = parse("-- first comment ; \nINSERT INTO T VALUES (1); -- end ;\n"
+				+ "/* block ; \n comment */ INSERT INTO T /* ; */ VALUES (2);\n"
+				+ "INSERT INTO T VALUES ('-- not a comment');", ";", false);
+		assertEquals(3, statements.size());
+		assertEquals("INSERT INTO T VALUES (1)", statements.get(0));
+		assertEquals("INSERT INTO T   VALUES (2)", statements.get(1));
+		assertEquals("INSERT INTO T VALUES ('-- not a comment')", statements.get(2));
+	}
+
+	public void testEmptyStatements() throws IOException {
+		List<String> statements = parse(";;\n ; INSERT INTO T VALUES (1);;", ";", false);
+		assertEquals(1, statements.size());
+	}
+
+	public void testLineNumbers() throws IOException {
+		SqlScriptParser parser = new SqlScriptParser(new StringReader("-- comment\n\nINSERT INTO T\nVALUES (1);\r\nINSERT INTO T VALUES (2);"), ";", false);
+		assertNotNull(parser.nextStatement());
+		assertEquals(3, parser.getStatementLineNumber());
+		assertNotNull(parser.nextStatement());
+		assertEquals(5, parser.getStatementLineNumber());
+		assertNull(parser.nextStatement());
+	}
+
+	public void testFullLineDelimiter() throws IOException {
+		List<String> statements = parse("INSERT INTO T VALUES (1);\nINSERT INTO T VALUES (2);\nGO\nSELECT 'GO' FROM T\n  GO  \n", "GO", true);
+		assertEquals(2, statements.size());
+		assertEquals("INSERT INTO T VALUES (1); INSERT INTO T VALUES (2);", statements.get(0));
+		assertEquals("SELECT 'GO' FROM T", statements.get(1));
+	}
+}
@@ -0,0 +1,102 @@
+package org.telosys.tools.tests.commons.jdbc;
+
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+import junit.framework.TestCase;
+
+import org.telosys.tools.commons.ConsoleLogger;
+import org.telosys.tools.commons.jdbc.ConnectionManager;
+import org.telosys.tools.commons.jdbc.SqlScriptRunner;
+
+public class SqlScriptRunnerTest extends TestCase {
+
+	private Connection getConnection(String dbName) throws Exception {
+		ConnectionManager cm = new ConnectionManager( new ConsoleLogger() );
+		return cm.getConnection("org.h2.Driver", "jdbc:h2:mem:" + dbName, new Properties());
+	}
+	
+	private String buildScript(int rows) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("CREATE TABLE CUSTOMER ( ID INT PRIMARY KEY, NAME VARCHAR(40) ) ;\n");
+		sb.append("-- rows \n");
+		for ( int i = 1 ; i <= rows ; i++ ) {
+			sb.append("INSERT INTO CUSTOMER VALUES (" + i + ", 'Name;" + i + "') ;\n");
+		}
+		sb.append("UPDATE CUSTOMER SET NAME = 'First' WHERE ID = 1 ;\n");
+		sb.append("/* delete ; */ DELETE FROM CUSTOMER WHERE ID = 2 ;\n");
+		return sb.toString();
+	}
+	
+	private int count(Connection con, String where) throws SQLException {
+		Statement statement = con.createStatement();
+		try {
+			ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM CUSTOMER " + where);
+			rs.next();
+			return rs.getInt(1);
+		} finally {
+			statement.close();
+		}
+	}
+	
+	private void runScript(Connection con, String script, int batchSize) throws Exception {
+		SqlScriptRunner runner = new SqlScriptRunner(con, true, true);
+		runner.setBatchSize(batchSize);
+		runner.setCommitInterval(100);
+		StringWriter log = new StringWriter();
+		runner.setLogWriter(new PrintWriter(log));
+		runner.runScript(new StringReader(script));
+		System.out.println("batchSize = " + batchSize + " : " + runner.getStatementsCount() + " statements, " 
+				+ runner.getDuration() + " ms, " + runner.getStatementsPerSecond() + " statements/sec");
+		assertEquals(1003, runner.getStatementsCount()); // CREATE + 1000 INSERT + UPDATE + DELETE
+	}
+	
+	public void testPerStatementMode() throws Exception {
+		Connection con = getConnection("script1");
+		try {
+			runScript(con, buildScript(1000), 0);
+			assertEquals(999, count(con, ""));
+			assertEquals(1, count(con, "WHERE NAME = 'First'"));
+		} finally {
+			con.close();
+		}
+	}
+
+	public void testBatchMode() throws Exception {
+		Connection con = getConnection("script2");
+		try {
+			runScript(con, buildScript(1000), 50);
+			assertEquals(999, count(con, ""));
+			assertEquals(1, count(con, "WHERE NAME = 'First'"));
+			assertEquals(1, count(con, "WHERE NAME = 'Name;3'"));
+			assertTrue(con.getAutoCommit()); // restored
+		} finally {
+			con.close();
+		}
+	}
+
+	public void testBatchModeStopOnError() throws Exception {
+		Connection con = getConnection("script3");
+		try {
+			SqlScriptRunner runner = new SqlScriptRunner(con, true, true);
+			runner.setBatchSize(10);
+			runner.setLogWriter(null);
+			runner.setErrorLogWriter(null);
+			try {
+				runner.runScript(new StringReader("CREATE TABLE CUSTOMER ( ID INT PRIMARY KEY, NAME VARCHAR(40) ) ;\n"
+						+ "INSERT INTO CUSTOMER VALUES (1, 'A');\nINSERT INTO CUSTOMER VALUES (1, 'B');\n"));
+				fail("SQLException expected");
+			} catch (SQLException e) {
+				// OK : duplicate key 
+			}
+		} finally {
+			con.close();
+		}
+	}
+}
@@ -47,6 +47,9 @@ public class VariablesManagerTest extends TestCase {
 		replaceVariables(variablesManager, "aaa${}zzz", "aaa${}zzz");
 		
 		replaceVariables(variablesManager, "aaa${VAR1}bbb${VAR2}zzz", "aaaVALUE1bbbVALUE2zzz");
+		replaceVariables(variablesManager, "a}a${VAR1}zzz", "a}aVALUE1zzz");
+		replaceVariables(variablesManager, "aaa${VAR1", "aaa${VAR1");
+		replaceVariables(variablesManager, "aaa${VAR1}${VAR2", "aaaVALUE1${VAR2");
 	}
 	
 	public void testGetVariableNames() {
@@ -0,0 +1,137 @@
+/**
+ *  Copyright (C) 2008-2013  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.db.metadata;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Meta-data loaded in bulk for a whole schema ( one query for each kind of meta-data ) <br>
+ * and grouped by table. <br>
+ * A kind of meta-data is "not available" (null) if the driver cannot return it in bulk, <br>
+ * in this case the caller must use the usual "per table" query. 
+ * 
+ * @author Laurent Guerin
+ * @since 2.1.1
+ */
+public class BulkMetaData 
+{
+	private Map<String, List<ColumnMetaData>>           columns   = null ;
+	
+	private Map<String, List<PrimaryKeyColumnMetaData>> pkColumns = null ;
+	
+	private Map<String, List<ForeignKeyColumnMetaData>> fkColumns = null ;
+
+	private Map<String, List<String>>                   autoIncrementedColumns = null ;
+
+	//----------------------------------------------------------------------------------
+	protected static String tableKey(String catalogName, String schemaName, String tableName) {
+		return ( catalogName != null ? catalogName : "" ) 
+				+ "|" + ( schemaName != null ? schemaName : "" ) 
+				+ "|" + tableName ;
+	}
+	
+	private static <T> List<T> getTableList(Map<String, List<T>> map, TableMetaData table) {
+		if ( map == null ) {
+			return null ; // not available in bulk 
+		}
+		List<T> list = map.get( tableKey(table.getCatalogName(), table.getSchemaName(), table.getTableName()) );
+		return ( list != null ? list : new LinkedList<T>() ) ; // no meta-data for this table
+	}
+	
+	//----------------------------------------------------------------------------------
+	protected void setColumns(Map<String, List<ColumnMetaData>> columns) {
+		this.columns = columns;
+	}
+
+	/**
+	 * Returns the columns of the given table, or null if the columns have not been loaded in bulk
+	 * @param table
+	 * @return
+	 */
+	public List<ColumnMetaData> getColumns(TableMetaData table) {
+		return getTableList(columns, table);
+	}
+
+	//----------------------------------------------------------------------------------
+	protected void setPKColumns(Map<String, List<PrimaryKeyColumnMetaData>> pkColumns) {
+		this.pkColumns = pkColumns;
+	}
+
+	/**
+	 * Returns the primary key columns of the given table, or null if the primary keys have not been loaded in bulk
+	 * @param table
+	 * @return
+	 */
+	public List<PrimaryKeyColumnMetaData> getPKColumns(TableMetaData table) {
+		return getTableList(pkColumns, table);
+	}
+
+	//----------------------------------------------------------------------------------
+	/**
+	 * Set the foreign keys columns ( each list is sorted as in "getFKColumns" : by FK name and sequence ) 
+	 * @param fkColumns
+	 */
+	protected void setFKColumns(Map<String, List<ForeignKeyColumnMetaData>> fkColumns) {
+		Comparator<ForeignKeyColumnMetaData> comparator = new Comparator<ForeignKeyColumnMetaData>() {
+			public int compare(ForeignKeyColumnMetaData fk1, ForeignKeyColumnMetaData fk2) {
+				int r = fk1.compareTo(fk2);
+				return ( r != 0 ? r : fk1.getFkSequence() - fk2.getFkSequence() ) ;
+			}
+		};
+		for ( List<ForeignKeyColumnMetaData> list : fkColumns.values() ) {
+			Collections.sort(list, comparator);
+		}
+		this.fkColumns = fkColumns;
+	}
+
+	/**
+	 * Returns the foreign keys columns of the given table, or null if the foreign keys have not been loaded in bulk
+	 * @param table
+	 * @return
+	 */
+	public List<ForeignKeyColumnMetaData> getFKColumns(TableMetaData table) {
+		return getTableList(fkColumns, table);
+	}
+
+	//----------------------------------------------------------------------------------
+	protected void setAutoIncrementedColumns(Map<String, List<String>> autoIncrementedColumns) {
+		this.autoIncrementedColumns = autoIncrementedColumns;
+	}
+
+	/**
+	 * Returns the names of the auto-incremented columns of the given table ( from a vendor catalog view ), <br>
+	 * or null if they have not been loaded in bulk
+	 * @param table
+	 * @return
+	 */
+	public List<String> getAutoIncrementedColumns(TableMetaData table) {
+		return getTableList(autoIncrementedColumns, table);
+	}
+
+	//----------------------------------------------------------------------------------
+	protected static <T> void addToTable(Map<String, List<T>> map, String tableKey, T item) {
+		List<T> list = map.get(tableKey);
+		if ( list == null ) {
+			list = new LinkedList<T>();
+			map.put(tableKey, list);
+		}
+		list.add(item);
+	}
+}
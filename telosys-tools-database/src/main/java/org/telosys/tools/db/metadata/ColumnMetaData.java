@@ -44,6 +44,8 @@ public class ColumnMetaData
 	private int     ordinalPosition = 0 ;
 	
 	private String  comment ; // explanatory comment on the table 
+	
+	private String  autoIncrement = "" ; // "YES", "NO" or "" if unknown ( JDBC 4 "IS_AUTOINCREMENT" ) 
 		
 	
 	//------------------------------------------------------------------------------
@@ -200,4 +202,27 @@ public class ColumnMetaData
 		return comment;
 	}
 
+	//------------------------------------------------------------------------------
+	protected void setAutoIncrement(String autoIncrement) {
+		this.autoIncrement = ( autoIncrement != null ? autoIncrement.trim() : "" ) ;
+	}
+
+	/**
+	 * Returns true if the driver has indicated whether the column is auto-incremented or not
+	 * @return
+	 * @since 2.1.1
+	 */
+	public boolean isAutoIncrementKnown() {
+		return "YES".equals(autoIncrement) || "NO".equals(autoIncrement) ;
+	}
+
+	/**
+	 * Returns true if the driver has indicated that the column is auto-incremented
+	 * @return
+	 * @since 2.1.1
+	 */
+	public boolean isAutoIncremented() {
+		return "YES".equals(autoIncrement) ;
+	}
+
 }
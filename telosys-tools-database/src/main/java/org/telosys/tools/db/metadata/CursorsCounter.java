@@ -0,0 +1,70 @@
+/**
+ *  Copyright (C) 2008-2013  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.db.metadata;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counter of the database cursors ( statements and result sets ) opened and closed <br>
+ * by a MetaDataManager, used to check that no cursor is left open. <br>
+ * Thread safe (a MetaDataManager can be shared by several loading threads)
+ * 
+ * @author Laurent Guerin
+ * @since 2.1.1
+ */
+public class CursorsCounter 
+{
+	private final AtomicInteger opened = new AtomicInteger(0);
+	
+	private final AtomicInteger closed = new AtomicInteger(0);
+	
+	protected void cursorOpened() {
+		opened.incrementAndGet();
+	}
+	
+	protected void cursorClosed() {
+		closed.incrementAndGet();
+	}
+
+	/**
+	 * Returns the total number of cursors opened 
+	 * @return
+	 */
+	public int getOpenedCount() {
+		return opened.get();
+	}
+	
+	/**
+	 * Returns the total number of cursors closed 
+	 * @return
+	 */
+	public int getClosedCount() {
+		return closed.get();
+	}
+	
+	/**
+	 * Returns the number of cursors currently open ( opened and not yet closed )
+	 * @return
+	 */
+	public int getOpenCount() {
+		return opened.get() - closed.get();
+	}
+	
+	@Override
+	public String toString() {
+		return getOpenedCount() + " cursor(s) opened, " + getOpenCount() + " still open" ;
+	}
+}
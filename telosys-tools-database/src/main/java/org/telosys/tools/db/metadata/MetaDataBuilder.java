@@ -17,6 +17,7 @@ package org.telosys.tools.db.metadata;
 
 import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 
 public class MetaDataBuilder 
@@ -113,7 +114,36 @@ public class MetaDataBuilder
 	/* 16 */ private final static String CHAR_OCTET_LENGTH = "CHAR_OCTET_LENGTH" ; // int : for char types the maximum number of bytes in the column
 	/* 17 */ private final static String ORDINAL_POSITION  = "ORDINAL_POSITION" ; // int : index of column in table (starting at 1) 
 	// 18 to 22 unused 
+	/* 23 */ private final static String IS_AUTOINCREMENT  = "IS_AUTOINCREMENT" ; // String : "YES", "NO" or "" (JDBC 4, may not exist) 
 	//--------------------------------------------------------------------------------------------
+	/**
+	 * Returns true if the given "columns" result set has the "IS_AUTOINCREMENT" column (not provided by all the drivers)
+	 * @param rs
+	 * @return
+	 * @throws SQLException
+	 */
+	protected static boolean hasAutoIncrementInfo( ResultSet rs ) throws SQLException
+	{
+		ResultSetMetaData rsmd = rs.getMetaData();
+		for ( int i = 1 ; i <= rsmd.getColumnCount() ; i++ ) {
+			if ( IS_AUTOINCREMENT.equalsIgnoreCase( rsmd.getColumnName(i) ) ) {
+				return true ;
+			}
+		}
+		return false ;
+	}
+
+	//--------------------------------------------------------------------------------------------
+	protected static ColumnMetaData buildColumnMetaData( ResultSet rs, boolean withAutoIncrementInfo ) throws SQLException
+	{
+		ColumnMetaData columnMetaData = buildColumnMetaData(rs);
+		if ( withAutoIncrementInfo ) {
+			//--- 23 : auto-incremented column ( "YES", "NO" or "" if unknown )
+			columnMetaData.setAutoIncrement( rs.getString(IS_AUTOINCREMENT) );
+		}
+		return columnMetaData ;
+	}
+	
 	protected static ColumnMetaData buildColumnMetaData( ResultSet rs ) throws SQLException
 	{
 		//--- 1 
@@ -17,13 +17,16 @@ package org.telosys.tools.db.metadata;
 
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 import org.telosys.tools.commons.StandardTool;
@@ -31,10 +34,54 @@ import org.telosys.tools.commons.TelosysToolsLogger;
 
 public class MetaDataManager extends StandardTool
 {
+	private final static int BULK_FETCH_SIZE = 1000 ;
+	
+	private final CursorsCounter cursorsCounter = new CursorsCounter();
+	
 	public MetaDataManager(TelosysToolsLogger logger) {
 		super(logger);
 	}
 
+	//--------------------------------------------------------------------------------------------
+	/**
+	 * Returns the counter of the cursors ( statements and result sets ) opened by this manager
+	 * @return
+	 * @since 2.1.1
+	 */
+	public CursorsCounter getCursorsCounter() {
+		return cursorsCounter ;
+	}
+	
+	private ResultSet opened(ResultSet rs) {
+		cursorsCounter.cursorOpened();
+		return rs ;
+	}
+
+	private Statement opened(Statement stmt) {
+		cursorsCounter.cursorOpened();
+		return stmt ;
+	}
+
+	private void close(ResultSet rs) throws SQLException {
+		if ( rs != null ) {
+			try {
+				rs.close();
+			} finally {
+				cursorsCounter.cursorClosed();
+			}
+		}
+	}
+
+	private void close(Statement stmt) throws SQLException {
+		if ( stmt != null ) {
+			try {
+				stmt.close();
+			} finally {
+				cursorsCounter.cursorClosed();
+			}
+		}
+	}
+
 	//--------------------------------------------------------------------------------------------
 	public List<String> getCatalogs(Connection con ) throws SQLException
 	{
@@ -49,21 +96,24 @@ public class MetaDataManager extends StandardTool
 	public List<String> getCatalogs(DatabaseMetaData dbmd) throws SQLException
 	{
 		log("getCatalogs(DatabaseMetaData) ..."  );
-	    ResultSet rs = dbmd.getCatalogs();
+	    ResultSet rs = opened( dbmd.getCatalogs() );
 	    
 		LinkedList<String> list = new LinkedList<String>();
 		
-		int iCount = 0;
-		while ( rs.next() ) 
-		{
-			iCount++;
-			log("getCatalogs : try to build catalog #" + iCount +" ..." );			
-			String catalog = MetaDataBuilder.buildCatalogMetaData(rs);
-			log("getCatalogs : catalog #" + iCount +  " built ( name = " + catalog + " )");
-
-			list.addLast(catalog);
+		try {
+			int iCount = 0;
+			while ( rs.next() ) 
+			{
+				iCount++;
+				log("getCatalogs : try to build catalog #" + iCount +" ..." );			
+				String catalog = MetaDataBuilder.buildCatalogMetaData(rs);
+				log("getCatalogs : catalog #" + iCount +  " built ( name = " + catalog + " )");
+	
+				list.addLast(catalog);
+			}
+		} finally {
+			close(rs);
 		}
-		rs.close();
 		
 		return list ;
 	}
@@ -82,26 +132,29 @@ public class MetaDataManager extends StandardTool
 	public List<SchemaMetaData> getSchemas(DatabaseMetaData dbmd) throws SQLException
 	{
 		log("getSchemas(DatabaseMetaData) ..."  );
-	    ResultSet rs = dbmd.getSchemas();
+	    ResultSet rs = opened( dbmd.getSchemas() );
 	    
 		LinkedList<SchemaMetaData> list = new LinkedList<SchemaMetaData>();
 		
-		ResultSetMetaData rsmd = rs.getMetaData();
-		int columnCount = rsmd.getColumnCount();
-		log("getSchemas : column count = " + columnCount );
-		
-		//--- For each SCHEMA ...
-		int iCount = 0;
-		while ( rs.next() ) 
-		{
-			iCount++;
-			log("getSchemas : try to build schema #" + iCount +" ..." );			
-			SchemaMetaData schemaMetaData = MetaDataBuilder.buildSchemaMetaData(rs, columnCount);
-			log("getSchemas : schema #" + iCount +  " built ( name = " + schemaMetaData.getSchemaName() + " )");
-
-			list.addLast(schemaMetaData);
+		try {
+			ResultSetMetaData rsmd = rs.getMetaData();
+			int columnCount = rsmd.getColumnCount();
+			log("getSchemas : column count = " + columnCount );
+			
+			//--- For each SCHEMA ...
+			int iCount = 0;
+			while ( rs.next() ) 
+			{
+				iCount++;
+				log("getSchemas : try to build schema #" + iCount +" ..." );			
+				SchemaMetaData schemaMetaData = MetaDataBuilder.buildSchemaMetaData(rs, columnCount);
+				log("getSchemas : schema #" + iCount +  " built ( name = " + schemaMetaData.getSchemaName() + " )");
+	
+				list.addLast(schemaMetaData);
+			}
+		} finally {
+			close(rs);
 		}
-		rs.close();
 		
 		return list ;
 	}
@@ -187,7 +240,7 @@ public class MetaDataManager extends StandardTool
 	    String catalogToUse = "!".equals(catalog) ? null : catalog ;
 	    	
 		//--- Get tables list
-		ResultSet rs = dbmd.getTables(catalogToUse, schemaToUse, tableNamePattern, tableTypes);
+		ResultSet rs = opened( dbmd.getTables(catalogToUse, schemaToUse, tableNamePattern, tableTypes) );
 
 		log("getTables : result set ready" );
 		
@@ -207,17 +260,18 @@ public class MetaDataManager extends StandardTool
 		
 		//--- For each table ...
 		int iTablesCount = 0;
-		while ( rs.next() ) 
-		{
-			iTablesCount++;
-			log("getTables : try to build table #" + iTablesCount +"..." );
+		try {
+			while ( rs.next() ) 
+			{
+				iTablesCount++;
+				log("getTables : try to build table #" + iTablesCount +"..." );
 			
-			TableMetaData tableMetaData = MetaDataBuilder.buildTableMetaData(rs);
-			log("getTables : table #" + iTablesCount +  " built ( name = " + tableMetaData.getTableName() + " )");
+				TableMetaData tableMetaData = MetaDataBuilder.buildTableMetaData(rs);
+				log("getTables : table #" + iTablesCount +  " built ( name = " + tableMetaData.getTableName() + " )");
 
-			String tableName = tableMetaData.getTableName();
+				String tableName = tableMetaData.getTableName();
 			
-			boolean isExclude = isExcludedTable(tableName, patternTableNameInclude, patternTableNameExclude);
+				boolean isExclude = isExcludedTable(tableName, patternTableNameInclude, patternTableNameExclude);
 						
 //			//--- Primary Key columns for the current table
 //			List pkColumns = getPKColumns(dbmd, tableMetaData.getCatalogName(), tableMetaData.getSchemaName(), tableMetaData.getTableName() );
@@ -228,11 +282,13 @@ public class MetaDataManager extends StandardTool
 //			//--- All columns of the current table
 //			List columns = getColumns(dbmd, tableMetaData.getCatalogName(), tableMetaData.getSchemaName(), tableMetaData.getTableName() );
 			
-			if( ! isExclude ) {
-				tables.addLast(tableMetaData);
+				if( ! isExclude ) {
+					tables.addLast(tableMetaData);
+				}
 			}
+		} finally {
+			close(rs);
 		}
-		rs.close();
 		
 		return tables ;
 	}
@@ -299,12 +355,15 @@ public class MetaDataManager extends StandardTool
 		LinkedList<ColumnMetaData> list = new LinkedList<ColumnMetaData>();
 
 		//--- Get the columns of the table ...
-		ResultSet rs = dbmd.getColumns(catalog, schema, tableName, "%");
+		ResultSet rs = opened( dbmd.getColumns(catalog, schema, tableName, "%") );
 
-		// --- For each column of the table ...
-		while ( rs.next() ) 
-		{
-			ColumnMetaData columnMetaData =  MetaDataBuilder.buildColumnMetaData(rs);
+		try {
+			boolean withAutoIncrementInfo = MetaDataBuilder.hasAutoIncrementInfo(rs);
+		
+			// --- For each column of the table ...
+			while ( rs.next() ) 
+			{
+				ColumnMetaData columnMetaData =  MetaDataBuilder.buildColumnMetaData(rs, withAutoIncrementInfo);
 			
 
 //			// --- If this column is in the Table Primary Key
@@ -316,10 +375,11 @@ public class MetaDataManager extends StandardTool
 //			// --- If this column is a member of a Foreign Key
 //			setFkAttribute(dbColName, column, listFK);
 			
-			list.addLast(columnMetaData);
+				list.addLast(columnMetaData);
+			}
+		} finally {
+			close(rs);
 		}
-
-		rs.close();
 		
 		return list ;
 	}
@@ -355,13 +415,16 @@ public class MetaDataManager extends StandardTool
 
 		LinkedList<PrimaryKeyColumnMetaData> list = new LinkedList<PrimaryKeyColumnMetaData>();
 	
-		ResultSet rs = dbmd.getPrimaryKeys(catalog, schema, tableName);
-		while ( rs.next() ) 
-		{
-			PrimaryKeyColumnMetaData pkColumnMetaData =  MetaDataBuilder.buildPKColumnMetaData(rs);
-			list.addLast(pkColumnMetaData);
+		ResultSet rs = opened( dbmd.getPrimaryKeys(catalog, schema, tableName) );
+		try {
+			while ( rs.next() ) 
+			{
+				PrimaryKeyColumnMetaData pkColumnMetaData =  MetaDataBuilder.buildPKColumnMetaData(rs);
+				list.addLast(pkColumnMetaData);
+			}
+		} finally {
+			close(rs);
 		}
-		rs.close();
 		
 		return list ;
 	}
@@ -387,13 +450,16 @@ public class MetaDataManager extends StandardTool
 
 		LinkedList<ForeignKeyColumnMetaData> list = new LinkedList<ForeignKeyColumnMetaData>();
 	
-		ResultSet rs = dbmd.getImportedKeys(catalog, schema, tableName);
-		while ( rs.next() ) 
-		{
-			ForeignKeyColumnMetaData fkColumnMetaData =  MetaDataBuilder.buildFKColumnMetaData(rs);
-			list.addLast(fkColumnMetaData);
+		ResultSet rs = opened( dbmd.getImportedKeys(catalog, schema, tableName) );
+		try {
+			while ( rs.next() ) 
+			{
+				ForeignKeyColumnMetaData fkColumnMetaData =  MetaDataBuilder.buildFKColumnMetaData(rs);
+				list.addLast(fkColumnMetaData);
+			}
+		} finally {
+			close(rs);
 		}
-		rs.close();
 		
 		//--- Sort by Foreign Key name 
 		Collections.sort(list);
@@ -401,6 +467,206 @@ public class MetaDataManager extends StandardTool
 		return list ;
 	}
 	
+	//--------------------------------------------------------------------------------------------
+	/**
+	 * Loads the columns, primary keys and foreign keys of all the tables of the given schema <br>
+	 * with only one query for each kind of meta-data ( instead of one query per table ). <br>
+	 * If a driver rejects a "whole schema" query ( or returns nothing ) this kind of meta-data <br>
+	 * is not available in the result and must be loaded table by table.
+	 * 
+	 * @param dbmd
+	 * @param catalog the catalog ( same value as for getTables )
+	 * @param schema the schema ( same value as for getTables )
+	 * @param tableNamePattern the table name pattern ( same value as for getTables )
+	 * @return
+	 * @since 2.1.1
+	 */
+	public BulkMetaData getBulkMetaData(DatabaseMetaData dbmd, String catalog, String schema, String tableNamePattern) 
+	{
+		log("getBulkMetaData(..., '" + catalog + "', '" + schema + "', '" + tableNamePattern + "')");
+
+	    String schemaToUse = "!".equals(schema) ? null : schema ;
+	    String catalogToUse = "!".equals(catalog) ? null : catalog ;
+	    
+		BulkMetaData bulkMetaData = new BulkMetaData();
+		
+		//--- All the columns 
+		try {
+			Map<String, List<ColumnMetaData>> map = new HashMap<String, List<ColumnMetaData>>();
+			ResultSet rs = opened( dbmd.getColumns(catalogToUse, schemaToUse, tableNamePattern, "%") );
+			try {
+				setBulkFetchSize(rs);
+				boolean withAutoIncrementInfo = MetaDataBuilder.hasAutoIncrementInfo(rs);
+				while ( rs.next() ) {
+					ColumnMetaData c = MetaDataBuilder.buildColumnMetaData(rs, withAutoIncrementInfo);
+					BulkMetaData.addToTable(map, BulkMetaData.tableKey(c.getCatalogName(), c.getSchemaName(), c.getTableName()), c);
+				}
+			} finally {
+				close(rs);
+			}
+			if ( ! map.isEmpty() ) {
+				bulkMetaData.setColumns(map);
+				//--- Auto-incremented columns from the vendor catalog view if the driver doesn't provide them
+				if ( ! isAutoIncrementKnown(map) ) {
+					bulkMetaData.setAutoIncrementedColumns( getBulkAutoIncrementedColumns(dbmd.getConnection(), schemaToUse) );
+				}
+			}
+			log("getBulkMetaData : columns of " + map.size() + " table(s)" );
+		} catch (SQLException e) {
+			log("getBulkMetaData : columns not available in bulk (" + e.getMessage() + ")" );
+		}
+
+		//--- All the primary keys ( "null" table name : not supported by all the drivers )
+		try {
+			Map<String, List<PrimaryKeyColumnMetaData>> map = new HashMap<String, List<PrimaryKeyColumnMetaData>>();
+			ResultSet rs = opened( dbmd.getPrimaryKeys(catalogToUse, schemaToUse, null) );
+			try {
+				setBulkFetchSize(rs);
+				while ( rs.next() ) {
+					PrimaryKeyColumnMetaData c = MetaDataBuilder.buildPKColumnMetaData(rs);
+					BulkMetaData.addToTable(map, BulkMetaData.tableKey(c.getCatalogName(), c.getSchemaName(), c.getTableName()), c);
+				}
+			} finally {
+				close(rs);
+			}
+			if ( ! map.isEmpty() ) {
+				bulkMetaData.setPKColumns(map);
+			}
+			log("getBulkMetaData : primary keys of " + map.size() + " table(s)" );
+		} catch (SQLException e) {
+			log("getBulkMetaData : primary keys not available in bulk (" + e.getMessage() + ")" );
+		}
+
+		//--- All the foreign keys ( "null" table name : not supported by all the drivers )
+		try {
+			Map<String, List<ForeignKeyColumnMetaData>> map = new HashMap<String, List<ForeignKeyColumnMetaData>>();
+			ResultSet rs = opened( dbmd.getImportedKeys(catalogToUse, schemaToUse, null) );
+			try {
+				setBulkFetchSize(rs);
+				while ( rs.next() ) {
+					ForeignKeyColumnMetaData c = MetaDataBuilder.buildFKColumnMetaData(rs);
+					BulkMetaData.addToTable(map, BulkMetaData.tableKey(c.getFkCatalogName(), c.getFkSchemaName(), c.getFkTableName()), c);
+				}
+			} finally {
+				close(rs);
+			}
+			if ( ! map.isEmpty() ) {
+				bulkMetaData.setFKColumns(map);
+			}
+			log("getBulkMetaData : foreign keys of " + map.size() + " table(s)" );
+		} catch (SQLException e) {
+			log("getBulkMetaData : foreign keys not available in bulk (" + e.getMessage() + ")" );
+		}
+		
+		return bulkMetaData ;
+	}
+	
+	private boolean isAutoIncrementKnown(Map<String, List<ColumnMetaData>> columns) {
+		for ( List<ColumnMetaData> list : columns.values() ) {
+			for ( ColumnMetaData c : list ) {
+				if ( ! c.isAutoIncrementKnown() ) {
+					return false ;
+				}
+			}
+		}
+		return true ;
+	}
+	
+	private void setBulkFetchSize(ResultSet rs) {
+		try {
+			rs.setFetchSize(BULK_FETCH_SIZE);
+		} catch (SQLException e) {
+			// just a hint, ignored by some drivers 
+		}
+	}
+	
+	//--------------------------------------------------------------------------------------------
+	/**
+	 * Returns the auto-incremented columns of all the tables of the given schema <br>
+	 * using the vendor catalog views ( only for the databases with a known view )
+	 * @param con
+	 * @param schema 
+	 * @return the columns names by table ( see BulkMetaData.tableKey ), or null if not available 
+	 */
+	protected Map<String, List<String>> getBulkAutoIncrementedColumns(Connection con, String schema) 
+	{
+		try {
+			String productName = con.getMetaData().getDatabaseProductName() ;
+			String sql = getAutoIncrementedColumnsQuery(productName, schema != null );
+			if ( sql == null ) {
+				log("getBulkAutoIncrementedColumns : no catalog view for '" + productName + "'" );
+				return null ;
+			}
+			Map<String, List<String>> map = new HashMap<String, List<String>>();
+			PreparedStatement ps = con.prepareStatement(sql);
+			opened(ps);
+			try {
+				if ( schema != null ) {
+					ps.setString(1, schema);
+				}
+				ResultSet rs = opened( ps.executeQuery() );
+				try {
+					setBulkFetchSize(rs);
+					while ( rs.next() ) {
+						// 1 : catalog, 2 : schema, 3 : table, 4 : column 
+						BulkMetaData.addToTable(map, BulkMetaData.tableKey(rs.getString(1), rs.getString(2), rs.getString(3)), rs.getString(4) );
+					}
+				} finally {
+					close(rs);
+				}
+			} finally {
+				close(ps);
+			}
+			log("getBulkAutoIncrementedColumns : auto-incremented columns in " + map.size() + " table(s)" );
+			return map ;
+		} catch (SQLException e) {
+			log("getBulkAutoIncrementedColumns : catalog view not available (" + e.getMessage() + ")" );
+			return null ;
+		}
+	}
+	
+	/**
+	 * Returns the query used to get the auto-incremented columns for the given database product <br>
+	 * The query returns 4 columns : catalog, schema, table and column 
+	 * @param productName
+	 * @param withSchema true if the query must have a schema parameter 
+	 * @return the query or null if none for this product
+	 */
+	private String getAutoIncrementedColumnsQuery(String productName, boolean withSchema)
+	{
+		if ( productName != null && productName.toUpperCase().indexOf("ORACLE") >= 0 ) {
+			//--- Oracle 12c "identity" columns ( the view doesn't exist in the previous versions )
+			return "SELECT NULL, OWNER, TABLE_NAME, COLUMN_NAME FROM ALL_TAB_IDENTITY_COLS" 
+				+ ( withSchema ? " WHERE OWNER = ?" : "" ) ;
+		}
+		return null ;
+	}
+	
+	//--------------------------------------------------------------------------------------------
+	/**
+	 * Creates a statement that can be reused to probe the auto-incremented columns of several tables <br>
+	 * ( must be closed with "closeProbeStatement" )
+	 * @param con
+	 * @return
+	 * @throws SQLException
+	 * @since 2.1.1
+	 */
+	public Statement createProbeStatement(Connection con) throws SQLException
+	{
+		return opened( con.createStatement() );
+	}
+	
+	/**
+	 * Closes a statement created by "createProbeStatement"
+	 * @param stmt
+	 * @throws SQLException
+	 * @since 2.1.1
+	 */
+	public void closeProbeStatement(Statement stmt) throws SQLException
+	{
+		close(stmt);
+	}
+	
 	/**
 	 * Returns a list of the autoincremented colomns for the given table
 	 * @param conn
@@ -413,29 +679,52 @@ public class MetaDataManager extends StandardTool
 	{
 		log("getAutoIncrementedColumns(..., " + schemaName + ", " + tableName + ")");
 
+		Statement stmt = createProbeStatement(conn);
+		try {
+			return getAutoIncrementedColumns(stmt, schemaName, tableName);
+		} finally {
+			closeProbeStatement(stmt);
+		}
+	}
+
+	/**
+	 * Returns a list of the autoincremented colomns for the given table, using the given statement <br>
+	 * ( the statement is not closed, it can be reused for other tables )
+	 * @param stmt a statement created by "createProbeStatement"
+	 * @param schemaName the table schema, not used if null
+	 * @param tableName 
+	 * @return
+	 * @throws SQLException
+	 * @since 2.1.1
+	 */
+	public List<String> getAutoIncrementedColumns(Statement stmt, String schemaName, String tableName) throws SQLException
+	{
+		log("getAutoIncrementedColumns(Statement, " + schemaName + ", " + tableName + ")");
+
 		LinkedList<String> result = new LinkedList<String>();
 		
-		Statement stmt = conn.createStatement();
-		
 		String fullName = tableName.trim() ;
 		if ( schemaName != null )
 		{
 			fullName = schemaName.trim() + "." + tableName.trim() ;
 		}
 		
-		ResultSet rs = stmt.executeQuery("SELECT * FROM " + fullName + " WHERE 1 = 0");
-		
-		ResultSetMetaData rsmd = rs.getMetaData();
-		int n = rsmd.getColumnCount();
-		
-		// for each column 
-		for ( int i = 1 ; i < n ; i++)
-		{
-			if ( rsmd.isAutoIncrement(i) ) 
+		ResultSet rs = opened( stmt.executeQuery("SELECT * FROM " + fullName + " WHERE 1 = 0") );
+		try {
+			ResultSetMetaData rsmd = rs.getMetaData();
+			int n = rsmd.getColumnCount();
+			
+			// for each column 
+			for ( int i = 1 ; i <= n ; i++)
 			{
-				String colName = rsmd.getColumnName(i);
-				result.addLast(colName);
+				if ( rsmd.isAutoIncrement(i) ) 
+				{
+					String colName = rsmd.getColumnName(i);
+					result.addLast(colName);
+				}
 			}
+		} finally {
+			close(rs);
 		}
 		return result ;
 	}
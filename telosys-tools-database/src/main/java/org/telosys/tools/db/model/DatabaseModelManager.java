@@ -18,11 +18,29 @@ package org.telosys.tools.db.model;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.telosys.tools.commons.StandardTool;
+import org.telosys.tools.commons.TelosysToolsException;
 import org.telosys.tools.commons.TelosysToolsLogger;
+import org.telosys.tools.commons.dbcfg.DatabaseConfiguration;
+import org.telosys.tools.commons.jdbc.ConnectionManager;
+import org.telosys.tools.commons.jdbc.ConnectionPool;
+import org.telosys.tools.db.metadata.BulkMetaData;
 import org.telosys.tools.db.metadata.ColumnMetaData;
+import org.telosys.tools.db.metadata.CursorsCounter;
 import org.telosys.tools.db.metadata.ForeignKeyColumnMetaData;
 import org.telosys.tools.db.metadata.MetaDataManager;
 import org.telosys.tools.db.metadata.PrimaryKeyColumnMetaData;
@@ -30,11 +48,95 @@ import org.telosys.tools.db.metadata.TableMetaData;
 
 public class DatabaseModelManager extends StandardTool
 {
+	private ConnectionManager     connectionManager = null ;
+	
+	private DatabaseConfiguration databaseConfiguration = null ;
+	
+	private ConnectionPool        connectionPool = null ;
+	
+	private int parallelism = 1 ;
+	
+	private boolean bulkMetaData = true ;
+	
+	private CursorsCounter cursorsCounter = null ;
 
 	public DatabaseModelManager(TelosysToolsLogger logger) {
 		super(logger);
 	}
 
+	/**
+	 * Defines where the additional connections used to load the tables meta-data in parallel come from <br>
+	 * Without connection source all the tables are loaded with the single connection given by the caller
+	 * @param connectionManager
+	 * @param databaseConfiguration the configuration of the database (the same as the caller's connection)
+	 * @since 2.1.1
+	 */
+	public void setConnectionSource(ConnectionManager connectionManager, DatabaseConfiguration databaseConfiguration) {
+		this.connectionManager = connectionManager ;
+		this.databaseConfiguration = databaseConfiguration ;
+	}
+
+	/**
+	 * Defines the pool where the additional connections used to load the tables meta-data in parallel are borrowed <br>
+	 * The parallelism is set to the pool size ( only the connections available in the pool are used )
+	 * @param connectionPool
+	 * @since 2.1.1
+	 */
+	public void setConnectionSource(ConnectionPool connectionPool) {
+		this.connectionPool = connectionPool ;
+		if ( connectionPool != null ) {
+			setParallelism( connectionPool.getMaxSize() );
+		}
+	}
+
+	/**
+	 * Returns the maximum number of connections used to load the tables meta-data
+	 * @return
+	 * @since 2.1.1
+	 */
+	public int getParallelism() {
+		return parallelism ;
+	}
+
+	/**
+	 * Set the maximum number of connections used to load the tables meta-data ( 1 by default ) <br>
+	 * A value greater than 1 is used only if a connection source has been defined
+	 * @param parallelism
+	 * @since 2.1.1
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = ( parallelism > 0 ? parallelism : 1 ) ;
+	}
+
+	/**
+	 * Returns true if the columns, primary keys and foreign keys are loaded with one query per schema
+	 * @return
+	 * @since 2.1.1
+	 */
+	public boolean isBulkMetaData() {
+		return bulkMetaData ;
+	}
+
+	/**
+	 * Set the "bulk meta-data" mode ( true by default ) <br>
+	 * If true, the columns, primary keys and foreign keys of all the tables are loaded with one query per kind <br>
+	 * (with a fallback to the "per table" queries for the drivers that don't support it)
+	 * @param bulkMetaData
+	 * @since 2.1.1
+	 */
+	public void setBulkMetaData(boolean bulkMetaData) {
+		this.bulkMetaData = bulkMetaData ;
+	}
+
+	/**
+	 * Returns the cursors counter of the last call to "getDatabaseTables" ( or null if none )
+	 * @return
+	 * @since 2.1.1
+	 */
+	public CursorsCounter getCursorsCounter() {
+		return cursorsCounter ;
+	}
+
 	public DatabaseTables getDatabaseTables(Connection con, String catalog, String schema, 
 			String tableNamePattern, String[] tableTypes,
 			String tableNameInclude, String tableNameExclude ) throws SQLException
@@ -42,6 +144,7 @@ public class DatabaseModelManager extends StandardTool
 		DatabaseTables databaseTables = new DatabaseTables();
 		
 		MetaDataManager mgr = new MetaDataManager( this.getLogger() );
+		cursorsCounter = mgr.getCursorsCounter();
 		
 		//--- Get the database Meta-Data
 		DatabaseMetaData dbmd = con.getMetaData();		
@@ -49,23 +152,36 @@ public class DatabaseModelManager extends StandardTool
 		//--- Initialize the tables ( table, columns, PK, FK ) 
 		List<TableMetaData> tablesMetaData = mgr.getTables(dbmd, catalog, schema, tableNamePattern, tableTypes, tableNameInclude, tableNameExclude);	
 		
+		//--- Get columns, primary keys and foreign keys for all the tables at once (if possible)
+		BulkMetaData bulk = null ;
+		if ( bulkMetaData && tablesMetaData.size() > 1 ) {
+			bulk = mgr.getBulkMetaData(dbmd, catalog, schema, tableNamePattern);
+		}
+		else {
+			bulk = new BulkMetaData(); // nothing available => "per table" queries
+		}
+		
 		//--- For each table get columns, primary key and foreign keys
-		for ( TableMetaData tableMetaData : tablesMetaData ) {
-			//--- Table columns
-			List<ColumnMetaData> columnsMetaData = mgr.getColumns(dbmd, tableMetaData.getCatalogName(), tableMetaData.getSchemaName(), tableMetaData.getTableName() );
-
-			//--- Table primary key columns
-			List<PrimaryKeyColumnMetaData> pkColumnsMetaData = mgr.getPKColumns(dbmd, tableMetaData.getCatalogName(), tableMetaData.getSchemaName(), tableMetaData.getTableName() );
-
-			//--- Table foreign keys columns
-			List<ForeignKeyColumnMetaData> fkColumnsMetaData = mgr.getFKColumns(dbmd, tableMetaData.getCatalogName(), tableMetaData.getSchemaName(), tableMetaData.getTableName() );
-
-			//--- Build the table model
-			DatabaseTable databaseTable = new DatabaseTable(tableMetaData,columnsMetaData,pkColumnsMetaData,fkColumnsMetaData);
-			
-			//--- Set auto-incremented columns if any
-			findAutoIncrementedColums(mgr, con, databaseTable);
-			
+		ProbeStatements probeStatements = new ProbeStatements(mgr);
+		List<DatabaseTable> tables ;
+		try {
+			if ( parallelism > 1 && ( connectionManager != null || connectionPool != null ) && tablesMetaData.size() > 1 ) {
+				tables = loadTablesInParallel(mgr, con, tablesMetaData, bulk, probeStatements);
+			}
+			else {
+				tables = new ArrayList<DatabaseTable>(tablesMetaData.size());
+				for ( TableMetaData tableMetaData : tablesMetaData ) {
+					tables.add( loadTable(mgr, con, tableMetaData, bulk, probeStatements) );
+				}
+			}
+		}
+		finally {
+			probeStatements.closeAll();
+			log("Meta-data loaded : " + cursorsCounter );
+		}
+		
+		//--- Keep the tables in the meta-data order (whatever the loading order)
+		for ( DatabaseTable databaseTable : tables ) {
 			databaseTables.addTable(databaseTable);
 		}
 		
@@ -75,17 +191,189 @@ public class DatabaseModelManager extends StandardTool
 		return databaseTables ;
 	}
 	
-	private void findAutoIncrementedColums( MetaDataManager mgr, Connection con, DatabaseTable databaseTable ) throws SQLException
+	private DatabaseTable loadTable( MetaDataManager mgr, Connection con, TableMetaData tableMetaData, BulkMetaData bulk,
+			ProbeStatements probeStatements ) throws SQLException
+	{
+		DatabaseMetaData dbmd = con.getMetaData();		
+		
+		//--- Table columns
+		List<ColumnMetaData> columnsMetaData = bulk.getColumns(tableMetaData);
+		if ( columnsMetaData == null ) {
+			columnsMetaData = mgr.getColumns(dbmd, tableMetaData.getCatalogName(), tableMetaData.getSchemaName(), tableMetaData.getTableName() );
+		}
+
+		//--- Table primary key columns
+		List<PrimaryKeyColumnMetaData> pkColumnsMetaData = bulk.getPKColumns(tableMetaData);
+		if ( pkColumnsMetaData == null ) {
+			pkColumnsMetaData = mgr.getPKColumns(dbmd, tableMetaData.getCatalogName(), tableMetaData.getSchemaName(), tableMetaData.getTableName() );
+		}
+
+		//--- Table foreign keys columns
+		List<ForeignKeyColumnMetaData> fkColumnsMetaData = bulk.getFKColumns(tableMetaData);
+		if ( fkColumnsMetaData == null ) {
+			fkColumnsMetaData = mgr.getFKColumns(dbmd, tableMetaData.getCatalogName(), tableMetaData.getSchemaName(), tableMetaData.getTableName() );
+		}
+
+		//--- Build the table model
+		DatabaseTable databaseTable = new DatabaseTable(tableMetaData,columnsMetaData,pkColumnsMetaData,fkColumnsMetaData);
+		
+		//--- Set auto-incremented columns if any
+		findAutoIncrementedColums(mgr, con, databaseTable, columnsMetaData, bulk.getAutoIncrementedColumns(tableMetaData), probeStatements);
+		
+		return databaseTable ;
+	}
+	
+	/**
+	 * Loads the tables with a pool of connections : the caller's connection + (parallelism - 1) other connections <br>
+	 * ( borrowed from the connection pool if any, else opened by the connection manager ) <br>
+	 * Each task borrows a connection, loads one table and gives the connection back <br>
+	 * The results are returned in the same order as the given tables 
+	 * @param mgr
+	 * @param con
+	 * @param tablesMetaData
+	 * @param bulk
+	 * @param probeStatements
+	 * @return
+	 * @throws SQLException
+	 */
+	private List<DatabaseTable> loadTablesInParallel( final MetaDataManager mgr, Connection con, 
+			List<TableMetaData> tablesMetaData, final BulkMetaData bulk, final ProbeStatements probeStatements ) throws SQLException
+	{
+		int poolSize = Math.min(parallelism, tablesMetaData.size());
+		
+		//--- Open the additional connections (continue with less connections if the database refuses them)
+		List<Connection> openedConnections = new ArrayList<Connection>(poolSize);
+		for ( int i = 1 ; i < poolSize ; i++ ) {
+			try {
+				if ( connectionPool != null ) {
+					Connection pooledConnection = connectionPool.tryGetConnection() ; // no wait
+					if ( pooledConnection == null ) break ; // all the connections are in use
+					openedConnections.add( pooledConnection );
+				}
+				else {
+					openedConnections.add( connectionManager.getConnection(databaseConfiguration) );
+				}
+			} catch (TelosysToolsException e) {
+				error("Cannot open an additional meta-data connection : " + e.getMessage() );
+				break ;
+			}
+		}
+		final BlockingQueue<Connection> connectionsPool = new ArrayBlockingQueue<Connection>(openedConnections.size() + 1);
+		connectionsPool.add(con);
+		connectionsPool.addAll(openedConnections);
+		log("Loading " + tablesMetaData.size() + " tables with " + connectionsPool.size() + " connection(s)");
+		
+		ExecutorService executor = Executors.newFixedThreadPool(connectionsPool.size());
+		try {
+			List<Future<DatabaseTable>> futures = new ArrayList<Future<DatabaseTable>>(tablesMetaData.size());
+			for ( final TableMetaData tableMetaData : tablesMetaData ) {
+				futures.add( executor.submit( new Callable<DatabaseTable>() {
+					public DatabaseTable call() throws Exception {
+						Connection workerConnection = connectionsPool.take();
+						try {
+							return loadTable(mgr, workerConnection, tableMetaData, bulk, probeStatements);
+						}
+						finally {
+							connectionsPool.put(workerConnection);
+						}
+					}
+				} ) );
+			}
+			
+			//--- Collect the results in the submission order 
+			List<DatabaseTable> tables = new ArrayList<DatabaseTable>(futures.size());
+			for ( Future<DatabaseTable> future : futures ) {
+				tables.add( getResult(future) );
+			}
+			return tables ;
+		}
+		finally {
+			//--- Cancel the pending tables (if error) and wait for the tables in progress
+			executor.shutdownNow();
+			awaitTermination(executor);
+			probeStatements.closeAll(); // before closing the connections
+			for ( Connection c : openedConnections ) {
+				try {
+					c.close(); // returned to the pool if borrowed from the pool
+				} catch (SQLException e) {
+					error("Cannot close meta-data connection : " + e.getMessage() );
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Waits for the end of the workers still using the connections ( a JDBC call cannot be interrupted )
+	 * @param executor
+	 */
+	private void awaitTermination( ExecutorService executor ) 
+	{
+		boolean interrupted = false ;
+		while ( ! executor.isTerminated() ) {
+			try {
+				executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				interrupted = true ; // wait anyway : the connections cannot be closed before the end of the workers
+			}
+		}
+		if ( interrupted ) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	private DatabaseTable getResult( Future<DatabaseTable> future ) throws SQLException 
+	{
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Meta-data loading interrupted", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if ( cause instanceof SQLException ) {
+				throw (SQLException) cause ;
+			}
+			if ( cause instanceof RuntimeException ) {
+				throw (RuntimeException) cause ;
+			}
+			throw new SQLException("Meta-data loading error", cause);
+		}
+	}
+	
+	/**
+	 * Set the auto-incremented columns of the given table, using the first information available : <br>
+	 * 1) the "IS_AUTOINCREMENT" flag provided by the driver for each column <br>
+	 * 2) the auto-incremented columns loaded in bulk from a vendor catalog view <br>
+	 * 3) a probe query on the table ( "SELECT * ... WHERE 1 = 0" ) 
+	 * @param mgr
+	 * @param con
+	 * @param databaseTable
+	 * @param columnsMetaData
+	 * @param bulkAutoIncrColumns the auto-incremented columns loaded in bulk (or null if not available)
+	 * @param probeStatements
+	 * @throws SQLException
+	 */
+	private void findAutoIncrementedColums( MetaDataManager mgr, Connection con, DatabaseTable databaseTable,
+			List<ColumnMetaData> columnsMetaData, List<String> bulkAutoIncrColumns, 
+			ProbeStatements probeStatements ) throws SQLException
 	{
 		List<String> autoIncrColumns = null ;
 		
-//		try {
-//			autoIncrColumns = mgr.getAutoIncrementedColumns(con, databaseTable.getSchemaName(), databaseTable.getTableName() );
-//		} catch (SQLException e) {
-//			// TODO Auto-generated catch block
-//			// ERROR : cannot get autoincremented columns
-//		}
-		autoIncrColumns = mgr.getAutoIncrementedColumns(con, databaseTable.getSchemaName(), databaseTable.getTableName() );
+		if ( isAutoIncrementKnown(columnsMetaData) ) {
+			autoIncrColumns = new ArrayList<String>();
+			for ( ColumnMetaData c : columnsMetaData ) {
+				if ( c.isAutoIncremented() ) {
+					autoIncrColumns.add( c.getColumnName() );
+				}
+			}
+		}
+		else if ( bulkAutoIncrColumns != null ) {
+			autoIncrColumns = bulkAutoIncrColumns ;
+		}
+		else {
+			Statement stmt = probeStatements.getStatement(con);
+			autoIncrColumns = mgr.getAutoIncrementedColumns(stmt, databaseTable.getSchemaName(), databaseTable.getTableName() );
+		}
 		
 		if ( autoIncrColumns != null ) {
 			if ( ! autoIncrColumns.isEmpty() ) {
@@ -98,4 +386,52 @@ public class DatabaseModelManager extends StandardTool
 			}
 		}
 	}
+	
+	private boolean isAutoIncrementKnown( List<ColumnMetaData> columnsMetaData ) 
+	{
+		if ( columnsMetaData.isEmpty() ) {
+			return false ;
+		}
+		for ( ColumnMetaData c : columnsMetaData ) {
+			if ( ! c.isAutoIncrementKnown() ) {
+				return false ;
+			}
+		}
+		return true ;
+	}
+	
+	/**
+	 * The statements used to probe the auto-incremented columns : one statement per connection <br>
+	 * reused for all the tables loaded with this connection
+	 */
+	private static class ProbeStatements 
+	{
+		private final MetaDataManager mgr ;
+		
+		private final Map<Connection, Statement> statements = new HashMap<Connection, Statement>();
+		
+		ProbeStatements(MetaDataManager mgr) {
+			this.mgr = mgr ;
+		}
+		
+		synchronized Statement getStatement(Connection con) throws SQLException {
+			Statement stmt = statements.get(con);
+			if ( stmt == null ) {
+				stmt = mgr.createProbeStatement(con);
+				statements.put(con, stmt);
+			}
+			return stmt ;
+		}
+		
+		synchronized void closeAll() {
+			for ( Statement stmt : statements.values() ) {
+				try {
+					mgr.closeProbeStatement(stmt);
+				} catch (SQLException e) {
+					// nothing to do : the statement will be closed with its connection
+				}
+			}
+			statements.clear();
+		}
+	}
 }
@@ -1,5 +1,16 @@
 package org.telosys.tools.db.metadata;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 import junit.framework.Assert;
@@ -143,4 +154,95 @@ public class MetaDataManagerTest extends TestCase {
 		Assert.assertTrue(isExcluded);
 	}
 	
+	//----------------------------------------------------------------------------------
+	private Connection getH2Connection(String dbName) throws SQLException {
+		return DriverManager.getConnection("jdbc:h2:mem:" + dbName, "sa", "");
+	}
+	
+	public void testGetAutoIncrementedColumns_last_column() throws SQLException {
+		// Given
+		Connection con = getH2Connection("autoincr");
+		Statement stmt = con.createStatement();
+		stmt.execute("CREATE TABLE FOO ( CODE VARCHAR(10) PRIMARY KEY, NAME VARCHAR(20), ID BIGINT AUTO_INCREMENT )");
+		stmt.execute("CREATE TABLE BAR ( ID INT AUTO_INCREMENT PRIMARY KEY, NAME VARCHAR(20) )");
+		stmt.close();
+		MetaDataManager m = new MetaDataManager(null);
+		
+		// When
+		List<String> fooColumns = m.getAutoIncrementedColumns(con, "PUBLIC", "FOO");
+		Statement probe = m.createProbeStatement(con); // reused for 2 tables
+		List<String> barColumns = m.getAutoIncrementedColumns(probe, "PUBLIC", "BAR");
+		List<String> fooColumns2 = m.getAutoIncrementedColumns(probe, null, "FOO");
+		m.closeProbeStatement(probe);
+		con.close();
+		
+		// Then
+		Assert.assertEquals(1, fooColumns.size());
+		Assert.assertEquals("ID", fooColumns.get(0)); // the last column 
+		Assert.assertEquals(1, barColumns.size());
+		Assert.assertEquals("ID", barColumns.get(0)); // the first column 
+		Assert.assertEquals(fooColumns, fooColumns2);
+		Assert.assertEquals(0, m.getCursorsCounter().getOpenCount());
+		Assert.assertEquals(5, m.getCursorsCounter().getOpenedCount()); // 2 statements + 3 result sets
+	}
+	
+	public void testGetBulkAutoIncrementedColumns_oracle() throws SQLException {
+		// Given : an H2 database with the Oracle 12c catalog view and seen as "Oracle"
+		Connection con = getH2Connection("oracle");
+		Statement stmt = con.createStatement();
+		stmt.execute("CREATE TABLE ALL_TAB_IDENTITY_COLS ( OWNER VARCHAR(30), TABLE_NAME VARCHAR(30), COLUMN_NAME VARCHAR(30) )");
+		stmt.execute("INSERT INTO ALL_TAB_IDENTITY_COLS VALUES ( 'SCOTT', 'EMP', 'EMPNO' )");
+		stmt.execute("INSERT INTO ALL_TAB_IDENTITY_COLS VALUES ( 'SCOTT', 'DEPT', 'DEPTNO' )");
+		stmt.execute("INSERT INTO ALL_TAB_IDENTITY_COLS VALUES ( 'OTHER', 'EMP', 'ID' )");
+		stmt.close();
+		MetaDataManager m = new MetaDataManager(null);
+		
+		// When
+		Map<String, List<String>> scottColumns = m.getBulkAutoIncrementedColumns(asOracle(con), "SCOTT");
+		Map<String, List<String>> allColumns = m.getBulkAutoIncrementedColumns(asOracle(con), null);
+		Map<String, List<String>> h2Columns = m.getBulkAutoIncrementedColumns(con, "SCOTT");
+		con.close();
+		
+		// Then
+		Assert.assertEquals(2, scottColumns.size());
+		Assert.assertEquals("EMPNO", scottColumns.get(BulkMetaData.tableKey(null, "SCOTT", "EMP")).get(0));
+		Assert.assertEquals("DEPTNO", scottColumns.get(BulkMetaData.tableKey(null, "SCOTT", "DEPT")).get(0));
+		Assert.assertEquals(3, allColumns.size());
+		Assert.assertNull(h2Columns); // no catalog view for H2
+		Assert.assertEquals(0, m.getCursorsCounter().getOpenCount());
+	}
+	
+	/**
+	 * Returns a connection reporting "Oracle" as database product name 
+	 * @param con
+	 * @return
+	 */
+	private Connection asOracle(final Connection con) throws SQLException {
+		final DatabaseMetaData dbmd = (DatabaseMetaData) Proxy.newProxyInstance(getClass().getClassLoader(), 
+				new Class<?>[] { DatabaseMetaData.class }, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if ( "getDatabaseProductName".equals(method.getName()) ) {
+					return "Oracle" ;
+				}
+				return invokeTarget(con.getMetaData(), method, args);
+			}
+		});
+		return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), 
+				new Class<?>[] { Connection.class }, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if ( "getMetaData".equals(method.getName()) ) {
+					return dbmd ;
+				}
+				return invokeTarget(con, method, args);
+			}
+		});
+	}
+	
+	private Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
 }
@@ -0,0 +1,180 @@
+package org.telosys.tools.db.model;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.telosys.tools.commons.TelosysToolsException;
+import org.telosys.tools.commons.dbcfg.DatabaseConfiguration;
+import org.telosys.tools.commons.jdbc.ConnectionManager;
+import org.telosys.tools.commons.jdbc.ConnectionPool;
+import org.telosys.tools.db.metadata.BulkMetaData;
+import org.telosys.tools.db.metadata.MetaDataManager;
+import org.telosys.tools.db.metadata.TableMetaData;
+
+public class DatabaseModelManagerTest extends TestCase {
+
+	private final static String DB_NAME = "dbmodel" ;
+	
+	private final static int TABLES_COUNT = 12 ;
+	
+	private ConnectionManager connectionManager ;
+	
+	private Connection connection ;
+	
+	@Override
+	protected void setUp() throws Exception {
+		connectionManager = new ConnectionManager( null );
+		connection = connectionManager.getConnection( getDatabaseConfiguration(1) );
+		Statement stmt = connection.createStatement();
+		stmt.execute("CREATE TABLE AUTHOR ( ID INT PRIMARY KEY, NAME VARCHAR(40) NOT NULL )");
+		stmt.execute("CREATE TABLE BOOK ( ID INT AUTO_INCREMENT PRIMARY KEY, TITLE VARCHAR(80), AUTHOR_ID INT, " 
+				+ "CONSTRAINT FK_BOOK_AUTHOR FOREIGN KEY (AUTHOR_ID) REFERENCES AUTHOR(ID) )");
+		stmt.execute("CREATE TABLE REVIEW ( BOOK_ID INT NOT NULL, NUM INT NOT NULL, TEXT VARCHAR(200), " 
+				+ "PRIMARY KEY (BOOK_ID, NUM), " 
+				+ "CONSTRAINT FK_REVIEW_BOOK FOREIGN KEY (BOOK_ID) REFERENCES BOOK(ID) )");
+		for ( int i = 1 ; i <= TABLES_COUNT ; i++ ) {
+			stmt.execute("CREATE TABLE T" + i + " ( CODE VARCHAR(10) PRIMARY KEY, VAL DECIMAL(10,2), SEQ BIGINT AUTO_INCREMENT )");
+		}
+		stmt.close();
+	}
+	
+	@Override
+	protected void tearDown() throws Exception {
+		Statement stmt = connection.createStatement();
+		stmt.execute("DROP ALL OBJECTS");
+		stmt.close();
+		connection.close();
+	}
+	
+	private DatabaseConfiguration getDatabaseConfiguration(int poolSize) {
+		DatabaseConfiguration databaseConfiguration = new DatabaseConfiguration();
+		databaseConfiguration.setDriverClass("org.h2.Driver");
+		databaseConfiguration.setJdbcUrl("jdbc:h2:mem:" + DB_NAME + ";DB_CLOSE_DELAY=-1");
+		databaseConfiguration.setUser("sa");
+		databaseConfiguration.setPassword("");
+		databaseConfiguration.setPoolSize(poolSize);
+		return databaseConfiguration ;
+	}
+	
+	private DatabaseTables loadTables(DatabaseModelManager manager) throws SQLException {
+		DatabaseTables tables = manager.getDatabaseTables(connection, null, "PUBLIC", "%", new String[] { "TABLE" }, null, null);
+		assertEquals("No cursor left open", 0, manager.getCursorsCounter().getOpenCount() );
+		return tables ;
+	}
+	
+	/**
+	 * Returns a description of all the tables ( columns, primary key, foreign keys )
+	 * @param tables
+	 * @return
+	 */
+	private String describe(DatabaseTables tables) {
+		StringBuilder sb = new StringBuilder();
+		for ( DatabaseTable table : tables ) {
+			sb.append(table.getTableName()).append(" :");
+			for ( DatabaseColumn c : table.getColumns() ) {
+				sb.append(" ").append(c.getColumnName()).append(" ").append(c.getDbTypeName())
+					.append( c.isNotNull() ? " NN" : "" )
+					.append( c.isInPrimaryKey() ? " PK" + c.getPrimaryKeySequence() : "" )
+					.append( c.isAutoIncremented() ? " AUTO" : "" )
+					.append( c.getUsedInForeignKey() > 0 ? " FK" : "" )
+					.append(",");
+			}
+			for ( DatabaseForeignKey fk : table.getForeignKeys() ) {
+				sb.append(" ").append(fk.getForeignKeyName()).append("(");
+				for ( DatabaseForeignKeyColumn c : fk.getForeignKeyColumns() ) {
+					sb.append(c.getFkColumnName()).append("->").append(c.getPkTableName()).append(".").append(c.getPkColumnName());
+				}
+				sb.append(")");
+			}
+			sb.append("\n");
+		}
+		return sb.toString();
+	}
+	
+	private String loadSequentially() throws SQLException {
+		DatabaseModelManager manager = new DatabaseModelManager(null);
+		manager.setBulkMetaData(false);
+		return describe( loadTables(manager) );
+	}
+	
+	public void testSequential() throws SQLException {
+		String description = loadSequentially();
+		System.out.println(description);
+		assertTrue(description.indexOf("AUTHOR : ID INTEGER NN PK1, NAME VARCHAR NN,") >= 0 );
+		assertTrue(description.indexOf("BOOK : ID INTEGER NN PK1 AUTO, TITLE VARCHAR, AUTHOR_ID INTEGER FK, FK_BOOK_AUTHOR(AUTHOR_ID->AUTHOR.ID)") >= 0 );
+		assertTrue(description.indexOf("T1 : CODE VARCHAR NN PK1, VAL DECIMAL, SEQ BIGINT NN AUTO,") >= 0 );
+	}
+	
+	public void testParallelWithConnectionPool() throws SQLException, TelosysToolsException {
+		ConnectionPool pool = new ConnectionPool(connectionManager, getDatabaseConfiguration(4), null);
+		try {
+			DatabaseModelManager manager = new DatabaseModelManager(null);
+			manager.setBulkMetaData(false);
+			manager.setConnectionSource(pool);
+			assertEquals(4, manager.getParallelism());
+			
+			assertEquals(loadSequentially(), describe( loadTables(manager) ) );
+			assertEquals("All the connections are returned to the pool", 
+					0, pool.getStatistics().getActiveConnections() );
+		}
+		finally {
+			pool.close();
+		}
+	}
+	
+	public void testParallelWithConnectionManager() throws SQLException {
+		DatabaseModelManager manager = new DatabaseModelManager(null);
+		manager.setBulkMetaData(false);
+		manager.setConnectionSource(connectionManager, getDatabaseConfiguration(1));
+		manager.setParallelism(3);
+		
+		assertEquals(loadSequentially(), describe( loadTables(manager) ) );
+		assertFalse(connection.isClosed()); // the caller's connection is not closed
+	}
+	
+	public void testBulkMetaData() throws SQLException {
+		MetaDataManager mgr = new MetaDataManager(null);
+		DatabaseMetaData dbmd = connection.getMetaData();
+		List<TableMetaData> tables = mgr.getTables(dbmd, null, "PUBLIC", "%", new String[] { "TABLE" }, null, null);
+		assertEquals(TABLES_COUNT + 3, tables.size());
+		
+		BulkMetaData bulk = mgr.getBulkMetaData(dbmd, null, "PUBLIC", "%");
+		for ( TableMetaData table : tables ) {
+			//--- Same meta-data as the "per table" queries 
+			String tableName = table.getTableName();
+			assertNotNull(bulk.getColumns(table));
+			assertEquals(mgr.getColumns(dbmd, null, "PUBLIC", tableName).size(), bulk.getColumns(table).size() );
+			// primary keys and foreign keys : not available in bulk with all the drivers ( H2 : per table ) 
+			if ( bulk.getPKColumns(table) != null ) {
+				assertEquals(mgr.getPKColumns(dbmd, null, "PUBLIC", tableName).size(), bulk.getPKColumns(table).size() );
+			}
+			if ( bulk.getFKColumns(table) != null ) {
+				assertEquals(mgr.getFKColumns(dbmd, null, "PUBLIC", tableName).size(), bulk.getFKColumns(table).size() );
+			}
+		}
+		assertEquals("No cursor left open", 0, mgr.getCursorsCounter().getOpenCount() );
+	}
+	
+	public void testBulk() throws SQLException {
+		DatabaseModelManager manager = new DatabaseModelManager(null);
+		assertTrue(manager.isBulkMetaData()); // default
+		assertEquals(loadSequentially(), describe( loadTables(manager) ) );
+	}
+	
+	public void testBulkAndParallel() throws SQLException, TelosysToolsException {
+		ConnectionPool pool = new ConnectionPool(connectionManager, getDatabaseConfiguration(3), null);
+		try {
+			DatabaseModelManager manager = new DatabaseModelManager(null);
+			manager.setConnectionSource(pool);
+			assertEquals(loadSequentially(), describe( loadTables(manager) ) );
+		}
+		finally {
+			pool.close();
+		}
+	}
+}
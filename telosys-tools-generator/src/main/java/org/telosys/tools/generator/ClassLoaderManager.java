@@ -0,0 +1,182 @@
+/**
+ *  Copyright (C) 2008-2013  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry of the class loaders used to load the specific classes of the templates ( "$loader" ) <br>
+ * There's one class loader for each "classes" folder, created on the first use and kept for the next generations. <br>
+ * The class loader is replaced by a new one if a ".class" or ".jar" file has been added, removed or modified <br>
+ * ( the files are checked at most once per "modification check interval" ) <br>
+ * A replaced class loader is never closed : it can still be used by a generation in progress <br>
+ * ( it is just dereferenced and will be garbage collected with its classes ) <br>
+ * 
+ * @author Laurent Guerin
+ *
+ * @since 2.1.1
+ */
+public class ClassLoaderManager {
+
+	/**
+	 * Default interval (in milliseconds) between 2 checks of the classes folder modification
+	 */
+	private final static long DEFAULT_MODIFICATION_CHECK_INTERVAL = 2000 ;
+	
+	private static long modificationCheckInterval = DEFAULT_MODIFICATION_CHECK_INTERVAL ;
+	
+	private final static Map<String,ClassLoaderEntry> classLoaders = new HashMap<String,ClassLoaderEntry>();
+	
+	private final static class ClassLoaderEntry {
+		private final URLClassLoader classLoader ;
+		private final long           signature ;
+		private long                 lastCheck ;
+		
+		ClassLoaderEntry(URLClassLoader classLoader, long signature, long lastCheck) {
+			this.classLoader = classLoader ;
+			this.signature = signature ;
+			this.lastCheck = lastCheck ;
+		}
+	}
+	
+	/**
+	 * Private constructor (static methods only)
+	 */
+	private ClassLoaderManager() {
+	}
+	
+	/**
+	 * Set the interval between 2 checks of the classes folder modification 
+	 * @param millis the interval in milliseconds ( 0 to check on each call )
+	 */
+	public static void setModificationCheckInterval(long millis) {
+		synchronized (classLoaders) {
+			modificationCheckInterval = millis ;
+		}
+	}
+	
+	/**
+	 * Returns the class loader for the given classes folder <br>
+	 * The class loader is created if it doesn't exist yet or if the classes have changed
+	 * @param classesFolder the folder containing the specific classes ( and jar files )
+	 * @return
+	 * @throws GeneratorException
+	 */
+	public static ClassLoader getClassLoader(File classesFolder) throws GeneratorException {
+		if ( null == classesFolder ) {
+			throw new GeneratorException("Classes folder is null (cannot get ClassLoader)");
+		}
+		String key = classesFolder.getAbsolutePath() ;
+		synchronized (classLoaders) {
+			ClassLoaderEntry entry = classLoaders.get(key);
+			long now = System.currentTimeMillis() ;
+			if ( entry != null ) {
+				if ( now - entry.lastCheck < modificationCheckInterval ) {
+					return entry.classLoader ;
+				}
+				long signature = computeSignature(classesFolder);
+				if ( signature == entry.signature ) {
+					entry.lastCheck = now ;
+					return entry.classLoader ;
+				}
+				//--- Classes changed => new class loader ( the old one is not closed, it can still be in use )
+				classLoaders.remove(key);
+			}
+			long signature = computeSignature(classesFolder);
+			entry = new ClassLoaderEntry(createClassLoader(classesFolder), signature, now);
+			classLoaders.put(key, entry);
+			return entry.classLoader ;
+		}
+	}
+	
+	/**
+	 * Removes the class loader associated with the given classes folder (if any) <br>
+	 * A new class loader will be created on the next use of this folder
+	 * @param classesFolder
+	 */
+	public static void removeClassLoader(File classesFolder) {
+		synchronized (classLoaders) {
+			classLoaders.remove(classesFolder.getAbsolutePath());
+		}
+	}
+
+	/**
+	 * Removes all the class loaders 
+	 */
+	public static void clear() {
+		synchronized (classLoaders) {
+			classLoaders.clear();
+		}
+	}
+	
+	private static URLClassLoader createClassLoader(File classesFolder) throws GeneratorException {
+		List<URL> urls = new LinkedList<URL>();
+		try {
+			// the folder itself ( "file:/c:/templatesFolder/classes/" ) 
+			urls.add( classesFolder.toURI().toURL() );
+			// the jar files located in the folder
+			for ( File file : listFiles(classesFolder) ) {
+				if ( file.isFile() && file.getName().endsWith(".jar") ) {
+					urls.add( file.toURI().toURL() );
+				}
+			}
+		} catch (MalformedURLException e) {
+			throw new GeneratorException("Cannot create class loader for " + classesFolder + " (MalformedURLException)", e);
+		}
+		// the current class loader as parent class loader
+		return new URLClassLoader(urls.toArray(new URL[urls.size()]), ClassLoaderManager.class.getClassLoader() );
+	}
+	
+	private static File[] listFiles(File folder) {
+		File[] files = folder.listFiles();
+		if ( files == null ) {
+			return new File[0] ; // not a folder
+		}
+		Arrays.sort(files);
+		return files ;
+	}
+	
+	/**
+	 * Computes a signature of all the ".class" and ".jar" files ( path, size and last modification )
+	 * @param folder
+	 * @return
+	 */
+	private static long computeSignature(File folder) {
+		long signature = folder.isDirectory() ? 1 : 0 ;
+		for ( File file : listFiles(folder) ) {
+			if ( file.isDirectory() ) {
+				signature = 31 * signature + computeSignature(file) ;
+			}
+			else {
+				String name = file.getName();
+				if ( name.endsWith(".class") || name.endsWith(".jar") ) {
+					signature = 31 * signature + name.hashCode() ;
+					signature = 31 * signature + file.length() ;
+					signature = 31 * signature + file.lastModified() ;
+				}
+			}
+		}
+		return signature ;
+	}
+}
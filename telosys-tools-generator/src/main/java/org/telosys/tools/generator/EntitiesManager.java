@@ -23,35 +23,96 @@ import java.util.Map;
 import org.telosys.tools.generator.config.GeneratorConfig;
 import org.telosys.tools.generator.context.EntityInContext;
 import org.telosys.tools.generator.context.EnvInContext;
+import org.telosys.tools.generator.context.ModelInContext;
 import org.telosys.tools.repository.model.Entity;
 import org.telosys.tools.repository.model.RepositoryModel;
 
+/**
+ * Entities manager for a generation run <br>
+ * Holds the context entities built from the repository model. <br>
+ * It is supposed to be created once and shared by all the targets generated with the same model. <br>
+ * Each entity is built on the first access and reused after that.
+ * 
+ * @author Laurent Guerin
+ *
+ */
 public class EntitiesManager {
 
 	private final RepositoryModel _repositoryModel ;
 	private final GeneratorConfig _generatorConfig ;
-	private final EnvInContext    _env ;
 	
 	private final Map<String,EntityInContext> _entities = new Hashtable<String,EntityInContext>();
-//	public EntitiesBuilder() {
-//		_env = new EnvInContext() ; // Default environment
-//	}
+	
+	private ModelInContext _model = null ; // built on the first use
+	
+	private EnvInContext   _env = new EnvInContext() ; // Current environment (changed for each target)
+
+	private final Map<String,Object> _sharedInstances ; // "$loader" shared instances
 
-	public EntitiesManager( RepositoryModel repositoryModel, GeneratorConfig generatorConfig, EnvInContext env) 
-			throws GeneratorException {
+	/**
+	 * Constructor
+	 * @param repositoryModel
+	 * @param generatorConfig
+	 */
+	public EntitiesManager( RepositoryModel repositoryModel, GeneratorConfig generatorConfig ) 
+	{
+		this(repositoryModel, generatorConfig, new Hashtable<String,Object>() );
+	}
+	
+	/**
+	 * Constructor for a manager sharing the "$loader" instances with other managers of the same generation run <br>
+	 * ( e.g. one manager per generation thread )
+	 * @param repositoryModel
+	 * @param generatorConfig
+	 * @param sharedInstances the instances shared by all the targets of the generation run
+	 */
+	public EntitiesManager( RepositoryModel repositoryModel, GeneratorConfig generatorConfig, 
+			Map<String,Object> sharedInstances ) 
+	{
 		_repositoryModel = repositoryModel ;
 		_generatorConfig = generatorConfig ;
-		_env             = env ; // Specific environment instance
-		
-		buildAllEntities(repositoryModel, generatorConfig);
+		_sharedInstances = sharedInstances ;
+	}
+	
+	/**
+	 * Returns the repository model used by this manager
+	 * @return
+	 */
+	public RepositoryModel getRepositoryModel() {
+		return _repositoryModel ;
+	}
+	
+	/**
+	 * Returns the instances shared by all the targets of the generation run <br>
+	 * ( created by "$loader.sharedInstance" )
+	 * @return
+	 */
+	public Map<String,Object> getSharedInstances() {
+		return _sharedInstances ;
+	}
+	
+	/**
+	 * Returns the current environment ( the "$env" object of the target in progress )
+	 * @return
+	 */
+	public synchronized EnvInContext getEnv() {
+		return _env ;
 	}
 	
+	/**
+	 * Set the current environment ( the "$env" object of the target in progress )
+	 * @param env the new environment 
+	 * @return the previous environment (to be restored at the end of the target generation)
+	 */
+	public synchronized EnvInContext setEnv(EnvInContext env) {
+		EnvInContext previous = _env ;
+		_env = env ;
+		return previous ;
+	}
 	
 	/**
 	 * Builds a context Entity instance from the repository (model definition)
 	 * @param entityName the name of the entity to be built
-	 * @param repositoryModel
-	 * @param generatorConfig
 	 * @return
 	 * @throws GeneratorException
 	 */
@@ -68,78 +129,33 @@ public class EntitiesManager {
 			throw new GeneratorException("Repository corrupted : Entity name '" + entityName + "' != '" + entity.getName() +"'");
 		}
 		
-//		//--- Java Bean Class name defined in the repository
-//    	String beanClassName = entity.getBeanJavaClass();
-    	
 		//--- Java Bean Package name determined from the target folder
     	String beanPackage = _generatorConfig.getTelosysToolsCfg().getEntityPackage(); 
     		
     	//--- New instance of JavaBeanClass
-    	EntityInContext entityInContext = new EntityInContext(entity, beanPackage, this, _env);    	
+    	EntityInContext entityInContext = new EntityInContext(entity, beanPackage, this);    	
     	
     	return entityInContext ;
 		
 	}
 	
-//	/**
-//	 * Builds a list of context Entities for each selected entity (defined by its name)
-//	 * @param entitiesNames list of selected entities names (or null if none)
-//	 * @param repositoryModel
-//	 * @param generatorConfig
-//	 * @return
-//	 * @throws GeneratorException
-//	 */
-//	public List<EntityInContext> getSelectedEntities( 
-//			List<String> entitiesNames, 
-//			RepositoryModel repositoryModel, 
-//			GeneratorConfig generatorConfig
-//			) throws GeneratorException
-//	{
-//		List<EntityInContext> selectedEntities = new LinkedList<EntityInContext>();
-//		if ( entitiesNames != null ) {
-//			for ( String entityName : entitiesNames ) {
-//				EntityInContext entityBeanClass = buildEntity( entityName );
-//				selectedEntities.add(entityBeanClass);
-//			}
-//		}
-//		return selectedEntities ;
-//	}	
-	
-	/**
-	 * Builds a list of context Entities for all the entities defined in the model 
-	 * @param repositoryModel
-	 * @param generatorConfig
-	 * @return
-	 * @throws GeneratorException
-	 */
-	private List<EntityInContext> buildAllEntities( RepositoryModel repositoryModel, GeneratorConfig generatorConfig) throws GeneratorException 
-	{
-		List<EntityInContext> javaBeanClasses = new LinkedList<EntityInContext>();
-		//--- Get the names of all the entities defined in the model 
-		String[] names = repositoryModel.getEntitiesNames();
-		for ( String entityName : names ) {
-//			//--- Build an "entity BeanClass" for each
-//			EntityInContext entity = buildEntity( entityName );
-////			javaBeanClasses.add(entityBeanClass);
-//			_entities.put(entityName, entity) 
-			EntityInContext entity = buildEntity(entityName) ;
-			_entities.put(entityName, entity) ;
-		}
-		return javaBeanClasses ;
-	}
-	
 	//---------------------------------------------------------------------------------------------------
 	/**
-	 * Returns the entity identified by the given name
+	 * Returns the entity identified by the given name <br>
+	 * ( the entity is built on the first call )
 	 * @param entityName
 	 * @return
 	 * @throws GeneratorException
 	 */
-	public EntityInContext getEntity( String entityName ) throws GeneratorException
+	public synchronized EntityInContext getEntity( String entityName ) throws GeneratorException
 	{
 		EntityInContext entity =_entities.get(entityName) ;
 		if ( entity == null ) {
-			throw new GeneratorException("Unknown entity '" + entityName + "'");
+			if ( _repositoryModel.getEntityByName(entityName) == null ) {
+				throw new GeneratorException("Unknown entity '" + entityName + "'");
+			}
+			entity = buildEntity(entityName) ;
+			_entities.put(entityName, entity) ;
 		}
 		return entity ;
 	}
@@ -155,11 +171,8 @@ public class EntitiesManager {
 		List<EntityInContext> allEntities = new LinkedList<EntityInContext>();
 		
 		//--- For each entity 
-		for ( Map.Entry<String, EntityInContext> entry : _entities.entrySet() )
-		{
-		    //String name = entry.getKey() ;
-		    EntityInContext entity = entry.getValue() ;
-		    allEntities.add(entity);
+		for ( String entityName : _repositoryModel.getEntitiesNamesList() ) {
+		    allEntities.add( getEntity(entityName) );
 		}
 		return allEntities ;
 	}
@@ -176,15 +189,24 @@ public class EntitiesManager {
 		List<EntityInContext> selectedEntities = new LinkedList<EntityInContext>();
 		if ( entitiesNames != null ) {
 			for ( String entityName : entitiesNames ) {
-				EntityInContext entity = _entities.get(entityName);
-				if ( entity != null ) {
-					selectedEntities.add(entity);
-				}
-				else {
-					throw new GeneratorException("Unknown entity '" + entityName + "'");
-				}
+				selectedEntities.add( getEntity(entityName) );
 			}
 		}
 		return selectedEntities ;
 	}
+
+	//---------------------------------------------------------------------------------------------------
+	/**
+	 * Returns the model ( the "$model" object ) providing all the entities  <br>
+	 * ( the model is built on the first call )
+	 * @return
+	 * @throws GeneratorException
+	 */
+	public synchronized ModelInContext getModel() throws GeneratorException
+	{
+		if ( _model == null ) {
+			_model = new ModelInContext(_repositoryModel, this );
+		}
+		return _model ;
+	}
 }
@@ -0,0 +1,569 @@
+/**
+ *  Copyright (C) 2008-2013  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+ * Writer for the generated files <br>
+ * . the generated text is encoded with an explicit charset ( or the platform default charset ) <br>
+ * . an existing file with the same content is left untouched (no new modification time) <br>
+ * . a new content is written in a temporary file then renamed to the target file <br>
+ * <br>
+ * The generated text can be given as a whole or streamed in an "Output" ( see open ) : <br>
+ * the streamed content is kept in memory up to a threshold, beyond this threshold <br>
+ * it goes directly in the temporary file (the memory used doesn't depend on the file size). <br>
+ * <br>
+ * The counters ( created, updated, unchanged files and bytes written ) can be updated by several threads.
+ * 
+ * @author Laurent Guerin
+ * @since 2.1.1
+ */
+public class GeneratedFileWriter {
+
+	/**
+	 * Default size (in bytes) of the content kept in memory by an output 
+	 */
+	public final static int DEFAULT_MEMORY_THRESHOLD = 256 * 1024 ;
+	
+	public final static int CREATED   = 1 ;
+	public final static int UPDATED   = 2 ;
+	public final static int UNCHANGED = 3 ;
+	
+	private final static int    BUFFER_SIZE = 8192 ;
+	
+	private final static String TEMP_FILE_SUFFIX = ".tmp" ;
+	
+	private final static String BACKUP_FILE_SUFFIX = ".bak" ;
+	
+	private final String _encoding ;
+	
+	private final int    _memoryThreshold ;
+	
+	private int  _createdFiles   = 0 ;
+	private int  _updatedFiles   = 0 ;
+	private int  _unchangedFiles = 0 ;
+	private long _bytesWritten   = 0 ;
+	
+	/**
+	 * Constructor with the default encoding ( the platform default charset )
+	 */
+	public GeneratedFileWriter() {
+		this(null);
+	}
+
+	/**
+	 * Constructor 
+	 * @param encoding the charset name used to encode the generated text (or null for the platform default charset)
+	 */
+	public GeneratedFileWriter(String encoding) {
+		this(encoding, DEFAULT_MEMORY_THRESHOLD);
+	}
+	
+	/**
+	 * Constructor 
+	 * @param encoding the charset name used to encode the generated text (or null for the platform default charset)
+	 * @param memoryThreshold the maximum size (in bytes) of the content kept in memory by an output
+	 */
+	public GeneratedFileWriter(String encoding, int memoryThreshold) {
+		super();
+		_encoding = ( encoding != null ? encoding : getDefaultEncoding() ) ;
+		_memoryThreshold = memoryThreshold ;
+	}
+	
+	/**
+	 * Returns the default charset name used to encode the generated text <br>
+	 * ( the platform default charset, as for the files generated before 2.1.1 )
+	 * @return
+	 */
+	public static String getDefaultEncoding() {
+		return Charset.defaultCharset().name() ;
+	}
+	
+	/**
+	 * Returns the charset name used to encode the generated text
+	 * @return
+	 */
+	public String getEncoding() {
+		return _encoding ;
+	}
+	
+	//---------------------------------------------------------------------------------------------
+	/**
+	 * Encodes the given text with the current encoding
+	 * @param text
+	 * @return
+	 * @throws GeneratorException
+	 */
+	public byte[] encode(String text) throws GeneratorException {
+		try {
+			return text.getBytes(_encoding);
+		} catch (UnsupportedEncodingException e) {
+			throw new GeneratorException("Unsupported encoding '" + _encoding + "'", e);
+		}
+	}
+
+	/**
+	 * Writes the given text in the given file (only if the file content is different)
+	 * @param text the generated text
+	 * @param fileName the file to be written
+	 * @param createDir create the directories if they don't exist
+	 * @return the file status : CREATED, UPDATED or UNCHANGED
+	 * @throws GeneratorException
+	 */
+	public int write(String text, String fileName, boolean createDir) throws GeneratorException {
+		return write(encode(text), fileName, createDir);
+	}
+	
+	/**
+	 * Writes the given content in the given file (only if the file content is different)
+	 * @param content the generated content
+	 * @param fileName the file to be written
+	 * @param createDir create the directories if they don't exist
+	 * @return the file status : CREATED, UPDATED or UNCHANGED
+	 * @throws GeneratorException
+	 */
+	public int write(byte[] content, String fileName, boolean createDir) throws GeneratorException {
+		File file = new File(fileName);
+		checkFile(file, createDir);
+		return write(file, content, content.length);
+	}
+	
+	/**
+	 * Opens an output to stream the content of the given file <br>
+	 * The output must be committed at the end of the generation or discarded in case of error
+	 * @param fileName the file to be written
+	 * @param createDir create the directories if they don't exist
+	 * @return
+	 * @throws GeneratorException
+	 */
+	public Output open(String fileName, boolean createDir) throws GeneratorException {
+		File file = new File(fileName);
+		checkFile(file, createDir);
+		return new Output(file);
+	}
+	
+	//---------------------------------------------------------------------------------------------
+	/**
+	 * Checks if it's possible to write the given file (and creates its directory if necessary)
+	 * @param file
+	 * @param createDir
+	 * @throws GeneratorException
+	 */
+	private void checkFile(File file, boolean createDir) throws GeneratorException {
+		if ( file.exists() ) {
+			if ( ! file.canWrite() ) {
+				throw new GeneratorException("Cannot write on existing target file '"+ file.toString() + "' !");
+			}
+		}
+		else {
+			File parent = file.getAbsoluteFile().getParentFile();
+			if ( ! parent.exists() ) {
+				if ( createDir ) {
+					// Create the target file directory(ies)
+					parent.mkdirs();
+				}
+				else {
+					throw new GeneratorException("Target directory '"+ parent.toString() + "' not found !");
+				}
+			}
+		}
+	}
+	
+	private int write(File file, byte[] content, int length) throws GeneratorException {
+		boolean exists = file.exists() ;
+		if ( exists && hasSameContent(file, content, length) ) {
+			fileUnchanged();
+			return UNCHANGED ;
+		}
+		File tempFile = createTempFile(file);
+		OutputStream out = null ;
+		try {
+			out = new FileOutputStream(tempFile);
+			out.write(content, 0, length);
+			out.close();
+			out = null ;
+		} catch (IOException e) {
+			close(out);
+			tempFile.delete();
+			throw new GeneratorException("Cannot save file " + file, e);
+		}
+		moveFile(tempFile, file);
+		fileWritten(exists, length);
+		return exists ? UPDATED : CREATED ;
+	}
+	
+	private int commit(File file, File tempFile) throws GeneratorException {
+		boolean exists = file.exists() ;
+		if ( exists && hasSameContent(file, tempFile) ) {
+			tempFile.delete();
+			fileUnchanged();
+			return UNCHANGED ;
+		}
+		long length = tempFile.length();
+		moveFile(tempFile, file);
+		fileWritten(exists, length);
+		return exists ? UPDATED : CREATED ;
+	}
+	
+	/**
+	 * Returns true if the given file has exactly the given content
+	 * @param file
+	 * @param content
+	 * @param length
+	 * @return
+	 * @throws GeneratorException
+	 */
+	private boolean hasSameContent(File file, byte[] content, int length) throws GeneratorException {
+		if ( file.length() != length ) {
+			return false ;
+		}
+		InputStream is = null ;
+		try {
+			is = new FileInputStream(file);
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int offset = 0 ;
+			int n ;
+			while ( ( n = is.read(buffer) ) > 0 ) {
+				if ( offset + n > length ) {
+					return false ;
+				}
+				for ( int i = 0 ; i < n ; i++ ) {
+					if ( buffer[i] != content[offset + i] ) {
+						return false ;
+					}
+				}
+				offset = offset + n ;
+			}
+			return offset == length ;
+		} catch (IOException e) {
+			throw new GeneratorException("Cannot read file " + file, e);
+		} finally {
+			close(is);
+		}
+	}
+	
+	/**
+	 * Returns true if the 2 given files have exactly the same content
+	 * @param file1
+	 * @param file2
+	 * @return
+	 * @throws GeneratorException
+	 */
+	private boolean hasSameContent(File file1, File file2) throws GeneratorException {
+		if ( file1.length() != file2.length() ) {
+			return false ;
+		}
+		InputStream is1 = null ;
+		InputStream is2 = null ;
+		try {
+			is1 = new BufferedInputStream(new FileInputStream(file1), BUFFER_SIZE);
+			is2 = new BufferedInputStream(new FileInputStream(file2), BUFFER_SIZE);
+			byte[] buffer1 = new byte[BUFFER_SIZE];
+			byte[] buffer2 = new byte[BUFFER_SIZE];
+			while ( true ) {
+				int n1 = readFully(is1, buffer1);
+				int n2 = readFully(is2, buffer2);
+				if ( n1 != n2 ) {
+					return false ;
+				}
+				if ( n1 <= 0 ) {
+					return true ;
+				}
+				for ( int i = 0 ; i < n1 ; i++ ) {
+					if ( buffer1[i] != buffer2[i] ) {
+						return false ;
+					}
+				}
+			}
+		} catch (IOException e) {
+			throw new GeneratorException("Cannot compare file " + file1 + " with " + file2, e);
+		} finally {
+			close(is1);
+			close(is2);
+		}
+	}
+	
+	private int readFully(InputStream is, byte[] buffer) throws IOException {
+		int offset = 0 ;
+		int n ;
+		while ( offset < buffer.length && ( n = is.read(buffer, offset, buffer.length - offset) ) > 0 ) {
+			offset = offset + n ;
+		}
+		return offset ;
+	}
+	
+	private File createTempFile(File file) throws GeneratorException {
+		try {
+			return File.createTempFile("." + file.getName() + "-", TEMP_FILE_SUFFIX, file.getAbsoluteFile().getParentFile());
+		} catch (IOException e) {
+			throw new GeneratorException("Cannot save file " + file + " (cannot create temporary file)", e);
+		}
+	}
+	
+	/**
+	 * Moves the temporary file to the target file <br>
+	 * The rename is atomic when the file system supports it ( replacing an existing file is not possible on some systems, <br>
+	 * in this case the existing file is renamed as a backup file before the rename, and restored if the rename fails ) <br>
+	 * If the move fails the temporary file is kept ( the new content is not lost ) 
+	 * @param tempFile
+	 * @param file
+	 * @throws GeneratorException
+	 */
+	private void moveFile(File tempFile, File file) throws GeneratorException {
+		if ( file.exists() ) {
+			copyPermissions(file, tempFile);
+		}
+		if ( tempFile.renameTo(file) ) {
+			return ;
+		}
+		if ( file.isFile() ) {
+			File backupFile = new File(tempFile.getPath() + BACKUP_FILE_SUFFIX);
+			if ( file.renameTo(backupFile) ) {
+				if ( tempFile.renameTo(file) ) {
+					backupFile.delete();
+					return ;
+				}
+				if ( ! backupFile.renameTo(file) ) {
+					throw new GeneratorException("Cannot save file " + file + " (cannot rename temporary file " 
+							+ tempFile + ", previous content in " + backupFile + ")");
+				}
+			}
+		}
+		throw new GeneratorException("Cannot save file " + file + " (cannot rename temporary file " + tempFile + ")");
+	}
+	
+	/**
+	 * Keeps the permissions of the existing file for the new file <br>
+	 * ( with the Java 6 API only the "executable" flag of a generated script can be kept )
+	 * @param file
+	 * @param newFile
+	 */
+	private void copyPermissions(File file, File newFile) {
+		if ( file.canExecute() && ! newFile.canExecute() ) {
+			newFile.setExecutable(true, false);
+		}
+	}
+	
+	private static void close(InputStream is) {
+		if ( is != null ) {
+			try {
+				is.close();
+			} catch (IOException e) {
+				// NOTHING TO DO
+			}
+		}
+	}
+	
+	private static void close(OutputStream os) {
+		if ( os != null ) {
+			try {
+				os.close();
+			} catch (IOException e) {
+				// NOTHING TO DO
+			}
+		}
+	}
+	
+	//---------------------------------------------------------------------------------------------
+	// Counters
+	//---------------------------------------------------------------------------------------------
+	private synchronized void fileUnchanged() {
+		_unchangedFiles++ ;
+	}
+	
+	private synchronized void fileWritten(boolean updated, long bytes) {
+		if ( updated ) {
+			_updatedFiles++ ;
+		}
+		else {
+			_createdFiles++ ;
+		}
+		_bytesWritten = _bytesWritten + bytes ;
+	}
+
+	/**
+	 * Returns the number of files created (files that didn't exist)
+	 * @return
+	 */
+	public synchronized int getCreatedFiles() {
+		return _createdFiles ;
+	}
+
+	/**
+	 * Returns the number of existing files written with a new content
+	 * @return
+	 */
+	public synchronized int getUpdatedFiles() {
+		return _updatedFiles ;
+	}
+
+	/**
+	 * Returns the number of existing files not written (same content)
+	 * @return
+	 */
+	public synchronized int getUnchangedFiles() {
+		return _unchangedFiles ;
+	}
+
+	/**
+	 * Returns the number of bytes written in the created and updated files 
+	 * @return
+	 */
+	public synchronized long getBytesWritten() {
+		return _bytesWritten ;
+	}
+	
+	//---------------------------------------------------------------------------------------------
+	// Output 
+	//---------------------------------------------------------------------------------------------
+	/**
+	 * Streamed content of a generated file <br>
+	 * The content is kept in memory up to the threshold, then written in a temporary file <br>
+	 * in the target file folder. Not thread-safe (one output for one generation).
+	 */
+	public class Output extends OutputStream {
+		
+		private final File         file ;
+		private final MemoryBuffer buffer = new MemoryBuffer() ;
+		private File               tempFile = null ;
+		private OutputStream       tempStream = null ;
+		private Writer             writer = null ;
+		private boolean            done = false ;
+		
+		private Output(File file) {
+			super();
+			this.file = file ;
+		}
+		
+		/**
+		 * Returns a buffered writer encoding the text with the current encoding
+		 * @return
+		 * @throws GeneratorException
+		 */
+		public Writer getWriter() throws GeneratorException {
+			if ( writer == null ) {
+				try {
+					writer = new BufferedWriter( new OutputStreamWriter(this, _encoding), BUFFER_SIZE );
+				} catch (UnsupportedEncodingException e) {
+					throw new GeneratorException("Unsupported encoding '" + _encoding + "'", e);
+				}
+			}
+			return writer ;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			getStream(1).write(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			getStream(len).write(b, off, len);
+		}
+		
+		private OutputStream getStream(int len) throws IOException {
+			if ( done ) {
+				throw new IOException("Output already committed or discarded");
+			}
+			if ( tempStream == null && buffer.size() + len > _memoryThreshold ) {
+				//--- Too big for the memory => switch to the temporary file
+				tempFile = File.createTempFile("." + file.getName() + "-", TEMP_FILE_SUFFIX, file.getAbsoluteFile().getParentFile());
+				tempStream = new FileOutputStream(tempFile);
+				buffer.writeTo(tempStream);
+				buffer.reset();
+			}
+			return tempStream != null ? tempStream : buffer ;
+		}
+		
+		/**
+		 * Returns true if the content has been written in a temporary file (content bigger than the threshold)
+		 * @return
+		 */
+		public boolean isInTemporaryFile() {
+			return tempFile != null ;
+		}
+		
+		/**
+		 * Ends the output and saves the content in the target file (only if the content is different)
+		 * @return the file status : CREATED, UPDATED or UNCHANGED
+		 * @throws GeneratorException
+		 */
+		public int commit() throws GeneratorException {
+			try {
+				if ( writer != null ) {
+					writer.flush();
+				}
+				if ( tempStream != null ) {
+					tempStream.close();
+				}
+			} catch (IOException e) {
+				discard();
+				throw new GeneratorException("Cannot save file " + file, e);
+			}
+			done = true ;
+			if ( tempFile != null ) {
+				return GeneratedFileWriter.this.commit(file, tempFile);
+			}
+			else {
+				return GeneratedFileWriter.this.write(file, buffer.getBuffer(), buffer.size());
+			}
+		}
+		
+		/**
+		 * Ends the output without saving (removes the temporary file if any) <br>
+		 * No effect if the output has been committed
+		 */
+		public void discard() {
+			if ( tempFile != null && tempFile.exists() ) {
+				GeneratedFileWriter.close(tempStream);
+				tempFile.delete();
+			}
+			done = true ;
+		}
+		
+		@Override
+		public void close() {
+			// Nothing to do : the output is ended by commit or discard 
+		}
+	}
+	
+	/**
+	 * Memory buffer giving access to its internal array (no copy)
+	 */
+	private static class MemoryBuffer extends ByteArrayOutputStream {
+		
+		MemoryBuffer() {
+			super(BUFFER_SIZE);
+		}
+		
+		byte[] getBuffer() {
+			return buf ;
+		}
+	}
+}
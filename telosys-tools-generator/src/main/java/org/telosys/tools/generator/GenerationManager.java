@@ -0,0 +1,424 @@
+/**
+ *  Copyright (C) 2008-2013  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Hashtable;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.telosys.tools.commons.TelosysToolsLogger;
+import org.telosys.tools.commons.variables.Variable;
+import org.telosys.tools.generator.config.GeneratorConfig;
+import org.telosys.tools.generator.context.Target;
+import org.telosys.tools.generator.target.CompiledTarget;
+import org.telosys.tools.generator.target.TargetDefinition;
+import org.telosys.tools.repository.model.Entity;
+import org.telosys.tools.repository.model.RepositoryModel;
+
+/**
+ * Bulk generation of the selected targets for the selected entities <br>
+ * Each target ( entity x target definition ) is generated by a worker of a bounded pool. <br>
+ * The workers share the repository model and the Velocity engine (parsed templates), <br>
+ * each generation has its own Velocity context and each worker has its own entities manager. <br>
+ * The "$loader" shared instances are shared by all the workers ( one instance for the whole run ) : <br>
+ * the classes used with "$loader.sharedInstance" must be thread-safe if the parallelism is greater than 1. <br>
+ * The generated targets are always returned in the same order ( entities targets, then "once" targets ). <br>
+ * The logger is used by all the workers : it must be thread-safe if the parallelism is greater than 1. <br>
+ * 
+ * @author Laurent Guerin
+ *
+ * @since 2.1.1
+ */
+public class GenerationManager {
+
+	/**
+	 * Interval (in milliseconds) between 2 checks of the monitor cancellation 
+	 */
+	private final static long CANCEL_CHECK_INTERVAL = 200 ;
+	
+	private final RepositoryModel    _repositoryModel ;
+	private final GeneratorConfig    _generatorConfig ;
+	private final TelosysToolsLogger _logger ;
+	
+	private int _parallelism = Runtime.getRuntime().availableProcessors() ;
+	
+	private GenerationStatistics _statistics = null ; // statistics of the last generation
+	
+	private GenerationManifest   _manifest = null ; // incremental generation if any
+	
+	private TargetFingerprint    _fingerprint = null ; // fingerprints of the current generation
+	
+	private GeneratedFileWriter  _fileWriter = null ; // files writer of the current generation
+	
+	/**
+	 * Constructor
+	 * @param repositoryModel
+	 * @param generatorConfig
+	 * @param logger
+	 * @throws GeneratorException
+	 */
+	public GenerationManager(RepositoryModel repositoryModel, GeneratorConfig generatorConfig, TelosysToolsLogger logger) 
+			throws GeneratorException {
+		super();
+		if ( null == repositoryModel ) {
+			throw new GeneratorException("Illegal argument : Repository model is null" );
+		}
+		if ( null == generatorConfig ) {
+			throw new GeneratorException("Illegal argument : Generator configuration is null" );
+		}
+		_repositoryModel = repositoryModel ;
+		_generatorConfig = generatorConfig ;
+		_logger = logger ;
+	}
+
+	private void log(String s) {
+		if (_logger != null) {
+			_logger.log( this.getClass().getSimpleName() + " : " + s);
+		}
+	}
+	
+	/**
+	 * Returns the maximum number of targets generated at the same time
+	 * @return
+	 */
+	public int getParallelism() {
+		return _parallelism ;
+	}
+
+	/**
+	 * Set the maximum number of targets generated at the same time <br>
+	 * ( 1 : sequential generation in the current thread, default : number of available processors )
+	 * @param parallelism
+	 */
+	public void setParallelism(int parallelism) {
+		_parallelism = ( parallelism > 0 ? parallelism : 1 ) ;
+	}
+
+	/**
+	 * Returns the statistics of the last generation (or null if none)
+	 * @return
+	 */
+	public GenerationStatistics getStatistics() {
+		return _statistics ;
+	}
+
+	/**
+	 * Returns the generation manifest (or null if the generation is not incremental)
+	 * @return
+	 */
+	public GenerationManifest getManifest() {
+		return _manifest ;
+	}
+
+	/**
+	 * Set the generation manifest to be used for an incremental generation <br>
+	 * With a manifest, a target is generated only if its inputs ( entity, template, variables ) <br>
+	 * have changed since the last generation of its file. The manifest is saved after each generation.
+	 * @param manifest the manifest (already loaded) or null for a full generation 
+	 */
+	public void setManifest(GenerationManifest manifest) {
+		_manifest = manifest ;
+	}
+
+	/**
+	 * Builds the targets to be generated ( "once" targets are at the end of the list )
+	 * @param selectedEntitiesNames
+	 * @param selectedTargets
+	 * @return
+	 */
+	public List<Target> buildTargets(List<String> selectedEntitiesNames, List<TargetDefinition> selectedTargets) 
+	{
+		Variable[] variables = _generatorConfig.getTelosysToolsCfg().getAllVariables();
+		
+		List<TargetDefinition> onceTargets   = new LinkedList<TargetDefinition>() ; 
+		List<TargetDefinition> entityTargets = new LinkedList<TargetDefinition>() ; 
+		for ( TargetDefinition targetDefinition : selectedTargets ) {
+			if ( targetDefinition.isOnce() ) {
+				onceTargets.add(targetDefinition); 
+			}
+			else {
+				entityTargets.add(targetDefinition);
+			}
+		}
+		
+		//--- Targets files and folders compiled once for all the entities
+		List<CompiledTarget> compiledEntityTargets = CompiledTarget.compile(entityTargets, variables);
+		
+		List<Target> targets = new ArrayList<Target>();
+		for ( String entityName : selectedEntitiesNames ) {
+			Entity entity = _repositoryModel.getEntityByName(entityName);
+			if ( entity != null ) {
+				for ( CompiledTarget compiledTarget : compiledEntityTargets ) {
+					targets.add( new Target( compiledTarget, entity.getName(), entity.getBeanJavaClass() ) );
+				}
+			}
+			else {
+				if ( _logger != null ) {
+					_logger.error("Entity '" + entityName + "' not found in the repository") ;
+				}
+			}
+		}
+		for ( CompiledTarget compiledTarget : CompiledTarget.compile(onceTargets, variables) ) {
+			targets.add( new Target( compiledTarget, "", "" ) );
+		}
+		return targets ;
+	}
+	
+	/**
+	 * Generates all the selected targets ( once or for each entity depending on the target's type ) <br>
+	 * If the generation is canceled the targets already generated are returned 
+	 * @param selectedEntitiesNames
+	 * @param selectedTargets
+	 * @param monitor the monitor (or null if none)
+	 * @return all the generated targets (in the order of the targets)
+	 * @throws GeneratorException
+	 */
+	public List<Target> generate(List<String> selectedEntitiesNames, List<TargetDefinition> selectedTargets, 
+			GenerationMonitor monitor) throws GeneratorException 
+	{
+		return generateTargets( buildTargets(selectedEntitiesNames, selectedTargets), selectedEntitiesNames, monitor );
+	}
+	
+	/**
+	 * Generates the given targets 
+	 * @param targets the targets to be generated
+	 * @param selectedEntitiesNames the selected entities ( "$selectedEntities" )
+	 * @param monitor the monitor (or null if none)
+	 * @return all the generated targets (in the order of the targets)
+	 * @throws GeneratorException
+	 */
+	public List<Target> generateTargets(List<Target> targets, List<String> selectedEntitiesNames, 
+			GenerationMonitor monitor) throws GeneratorException 
+	{
+		log("generateTargets : " + targets.size() + " target(s), parallelism = " + _parallelism );
+		_fileWriter = new GeneratedFileWriter(_generatorConfig.getOutputEncoding());
+		_statistics = new GenerationStatistics(_fileWriter);
+		_fingerprint = ( _manifest != null ? new TargetFingerprint(_repositoryModel, _generatorConfig, selectedEntitiesNames) : null ) ;
+		Map<String,Object> sharedInstances = new Hashtable<String,Object>(); // "$loader" instances for the whole run
+		List<Target> generatedTargets ;
+		try {
+			if ( _parallelism <= 1 || targets.size() <= 1 ) {
+				generatedTargets = generateSequentially(targets, selectedEntitiesNames, sharedInstances, monitor);
+			}
+			else {
+				generatedTargets = generateInParallel(targets, selectedEntitiesNames, sharedInstances, monitor);
+			}
+		}
+		finally {
+			_statistics.end();
+			_fingerprint = null ;
+		}
+		if ( _manifest != null ) {
+			_manifest.save();
+		}
+		return generatedTargets ;
+	}
+	
+	private List<Target> generateSequentially(List<Target> targets, List<String> selectedEntitiesNames, 
+			Map<String,Object> sharedInstances, GenerationMonitor monitor) throws GeneratorException 
+	{
+		List<Target> allGeneratedTargets = new LinkedList<Target>();
+		EntitiesManager entitiesManager = new EntitiesManager(_repositoryModel, _generatorConfig, sharedInstances);
+		for ( Target target : targets ) {
+			if ( isCanceled(monitor) ) {
+				log("generation canceled");
+				break ;
+			}
+			if ( monitor != null ) {
+				monitor.beginTarget(target);
+			}
+			List<Target> generatedTargets = generateTarget(target, entitiesManager, selectedEntitiesNames);
+			if ( monitor != null ) {
+				monitor.endTarget(target, generatedTargets);
+			}
+			allGeneratedTargets.addAll(generatedTargets);
+		}
+		return allGeneratedTargets ;
+	}
+	
+	private List<Target> generateInParallel(List<Target> targets, final List<String> selectedEntitiesNames, 
+			final Map<String,Object> sharedInstances, GenerationMonitor monitor) throws GeneratorException 
+	{
+		final AtomicBoolean canceled = new AtomicBoolean(false);
+		
+		//--- Each worker thread has its own entities manager ( the "$env" is specific for each target in progress )
+		//--- with the same shared instances 
+		final ThreadLocal<EntitiesManager> entitiesManagers = new ThreadLocal<EntitiesManager>() {
+			@Override
+			protected EntitiesManager initialValue() {
+				return new EntitiesManager(_repositoryModel, _generatorConfig, sharedInstances);
+			}
+		};
+		
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(_parallelism, targets.size()), new WorkerThreadFactory() );
+		List<Future<List<Target>>> futures = new ArrayList<Future<List<Target>>>(targets.size());
+		List<Target> allGeneratedTargets = new LinkedList<Target>();
+		try {
+			//--- Submit all the targets 
+			for ( final Target target : targets ) {
+				futures.add( executor.submit( new Callable<List<Target>>() {
+					public List<Target> call() throws Exception {
+						if ( canceled.get() ) {
+							return Collections.emptyList() ;
+						}
+						return generateTarget(target, entitiesManagers.get(), selectedEntitiesNames);
+					}
+				} ) );
+			}
+			
+			//--- Collect the results in the order of the targets 
+			for ( int i = 0 ; i < targets.size() ; i++ ) {
+				Target target = targets.get(i);
+				if ( monitor != null ) {
+					monitor.beginTarget(target);
+				}
+				List<Target> generatedTargets = waitForResult(futures.get(i), monitor);
+				if ( generatedTargets == null ) {
+					log("generation canceled");
+					break ;
+				}
+				if ( monitor != null ) {
+					monitor.endTarget(target, generatedTargets);
+				}
+				allGeneratedTargets.addAll(generatedTargets);
+			}
+		}
+		finally {
+			//--- Cancel the pending targets if any and wait for the targets in progress 
+			canceled.set(true);
+			for ( Future<List<Target>> future : futures ) {
+				future.cancel(false);
+			}
+			executor.shutdown();
+			try {
+				executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		return allGeneratedTargets ;
+	}
+	
+	/**
+	 * Waits for the given target generation 
+	 * @param future
+	 * @param monitor
+	 * @return the generated targets or null if the generation has been canceled
+	 * @throws GeneratorException
+	 */
+	private List<Target> waitForResult(Future<List<Target>> future, GenerationMonitor monitor) throws GeneratorException 
+	{
+		while ( true ) {
+			if ( isCanceled(monitor) ) {
+				return null ;
+			}
+			try {
+				return future.get(CANCEL_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				// not yet generated => check cancellation and wait again
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return null ;
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if ( cause instanceof GeneratorException ) {
+					throw (GeneratorException) cause ;
+				}
+				else if ( cause instanceof RuntimeException ) {
+					throw (RuntimeException) cause ;
+				}
+				else if ( cause instanceof Error ) {
+					throw (Error) cause ;
+				}
+				else {
+					throw new GeneratorException("Generation error : Exception ", cause);
+				}
+			}
+		}
+	}
+	
+	private boolean isCanceled(GenerationMonitor monitor) {
+		return monitor != null && monitor.isCanceled() ;
+	}
+	
+	/**
+	 * Generates the given target (if its inputs have changed in case of incremental generation)
+	 * @param target
+	 * @param entitiesManager
+	 * @param selectedEntitiesNames
+	 * @return the generated targets (more than one if the embedded generator is used, void if skipped)
+	 * @throws GeneratorException
+	 */
+	private List<Target> generateTarget(Target target, EntitiesManager entitiesManager, List<String> selectedEntitiesNames) 
+			throws GeneratorException 
+	{
+		//--- Incremental generation : skip the target if nothing has changed
+		String fingerprint = null ;
+		if ( _fingerprint != null ) {
+			fingerprint = _fingerprint.getFingerprint(target);
+			if ( _manifest.isUpToDate(target, fingerprint) ) {
+				log("target unchanged : " + target.getOutputFileNameInProject() );
+				_statistics.targetSkipped();
+				return new LinkedList<Target>();
+			}
+		}
+		
+		long startTime = System.currentTimeMillis();
+		List<Target> generatedTargets = new LinkedList<Target>();
+		Generator generator = new Generator(target, _generatorConfig, entitiesManager, _logger);
+		generator.setFileWriter(_fileWriter);
+		generator.generateTarget(target, selectedEntitiesNames, generatedTargets);
+		long duration = System.currentTimeMillis() - startTime ;
+		_statistics.targetGenerated(target.getTemplate(), duration, generatedTargets.size());
+		
+		//--- Keep the fingerprint of the generated file 
+		if ( _fingerprint != null ) {
+			// the files generated with the embedded generator are not tracked => always regenerated
+			_manifest.setFingerprint(target, generatedTargets.size() == 1 ? fingerprint : null );
+		}
+		return generatedTargets ;
+	}
+	
+	/**
+	 * Thread factory for the generation workers ( daemon threads )
+	 */
+	private static class WorkerThreadFactory implements ThreadFactory {
+		
+		private final static AtomicInteger poolNumber = new AtomicInteger(1);
+		
+		private final int           _poolNumber = poolNumber.getAndIncrement() ;
+		private final AtomicInteger _threadNumber = new AtomicInteger(1);
+
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "telosys-generator-" + _poolNumber + "-" + _threadNumber.getAndIncrement() );
+			thread.setDaemon(true);
+			return thread ;
+		}
+	}
+}
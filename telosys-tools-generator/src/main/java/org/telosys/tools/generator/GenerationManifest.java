@@ -0,0 +1,181 @@
+/**
+ *  Copyright (C) 2008-2013  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator;
+
+import java.io.File;
+import java.util.Properties;
+
+import org.telosys.tools.commons.FileUtil;
+import org.telosys.tools.commons.TelosysToolsException;
+import org.telosys.tools.commons.cfg.PropertiesManager;
+import org.telosys.tools.generator.context.Target;
+
+/**
+ * Generation manifest : persistent fingerprints of the generated files <br>
+ * For each generated file ( path in the project ) the manifest keeps the fingerprint of the generation inputs <br>
+ * ( entity, template and its dependencies, variables, etc ) used to produce it, and the file modification time. <br>
+ * A target can be skipped if its fingerprint is the same as the one recorded for its file <br>
+ * and if the file has not been modified or removed since its generation. <br>
+ * The manifest is stored as a properties file ( by default in the project folder ).
+ * 
+ * @author Laurent Guerin
+ * @since 2.1.1
+ */
+public class GenerationManifest {
+
+	public final static String DEFAULT_FILE_NAME = ".telosys-generation-manifest" ;
+	
+	private final static char SEPARATOR = ':' ; // "fingerprint:lastModified"
+	
+	private final PropertiesManager _propertiesManager ;
+	
+	private final String            _projectLocation ;
+	
+	private final Properties        _fingerprints = new Properties();
+	
+	private boolean                 _modified = false ;
+	
+	/**
+	 * Constructor for a manifest located in the default file of the given project
+	 * @param projectLocation
+	 */
+	public GenerationManifest(String projectLocation) {
+		this(projectLocation, FileUtil.buildFilePath(projectLocation, DEFAULT_FILE_NAME));
+	}
+
+	/**
+	 * Constructor
+	 * @param projectLocation the project location (to check the existence of the generated files)
+	 * @param manifestFileName the manifest file 
+	 */
+	public GenerationManifest(String projectLocation, String manifestFileName) {
+		super();
+		_projectLocation   = projectLocation ;
+		_propertiesManager = new PropertiesManager(manifestFileName);
+	}
+	
+	/**
+	 * Loads the manifest file (if the file doesn't exist the manifest is void)
+	 * @throws GeneratorException
+	 */
+	public synchronized void load() throws GeneratorException {
+		_fingerprints.clear();
+		try {
+			Properties properties = _propertiesManager.load();
+			if ( properties != null ) {
+				_fingerprints.putAll(properties);
+			}
+		} catch (TelosysToolsException e) {
+			throw new GeneratorException("Cannot load generation manifest '" + _propertiesManager.getFileAbsolutePath() + "'", e);
+		}
+		_modified = false ;
+	}
+	
+	/**
+	 * Saves the manifest file (only if it has been modified since the last load/save)
+	 * @throws GeneratorException
+	 */
+	public synchronized void save() throws GeneratorException {
+		if ( _modified ) {
+			try {
+				_propertiesManager.save(_fingerprints);
+			} catch (TelosysToolsException e) {
+				throw new GeneratorException("Cannot save generation manifest '" + _propertiesManager.getFileAbsolutePath() + "'", e);
+			}
+			_modified = false ;
+		}
+	}
+	
+	/**
+	 * Returns the fingerprint recorded for the given file (or null if none)
+	 * @param fileInProject the file path in the project 
+	 * @return
+	 */
+	public synchronized String getFingerprint(String fileInProject) {
+		String value = _fingerprints.getProperty(fileInProject);
+		if ( value != null ) {
+			int i = value.indexOf(SEPARATOR);
+			return i >= 0 ? value.substring(0, i) : value ;
+		}
+		return null ;
+	}
+	
+	/**
+	 * Returns true if the file of the given target has been generated with the given fingerprint <br>
+	 * and has not been modified or removed since its generation
+	 * @param target 
+	 * @param fingerprint
+	 * @return
+	 */
+	public boolean isUpToDate(Target target, String fingerprint) {
+		if ( fingerprint == null ) {
+			return false ;
+		}
+		File file = new File( target.getOutputFileNameInFileSystem(_projectLocation) ) ;
+		String expected = fingerprint + SEPARATOR + file.lastModified() ; // lastModified = 0 if no file 
+		return file.exists() && expected.equals( getValue( target.getOutputFileNameInProject() ) ) ;
+	}
+	
+	private synchronized String getValue(String fileInProject) {
+		return _fingerprints.getProperty(fileInProject);
+	}
+	
+	/**
+	 * Records the fingerprint of the file generated for the given target (to be called after the generation)
+	 * @param target 
+	 * @param fingerprint the fingerprint (or null to remove the file from the manifest)
+	 */
+	public void setFingerprint(Target target, String fingerprint) {
+		String value = null ;
+		if ( fingerprint != null ) {
+			File file = new File( target.getOutputFileNameInFileSystem(_projectLocation) ) ;
+			value = fingerprint + SEPARATOR + file.lastModified() ;
+		}
+		setValue(target.getOutputFileNameInProject(), value);
+	}
+
+	private synchronized void setValue(String fileInProject, String value) {
+		if ( value != null ) {
+			Object previous = _fingerprints.setProperty(fileInProject, value);
+			if ( ! value.equals(previous) ) {
+				_modified = true ;
+			}
+		}
+		else {
+			if ( _fingerprints.remove(fileInProject) != null ) {
+				_modified = true ;
+			}
+		}
+	}
+	
+	/**
+	 * Removes all the fingerprints ( the next generation will be a full generation )
+	 */
+	public synchronized void clear() {
+		if ( ! _fingerprints.isEmpty() ) {
+			_fingerprints.clear();
+			_modified = true ;
+		}
+	}
+	
+	/**
+	 * Returns the number of files in the manifest
+	 * @return
+	 */
+	public synchronized int size() {
+		return _fingerprints.size();
+	}
+}
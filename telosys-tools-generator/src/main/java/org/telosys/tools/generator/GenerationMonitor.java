@@ -0,0 +1,52 @@
+/**
+ *  Copyright (C) 2008-2013  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator;
+
+import java.util.List;
+
+import org.telosys.tools.generator.context.Target;
+
+/**
+ * Monitor used by the GenerationManager to report the progress of a bulk generation <br>
+ * and to know if the generation has been canceled (e.g. to be mapped on an Eclipse progress monitor) <br>
+ * All the methods are called by the thread that launched the generation, in the order of the targets.
+ * 
+ * @author Laurent Guerin
+ *
+ * @since 2.1.1
+ */
+public interface GenerationMonitor {
+
+	/**
+	 * Returns true if the cancellation of the generation has been requested
+	 * @return
+	 */
+	public boolean isCanceled() ;
+	
+	/**
+	 * Called before waiting for the generation of the given target
+	 * @param target
+	 */
+	public void beginTarget(Target target) ;
+	
+	/**
+	 * Called when the given target has been generated
+	 * @param target the target 
+	 * @param generatedTargets all the targets generated for this target (more than one if the embedded generator is used)
+	 */
+	public void endTarget(Target target, List<Target> generatedTargets) ;
+	
+}
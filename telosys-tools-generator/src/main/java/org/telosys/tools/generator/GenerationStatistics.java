@@ -0,0 +1,178 @@
+/**
+ *  Copyright (C) 2008-2013  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Statistics of a bulk generation ( number of files, bytes written, time spent for each template ) <br>
+ * The files counters ( created, updated, unchanged, bytes written ) are provided by the files writer of the generation <br>
+ * The counters can be updated by several generation threads at the same time.
+ * 
+ * @author Laurent Guerin
+ *
+ * @since 2.1.1
+ */
+public class GenerationStatistics {
+
+	private final long startTime = System.currentTimeMillis() ;
+	
+	private long endTime = 0 ;
+	
+	private int numberOfTargets = 0 ;
+	
+	private int numberOfFiles = 0 ;
+	
+	private int numberOfSkippedTargets = 0 ;
+	
+	private final Map<String,TemplateStatistics> templates = new TreeMap<String,TemplateStatistics>();
+	
+	private final GeneratedFileWriter fileWriter ;
+	
+	/**
+	 * Constructor
+	 * @param fileWriter the writer used to save the generated files
+	 */
+	public GenerationStatistics(GeneratedFileWriter fileWriter) {
+		super();
+		this.fileWriter = fileWriter ;
+	}
+	
+	/**
+	 * Registers a generated target
+	 * @param template the template used for the target
+	 * @param duration the time spent to generate the target (in milliseconds)
+	 * @param files the number of files generated (more than one if the embedded generator is used)
+	 */
+	public synchronized void targetGenerated(String template, long duration, int files) {
+		numberOfTargets++ ;
+		numberOfFiles = numberOfFiles + files ;
+		TemplateStatistics templateStatistics = templates.get(template);
+		if ( templateStatistics == null ) {
+			templateStatistics = new TemplateStatistics();
+			templates.put(template, templateStatistics);
+		}
+		templateStatistics.count++ ;
+		templateStatistics.duration = templateStatistics.duration + duration ;
+	}
+	
+	/**
+	 * Registers a target not generated because its generation inputs have not changed 
+	 */
+	public synchronized void targetSkipped() {
+		numberOfSkippedTargets++ ;
+	}
+	
+	/**
+	 * Set the end of the generation 
+	 */
+	public synchronized void end() {
+		endTime = System.currentTimeMillis() ;
+	}
+	
+	/**
+	 * Returns the elapsed time (in milliseconds) since the beginning of the generation <br>
+	 * ( or the total duration if the generation is finished )
+	 * @return
+	 */
+	public synchronized long getElapsedTime() {
+		return ( endTime > 0 ? endTime : System.currentTimeMillis() ) - startTime ;
+	}
+	
+	public synchronized int getNumberOfTargets() {
+		return numberOfTargets ;
+	}
+	
+	public synchronized int getNumberOfFiles() {
+		return numberOfFiles ;
+	}
+	
+	/**
+	 * Returns the number of bytes written in the created and updated files
+	 * @return
+	 */
+	public long getNumberOfBytes() {
+		return fileWriter.getBytesWritten() ;
+	}
+
+	public int getNumberOfCreatedFiles() {
+		return fileWriter.getCreatedFiles() ;
+	}
+
+	public int getNumberOfUpdatedFiles() {
+		return fileWriter.getUpdatedFiles() ;
+	}
+
+	/**
+	 * Returns the number of files generated with the same content as the existing file (not written)
+	 * @return
+	 */
+	public int getNumberOfUnchangedFiles() {
+		return fileWriter.getUnchangedFiles() ;
+	}
+
+	public synchronized int getNumberOfSkippedTargets() {
+		return numberOfSkippedTargets ;
+	}
+
+	/**
+	 * Returns the number of files generated per second 
+	 * @return
+	 */
+	public synchronized double getFilesPerSecond() {
+		long elapsedTime = getElapsedTime() ;
+		return elapsedTime > 0 ? ( numberOfFiles * 1000.0 ) / elapsedTime : numberOfFiles ;
+	}
+	
+	/**
+	 * Returns the total time (in milliseconds) spent with the given template
+	 * @param template
+	 * @return
+	 */
+	public synchronized long getTemplateTime(String template) {
+		TemplateStatistics templateStatistics = templates.get(template);
+		return templateStatistics != null ? templateStatistics.duration : 0 ;
+	}
+	
+	/**
+	 * Returns the report lines 
+	 * @return
+	 */
+	public synchronized List<String> getReport() {
+		List<String> lines = new LinkedList<String>();
+		lines.add( numberOfTargets + " target(s), " + numberOfFiles + " file(s), " + getNumberOfBytes() + " byte(s) written in " 
+				+ getElapsedTime() + " ms (" + String.format("%.1f", getFilesPerSecond()) + " files/sec)" );
+		lines.add( getNumberOfCreatedFiles() + " file(s) created, " + getNumberOfUpdatedFiles() + " updated, " 
+				+ getNumberOfUnchangedFiles() + " unchanged" );
+		if ( numberOfSkippedTargets > 0 ) {
+			lines.add( numberOfSkippedTargets + " target(s) skipped (unchanged)" );
+		}
+		for ( Map.Entry<String,TemplateStatistics> entry : templates.entrySet() ) {
+			TemplateStatistics templateStatistics = entry.getValue();
+			lines.add( " . " + entry.getKey() + " : " + templateStatistics.count + " target(s) in " 
+					+ templateStatistics.duration + " ms" );
+		}
+		return lines ;
+	}
+	
+	private static class TemplateStatistics {
+		int  count    = 0 ;
+		long duration = 0 ;
+	}
+}
@@ -15,17 +15,9 @@
  */
 package org.telosys.tools.generator;
 
-import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.io.StringWriter;
 import java.io.Writer;
 import java.util.List;
-import java.util.Properties;
 
 import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
@@ -52,11 +44,7 @@ import org.telosys.tools.generator.context.ProjectInContext;
 import org.telosys.tools.generator.context.Target;
 import org.telosys.tools.generator.context.Today;
 import org.telosys.tools.generator.context.names.ContextName;
-import org.telosys.tools.generator.directive.AssertFalseDirective;
-import org.telosys.tools.generator.directive.AssertTrueDirective;
 import org.telosys.tools.generator.directive.DirectiveException;
-import org.telosys.tools.generator.directive.ErrorDirective;
-import org.telosys.tools.generator.directive.UsingDirective;
 import org.telosys.tools.generator.events.GeneratorEvents;
 import org.telosys.tools.repository.model.RepositoryModel;
 
@@ -96,6 +84,10 @@ public class Generator {
 
 	private final String             _sTemplateFileName ;
 
+	private final EntitiesManager    _entitiesManager ;
+	
+	private GeneratedFileWriter      _fileWriter ; // v 2.1.1
+	
 	/**
 	 * Constructor
 	 * @param target the target to be generated
@@ -106,6 +98,21 @@ public class Generator {
 	 */
 	public Generator( Target target, GeneratorConfig generatorConfig, 
 						RepositoryModel repositoryModel, TelosysToolsLogger logger) throws GeneratorException 
+	{
+		this(target, generatorConfig, new EntitiesManager(repositoryModel, generatorConfig), logger);
+	}
+	
+	/**
+	 * Constructor with an entities manager shared by all the targets of the current generation
+	 * @param target the target to be generated
+	 * @param generatorConfig the generator configuration
+	 * @param entitiesManager the entities manager for the current repository model
+	 * @param logger
+	 * @throws GeneratorException
+	 * @since 2.1.1
+	 */
+	public Generator( Target target, GeneratorConfig generatorConfig, 
+						EntitiesManager entitiesManager, TelosysToolsLogger logger) throws GeneratorException 
 	{
 		_logger = logger;
 		
@@ -123,7 +130,13 @@ public class Generator {
 			throw new GeneratorException("Generator configuration is null (Generator constructor argument)");
 		}
 		
+		if ( null == entitiesManager) {
+			throw new GeneratorException("Entities manager is null (Generator constructor argument)");
+		}
+		
 		_generatorConfig = generatorConfig ;
+		_entitiesManager = entitiesManager ;
+		_fileWriter      = new GeneratedFileWriter( generatorConfig.getOutputEncoding() );
 		
 //		//_repositoryModel = repositoryModel ;
 //		// Build the list of all the entities defined in the repository  
@@ -158,7 +171,7 @@ public class Generator {
 			log("Generator constructor : VelocityContext events attached.");
 	
 			log("Generator constructor : VelocityContext initialization ...");
-			initContext(generatorConfig, repositoryModel, logger); 
+			initContext(generatorConfig, entitiesManager.getRepositoryModel(), logger); 
 			log("Generator constructor : VelocityContext initialized.");
 			
 			//------------------------------------------------------------------
@@ -173,21 +186,8 @@ public class Generator {
 			_sTemplateFileName  = sTemplateFileName;
 	
 			log("Generator constructor : VelocityEngine initialization ...");
-			_velocityEngine = new VelocityEngine();
-			_velocityEngine.setProperty(VelocityEngine.FILE_RESOURCE_LOADER_PATH, sTemplateDirectory);
-			try {
-				// init() : 
-				//   initialize the Velocity runtime engine, using the default properties of the Velocity distribution
-				// _velocityEngine.init();
-
-				// init(Properties p) : 
-				//    initialize the Velocity runtime engine, using default properties 
-				//    plus the properties in the passed in java.util.Properties object
-				_velocityEngine.init( getSpecificVelocityProperties() ); // ver 2.0.7
-				
-			} catch (Exception e) {
-				throw new GeneratorException("Cannot init VelocityEngine", e );
-			}
+			//--- Shared engine for this templates folder ( templates are parsed once and kept in cache )
+			_velocityEngine = VelocityEngineManager.getVelocityEngine(sTemplateDirectory);
 			log("Generator constructor : VelocityEngine initialized.");
 		}
 		finally {
@@ -198,6 +198,17 @@ public class Generator {
 		//------------------------------------------------------------------
 	}
 
+	/**
+	 * Set the writer used to save the generated files ( to share the files counters between generators )
+	 * @param fileWriter
+	 * @since 2.1.1
+	 */
+	public void setFileWriter(GeneratedFileWriter fileWriter) {
+		if ( fileWriter != null ) {
+			_fileWriter = fileWriter ;
+		}
+	}
+
 	private void log(String s) {
 		if (_logger != null) {
 			_logger.log(s);
@@ -239,32 +250,6 @@ public class Generator {
 		}
 	}
 	
-	//========================================================================
-	// CONTEXT MANAGEMENT
-	//========================================================================
-	/**
-	 * Returns the Specific Velocity properties to be added at the default Velocity runtime properties
-	 * @return
-	 */
-	private Properties getSpecificVelocityProperties()
-	{
-		Properties p = new Properties();
-		
-		// User Directives 
-		// userdirective=com.example.MyDirective1, com.example.MyDirective2
-		p.setProperty("userdirective", 
-				  UsingDirective.class.getCanonicalName() 
-				+ ", " 
-				+ AssertTrueDirective.class.getCanonicalName() 
-				+ ", " 
-				+ AssertFalseDirective.class.getCanonicalName() 
-				+ ", " 
-				+ ErrorDirective.class.getCanonicalName() 
-				); // one or n directive(s) separated by a comma 
-		
-		return p;
-	}
-	
 	//========================================================================
 	// CONTEXT MANAGEMENT
 	//========================================================================
@@ -299,7 +284,8 @@ public class Generator {
 		
 		//--- Set the dynamic class loader 
 		//Loader loader = new Loader(projectConfiguration, _velocityContext);
-		Loader loader = new Loader( generatorConfig.getTemplatesFolderFullPath() ); // ver 2.1.0
+		Loader loader = new Loader( generatorConfig.getTemplatesFolderFullPath(), 
+				_entitiesManager.getSharedInstances() ); // ver 2.1.1
 		_velocityContext.put(ContextName.LOADER, loader);
 		
 		//--- Set the "$project" variable in the context
@@ -416,13 +402,13 @@ public class Generator {
 	}
 
 	/**
-	 * Generates in memory and returns the InputStream on the generation result
-	 * @return
+	 * Generates the current target in the given output ( streaming, without in-memory copy of the result )
+	 * @param output
 	 * @throws GeneratorException
 	 */
-	private InputStream generateInMemory() throws GeneratorException {
-		log("generateInMemory()...");
-		StringWriter stringWriter = new StringWriter();
+	private void generateInOutput(GeneratedFileWriter.Output output) throws GeneratorException {
+		log("generateInOutput()...");
+		Writer writer = output.getWriter();
 		
 		//------------------------------------------------------------------
 		// Workaround for Velocity error in OSGi environment 
@@ -432,7 +418,7 @@ public class Generator {
 		currentThread.setContextClassLoader(this.getClass().getClassLoader()); // Set the context ClassLoader for this Thread
 		try {
 			//--- Call VELOCITY ENGINE
-			generate(stringWriter);
+			generate(writer);
 		}
 		finally {
 			currentThread.setContextClassLoader(originalClassLoader); // Restore the original classLoader
@@ -440,9 +426,6 @@ public class Generator {
 		//------------------------------------------------------------------
 		// End of Workaround for Velocity error in OSGi environment
 		//------------------------------------------------------------------
-			
-		byte[] bytes = stringWriter.toString().getBytes();
-		return new ByteArrayInputStream(bytes);
 	}
 
 	//================================================================================================
@@ -460,17 +443,48 @@ public class Generator {
 			RepositoryModel repositoryModel, 
 			List<String> selectedEntitiesNames,
 			List<Target> generatedTargets) throws GeneratorException
+	{
+		if ( repositoryModel != _entitiesManager.getRepositoryModel() ) {
+			throw new GeneratorException("Invalid repository model (not the model used by the entities manager)");
+		}
+		generateTarget(target, selectedEntitiesNames, generatedTargets);
+	}
+	
+	/**
+	 * Generates the given target using the entities manager of this generator
+	 * @param target the target to be generated
+	 * @param selectedEntitiesNames list of names for all the selected entities (or null if none)
+	 * @param generatedTargets list of generated targets to be updated (or null if not useful)
+	 * @throws GeneratorException
+	 * @since 2.1.1
+	 */
+	public void generateTarget(Target target, 
+			List<String> selectedEntitiesNames,
+			List<Target> generatedTargets) throws GeneratorException
 	{
 		_logger.info("Generation in progress : target = " + target.getTargetName() + " / entity = " + target.getEntityName() );
 		
-		//--- "$env" object : Environment configuration
+		//--- "$env" object : Environment configuration (specific for each target)
 		EnvInContext env = new EnvInContext() ;
 		_velocityContext.put(ContextName.ENV, env);   // ver 2.1.0
 		
-		EntitiesManager entitiesManager = new EntitiesManager(repositoryModel, _generatorConfig, env);
-		
+		//--- The shared entities use the environment of the current target 
+		EnvInContext previousEnv = _entitiesManager.setEnv(env);
+		try {
+			doGenerateTarget(target, _entitiesManager, selectedEntitiesNames, generatedTargets);
+		}
+		finally {
+			_entitiesManager.setEnv(previousEnv);
+		}
+	}
+	
+	private void doGenerateTarget(Target target, 
+			EntitiesManager entitiesManager,
+			List<String> selectedEntitiesNames,
+			List<Target> generatedTargets) throws GeneratorException
+	{
 		//--- "$model" object : it provides all the entities (v 2.0.7)
-		ModelInContext model = new ModelInContext(repositoryModel, entitiesManager );
+		ModelInContext model = entitiesManager.getModel();
 		_velocityContext.put(ContextName.MODEL, model); 
 		
 		//--- Set the "$target"  in the context 
@@ -514,68 +528,28 @@ public class Generator {
 		
 		//--- Set the "$generator"  in the context ( "real" embedded generator )
 		EmbeddedGenerator embeddedGenerator = new EmbeddedGenerator(
-				repositoryModel, _generatorConfig, _logger, selectedEntitiesNames, generatedTargets );
+				entitiesManager, _generatorConfig, _logger, selectedEntitiesNames, generatedTargets, _fileWriter );
 		_velocityContext.put(ContextName.GENERATOR, embeddedGenerator );
 		
 		//---------- ((( GENERATION ))) 
-		InputStream is = generateInMemory(); // Generate the target in memory
-		_logger.info("Generation done.");
-
-		//---------- Save the result in the file
 		String outputFileName = target.getOutputFileNameInFileSystem( _generatorConfig.getProjectLocation() );
-		_logger.info("Saving target file : " + outputFileName );
-		saveStreamInFile(is, outputFileName, true );
-		_logger.info("Target file saved." );
-		
-		//---------- Add the generated target in the list if any
-		if ( generatedTargets != null ) {
-			generatedTargets.add(target);
-		}
-	}
+		GeneratedFileWriter.Output output = _fileWriter.open(outputFileName, CREATE_DIR);
+		try {
+			generateInOutput(output); // Generate the target in the output (memory or temporary file) 
+			_logger.info("Generation done.");
 	
-	private void saveStreamInFile(InputStream is, String fileName, boolean bCreateDir) throws GeneratorException
-	{
-		File f = new File(fileName);
-		
-		//--- Check if it's possible to write the file
-		if ( f.exists() )
-		{
-			if ( ! f.canWrite() )				
-			{
-				throw new GeneratorException("Cannot write on existing target file '"+ f.toString() + "' !");
-			}
+			//---------- Save the result in the file (if changed)
+			_logger.info("Saving target file : " + outputFileName );
+			int status = output.commit();
+			_logger.info( status == GeneratedFileWriter.UNCHANGED ? "Target file unchanged." : "Target file saved." );
 		}
-		else
-		{
-			File parent = f.getParentFile();
-			if ( ! parent.exists() )
-			{
-				if ( bCreateDir == false )
-				{
-					throw new GeneratorException("Target directory '"+ parent.toString() + "' not found !");
-				}
-				else
-				{
-					// Create the target file directory(ies)
-					parent.mkdirs();				
-				}
-			}
+		finally {
+			output.discard(); // no effect if committed
 		}
 		
-		//--- Write the file
-		try {
-			OutputStream out = new FileOutputStream(f);
-			byte buf[] = new byte[1024];
-			int len;
-			while ((len = is.read(buf)) > 0) {
-				out.write(buf, 0, len);
-			}
-			out.close();
-			is.close();
-		} catch (FileNotFoundException e) {
-			throw new GeneratorException("Cannot save file "+fileName, e);
-		} catch (IOException e) {
-			throw new GeneratorException("Cannot save file "+fileName, e);
+		//---------- Add the generated target in the list if any
+		if ( generatedTargets != null ) {
+			generatedTargets.add(target);
 		}
 	}
 	
@@ -0,0 +1,418 @@
+/**
+ *  Copyright (C) 2008-2013  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.telosys.tools.commons.FileUtil;
+import org.telosys.tools.commons.TelosysToolsException;
+import org.telosys.tools.commons.variables.Variable;
+import org.telosys.tools.generator.config.GeneratorConfig;
+import org.telosys.tools.generator.context.Loader;
+import org.telosys.tools.generator.context.Target;
+import org.telosys.tools.repository.model.Entity;
+import org.telosys.tools.repository.model.Link;
+import org.telosys.tools.repository.model.RepositoryModel;
+import org.telosys.tools.repository.persistence.GenericPersistenceManager;
+import org.telosys.tools.repository.persistence.util.Xml;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Fingerprints of the generation inputs for the targets of a generation <br>
+ * The fingerprint of a target is a digest of : <br>
+ * . the target definition <br>
+ * . the entity (with its columns, foreign keys and links) and the entities referenced by its links <br>
+ *   ( or the whole model for a target without entity ) <br>
+ * . the whole model if the template ( or an included template ) uses "$model" or "$selectedEntities" <br>
+ * . the template and the templates included with "#parse" or "#include" <br>
+ * . the project variables, the selected entities, the output encoding, the databases configurations <br>
+ *   and the classes usable by the "$loader" <br>
+ * <br>
+ * The fingerprint is null if the inputs cannot be determined ( e.g. "#parse" with a variable ). <br>
+ * The entities and templates digests are computed once for each instance ( one instance per generation ).
+ * 
+ * @author Laurent Guerin
+ * @since 2.1.1
+ */
+public class TargetFingerprint {
+
+	private final static String DIGEST_ALGORITHM = "SHA-1" ;
+	
+	private final static String ENCODING = "UTF-8" ;
+	
+	private final static String TEMPLATE_ENCODING = "ISO-8859-1" ; // Velocity default input encoding
+	
+	/**
+	 * "#parse(...)" or "#include(...)" (with optional braces) 
+	 */
+	private final static Pattern TEMPLATE_DEPENDENCY = Pattern.compile("#\\{?(parse|include)\\}?\\s*\\(([^)]*)\\)") ;
+	
+	/**
+	 * Literal template name : "name" or 'name' 
+	 */
+	private final static Pattern LITERAL = Pattern.compile("\"([^\"$]*)\"|'([^'$]*)'") ;
+	
+	/**
+	 * Reference to the objects giving access to all the entities : "$model", "$!{selectedEntities}", etc 
+	 */
+	private final static Pattern MODEL_REFERENCE = Pattern.compile("\\$!?\\{?(model|selectedEntities)\\b") ;
+	
+	private final static byte[] NO_DIGEST = new byte[0] ; // inputs cannot be determined
+	
+	private final RepositoryModel      _repositoryModel ;
+	
+	private final String               _templatesFolder ;
+	
+	private final byte[]               _environmentDigest ;
+	
+	private final Map<String, byte[]>  _templatesDigests = new HashMap<String, byte[]>();
+	
+	private final Set<String>          _templatesUsingModel = new HashSet<String>();
+	
+	private final Map<String, byte[]>  _entitiesDigests  = new HashMap<String, byte[]>();
+	
+	private byte[]                     _modelDigest = null ;
+	
+	private Document                   _document = null ; // used to build the entities XML elements
+	
+	/**
+	 * Constructor
+	 * @param repositoryModel
+	 * @param generatorConfig
+	 * @param selectedEntitiesNames
+	 * @throws GeneratorException
+	 */
+	public TargetFingerprint(RepositoryModel repositoryModel, GeneratorConfig generatorConfig, 
+			List<String> selectedEntitiesNames) throws GeneratorException {
+		super();
+		_repositoryModel = repositoryModel ;
+		_templatesFolder = generatorConfig.getTemplatesFolderFullPath() ;
+		_environmentDigest = buildEnvironmentDigest(generatorConfig, selectedEntitiesNames);
+	}
+	
+	//-------------------------------------------------------------------------------------------
+	/**
+	 * Returns the fingerprint of the given target 
+	 * @param target
+	 * @return the fingerprint (or null if the inputs cannot be determined)
+	 * @throws GeneratorException
+	 */
+	public String getFingerprint(Target target) throws GeneratorException {
+		byte[] templateDigest = getTemplateDigest(target.getTemplate());
+		if ( templateDigest == NO_DIGEST ) {
+			return null ;
+		}
+		MessageDigest md = newMessageDigest();
+		update(md, target.getTargetName());
+		update(md, target.getFolder());
+		update(md, target.getFile());
+		update(md, target.getTemplate());
+		md.update(_environmentDigest);
+		md.update(templateDigest);
+		if ( target.getEntityName().trim().length() > 0 ) {
+			byte[] entityDigest = getEntityDigest(target.getEntityName());
+			if ( entityDigest == NO_DIGEST ) {
+				return null ;
+			}
+			md.update(entityDigest);
+			if ( isTemplateUsingModel(target.getTemplate()) ) {
+				md.update(getModelDigest()); // other entities usable in the template 
+			}
+		}
+		else {
+			md.update(getModelDigest());
+		}
+		return toHexString(md.digest());
+	}
+	
+	//-------------------------------------------------------------------------------------------
+	// Environment 
+	//-------------------------------------------------------------------------------------------
+	private byte[] buildEnvironmentDigest(GeneratorConfig generatorConfig, List<String> selectedEntitiesNames) 
+			throws GeneratorException {
+		MessageDigest md = newMessageDigest();
+		update(md, GeneratorVersion.GENERATOR_VERSION);
+		update(md, generatorConfig.getBundleName());
+		String encoding = generatorConfig.getOutputEncoding() ;
+		update(md, encoding != null ? encoding : GeneratedFileWriter.getDefaultEncoding() ); // effective encoding
+		//--- Project variables
+		Variable[] variables = generatorConfig.getTelosysToolsCfg().getAllVariables();
+		if ( variables != null ) {
+			for ( Variable variable : variables ) {
+				update(md, variable.getName());
+				update(md, variable.getValue());
+			}
+		}
+		//--- Selected entities ( "$selectedEntities" )
+		if ( selectedEntitiesNames != null ) {
+			for ( String name : selectedEntitiesNames ) {
+				update(md, name);
+			}
+		}
+		//--- Databases configurations ( "$databases" )
+		File databasesFile = new File( generatorConfig.getTelosysToolsCfg().getDatabasesDbCfgFileAbsolutePath() );
+		if ( databasesFile.isFile() ) {
+			md.update( readFile(databasesFile) );
+		}
+		//--- Specific classes usable in the templates ( "$loader" )
+		if ( _templatesFolder != null ) {
+			updateWithFolder(md, new File( new Loader(_templatesFolder).getClassesFolder() ) );
+		}
+		return md.digest();
+	}
+	
+	private void updateWithFolder(MessageDigest md, File folder) {
+		File[] files = folder.listFiles();
+		if ( files != null ) {
+			Arrays.sort(files);
+			for ( File file : files ) {
+				update(md, file.getName());
+				if ( file.isDirectory() ) {
+					updateWithFolder(md, file);
+				}
+				else {
+					update(md, file.length() + "/" + file.lastModified() );
+				}
+			}
+		}
+	}
+	
+	//-------------------------------------------------------------------------------------------
+	// Templates 
+	//-------------------------------------------------------------------------------------------
+	private synchronized byte[] getTemplateDigest(String templateName) throws GeneratorException {
+		byte[] digest = _templatesDigests.get(templateName);
+		if ( digest == null ) {
+			MessageDigest md = newMessageDigest();
+			if ( updateWithTemplate(md, templateName, templateName, new HashSet<String>()) ) {
+				digest = md.digest();
+			}
+			else {
+				digest = NO_DIGEST ;
+			}
+			_templatesDigests.put(templateName, digest);
+		}
+		return digest ;
+	}
+	
+	/**
+	 * Returns true if the given template ( or an included template ) can access all the entities 
+	 * @param templateName
+	 * @return
+	 */
+	private synchronized boolean isTemplateUsingModel(String templateName) {
+		return _templatesUsingModel.contains(templateName) ;
+	}
+	
+	/**
+	 * Updates the digest with the given template and all its dependencies
+	 * @param md
+	 * @param mainTemplateName the template of the target 
+	 * @param templateName the template to be added in the digest ( the main template or a dependency )
+	 * @param visited the templates already in the digest
+	 * @return false if the dependencies cannot be determined
+	 * @throws GeneratorException
+	 */
+	private boolean updateWithTemplate(MessageDigest md, String mainTemplateName, String templateName, Set<String> visited) 
+			throws GeneratorException {
+		if ( visited.contains(templateName) ) {
+			return true ;
+		}
+		visited.add(templateName);
+		if ( _templatesFolder == null ) {
+			return false ;
+		}
+		File file = new File( FileUtil.buildFilePath(_templatesFolder, templateName) );
+		if ( ! file.exists() ) {
+			return false ; // the generation will report the error
+		}
+		byte[] content = readFile(file);
+		update(md, templateName);
+		md.update(content);
+		
+		//--- Dependencies
+		String text ;
+		try {
+			text = new String(content, TEMPLATE_ENCODING);
+		} catch (UnsupportedEncodingException e) {
+			throw new GeneratorException("Unsupported encoding " + TEMPLATE_ENCODING, e);
+		}
+		if ( MODEL_REFERENCE.matcher(text).find() ) {
+			_templatesUsingModel.add(mainTemplateName);
+		}
+		Matcher matcher = TEMPLATE_DEPENDENCY.matcher(text);
+		while ( matcher.find() ) {
+			String[] arguments = matcher.group(2).split(",");
+			for ( String argument : arguments ) {
+				Matcher literal = LITERAL.matcher(argument.trim());
+				if ( ! literal.matches() ) {
+					return false ; // template name not known before the generation
+				}
+				String dependency = literal.group(1) != null ? literal.group(1) : literal.group(2) ;
+				if ( ! updateWithTemplate(md, mainTemplateName, dependency, visited) ) {
+					return false ;
+				}
+			}
+		}
+		return true ;
+	}
+	
+	private byte[] readFile(File file) throws GeneratorException {
+		byte[] content = new byte[(int) file.length()];
+		InputStream is = null ;
+		try {
+			is = new FileInputStream(file);
+			int offset = 0 ;
+			int n ;
+			while ( offset < content.length && ( n = is.read(content, offset, content.length - offset) ) > 0 ) {
+				offset = offset + n ;
+			}
+		} catch (IOException e) {
+			throw new GeneratorException("Cannot read file '" + file + "'", e);
+		} finally {
+			if ( is != null ) {
+				try {
+					is.close();
+				} catch (IOException e) {
+					// NOTHING TO DO
+				}
+			}
+		}
+		return content ;
+	}
+	
+	//-------------------------------------------------------------------------------------------
+	// Entities 
+	//-------------------------------------------------------------------------------------------
+	private synchronized byte[] getEntityDigest(String entityName) throws GeneratorException {
+		Entity entity = _repositoryModel.getEntityByName(entityName);
+		if ( entity == null ) {
+			return NO_DIGEST ;
+		}
+		MessageDigest md = newMessageDigest();
+		md.update( getEntityOwnDigest(entity) );
+		//--- The entities referenced by the links 
+		for ( Link link : entity.getLinks() ) {
+			Entity targetEntity = _repositoryModel.getEntityByName(link.getTargetTableName());
+			if ( targetEntity != null ) {
+				md.update( getEntityOwnDigest(targetEntity) );
+			}
+		}
+		return md.digest() ;
+	}
+	
+	private synchronized byte[] getModelDigest() throws GeneratorException {
+		if ( _modelDigest == null ) {
+			MessageDigest md = newMessageDigest();
+			for ( String entityName : _repositoryModel.getEntitiesNamesList() ) {
+				md.update( getEntityOwnDigest(_repositoryModel.getEntityByName(entityName)) );
+			}
+			_modelDigest = md.digest();
+		}
+		return _modelDigest ;
+	}
+
+	private byte[] getEntityOwnDigest(Entity entity) throws GeneratorException {
+		byte[] digest = _entitiesDigests.get(entity.getName());
+		if ( digest == null ) {
+			if ( _document == null ) {
+				try {
+					_document = Xml.createDomDocument();
+				} catch (TelosysToolsException e) {
+					throw new GeneratorException("Cannot create XML document", e);
+				}
+			}
+			MessageDigest md = newMessageDigest();
+			updateWithElement(md, GenericPersistenceManager.getEntityElement(_document, entity) );
+			digest = md.digest();
+			_entitiesDigests.put(entity.getName(), digest);
+		}
+		return digest ;
+	}
+	
+	private void updateWithElement(MessageDigest md, Element element) {
+		update(md, element.getTagName());
+		//--- Attributes (sorted by name)
+		NamedNodeMap attributes = element.getAttributes();
+		String[] names = new String[attributes.getLength()];
+		for ( int i = 0 ; i < names.length ; i++ ) {
+			names[i] = attributes.item(i).getNodeName();
+		}
+		Arrays.sort(names);
+		for ( String name : names ) {
+			update(md, name);
+			update(md, element.getAttribute(name));
+		}
+		//--- Child elements
+		NodeList children = element.getChildNodes();
+		for ( int i = 0 ; i < children.getLength() ; i++ ) {
+			Node child = children.item(i);
+			if ( child.getNodeType() == Node.ELEMENT_NODE ) {
+				updateWithElement(md, (Element) child);
+			}
+		}
+		update(md, "/" + element.getTagName());
+	}
+	
+	//-------------------------------------------------------------------------------------------
+	// Digest utilities
+	//-------------------------------------------------------------------------------------------
+	private static MessageDigest newMessageDigest() throws GeneratorException {
+		try {
+			return MessageDigest.getInstance(DIGEST_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new GeneratorException("Digest algorithm " + DIGEST_ALGORITHM + " not available", e);
+		}
+	}
+	
+	private static void update(MessageDigest md, String s) {
+		if ( s != null ) {
+			try {
+				md.update(s.getBytes(ENCODING));
+			} catch (UnsupportedEncodingException e) {
+				throw new IllegalStateException("Unsupported encoding " + ENCODING, e);
+			}
+		}
+		md.update((byte) 0); // separator 
+	}
+	
+	private static String toHexString(byte[] bytes) {
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for ( byte b : bytes ) {
+			sb.append( Character.forDigit((b >> 4) & 0x0F, 16) );
+			sb.append( Character.forDigit(b & 0x0F, 16) );
+		}
+		return sb.toString();
+	}
+}
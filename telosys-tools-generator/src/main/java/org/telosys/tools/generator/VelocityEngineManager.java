@@ -0,0 +1,151 @@
+/**
+ *  Copyright (C) 2008-2013  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.velocity.app.VelocityEngine;
+import org.apache.velocity.runtime.RuntimeConstants;
+import org.telosys.tools.generator.directive.AssertFalseDirective;
+import org.telosys.tools.generator.directive.AssertTrueDirective;
+import org.telosys.tools.generator.directive.ErrorDirective;
+import org.telosys.tools.generator.directive.UsingDirective;
+
+/**
+ * Registry of the Velocity engines shared by all the generators <br>
+ * There's one engine for each templates folder, initialized on the first use and kept for the next generations. <br>
+ * Each engine keeps the parsed templates in its resource cache ( a template is reloaded only if the file has changed ) <br>
+ * 
+ * @author Laurent Guerin
+ *
+ * @since 2.1.1
+ */
+public class VelocityEngineManager {
+
+	/**
+	 * Interval (in seconds) between 2 checks of the template file modification
+	 */
+	private final static String MODIFICATION_CHECK_INTERVAL = "2" ;
+	
+	private final static Map<String,VelocityEngine> engines = new HashMap<String,VelocityEngine>();
+	
+	/**
+	 * Private constructor (static methods only)
+	 */
+	private VelocityEngineManager() {
+	}
+	
+	/**
+	 * Returns the Velocity engine for the given templates folder <br>
+	 * The engine is created and initialized if it doesn't exist yet 
+	 * @param templatesFolder the templates folder full path
+	 * @return
+	 * @throws GeneratorException
+	 */
+	public static VelocityEngine getVelocityEngine(String templatesFolder) throws GeneratorException {
+		if ( null == templatesFolder ) {
+			throw new GeneratorException("Templates folder is null (cannot get VelocityEngine)");
+		}
+		synchronized (engines) {
+			VelocityEngine velocityEngine = engines.get(templatesFolder);
+			if ( velocityEngine == null ) {
+				velocityEngine = createVelocityEngine(templatesFolder);
+				engines.put(templatesFolder, velocityEngine);
+			}
+			return velocityEngine ;
+		}
+	}
+	
+	/**
+	 * Removes the Velocity engine associated with the given templates folder (if any) <br>
+	 * A new engine will be created on the next use of this folder
+	 * @param templatesFolder
+	 */
+	public static void removeVelocityEngine(String templatesFolder) {
+		synchronized (engines) {
+			engines.remove(templatesFolder);
+		}
+	}
+
+	/**
+	 * Removes all the Velocity engines 
+	 */
+	public static void clear() {
+		synchronized (engines) {
+			engines.clear();
+		}
+	}
+	
+	private static VelocityEngine createVelocityEngine(String templatesFolder) throws GeneratorException {
+		//------------------------------------------------------------------
+		// Workaround for Velocity error in OSGi environment
+		// "The specified class for ResourceManager (ResourceManagerImpl) does not implement ResourceManager"
+		// ( see https://github.com/whitesource/whitesource-bamboo-agent/issues/9 )
+		//------------------------------------------------------------------
+		Thread currentThread = Thread.currentThread();
+		ClassLoader originalClassLoader = currentThread.getContextClassLoader();
+		currentThread.setContextClassLoader(VelocityEngineManager.class.getClassLoader()); // Set the context ClassLoader for this Thread
+		try {
+			VelocityEngine velocityEngine = new VelocityEngine();
+			velocityEngine.setProperty(VelocityEngine.FILE_RESOURCE_LOADER_PATH, templatesFolder);
+			try {
+				// init(Properties p) : 
+				//    initialize the Velocity runtime engine, using default properties 
+				//    plus the properties in the passed in java.util.Properties object
+				velocityEngine.init( getSpecificVelocityProperties() );
+			} catch (Exception e) {
+				throw new GeneratorException("Cannot init VelocityEngine", e );
+			}
+			return velocityEngine ;
+		}
+		finally {
+			currentThread.setContextClassLoader(originalClassLoader); // Restore the original classLoader
+		}
+	}
+	
+	/**
+	 * Returns the Specific Velocity properties to be added at the default Velocity runtime properties
+	 * @return
+	 */
+	private static Properties getSpecificVelocityProperties()
+	{
+		Properties p = new Properties();
+		
+		// User Directives 
+		// userdirective=com.example.MyDirective1, com.example.MyDirective2
+		p.setProperty("userdirective", 
+				  UsingDirective.class.getCanonicalName() 
+				+ ", " 
+				+ AssertTrueDirective.class.getCanonicalName() 
+				+ ", " 
+				+ AssertFalseDirective.class.getCanonicalName() 
+				+ ", " 
+				+ ErrorDirective.class.getCanonicalName() 
+				); // one or n directive(s) separated by a comma 
+		
+		// Templates cache : each template is parsed once and reloaded only if the file has been modified
+		p.setProperty(VelocityEngine.FILE_RESOURCE_LOADER_CACHE, "true");
+		p.setProperty("file.resource.loader.modificationCheckInterval", MODIFICATION_CHECK_INTERVAL);
+		
+		// Inline macros : the engine is shared by all the templates of the folder, 
+		// a "#macro" defined in a template must not be visible (or replaced) in the other templates
+		p.setProperty(RuntimeConstants.VM_PERM_INLINE_LOCAL, "true");
+		
+		return p;
+	}
+}
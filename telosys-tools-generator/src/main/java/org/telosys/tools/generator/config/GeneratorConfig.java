@@ -45,6 +45,8 @@ public class GeneratorConfig //implements IGeneratorConfig
 //	private final Properties           _projectProperties ;  // v 2.0.7
 //	private final ProjectConfiguration _projectConfiguration ;  // v 2.0.7
 	private final TelosysToolsCfg      _telosysToolsCfg ; // v 2.1.0
+	
+	private String                     _sOutputEncoding = null ; // v 2.1.1 ( null = platform default charset )
 
 //	/**
 //	 * @param sProjectLocation project location (project folder)
@@ -117,6 +119,25 @@ public class GeneratorConfig //implements IGeneratorConfig
 		return _sBundleName ;
 	}
 	
+	/**
+	 * Returns the charset name used to encode the generated files <br>
+	 * ( null if not set : the files are encoded with the platform default charset )
+	 * @return
+	 * @since 2.1.1
+	 */
+	public String getOutputEncoding() {
+		return _sOutputEncoding ;
+	}
+
+	/**
+	 * Set the charset name used to encode the generated files
+	 * @param encoding the charset name ( or null for the platform default charset )
+	 * @since 2.1.1
+	 */
+	public void setOutputEncoding(String encoding) {
+		_sOutputEncoding = encoding ;
+	}
+	
 //	//---------------------------------------------------------------------
 //	// Project Configuration for Generator context
 //	//---------------------------------------------------------------------
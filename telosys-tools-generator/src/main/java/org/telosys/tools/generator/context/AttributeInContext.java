@@ -79,6 +79,11 @@ public class AttributeInContext
 	private final String  _sFullType ;    // Full java type with package, : "java.math.BigDecimal", "java.util.Date"
 	private boolean       _bUseFullType = false ;
 	
+	//--- Accessors names ( computed on the first call )
+	private volatile String _sGetter = null ;
+	private volatile String _sGetterWithGetPrefix = null ;
+	private volatile String _sSetter = null ;
+	
 	private final String  _sInitialValue ; // can be null 
 //	private final String  _sGetter ; // Dynamic since v 2.0.7
 //	private final String  _sSetter ; // Dynamic since v 2.0.7
@@ -307,6 +312,7 @@ public class AttributeInContext
 	/* package */ void useFullType ()
 	{
 		_bUseFullType = true ;
+		_sGetter = null ; // depends on the type
 	}
 	
 	@VelocityMethod(
@@ -490,7 +496,12 @@ public class AttributeInContext
 	public String getGetter()
 	{
 		// return _sGetter;
-		return Util.buildGetter(_sName, this.getType() ); // v 2.0.7
+		String getter = _sGetter ;
+		if ( getter == null ) {
+			getter = Util.buildGetter(_sName, this.getType() ); // v 2.0.7
+			_sGetter = getter ;
+		}
+		return getter ;
 	}
 
 	//-------------------------------------------------------------------------------------
@@ -503,7 +514,12 @@ public class AttributeInContext
 	public String getGetterWithGetPrefix()
 	{
 		// return _sGetter;
-		return Util.buildGetter(_sName); // v 2.0.7
+		String getter = _sGetterWithGetPrefix ;
+		if ( getter == null ) {
+			getter = Util.buildGetter(_sName); // v 2.0.7
+			_sGetterWithGetPrefix = getter ;
+		}
+		return getter ;
 	}
 	
 	//-------------------------------------------------------------------------------------
@@ -516,7 +532,12 @@ public class AttributeInContext
 	public String getSetter()
 	{
 		//return _sSetter;
-		return Util.buildSetter(_sName);
+		String setter = _sSetter ;
+		if ( setter == null ) {
+			setter = Util.buildSetter(_sName);
+			_sSetter = setter ;
+		}
+		return setter ;
 	}
 
 	//-------------------------------------------------------------------------------------
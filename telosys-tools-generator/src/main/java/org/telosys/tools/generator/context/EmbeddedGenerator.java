@@ -19,6 +19,8 @@ import java.util.List;
 
 import org.telosys.tools.commons.TelosysToolsLogger;
 import org.telosys.tools.commons.variables.Variable;
+import org.telosys.tools.generator.EntitiesManager;
+import org.telosys.tools.generator.GeneratedFileWriter;
 import org.telosys.tools.generator.Generator;
 import org.telosys.tools.generator.GeneratorException;
 import org.telosys.tools.generator.GeneratorVersion;
@@ -28,7 +30,6 @@ import org.telosys.tools.generator.context.doc.VelocityObject;
 import org.telosys.tools.generator.context.names.ContextName;
 import org.telosys.tools.generator.target.TargetDefinition;
 import org.telosys.tools.repository.model.Entity;
-import org.telosys.tools.repository.model.RepositoryModel;
 
 /**
  * Embedded generator stored in the Velocity Context and usable in the template.
@@ -45,44 +46,48 @@ import org.telosys.tools.repository.model.RepositoryModel;
 //-------------------------------------------------------------------------------------
 public class EmbeddedGenerator {
 
-	private final RepositoryModel    repositoryModel ;
+	private final EntitiesManager    entitiesManager ;
 	private final GeneratorConfig    generatorConfig ;
 	private final TelosysToolsLogger logger ;
 	private final List<String>       selectedEntitiesNames;	
 	private final boolean            canGenerate ;
 	private final List<Target>       generatedTargets ;
+	private final GeneratedFileWriter fileWriter ;
 	
 	/**
 	 * Constructor for limited generator without generation capabilities
 	 */
 	public EmbeddedGenerator() {
 		super();
-		this.repositoryModel = null ;
+		this.entitiesManager = null ;
 		this.generatorConfig = null ;
 		this.logger = null ;
 		this.selectedEntitiesNames = null ;
 		this.canGenerate = false ;
 		this.generatedTargets = null ;
+		this.fileWriter = null ;
 	}
 
 	/**
 	 * Constructor for real generator that can generate sub-targets from a template
-	 * @param repositoryModel
+	 * @param entitiesManager the entities manager shared with the current generation
 	 * @param generatorConfig
 	 * @param logger
 	 * @param selectedEntitiesNames
 	 * @param generatedTargets
+	 * @param fileWriter the writer shared with the current generation
 	 */
-	public EmbeddedGenerator(	RepositoryModel repositoryModel,
+	public EmbeddedGenerator(	EntitiesManager entitiesManager,
 								GeneratorConfig generatorConfig, 
 								TelosysToolsLogger logger, 
 								List<String> selectedEntitiesNames,
-								List<Target> generatedTargets) {
+								List<Target> generatedTargets,
+								GeneratedFileWriter fileWriter) {
 		super();
-		this.repositoryModel = repositoryModel;
+		this.entitiesManager = entitiesManager;
 		this.generatorConfig = generatorConfig;
 		this.logger = logger;
-		if ( repositoryModel != null && generatorConfig != null && logger != null ) {
+		if ( entitiesManager != null && generatorConfig != null && logger != null ) {
 			this.canGenerate = true ;
 		}
 		else {
@@ -90,6 +95,7 @@ public class EmbeddedGenerator {
 		}
 		this.selectedEntitiesNames = selectedEntitiesNames ;
 		this.generatedTargets = generatedTargets ;
+		this.fileWriter = fileWriter ;
 	}
 
 	//-------------------------------------------------------------------------------------
@@ -161,7 +167,7 @@ public class EmbeddedGenerator {
 		//ProjectConfiguration projectConfiguration = generatorConfig.getProjectConfiguration();
 		Variable[] allVariables = generatorConfig.getTelosysToolsCfg().getAllVariables(); // v 2.1.0
 		
-		Entity entity = repositoryModel.getEntityByName(entityName.trim());
+		Entity entity = entitiesManager.getRepositoryModel().getEntityByName(entityName.trim());
 		if ( null == entity ) {
 			throw new GeneratorException( err + "(entity '" + entityName + "' not found in repository)");
 		}
@@ -172,9 +178,10 @@ public class EmbeddedGenerator {
 		Target target = new Target( genericTarget, entity.getName(), entity.getBeanJavaClass(), allVariables ); // v 2.1.0
 		
 		//Generator generator = new Generator(target, generatorConfig, logger);
-		Generator generator = new Generator(target, generatorConfig, repositoryModel, logger); // v 2.0.7
+		Generator generator = new Generator(target, generatorConfig, entitiesManager, logger); // v 2.1.1
+		generator.setFileWriter(fileWriter); // v 2.1.1
 		
-		generator.generateTarget(target, repositoryModel, selectedEntitiesNames, this.generatedTargets);
+		generator.generateTarget(target, selectedEntitiesNames, this.generatedTargets);
 		
 	}
 	
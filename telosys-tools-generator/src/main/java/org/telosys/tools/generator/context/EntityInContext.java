@@ -16,8 +16,11 @@
 package org.telosys.tools.generator.context;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.telosys.tools.generator.EntitiesManager;
 import org.telosys.tools.generator.GeneratorContextException;
@@ -81,6 +84,8 @@ public class EntityInContext
 	private final LinkedList<AttributeInContext> _attributes ; // The attributes for this class ( ALL ATTRIBUTES )
 	private LinkedList<AttributeInContext>  _keyAttributes     = null ; // The KEY attributes for this class
 	private LinkedList<AttributeInContext>  _nonKeyAttributes  = null ; // The NON KEY attributes for this class
+	private boolean _hasTextAttribute      = false ;
+	private boolean _hasAutoIncrementedKey = false ;
 
 //	private String     _sSqlKeyColumns = null ;
 //	private String     _sSqlNonKeyColumns = null ;
@@ -95,25 +100,30 @@ public class EntityInContext
 	private final LinkedList<LinkInContext> _links ; // The links for this class ( ALL ATTRIBUTES )
 	
 	private final EntitiesManager _entitiesManager ; // ver 2.1.0
-	private final EnvInContext    _env ; // ver 2.1.0
+	
+	//--- Derived views ( computed on the first call and kept : the entity is shared by all the targets of a run )
+	private volatile List<LinkInContext>      _selectedLinks      = null ; 
+	private volatile List<AttributeInContext> _textAttributes     = null ; 
+	private volatile List<AttributeInContext> _nonTextAttributes  = null ; 
+	private volatile List<EntityInContext>    _referencedEntities = null ; // entities referenced by the owning side links
+	private volatile List<String>             _imports            = null ; 
+	private final Map<Integer,List<AttributeInContext>> _attributesByCriteria = new ConcurrentHashMap<Integer,List<AttributeInContext>>(); // key = criteria mask
 	
 	//-----------------------------------------------------------------------------------------------
 	/**
 	 * Constructor based on Repository Entity
 	 * @param entity
 	 * @param entityPackage
-	 * @param entitiesManager
-	 * @param env
+	 * @param entitiesManager the entities manager providing the current environment
 	 * @throws GeneratorException
 	 */
 	public EntityInContext( final Entity entity, final String entityPackage, 
-							final EntitiesManager entitiesManager, final EnvInContext env ) throws GeneratorException
+							final EntitiesManager entitiesManager ) throws GeneratorException
 	{
 		_sName = entity.getBeanJavaClass() ;
 		_sPackage = entityPackage;
 		
 		_entitiesManager = entitiesManager ;
-		_env = env ;
 		
 		_sDatabaseTable   = entity.getName();
 		_sDatabaseCatalog = entity.getCatalog();
@@ -171,11 +181,13 @@ public class EntityInContext
 	)
 	public String getName()
 	{
-		if ( _env != null ) {
+		//--- Environment of the target in progress ( the entity is shared by all the targets )
+		EnvInContext env = ( _entitiesManager != null ? _entitiesManager.getEnv() : null ) ;
+		if ( env != null ) {
 			StringBuilder sb = new StringBuilder();
-			sb.append( _env.getEntityClassNamePrefix() ) ; // Never null ( "" if not set )
+			sb.append( env.getEntityClassNamePrefix() ) ; // Never null ( "" if not set )
 			sb.append( _sName ) ; // Never null ( "" if not set )
-			sb.append( _env.getEntityClassNameSuffix() ) ; // Never null ( "" if not set )
+			sb.append( env.getEntityClassNameSuffix() ) ; // Never null ( "" if not set )
 			return sb.toString();
 		}
 		else {
@@ -290,9 +302,9 @@ public class EntityInContext
 	{
 		if ( _attributes != null )
 		{
-			return _attributes ;
+			return copy(_attributes) ;
 		}
-		return VOID_ATTRIBUTES_LIST ;
+		return copy(VOID_ATTRIBUTES_LIST) ;
 	}
 
 	//-------------------------------------------------------------------------------------
@@ -327,10 +339,10 @@ public class EntityInContext
 		if ( _links != null )
 		{
 			if ( _links.size() > 0 ) {
-				return _links ;
+				return copy(_links) ;
 			}
 		}
-		return VOID_LINKS_LIST ;
+		return copy(VOID_LINKS_LIST) ;
 	}
 
 	//-------------------------------------------------------------------------------------
@@ -345,6 +357,22 @@ public class EntityInContext
 	)
 	@VelocityReturnType("List of 'link' objects")
 	public List<LinkInContext> getSelectedLinks() 
+	{
+		//--- A copy : the template can modify the returned list 
+		return new LinkedList<LinkInContext>( selectedLinks() ) ;
+	}
+	
+	private List<LinkInContext> selectedLinks() 
+	{
+		List<LinkInContext> selectedLinks = _selectedLinks ;
+		if ( selectedLinks == null ) {
+			selectedLinks = buildSelectedLinks();
+			_selectedLinks = selectedLinks ;
+		}
+		return selectedLinks ;
+	}
+	
+	private List<LinkInContext> buildSelectedLinks() 
 	{
 		if ( _links != null )
 		{
@@ -355,7 +383,7 @@ public class EntityInContext
 						selectedLinks.add(link) ;
 					}
 				}
-				return selectedLinks ;
+				return Collections.unmodifiableList(selectedLinks) ;
 			}
 		}
 		return VOID_LINKS_LIST ;
@@ -430,8 +458,20 @@ public class EntityInContext
 	private List<AttributeInContext> getAttributesByAddedCriteria( int criteria ) 
 	{
 		ContextLogger.log("getAttributesByAddedCriteria(" + criteria + ")" );
-		List<LinkInContext> allLinks = getLinks() ;
-		List<LinkInContext> selectedLinks = getSelectedLinks() ;
+		Integer key = Integer.valueOf(criteria) ;
+		List<AttributeInContext> attributes = _attributesByCriteria.get(key);
+		if ( attributes == null ) {
+			attributes = buildAttributesByAddedCriteria(criteria);
+			_attributesByCriteria.put(key, attributes);
+		}
+		//--- A copy : the template can modify the returned list 
+		return new LinkedList<AttributeInContext>( attributes ) ;
+	}
+	
+	private List<AttributeInContext> buildAttributesByAddedCriteria( int criteria ) 
+	{
+		List<LinkInContext> allLinks = _links ;
+		List<LinkInContext> selectedLinks = selectedLinks() ;
 		
 		LinkedList<AttributeInContext> selectedAttributes = new LinkedList<AttributeInContext>();
 		
@@ -501,7 +541,7 @@ public class EntityInContext
 			
 		} // for each ...
 		if ( selectedAttributes.size() > 0 ) {
-			return selectedAttributes ;
+			return Collections.unmodifiableList(selectedAttributes) ;
 		}
 		
 		return VOID_ATTRIBUTES_LIST ;
@@ -521,9 +561,9 @@ public class EntityInContext
 	public List<AttributeInContext> getKeyAttributes() 
 	{
 		if ( _keyAttributes != null ) {
-			return _keyAttributes ;
+			return copy(_keyAttributes) ;
 		}
-		return VOID_ATTRIBUTES_LIST ;
+		return copy(VOID_ATTRIBUTES_LIST) ;
 	}
 	
 	//-------------------------------------------------------------------------------------
@@ -608,9 +648,9 @@ public class EntityInContext
 	public List<AttributeInContext> getNonKeyAttributes() 
 	{
 		if ( _nonKeyAttributes != null ) {
-			return _nonKeyAttributes ;
+			return copy(_nonKeyAttributes) ;
 		}
-		return VOID_ATTRIBUTES_LIST ;
+		return copy(VOID_ATTRIBUTES_LIST) ;
 	}
 
 	//-------------------------------------------------------------------------------------
@@ -679,9 +719,9 @@ public class EntityInContext
 	{
 		if ( _foreignKeys != null )
 		{
-			return _foreignKeys ;
+			return copy(_foreignKeys) ;
 		}
-		return VOID_FOREIGN_KEYS_LIST ;
+		return copy(VOID_FOREIGN_KEYS_LIST) ;
 	}
 
 	//-------------------------------------------------------------------------------------
@@ -819,7 +859,12 @@ public class EntityInContext
 //			}
 //		}
 //		return VOID_ATTRIBUTES_LIST ;
-		return buildTextAttributesList ( false ); // NOT LONG TEXT
+		List<AttributeInContext> list = _nonTextAttributes ;
+		if ( list == null ) {
+			list = buildTextAttributesList ( false ); // NOT LONG TEXT
+			_nonTextAttributes = list ;
+		}
+		return copy(list) ;
 	}
 
 	//-------------------------------------------------------------------------------------
@@ -844,7 +889,12 @@ public class EntityInContext
 //			}
 //		}
 //		return VOID_ATTRIBUTES_LIST ;
-		return buildTextAttributesList ( true ); // Special "LONG TEXT"
+		List<AttributeInContext> list = _textAttributes ;
+		if ( list == null ) {
+			list = buildTextAttributesList ( true ); // Special "LONG TEXT"
+			_textAttributes = list ;
+		}
+		return copy(list) ;
 	}
 
 	//-------------------------------------------------------------------------------------
@@ -858,6 +908,11 @@ public class EntityInContext
 		}
 	)
 	public boolean hasTextAttribute() 
+	{
+		return _hasTextAttribute ;
+	}
+	
+	private boolean searchTextAttribute() 
 	{
     	if ( _attributes != null )
     	{
@@ -925,6 +980,11 @@ public class EntityInContext
 		}
 	)
 	public boolean hasAutoIncrementedKey() 
+	{
+		return _hasAutoIncrementedKey ;
+	}
+	
+	private boolean searchAutoIncrementedKey() 
 	{
 		if ( _keyAttributes != null ) {
 			for ( AttributeInContext keyAttribute : _keyAttributes ) {
@@ -986,7 +1046,7 @@ public class EntityInContext
 		List<String> referencedEntityTypes = new LinkedList<String>();
 		for ( AttributeInContext attribute : attributes ) {
 			//--- Is this attribute involved in a link ?
-			for( LinkInContext link : this.getLinks()  ) {
+			for( LinkInContext link : _links  ) {
 //				if( link.isOwningSide() && link.hasJoinColumns() ) {
 //					for( String joinColumn : link.getJoinColumns() ) {
 //						if( joinColumn.equals(attribute.getDatabaseName() ) ) {						
@@ -1025,21 +1085,77 @@ public class EntityInContext
 		since="2.1.0"
 	)
     public List<String> referencedEntityTypes() throws GeneratorException {
+		//--- The referenced entities are kept, but not their names ( they depend on the current target environment )
+		List<EntityInContext> referencedEntities = _referencedEntities ;
+		if ( referencedEntities == null ) {
+			referencedEntities = buildReferencedEntities();
+			_referencedEntities = referencedEntities ;
+		}
 		List<String> referencedEntityTypes = new LinkedList<String>();
-		//--- Search all the referenced entities (from all the "owning side" links)
-		for( LinkInContext link : this.getLinks()  ) {
-			if ( link.isOwningSide() ) {
-				String referencedEntityType = link.getTargetEntitySimpleType() ;
-				//--- Found => add it in the list
-				if ( referencedEntityTypes.contains(referencedEntityType) == false ) {
-					//--- Not already in the list => add it
-					referencedEntityTypes.add( referencedEntityType );
-				}
+		for ( EntityInContext referencedEntity : referencedEntities ) {
+			String referencedEntityType = referencedEntity.getName() ;
+			if ( referencedEntityTypes.contains(referencedEntityType) == false ) {
+				referencedEntityTypes.add( referencedEntityType );
 			}
 		}
 		return referencedEntityTypes ;
     }
 
+	private List<EntityInContext> buildReferencedEntities() throws GeneratorException {
+		List<EntityInContext> referencedEntities = new LinkedList<EntityInContext>();
+		for( LinkInContext link : _links  ) {
+			if ( link.isOwningSide() ) {
+				EntityInContext referencedEntity = link.getTargetEntity() ;
+				if ( referencedEntities.contains(referencedEntity) == false ) {
+					referencedEntities.add( referencedEntity );
+				}
+			}
+		}
+		return Collections.unmodifiableList(referencedEntities) ;
+	}
+
+	/**
+	 * Returns a copy of the given internal or cached list ( the template can modify the returned list ) 
+	 * @param list
+	 * @return
+	 */
+	private <T> List<T> copy(List<T> list) 
+	{
+		return list != null ? new LinkedList<T>(list) : null ;
+	}
+
+	/**
+	 * Returns the sorted list of Java classes to be imported for this entity <br>
+	 * ( the types of all the attributes and the collection types of the "OneToMany" and "ManyToMany" links ) <br>
+	 * NB : the returned list is shared ( unmodifiable ) 
+	 * @return
+	 * @throws GeneratorException
+	 */
+	/* package */ List<String> getImports() throws GeneratorException {
+		List<String> imports = _imports ;
+		if ( imports == null ) {
+			ImportsList importsList = new ImportsList();
+			//--- All the attributes
+			for ( AttributeInContext attribute : _attributes ) {
+				// register the type to be imported if necessary
+				importsList.declareType( attribute.getFullType() ); 
+			}
+			//--- All the links 
+			for ( LinkInContext link : _links ) {
+				if ( link.isCardinalityOneToMany() || link.isCardinalityManyToMany() ) {
+					// "java.util.List", "java.util.Set", ... 
+					importsList.declareType( link.getFieldFullType() ); 
+				}
+				// ManyToOne or OneToOne => bean ( "Book", "Person", ... ) supposed to be in the same package
+			}
+			List<String> list = importsList.getList();
+			Collections.sort(list);
+			imports = Collections.unmodifiableList(list) ;
+			_imports = imports ;
+		}
+		return imports ;
+	}
+
 	//-------------------------------------------------------------------------------------------------
 	//-------------------------------------------------------------------------------------------------
 	private LinkedList<AttributeInContext> buildAttributesList ( boolean bKeyAttribute ) 
@@ -1079,6 +1195,10 @@ public class EntityInContext
 		
 		//--- Build the list of the "NON KEY" attributes
 		_nonKeyAttributes = buildAttributesList ( false ); 
+		
+		_hasTextAttribute = searchTextAttribute();
+		
+		_hasAutoIncrementedKey = searchAutoIncrementedKey();
 
 		//--- Duplicated short types detection
 		AmbiguousTypesDetector duplicatedTypesDetector = new AmbiguousTypesDetector(_attributes);
@@ -1122,7 +1242,7 @@ public class EntityInContext
 	 * @param bLongText
 	 * @return
 	 */
-	private LinkedList<AttributeInContext> buildTextAttributesList ( boolean bLongText ) 
+	private List<AttributeInContext> buildTextAttributesList ( boolean bLongText ) 
 	{
     	if ( _attributes != null )
     	{
@@ -1136,7 +1256,7 @@ public class EntityInContext
                 	list.add(attribute);
                 }        		
         	}
-    		return list ;
+    		return Collections.unmodifiableList(list) ;
     	}
     	return null ;
 	}
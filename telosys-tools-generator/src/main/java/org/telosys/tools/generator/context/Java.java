@@ -280,27 +280,8 @@ public class Java {
 				)
 	public List<String> imports( EntityInContext entity ) throws GeneratorException {
 		if ( entity != null ) {
-			ImportsList imports = new ImportsList();
-			//--- All the attributes
-			for ( AttributeInContext attribute : entity.getAttributes() ) {
-				// register the type to be imported if necessary
-				imports.declareType( attribute.getFullType() ); 
-			}
-			//--- All the links 
-			for ( LinkInContext link : entity.getLinks() ) {
-				if ( link.isCardinalityOneToMany() || link.isCardinalityManyToMany() ) {
-					// "java.util.List", "java.util.Set", ... 
-					imports.declareType( link.getFieldFullType() ); 
-				}
-				else {
-					// ManyToOne or OneToOne => bean ( "Book", "Person", ... )
-					// Supposed to be in the same package
-				}
-			}
-			//--- Resulting list of imports
-			List<String> resultList = imports.getList();
-			java.util.Collections.sort(resultList);
-			return resultList ;
+			//--- Imports computed once per entity ( a copy : the template can modify the returned list )
+			return new LinkedList<String>( entity.getImports() );
 		}
 		return VOID_STRINGS_LIST ;
 	}
@@ -16,10 +16,10 @@
 package org.telosys.tools.generator.context;
 
 import java.io.File;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLClassLoader;
+import java.util.HashMap;
+import java.util.Map;
 
+import org.telosys.tools.generator.ClassLoaderManager;
 import org.telosys.tools.generator.GeneratorException;
 import org.telosys.tools.generator.context.doc.VelocityMethod;
 import org.telosys.tools.generator.context.doc.VelocityObject;
@@ -57,14 +57,25 @@ public class Loader {
 
 	private final String templatesFolderFullPath ; // Full templates full path with bundle name
 	
+	private final Map<String,Object> sharedInstances ; // Instances shared by all the targets of the generation run
+	
 	/**
 	 * Constructor ( ver 2.1.0 )
 	 * @param templatesFolderFullPath
-	 * @param velocityContext
 	 */
 	public Loader(String templatesFolderFullPath) {
+		this(templatesFolderFullPath, new HashMap<String,Object>() );
+	}
+
+	/**
+	 * Constructor ( ver 2.1.1 )
+	 * @param templatesFolderFullPath
+	 * @param sharedInstances the map holding the instances shared by all the targets of the generation run 
+	 */
+	public Loader(String templatesFolderFullPath, Map<String,Object> sharedInstances) {
 		super();
 		this.templatesFolderFullPath = templatesFolderFullPath;
+		this.sharedInstances = sharedInstances ;
 	}
 
 	//--------------------------------------------------------------------------------------------------------------
@@ -160,7 +171,43 @@ public class Loader {
 	public Object newInstance(String javaClassName ) throws GeneratorException
 	{
 		Class<?> javaClass = loadJavaClassFromFile( javaClassName ) ;
+		return createInstance(javaClass, javaClassName);
+	}
+	
+	//--------------------------------------------------------------------------------------------------------------
+	@VelocityMethod (
+		text = {
+				"Returns the instance of the given java class shared by all the targets of the current generation",
+				"The instance is created on the first call (with the same rules as 'newInstance')",
+				"and then reused by all the templates of the generation run",
+				"Useful for helpers that are expensive to create or that keep a state during the generation",
+				"NB : with a parallel generation the instance is used by several threads at the same time,",
+				"so its class must be thread-safe"
+		},
+		parameters = {
+				"javaClassName : the name of the Java class to be loaded and used to create the instance"
+		},
+		example = {
+				"#set( $tool = $loader.sharedInstance('MyTool') )"
+		},
+		since="2.1.1"
 		
+	)
+	public Object sharedInstance(String javaClassName ) throws GeneratorException
+	{
+		synchronized (sharedInstances) {
+			Object instance = sharedInstances.get(javaClassName);
+			if ( instance == null ) {
+				instance = newInstance(javaClassName);
+				sharedInstances.put(javaClassName, instance);
+			}
+			return instance ;
+		}
+	}
+	
+	//--------------------------------------------------------------------------------------------------------------
+	private Object createInstance(Class<?> javaClass, String javaClassName ) throws GeneratorException
+	{
 		//--- New instance
 		Object instance = null ;
 		try {
@@ -180,23 +227,14 @@ public class Loader {
 	//--------------------------------------------------------------------------------------------------------------
 	private Class<?> loadJavaClassFromFile( String javaClassName ) throws GeneratorException
 	{
-		ClassLoader currentClassLoader = this.getClass().getClassLoader();
-		File file = getClassesFolderAsFile();
+		// Class loader kept for all the generations ( renewed if the classes have changed )
+		ClassLoader classLoader = ClassLoaderManager.getClassLoader( getClassesFolderAsFile() );
 		
 		Class<?> javaClass = null ;
 		
 		try {
-		    // Convert File to URL
-		    URL url = file.toURI().toURL();    //  "file:/c:/templatesFolder/"
-		    URL[] urls = new URL[]{url}; // the URLs from which to load classes and resources
-
-		    // Create a new class loader with the given directory and the current class loader as parent class loader
-		    ClassLoader classLoader = new URLClassLoader(urls, currentClassLoader );
-
-		    // Load the class ( should be located in "file:/c:/templatesFolder/" )
+		    // Load the class ( should be located in "file:/c:/templatesFolder/classes/" )
 		    javaClass = classLoader.loadClass(javaClassName);
-		} catch (MalformedURLException e) {
-			throw new GeneratorException("Cannot load class " + javaClassName + " (MalformedURLException)", e);
 		} catch (ClassNotFoundException e) {
 			throw new GeneratorException("Cannot load class " + javaClassName + " (ClassNotFoundException)", e);
 		}
@@ -15,14 +15,12 @@
  */
 package org.telosys.tools.generator.context;
 
-import org.telosys.tools.commons.StrUtil;
-import org.telosys.tools.commons.config.ConfigDefaults;
 import org.telosys.tools.commons.variables.Variable;
-import org.telosys.tools.commons.variables.VariablesManager;
 import org.telosys.tools.generator.context.doc.VelocityMethod;
 import org.telosys.tools.generator.context.doc.VelocityNoDoc;
 import org.telosys.tools.generator.context.doc.VelocityObject;
 import org.telosys.tools.generator.context.names.ContextName;
+import org.telosys.tools.generator.target.CompiledTarget;
 import org.telosys.tools.generator.target.TargetDefinition;
 
 /**
@@ -81,10 +79,23 @@ public class Target
 	 * @param variables  the project's specific variables to be applied 
 	 */
 	public Target( TargetDefinition targetDefinition, String entityName, String entityJavaClassName, Variable[] variables ) 
+	{
+		this( new CompiledTarget(targetDefinition, variables), entityName, entityJavaClassName );
+	}
+
+	/**
+	 * Constructor for a target definition already compiled for the generation run
+	 * @param compiledTarget  the target definition with its file and folder compiled with the project's variables 
+	 * @param entityName  the name of the entity (as defined in the repository model)
+	 * @param entityJavaClassName 
+	 * @since 2.1.1
+	 */
+	public Target( CompiledTarget compiledTarget, String entityName, String entityJavaClassName ) 
 	{
 		super();
 		
 		//--- Generic target informations
+		TargetDefinition targetDefinition = compiledTarget.getTargetDefinition();
 		this.targetName = targetDefinition.getName();
 		this.template = targetDefinition.getTemplate();
 		
@@ -93,15 +104,9 @@ public class Target
 
 //		this.templateOnly = false ; // v 2.1.1
 		
-		//--- Replace the "$" variables in _sFile and _sFolder
-		VariablesManager variablesManager = null ;
-		if ( variables != null ) {
-			variablesManager = new VariablesManager( variables );
-		}
-		this.file   = replaceVariables( targetDefinition.getFile(),   entityJavaClassName, variablesManager );
-		
-		variablesManager.transformPackageVariablesToDirPath(); // for each variable ${XXXX_PKG} : replace '.' by '/' 
-		this.folder = replaceVariables( targetDefinition.getFolder(), entityJavaClassName, variablesManager );
+		//--- Replace the "${BEANNAME}" variables in the compiled file and folder
+		this.file   = compiledTarget.getFile( entityJavaClassName );
+		this.folder = compiledTarget.getFolder( entityJavaClassName );
 	}
 
 	// removed in v 2.1.1	
@@ -236,43 +241,6 @@ public class Target
 		return s2 ;
 	}
 	
-	//-----------------------------------------------------------------------
-	private String replaceVariables( String originalString, String sBeanClass, VariablesManager varmanager )
-	{
-		//--- Replace the generic name "${BEANNAME}" if any
-		String s1 = replace(originalString, ConfigDefaults.BEANNAME, sBeanClass);
-
-		//--- Replace the global project variables if any
-		if ( varmanager != null ) {
-			return varmanager.replaceVariables(s1);
-		}
-		else {
-			return s1 ;
-		}
-	}
-	
-	//-----------------------------------------------------------------------
-    private String replace(String sOriginal, String sSymbolicVar, String sValue) 
-    {
-    	String s   = "${" + sSymbolicVar + "}" ;
-    	String sUC = "${" + sSymbolicVar + "_UC}" ;
-    	String sLC = "${" + sSymbolicVar + "_LC}" ;
-    	
-		if ( sOriginal.indexOf(s) >= 0 )
-		{
-			return StrUtil.replaceVar(sOriginal, s, sValue);
-		}
-		else if ( sOriginal.indexOf(sUC) >= 0 )
-		{
-			return StrUtil.replaceVar(sOriginal, sUC, sValue.toUpperCase());
-		}
-		else if ( sOriginal.indexOf(sLC) >= 0 )
-		{
-			return StrUtil.replaceVar(sOriginal, sLC, sValue.toLowerCase());
-		}
-		return sOriginal ;
-    }
-    
 	/**
 	 * Returns the full path of the of the generated file in the project<br>
 	 * by combining the folder and the basic file name
@@ -0,0 +1,108 @@
+/**
+ *  Copyright (C) 2008-2013  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator.target;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.telosys.tools.commons.variables.Variable;
+import org.telosys.tools.commons.variables.VariablesManager;
+
+/**
+ * Target definition with its file and folder compiled for a generation run <br>
+ * ( the project variables are replaced once, only the bean name remains to be applied for each entity )
+ * 
+ * @author Laurent Guerin
+ * @since 2.1.1
+ */
+public class CompiledTarget 
+{
+	private final TargetDefinition   targetDefinition ;
+	
+	private final TargetPathTemplate file ;
+	
+	private final TargetPathTemplate folder ;
+
+	/**
+	 * Constructor 
+	 * @param targetDefinition
+	 * @param variables the project variables ( can be null )
+	 */
+	public CompiledTarget(TargetDefinition targetDefinition, Variable[] variables) 
+	{
+		this(targetDefinition, new VariablesManager(variables), buildFolderVariablesManager(variables) );
+	}
+	
+	private CompiledTarget(TargetDefinition targetDefinition, VariablesManager fileVariables, VariablesManager folderVariables) 
+	{
+		this.targetDefinition = targetDefinition ;
+		this.file   = new TargetPathTemplate(targetDefinition.getFile(), fileVariables );
+		this.folder = new TargetPathTemplate(targetDefinition.getFolder(), folderVariables );
+	}
+	
+	private static VariablesManager buildFolderVariablesManager(Variable[] variables) 
+	{
+		VariablesManager variablesManager = new VariablesManager(variables);
+		variablesManager.transformPackageVariablesToDirPath(); // for each variable ${XXXX_PKG} : replace '.' by '/' 
+		return variablesManager ;
+	}
+	
+	/**
+	 * Compiles all the given target definitions with the same project variables
+	 * @param targetDefinitions
+	 * @param variables the project variables ( can be null )
+	 * @return the compiled targets ( in the same order )
+	 */
+	public static List<CompiledTarget> compile(List<TargetDefinition> targetDefinitions, Variable[] variables) 
+	{
+		VariablesManager fileVariables   = new VariablesManager(variables);
+		VariablesManager folderVariables = buildFolderVariablesManager(variables);
+		List<CompiledTarget> compiledTargets = new ArrayList<CompiledTarget>(targetDefinitions.size());
+		for ( TargetDefinition targetDefinition : targetDefinitions ) {
+			compiledTargets.add( new CompiledTarget(targetDefinition, fileVariables, folderVariables) );
+		}
+		return compiledTargets ;
+	}
+
+	/**
+	 * Returns the original target definition
+	 * @return
+	 */
+	public TargetDefinition getTargetDefinition() 
+	{
+		return targetDefinition ;
+	}
+
+	/**
+	 * Returns the file name for the given bean name 
+	 * @param beanName
+	 * @return
+	 */
+	public String getFile(String beanName) 
+	{
+		return file.apply(beanName) ;
+	}
+
+	/**
+	 * Returns the folder for the given bean name 
+	 * @param beanName
+	 * @return
+	 */
+	public String getFolder(String beanName) 
+	{
+		return folder.apply(beanName) ;
+	}
+}
@@ -0,0 +1,186 @@
+/**
+ *  Copyright (C) 2008-2013  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator.target;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.telosys.tools.commons.config.ConfigDefaults;
+import org.telosys.tools.commons.variables.VariablesManager;
+
+/**
+ * Target file or folder compiled once for a generation run <br>
+ * The project variables are replaced when the template is built, <br>
+ * the bean name variables ( ${BEANNAME}, ${BEANNAME_UC}, ${BEANNAME_LC} ) are kept as slots <br>
+ * to be replaced for each entity in a single pass 
+ * 
+ * @author Laurent Guerin
+ * @since 2.1.1
+ */
+public class TargetPathTemplate 
+{
+	private final static String BEANNAME    = ConfigDefaults.BEANNAME ;
+	private final static String BEANNAME_UC = ConfigDefaults.BEANNAME + "_UC" ;
+	private final static String BEANNAME_LC = ConfigDefaults.BEANNAME + "_LC" ;
+	
+	//--- Segment types 
+	private final static int LITERAL          = 0 ;
+	private final static int BEAN_NAME        = 1 ;
+	private final static int BEAN_NAME_UPPER  = 2 ;
+	private final static int BEAN_NAME_LOWER  = 3 ;
+	
+	private final String   path ;
+	private final int[]    segmentTypes ;
+	private final String[] segmentTexts ; // literal text ( null for a bean name slot )
+	private final int      literalLength ;
+
+	/**
+	 * Constructor 
+	 * @param path the original path ( ie "src/${ROOT_PKG}/${BEANNAME_LC}" )
+	 * @param variablesManager the project variables ( or null if none )
+	 */
+	public TargetPathTemplate(String path, VariablesManager variablesManager) 
+	{
+		this.path = path ;
+		List<Integer> types = new ArrayList<Integer>();
+		List<String>  texts = new ArrayList<String>();
+		if ( path != null ) {
+			StringBuilder literal = new StringBuilder();
+			int i = 0 ;
+			while ( i < path.length() ) {
+				int start = path.indexOf("${", i);
+				int end = ( start >= 0 ? path.indexOf('}', start + 2) : -1 ) ;
+				if ( end < 0 ) {
+					literal.append( path.substring(i) ); // no more variable 
+					break ;
+				}
+				literal.append( path.substring(i, start) );
+				String name = path.substring(start + 2, end) ;
+				int slot = getBeanNameSlot(name);
+				if ( slot != LITERAL ) {
+					addLiteral(types, texts, literal);
+					types.add(slot);
+					texts.add(null);
+				}
+				else {
+					String var = path.substring(start, end + 1) ; // "${MYVAR}"
+					String value = ( variablesManager != null ? variablesManager.getVariableValue(var) : null ) ;
+					literal.append( value != null ? value : var ); // unknown variable : kept as is
+				}
+				i = end + 1 ;
+			}
+			addLiteral(types, texts, literal);
+		}
+		segmentTypes = new int[types.size()];
+		segmentTexts = new String[texts.size()];
+		int length = 0 ;
+		for ( int n = 0 ; n < segmentTypes.length ; n++ ) {
+			segmentTypes[n] = types.get(n);
+			segmentTexts[n] = texts.get(n);
+			if ( segmentTexts[n] != null ) {
+				length = length + segmentTexts[n].length() ;
+			}
+		}
+		literalLength = length ;
+	}
+	
+	private static int getBeanNameSlot(String name) 
+	{
+		if ( BEANNAME.equals(name) ) {
+			return BEAN_NAME ;
+		}
+		else if ( BEANNAME_UC.equals(name) ) {
+			return BEAN_NAME_UPPER ;
+		}
+		else if ( BEANNAME_LC.equals(name) ) {
+			return BEAN_NAME_LOWER ;
+		}
+		return LITERAL ;
+	}
+	
+	private static void addLiteral(List<Integer> types, List<String> texts, StringBuilder literal) 
+	{
+		if ( literal.length() > 0 ) {
+			types.add(LITERAL);
+			texts.add(literal.toString());
+			literal.setLength(0);
+		}
+	}
+
+	/**
+	 * Returns the original path ( before compilation )
+	 * @return
+	 */
+	public String getPath() 
+	{
+		return path ;
+	}
+	
+	/**
+	 * Returns true if the path contains at least one bean name variable
+	 * @return
+	 */
+	public boolean hasBeanName() 
+	{
+		for ( int type : segmentTypes ) {
+			if ( type != LITERAL ) {
+				return true ;
+			}
+		}
+		return false ;
+	}
+	
+	/**
+	 * Returns the path for the given bean name ( all the variables replaced )
+	 * @param beanName the bean class name ( ie "Book" ) 
+	 * @return the path ( or null if the original path is null )
+	 */
+	public String apply(String beanName) 
+	{
+		if ( path == null ) {
+			return null ;
+		}
+		if ( segmentTypes.length == 1 && segmentTypes[0] == LITERAL ) {
+			return segmentTexts[0] ; // no bean name 
+		}
+		String name = ( beanName != null ? beanName : "" ) ;
+		StringBuilder sb = new StringBuilder( literalLength + 2 * name.length() );
+		for ( int n = 0 ; n < segmentTypes.length ; n++ ) {
+			switch ( segmentTypes[n] ) {
+			case BEAN_NAME :
+				sb.append(name);
+				break;
+			case BEAN_NAME_UPPER :
+				sb.append(name.toUpperCase());
+				break;
+			case BEAN_NAME_LOWER :
+				sb.append(name.toLowerCase());
+				break;
+			default :
+				sb.append(segmentTexts[n]);
+			}
+		}
+		return sb.toString() ;
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() 
+	{
+		return path ;
+	}
+}
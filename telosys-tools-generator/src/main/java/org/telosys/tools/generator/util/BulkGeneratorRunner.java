@@ -0,0 +1,354 @@
+/**
+ *  Copyright (C) 2008-2013  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator.util;
+
+import java.io.File;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.telosys.tools.commons.FileUtil;
+import org.telosys.tools.commons.StrUtil;
+import org.telosys.tools.commons.TelosysToolsException;
+import org.telosys.tools.commons.TelosysToolsLogger;
+import org.telosys.tools.commons.io.DefaultOverwriteChooser;
+import org.telosys.tools.commons.io.OverwriteChooser;
+import org.telosys.tools.generator.BundleResourcesManager;
+import org.telosys.tools.generator.GenerationManager;
+import org.telosys.tools.generator.GenerationManifest;
+import org.telosys.tools.generator.GenerationStatistics;
+import org.telosys.tools.generator.GeneratorException;
+import org.telosys.tools.generator.config.GeneratorConfig;
+import org.telosys.tools.generator.config.GeneratorConfigManager;
+import org.telosys.tools.generator.target.TargetDefinition;
+import org.telosys.tools.generator.target.TargetsFile;
+import org.telosys.tools.repository.model.RepositoryModel;
+import org.telosys.tools.repository.persistence.CachedFilePersistenceManager;
+
+/**
+ * Headless bulk generation runner (for batch / continuous integration) <br>
+ * Loads the project configuration, the repository and the bundle targets once, <br>
+ * then generates all the selected entities with all the selected targets in the same JVM <br>
+ * <br>
+ * Usage : <br>
+ * BulkGeneratorRunner project-folder repository-file [options] <br>
+ *  -bundle name        : bundle (templates sub-folder) to use <br>
+ *  -entities A,B,C     : entities to generate (default : all the entities of the repository) <br>
+ *  -targets t1,t2      : targets names in "templates.cfg" (default : all the targets) <br>
+ *  -parallelism n      : number of generation workers (default : number of processors) <br>
+ *  -resources          : copy the bundle resources before generation <br>
+ *  -incremental        : generate only the targets whose inputs have changed since the last generation <br>
+ *  -encoding charset   : charset of the generated files (default : platform default charset) <br>
+ *  -verbose            : print the generator logs <br>
+ * <br>
+ * Exit status : 0 = success, 1 = generation error, 2 = invalid arguments or configuration
+ * 
+ * @author Laurent Guerin
+ * @since 2.1.1
+ */
+public class BulkGeneratorRunner {
+
+	public final static int EXIT_OK              = 0 ;
+	public final static int EXIT_GENERATION_ERROR = 1 ;
+	public final static int EXIT_CONFIG_ERROR    = 2 ;
+	
+	private final static String TEMPLATES_CFG = "templates.cfg" ;
+	
+	private String       projectFolder   = null ;
+	private String       repositoryFile  = null ;
+	private String       bundleName      = null ;
+	private List<String> entitiesNames   = null ; // null = all entities 
+	private List<String> targetsNames    = null ; // null = all targets
+	private int          parallelism     = Runtime.getRuntime().availableProcessors() ;
+	private boolean      copyResources   = false ;
+	private boolean      incremental     = false ;
+	private String       encoding        = null ; // null = default encoding
+	private boolean      verbose         = false ;
+	
+	private GenerationStatistics statistics = null ;
+
+	//----------------------------------------------------------------------------------
+	public static void main(String[] args) {
+		BulkGeneratorRunner runner = new BulkGeneratorRunner();
+		int status ;
+		try {
+			runner.parseArguments(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println("ERROR : " + e.getMessage() );
+			printUsage();
+			System.exit(EXIT_CONFIG_ERROR);
+		}
+		status = runner.run();
+		System.exit(status);
+	}
+	
+	//----------------------------------------------------------------------------------
+	private static void printUsage() {
+		System.err.println("Usage : " + BulkGeneratorRunner.class.getSimpleName() 
+				+ " project-folder repository-file [-bundle name] [-entities A,B] [-targets t1,t2]"
+				+ " [-parallelism n] [-resources] [-incremental] [-encoding charset] [-verbose]");
+	}
+
+	//----------------------------------------------------------------------------------
+	/**
+	 * Initializes the runner from the command line arguments
+	 * @param args
+	 * @throws IllegalArgumentException if the arguments are invalid
+	 */
+	public void parseArguments(String[] args) {
+		List<String> parameters = new LinkedList<String>();
+		int i = 0 ;
+		while ( i < args.length ) {
+			String arg = args[i] ;
+			if ( "-bundle".equals(arg) ) {
+				bundleName = getOptionValue(args, ++i, arg) ;
+			}
+			else if ( "-entities".equals(arg) ) {
+				entitiesNames = splitList( getOptionValue(args, ++i, arg) ) ;
+			}
+			else if ( "-targets".equals(arg) ) {
+				targetsNames = splitList( getOptionValue(args, ++i, arg) ) ;
+			}
+			else if ( "-parallelism".equals(arg) ) {
+				String value = getOptionValue(args, ++i, arg) ;
+				try {
+					parallelism = Integer.parseInt(value);
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("Invalid parallelism '" + value + "'");
+				}
+			}
+			else if ( "-resources".equals(arg) ) {
+				copyResources = true ;
+			}
+			else if ( "-incremental".equals(arg) ) {
+				incremental = true ;
+			}
+			else if ( "-encoding".equals(arg) ) {
+				encoding = getOptionValue(args, ++i, arg) ;
+			}
+			else if ( "-verbose".equals(arg) ) {
+				verbose = true ;
+			}
+			else if ( arg.startsWith("-") ) {
+				throw new IllegalArgumentException("Unknown option '" + arg + "'");
+			}
+			else {
+				parameters.add(arg);
+			}
+			i++ ;
+		}
+		if ( parameters.size() != 2 ) {
+			throw new IllegalArgumentException("Project folder and repository file expected");
+		}
+		projectFolder  = parameters.get(0);
+		repositoryFile = parameters.get(1);
+	}
+	
+	private String getOptionValue(String[] args, int i, String option) {
+		if ( i >= args.length ) {
+			throw new IllegalArgumentException("Value expected after '" + option + "'");
+		}
+		return args[i] ;
+	}
+	
+	private List<String> splitList(String value) {
+		List<String> list = new LinkedList<String>();
+		for ( String s : StrUtil.split(value, ',') ) {
+			if ( s.trim().length() > 0 ) {
+				list.add(s.trim());
+			}
+		}
+		return list ;
+	}
+
+	//----------------------------------------------------------------------------------
+	/**
+	 * Returns the statistics of the last run (or null if the generation has not been launched)
+	 * @return
+	 */
+	public GenerationStatistics getStatistics() {
+		return statistics ;
+	}
+	
+	//----------------------------------------------------------------------------------
+	/**
+	 * Launches the generation and prints the report 
+	 * @return the exit status 
+	 */
+	public int run() {
+		TelosysToolsLogger logger = new RunnerLogger(verbose);
+		
+		//--- 1) Load the configuration, the repository and the targets (once)
+		GeneratorConfig generatorConfig ;
+		RepositoryModel repositoryModel ;
+		List<TargetDefinition> targetDefinitions ;
+		List<TargetDefinition> resourcesDefinitions ;
+		try {
+			GeneratorConfigManager configManager = new GeneratorConfigManager(logger);
+			generatorConfig = configManager.initFromDirectory(projectFolder, bundleName);
+			if ( encoding != null ) {
+				generatorConfig.setOutputEncoding(encoding);
+			}
+			repositoryModel = loadRepository(generatorConfig, logger);
+			List<TargetDefinition> allDefinitions = loadTargetDefinitions(generatorConfig);
+			targetDefinitions    = new LinkedList<TargetDefinition>();
+			resourcesDefinitions = new LinkedList<TargetDefinition>();
+			List<String> generationTargetsNames = new LinkedList<String>();
+			for ( TargetDefinition td : allDefinitions ) {
+				if ( td.isResource() ) {
+					resourcesDefinitions.add(td);
+				}
+				else {
+					generationTargetsNames.add(td.getName());
+					if ( targetsNames == null || targetsNames.contains(td.getName()) ) {
+						targetDefinitions.add(td);
+					}
+				}
+			}
+			if ( targetsNames != null ) {
+				for ( String name : targetsNames ) {
+					if ( ! generationTargetsNames.contains(name) ) {
+						throw new GeneratorException("Target '" + name + "' not found in " + TEMPLATES_CFG);
+					}
+				}
+			}
+			if ( entitiesNames == null ) {
+				entitiesNames = new LinkedList<String>();
+				for ( String name : repositoryModel.getEntitiesNames() ) {
+					entitiesNames.add(name);
+				}
+			}
+			else {
+				for ( String name : entitiesNames ) {
+					if ( repositoryModel.getEntityByName(name) == null ) {
+						throw new GeneratorException("Entity '" + name + "' not found in repository");
+					}
+				}
+			}
+		} catch (GeneratorException e) {
+			logger.error(e.getMessage());
+			return EXIT_CONFIG_ERROR ;
+		}
+		print(entitiesNames.size() + " entity(ies) x " + targetDefinitions.size() + " target(s)" );
+		
+		//--- 2) Copy the bundle resources if any 
+		if ( copyResources && resourcesDefinitions.size() > 0 ) {
+			BundleResourcesManager resourcesManager = new BundleResourcesManager(
+					generatorConfig.getTelosysToolsCfg(), bundleName, logger);
+			try {
+				int n = resourcesManager.copyTargetsResourcesInProject(resourcesDefinitions, 
+						new DefaultOverwriteChooser(OverwriteChooser.YES), null);
+				print(n + " resource file(s) copied");
+			} catch (Exception e) {
+				logger.error("Cannot copy resources : " + e.getMessage() );
+				return EXIT_GENERATION_ERROR ;
+			}
+		}
+		
+		//--- 3) Generate 
+		try {
+			GenerationManager generationManager = new GenerationManager(repositoryModel, generatorConfig, logger);
+			generationManager.setParallelism(parallelism);
+			if ( incremental ) {
+				GenerationManifest manifest = new GenerationManifest(generatorConfig.getProjectLocation());
+				manifest.load();
+				generationManager.setManifest(manifest);
+			}
+			try {
+				generationManager.generate(entitiesNames, targetDefinitions, null);
+			}
+			finally {
+				statistics = generationManager.getStatistics();
+			}
+		} catch (GeneratorException e) {
+			logger.error(e.getMessage());
+			if ( e.getCause() != null ) {
+				logger.exception(e.getCause());
+			}
+			return EXIT_GENERATION_ERROR ;
+		}
+		
+		//--- 4) Report
+		for ( String line : statistics.getReport() ) {
+			print(line);
+		}
+		return EXIT_OK ;
+	}
+	
+	//----------------------------------------------------------------------------------
+	private void print(String s) {
+		System.out.println(s);
+	}
+
+	//----------------------------------------------------------------------------------
+	private RepositoryModel loadRepository(GeneratorConfig generatorConfig, TelosysToolsLogger logger) throws GeneratorException {
+		File file = new File(repositoryFile);
+		if ( ! file.exists() ) {
+			//--- Try in the repositories folder of the project
+			String repositoriesFolder = generatorConfig.getTelosysToolsCfg().getRepositoriesFolderAbsolutePath();
+			if ( repositoriesFolder != null ) {
+				file = new File( FileUtil.buildFilePath(repositoriesFolder, repositoryFile) );
+			}
+		}
+		if ( ! file.exists() ) {
+			throw new GeneratorException("Repository file '" + repositoryFile + "' not found");
+		}
+		CachedFilePersistenceManager pm = new CachedFilePersistenceManager( file.getAbsolutePath(), logger );
+		try {
+			return pm.load();
+		} catch (TelosysToolsException e) {
+			throw new GeneratorException("Cannot load the repository from file '" + file + "'", e);
+		}
+	}
+
+	//----------------------------------------------------------------------------------
+	private List<TargetDefinition> loadTargetDefinitions(GeneratorConfig generatorConfig) throws GeneratorException {
+		String templatesFolder = generatorConfig.getTemplatesFolderFullPath();
+		if ( templatesFolder == null ) {
+			throw new GeneratorException("Templates folder is not defined");
+		}
+		TargetsFile targetsFile = new TargetsFile( FileUtil.buildFilePath(templatesFolder, TEMPLATES_CFG) );
+		return targetsFile.load();
+	}
+
+	//----------------------------------------------------------------------------------
+	/**
+	 * Console logger printing only the errors (unless "verbose") 
+	 */
+	private static class RunnerLogger implements TelosysToolsLogger {
+		
+		private final boolean verbose ;
+		
+		public RunnerLogger(boolean verbose) {
+			super();
+			this.verbose = verbose ;
+		}
+		public void log(Object object, String s) {
+			if ( verbose ) System.out.println("[LOG] " + s + " : " + object);
+		}
+		public void log(String s) {
+			if ( verbose ) System.out.println("[LOG] " + s);
+		}
+		public void error(String s) {
+			System.err.println("[ERROR] " + s);
+		}
+		public void info(String s) {
+			if ( verbose ) System.out.println("[INFO] " + s);
+		}
+		public void exception(Throwable exception) {
+			exception.printStackTrace(System.err);
+		}
+	}
+}
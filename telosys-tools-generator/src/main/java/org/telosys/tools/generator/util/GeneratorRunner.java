@@ -21,6 +21,7 @@ import java.util.List;
 import org.telosys.tools.commons.TelosysToolsException;
 import org.telosys.tools.commons.TelosysToolsLogger;
 import org.telosys.tools.commons.variables.Variable;
+import org.telosys.tools.generator.EntitiesManager;
 import org.telosys.tools.generator.Generator;
 import org.telosys.tools.generator.GeneratorException;
 import org.telosys.tools.generator.config.GeneratorConfig;
@@ -29,7 +30,7 @@ import org.telosys.tools.generator.context.Target;
 import org.telosys.tools.generator.target.TargetDefinition;
 import org.telosys.tools.repository.model.Entity;
 import org.telosys.tools.repository.model.RepositoryModel;
-import org.telosys.tools.repository.persistence.StandardFilePersistenceManager;
+import org.telosys.tools.repository.persistence.CachedFilePersistenceManager;
 
 /**
  * Utility class to launch generation (for tests) 
@@ -45,6 +46,8 @@ public class GeneratorRunner {
 	
 	private final TelosysToolsLogger  logger ;
 	
+	private final EntitiesManager     entitiesManager ; // shared by all the generations ( v 2.1.1 )
+	
 	/**
 	 * Constructor 
 	 * 
@@ -64,6 +67,7 @@ public class GeneratorRunner {
 		this.repositoryModel = repositoryModel;
 		this.generatorConfig = generatorConfig;
 		this.logger = logger;
+		this.entitiesManager = new EntitiesManager(repositoryModel, generatorConfig);
 	}
 
 	/**
@@ -80,7 +84,7 @@ public class GeneratorRunner {
 		this.logger = logger;
 		
 		//--- Load the repository 
-		StandardFilePersistenceManager pm = new StandardFilePersistenceManager( repositoryFileName, logger );		
+		CachedFilePersistenceManager pm = new CachedFilePersistenceManager( repositoryFileName, logger );		
 		RepositoryModel repositoryModel = null ;
 		try {
 			repositoryModel = pm.load();
@@ -93,6 +97,8 @@ public class GeneratorRunner {
 		GeneratorConfigManager configManager = new GeneratorConfigManager(logger);
 		GeneratorConfig config = configManager.initFromDirectory(projectLocation, null);
 		this.generatorConfig = config ;
+		
+		this.entitiesManager = new EntitiesManager(repositoryModel, config);
  
 	}
 
@@ -146,8 +152,8 @@ public class GeneratorRunner {
 
 			List<Target> generatedTargets = new LinkedList<Target>();
 			//Generator generator = new Generator(target, generatorConfig, logger);
-			Generator generator = new Generator(target, generatorConfig, repositoryModel, logger); // v 2.0.7
-			generator.generateTarget(target, repositoryModel, null, generatedTargets);
+			Generator generator = new Generator(target, generatorConfig, entitiesManager, logger); // v 2.1.1
+			generator.generateTarget(target, null, generatedTargets);
 			
 		} catch (GeneratorException e) {
 			// TODO Auto-generated catch block
@@ -0,0 +1,109 @@
+package org.telosys.tools.test.generator;
+
+import java.io.File;
+import java.io.FileWriter;
+
+import junit.framework.TestCase;
+
+import org.telosys.tools.commons.FileUtil;
+import org.telosys.tools.generator.util.BulkGeneratorRunner;
+
+public class BulkGeneratorRunnerTest extends TestCase {
+
+	private final static String PROJECT_LOCATION = "src/test/resources" ;
+	private final static String REPOSITORY_FILE  = PROJECT_LOCATION + "/repos/DERBY-Tests-Jan-2014-10.dbrep" ;
+
+	private File projectFolder ;
+	
+	@Override
+	protected void setUp() throws Exception {
+		//--- Project with a "templates.cfg" file ( 1 target + 1 resource )
+		projectFolder = File.createTempFile("telosys-bulk", "");
+		projectFolder.delete();
+		File templatesFolder = new File(projectFolder, "templates");
+		templatesFolder.mkdirs();
+		FileUtil.copy(PROJECT_LOCATION + "/telosys-tools.cfg", projectFolder.getPath() + "/telosys-tools.cfg", false);
+		FileUtil.copy(PROJECT_LOCATION + "/templates/entity_only.vm", templatesFolder.getPath() + "/entity_only.vm", false);
+		FileWriter writer = new FileWriter(new File(templatesFolder, "templates.cfg"));
+		writer.write("Entity ; ${BEANNAME}.txt ; out ; entity_only.vm ; * \n");
+		writer.write("Static files ; static ; out/static ; static ; R \n");
+		writer.close();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		delete(projectFolder);
+	}
+
+	private void delete(File file) {
+		File[] files = file.listFiles();
+		if ( files != null ) {
+			for ( File f : files ) {
+				delete(f);
+			}
+		}
+		file.delete();
+	}
+
+	private BulkGeneratorRunner parse(String... args) {
+		BulkGeneratorRunner runner = new BulkGeneratorRunner();
+		runner.parseArguments(args);
+		return runner ;
+	}
+	
+	private void checkInvalidArguments(String... args) {
+		try {
+			parse(args);
+			fail("IllegalArgumentException expected");
+		} catch (IllegalArgumentException e) {
+			System.out.println("Expected error : " + e.getMessage());
+		}
+	}
+	
+	public void testInvalidArguments() {
+		checkInvalidArguments();
+		checkInvalidArguments("project");
+		checkInvalidArguments("project", "repo.dbrep", "other");
+		checkInvalidArguments("project", "repo.dbrep", "-unknown");
+		checkInvalidArguments("project", "repo.dbrep", "-parallelism", "x");
+		checkInvalidArguments("project", "repo.dbrep", "-targets");
+	}
+
+	public void testRun() {
+		String project = projectFolder.getAbsolutePath() ;
+		String repository = new File(REPOSITORY_FILE).getAbsolutePath() ;
+		
+		BulkGeneratorRunner runner = parse(project, repository, "-entities", "AUTHOR,BOOK", "-targets", "Entity");
+		assertEquals(BulkGeneratorRunner.EXIT_OK, runner.run());
+		assertEquals(2, runner.getStatistics().getNumberOfTargets());
+		assertTrue(new File(projectFolder, "out/Author.txt").exists());
+		
+		//--- All the targets by default 
+		runner = parse(project, repository, "-entities", "AUTHOR");
+		assertEquals(BulkGeneratorRunner.EXIT_OK, runner.run());
+		assertEquals(1, runner.getStatistics().getNumberOfTargets());
+	}
+
+	public void testRunWithUnknownNames() {
+		String project = projectFolder.getAbsolutePath() ;
+		String repository = new File(REPOSITORY_FILE).getAbsolutePath() ;
+
+		//--- Unknown target
+		BulkGeneratorRunner runner = parse(project, repository, "-targets", "Entity,Nope");
+		assertEquals(BulkGeneratorRunner.EXIT_CONFIG_ERROR, runner.run());
+		assertNull(runner.getStatistics()); // nothing generated
+
+		//--- Resource target ( not a generation target )
+		runner = parse(project, repository, "-targets", "Static files");
+		assertEquals(BulkGeneratorRunner.EXIT_CONFIG_ERROR, runner.run());
+		
+		//--- Unknown entity
+		runner = parse(project, repository, "-entities", "AUTHOR,NOPE");
+		assertEquals(BulkGeneratorRunner.EXIT_CONFIG_ERROR, runner.run());
+		assertNull(runner.getStatistics());
+		
+		//--- Unknown repository 
+		runner = parse(project, "nope.dbrep");
+		assertEquals(BulkGeneratorRunner.EXIT_CONFIG_ERROR, runner.run());
+	}
+}
@@ -0,0 +1,164 @@
+package org.telosys.tools.test.generator;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+import junit.framework.TestCase;
+
+import org.telosys.tools.generator.GeneratedFileWriter;
+import org.telosys.tools.generator.GeneratorException;
+
+public class GeneratedFileWriterTest extends TestCase {
+
+	private final static String OUTPUT_FOLDER = "target/GENERATED_TESTS/writer" ; 
+
+	private String readFile(File file, String encoding) throws Exception {
+		byte[] content = new byte[(int) file.length()];
+		InputStream is = new FileInputStream(file);
+		try {
+			assertEquals(content.length, is.read(content));
+		}
+		finally {
+			is.close();
+		}
+		return new String(content, encoding);
+	}
+	
+	public void testWriteIfChanged() throws Exception {
+		File file = new File(OUTPUT_FOLDER + "/sub/Foo.java");
+		file.delete();
+		
+		GeneratedFileWriter writer = new GeneratedFileWriter("UTF-8");
+		assertEquals("UTF-8", writer.getEncoding());
+		
+		//--- Created (with the directory)
+		assertEquals(GeneratedFileWriter.CREATED, writer.write("class Foo { } // \u00e9t\u00e9", file.getPath(), true));
+		assertEquals("class Foo { } // \u00e9t\u00e9", readFile(file, "UTF-8"));
+		
+		//--- Same content : not written
+		assertTrue(file.setLastModified(1000000000L));
+		assertEquals(GeneratedFileWriter.UNCHANGED, writer.write("class Foo { } // \u00e9t\u00e9", file.getPath(), true));
+		assertEquals(1000000000L, file.lastModified());
+
+		//--- Same size, other content
+		assertEquals(GeneratedFileWriter.UPDATED, writer.write("class Bar { } // \u00e9t\u00e9", file.getPath(), true));
+		assertEquals("class Bar { } // \u00e9t\u00e9", readFile(file, "UTF-8"));
+
+		//--- Shorter content 
+		assertEquals(GeneratedFileWriter.UPDATED, writer.write("class Bar { }", file.getPath(), true));
+		assertEquals("class Bar { }", readFile(file, "UTF-8"));
+		
+		assertEquals(1, writer.getCreatedFiles());
+		assertEquals(2, writer.getUpdatedFiles());
+		assertEquals(1, writer.getUnchangedFiles());
+		
+		//--- No temporary file left
+		assertEquals(1, file.getParentFile().list().length);
+	}
+	
+	public void testEncoding() throws Exception {
+		File file = new File(OUTPUT_FOLDER + "/Latin1.txt");
+		GeneratedFileWriter writer = new GeneratedFileWriter("ISO-8859-1");
+		writer.write("\u00e9t\u00e9", file.getPath(), true);
+		assertEquals(3, file.length());
+		assertEquals("\u00e9t\u00e9", readFile(file, "ISO-8859-1"));
+	}
+
+	public void testStreamingOutput() throws Exception {
+		File file = new File(OUTPUT_FOLDER + "/stream/Big.txt");
+		file.delete();
+		StringBuilder sb = new StringBuilder();
+		for ( int i = 0 ; i < 1000 ; i++ ) {
+			sb.append("line " + i + "\n");
+		}
+		String text = sb.toString();
+		
+		GeneratedFileWriter writer = new GeneratedFileWriter("UTF-8", 100); // small threshold
+		
+		//--- Small content : kept in memory 
+		GeneratedFileWriter.Output output = writer.open(file.getPath(), true);
+		output.getWriter().write("small");
+		assertEquals(GeneratedFileWriter.CREATED, output.commit());
+		assertFalse(output.isInTemporaryFile());
+		assertEquals("small", readFile(file, "UTF-8"));
+
+		//--- Big content : in a temporary file 
+		output = writer.open(file.getPath(), true);
+		output.getWriter().write(text);
+		assertEquals(GeneratedFileWriter.UPDATED, output.commit());
+		assertTrue(output.isInTemporaryFile());
+		assertEquals(text, readFile(file, "UTF-8"));
+		
+		//--- Same big content : unchanged 
+		output = writer.open(file.getPath(), true);
+		output.getWriter().write(text);
+		assertEquals(GeneratedFileWriter.UNCHANGED, output.commit());
+		
+		//--- Discarded : file not modified 
+		output = writer.open(file.getPath(), true);
+		output.getWriter().write(text + text);
+		output.getWriter().flush();
+		output.discard();
+		assertEquals(text, readFile(file, "UTF-8"));
+		
+		//--- No temporary file left
+		assertEquals(1, file.getParentFile().list().length);
+	}
+
+	public void testExecutableFileUpdated() throws Exception {
+		File file = new File(OUTPUT_FOLDER + "/script/run.sh");
+		GeneratedFileWriter writer = new GeneratedFileWriter("UTF-8");
+		writer.write("echo 1", file.getPath(), true);
+		if ( ! file.setExecutable(true) ) {
+			System.out.println("Cannot set executable flag : test skipped");
+			return ;
+		}
+		assertEquals(GeneratedFileWriter.UPDATED, writer.write("echo 2", file.getPath(), true));
+		assertEquals("echo 2", readFile(file, "UTF-8"));
+		assertTrue(file.canExecute()); // kept
+	}
+
+	public void testRenameError() throws Exception {
+		//--- A folder with the name of the file : cannot be replaced 
+		File folder = new File(OUTPUT_FOLDER + "/renameError/Foo.java");
+		folder.mkdirs();
+		new FileOutputStream(new File(folder, "x.txt")).close();
+		GeneratedFileWriter writer = new GeneratedFileWriter("UTF-8");
+		try {
+			writer.write("class Foo { }", folder.getPath(), true);
+			fail("Exception expected");
+		} catch (GeneratorException e) {
+			System.out.println("Expected error : " + e.getMessage());
+		}
+		assertTrue(new File(folder, "x.txt").exists()); // previous content not lost
+		//--- The new content is kept in the temporary file 
+		File[] files = folder.getParentFile().listFiles();
+		assertEquals(2, files.length);
+		for ( File file : files ) {
+			if ( file.isFile() ) {
+				assertEquals("class Foo { }", readFile(file, "UTF-8"));
+				file.delete();
+			}
+		}
+	}
+
+	public void testDefaultEncoding() throws Exception {
+		//--- Platform default charset ( as before 2.1.1 )
+		assertEquals(Charset.defaultCharset().name(), new GeneratedFileWriter().getEncoding());
+		assertEquals(Charset.defaultCharset().name(), new GeneratedFileWriter(null).getEncoding());
+		assertEquals(Charset.defaultCharset().name(), GeneratedFileWriter.getDefaultEncoding());
+	}
+
+	public void testNoDirectory() throws Exception {
+		GeneratedFileWriter writer = new GeneratedFileWriter();
+		try {
+			writer.write("x", OUTPUT_FOLDER + "/nodir/x.txt", false);
+			fail("Exception expected");
+		} catch (Exception e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,200 @@
+package org.telosys.tools.test.generator;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.LinkedList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.telosys.tools.commons.ConsoleLogger;
+import org.telosys.tools.generator.GenerationManager;
+import org.telosys.tools.generator.GenerationManifest;
+import org.telosys.tools.generator.GenerationMonitor;
+import org.telosys.tools.generator.config.GeneratorConfig;
+import org.telosys.tools.generator.config.GeneratorConfigManager;
+import org.telosys.tools.generator.context.Target;
+import org.telosys.tools.generator.target.TargetDefinition;
+import org.telosys.tools.repository.model.RepositoryModel;
+import org.telosys.tools.repository.persistence.StandardFilePersistenceManager;
+
+public class GenerationManagerTest extends TestCase {
+
+	private final static String PROJECT_LOCATION = "src/test/resources" ;
+	private final static String REPOSITORY_FILE  = PROJECT_LOCATION + "/repos/DERBY-Tests-Jan-2014-10.dbrep" ;
+	private final static String OUTPUT_FOLDER    = "../../../target/GENERATED_TESTS" ; 
+
+	private GenerationManager getGenerationManager() throws Exception {
+		ConsoleLogger logger = new ConsoleLogger();
+		return new GenerationManager(loadRepositoryModel(), getGeneratorConfig(), logger);
+	}
+	
+	private RepositoryModel loadRepositoryModel() throws Exception {
+		return new StandardFilePersistenceManager(REPOSITORY_FILE, new ConsoleLogger()).load();
+	}
+	
+	private GeneratorConfig getGeneratorConfig() throws Exception {
+		return new GeneratorConfigManager(new ConsoleLogger()).initFromDirectory(PROJECT_LOCATION, null);
+	}
+	
+	private String readFile(File file) throws Exception {
+		byte[] content = new byte[(int) file.length()];
+		InputStream is = new FileInputStream(file);
+		try {
+			assertEquals(content.length, is.read(content));
+		}
+		finally {
+			is.close();
+		}
+		return new String(content);
+	}
+	
+	private List<String> getEntitiesNames() {
+		List<String> entities = new LinkedList<String>();
+		entities.add("AUTHOR");
+		entities.add("BADGE");
+		entities.add("BOOK");
+		entities.add("BOOK_ORDER_ITEM");
+		entities.add("PUBLISHER");
+		return entities ;
+	}
+	
+	private List<TargetDefinition> getTargetDefinitions(String folder) {
+		List<TargetDefinition> targets = new LinkedList<TargetDefinition>();
+		targets.add( new TargetDefinition("Bean", "${BEANNAME}.java", OUTPUT_FOLDER + "/" + folder, "jpa_bean_with_links.vm", "*") );
+		return targets ;
+	}
+	
+	public void testSequentialAndParallelOrder() throws Exception {
+		GenerationManager generationManager = getGenerationManager();
+		
+		generationManager.setParallelism(1);
+		List<Target> sequential = generationManager.generate(getEntitiesNames(), getTargetDefinitions("seq"), null);
+
+		generationManager.setParallelism(4);
+		List<Target> parallel = generationManager.generate(getEntitiesNames(), getTargetDefinitions("par"), null);
+		
+		// BOOK_ORDER_ITEM has a composite key => 2 files ( with the embedded generator )
+		assertEquals(6, sequential.size());
+		assertEquals(sequential.size(), parallel.size());
+		for ( int i = 0 ; i < sequential.size() ; i++ ) {
+			assertEquals(sequential.get(i).getFile(), parallel.get(i).getFile());
+			File file = new File( parallel.get(i).getOutputFileNameInFileSystem(PROJECT_LOCATION) );
+			assertTrue(file.exists());
+		}
+		assertEquals("Author.java", parallel.get(0).getFile());
+		assertEquals("BookOrderItemKey.java", parallel.get(3).getFile());
+		assertEquals("BookOrderItem.java", parallel.get(4).getFile());
+	}
+
+	public void testSharedInstanceInParallel() throws Exception {
+		GenerationManager generationManager = getGenerationManager();
+		generationManager.setParallelism(4);
+		List<TargetDefinition> targets = new LinkedList<TargetDefinition>();
+		targets.add( new TargetDefinition("Shared", "${BEANNAME}.txt", OUTPUT_FOLDER + "/shared", "shared_instance.vm", "*") );
+		List<Target> generated = generationManager.generate(getEntitiesNames(), targets, null);
+		assertEquals(5, generated.size());
+		
+		//--- The same instance for all the workers 
+		String firstContent = null ;
+		for ( Target target : generated ) {
+			File file = new File( target.getOutputFileNameInFileSystem(PROJECT_LOCATION) );
+			String content = readFile(file).trim() ;
+			if ( firstContent == null ) {
+				firstContent = content ;
+			}
+			assertEquals(firstContent, content);
+		}
+	}
+
+	public void testCancel() throws Exception {
+		GenerationManager generationManager = getGenerationManager();
+		generationManager.setParallelism(2);
+		final List<Target> done = new LinkedList<Target>();
+		GenerationMonitor monitor = new GenerationMonitor() {
+			public boolean isCanceled() {
+				return done.size() >= 2 ;
+			}
+			public void beginTarget(Target target) {
+			}
+			public void endTarget(Target target, List<Target> generatedTargets) {
+				done.add(target);
+			}
+		};
+		List<Target> generated = generationManager.generate(getEntitiesNames(), getTargetDefinitions("cancel"), monitor);
+		assertEquals(2, done.size());
+		assertEquals(2, generated.size());
+	}
+
+	public void testIncremental() throws Exception {
+		String manifestFile = PROJECT_LOCATION + "/" + OUTPUT_FOLDER + "/incremental.manifest" ;
+		new File(manifestFile).delete();
+		
+		GenerationManager generationManager = getGenerationManager();
+		GenerationManifest manifest = new GenerationManifest(PROJECT_LOCATION, manifestFile);
+		manifest.load();
+		generationManager.setManifest(manifest);
+
+		//--- First generation : all the targets are generated 
+		List<Target> generated = generationManager.generate(getEntitiesNames(), getTargetDefinitions("incr"), null);
+		assertEquals(6, generated.size());
+		assertEquals(0, generationManager.getStatistics().getNumberOfSkippedTargets());
+		assertTrue(new File(manifestFile).exists());
+		
+		//--- Nothing has changed : only the target using the embedded generator is generated again 
+		manifest = new GenerationManifest(PROJECT_LOCATION, manifestFile);
+		manifest.load();
+		generationManager.setManifest(manifest);
+		generated = generationManager.generate(getEntitiesNames(), getTargetDefinitions("incr"), null);
+		assertEquals(4, generationManager.getStatistics().getNumberOfSkippedTargets());
+		assertEquals(2, generated.size());
+		assertEquals("BookOrderItemKey.java", generated.get(0).getFile());
+		
+		//--- Removed file : generated again 
+		File file = new File(PROJECT_LOCATION + "/" + OUTPUT_FOLDER + "/incr/Author.java");
+		assertTrue(file.delete());
+		generated = generationManager.generate(getEntitiesNames(), getTargetDefinitions("incr"), null);
+		assertEquals(3, generated.size());
+		assertEquals("Author.java", generated.get(0).getFile());
+		assertTrue(file.exists());
+		
+		//--- Other selected entities ( "$selectedEntities" ) : all generated again
+		List<String> entities = getEntitiesNames();
+		entities.remove("PUBLISHER");
+		generated = generationManager.generate(entities, getTargetDefinitions("incr"), null);
+		assertEquals(0, generationManager.getStatistics().getNumberOfSkippedTargets());
+		assertEquals(5, generated.size());
+	}
+
+	public void testIncrementalWithOtherInputs() throws Exception {
+		String manifestFile = PROJECT_LOCATION + "/" + OUTPUT_FOLDER + "/incremental2.manifest" ;
+		new File(manifestFile).delete();
+		List<String> entities = new LinkedList<String>();
+		entities.add("AUTHOR");
+		List<TargetDefinition> targets = new LinkedList<TargetDefinition>();
+		targets.add( new TargetDefinition("Bean", "${BEANNAME}.java", OUTPUT_FOLDER + "/incr2", "jpa_bean_with_links.vm", "*") ); // "$selectedEntities"
+		targets.add( new TargetDefinition("Entity", "${BEANNAME}.txt", OUTPUT_FOLDER + "/incr2", "entity_only.vm", "*") ); // entity only
+		
+		RepositoryModel repositoryModel = loadRepositoryModel();
+		GeneratorConfig generatorConfig = getGeneratorConfig();
+		GenerationManager generationManager = new GenerationManager(repositoryModel, generatorConfig, new ConsoleLogger());
+		GenerationManifest manifest = new GenerationManifest(PROJECT_LOCATION, manifestFile);
+		manifest.load();
+		generationManager.setManifest(manifest);
+		assertEquals(2, generationManager.generate(entities, targets, null).size());
+		assertEquals(0, generationManager.generate(entities, targets, null).size());
+		
+		//--- Other entity changed ( not selected, not linked ) : only the template using all the entities 
+		repositoryModel.getEntityByName("BADGE").setCatalog("OTHER_CATALOG");
+		List<Target> generated = generationManager.generate(entities, targets, null);
+		assertEquals(1, generated.size());
+		assertEquals("Author.java", generated.get(0).getFile());
+		assertEquals(1, generationManager.getStatistics().getNumberOfSkippedTargets());
+		
+		//--- Output encoding changed : all generated again
+		generatorConfig.setOutputEncoding("ISO-8859-1");
+		assertEquals(2, generationManager.generate(entities, targets, null).size());
+		assertEquals(0, generationManager.generate(entities, targets, null).size());
+	}
+}
@@ -0,0 +1,60 @@
+package org.telosys.tools.test.generator;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import junit.framework.TestCase;
+
+import org.apache.velocity.VelocityContext;
+import org.apache.velocity.app.VelocityEngine;
+import org.telosys.tools.generator.VelocityEngineManager;
+
+public class VelocityEngineManagerTest extends TestCase {
+
+	private final static String TEMPLATES_FOLDER = "target/GENERATED_TESTS/velocity-engine" ;
+	
+	private void writeTemplate(File folder, String fileName, String content) throws Exception {
+		Writer writer = new OutputStreamWriter(new FileOutputStream(new File(folder, fileName)), "UTF-8");
+		try {
+			writer.write(content);
+		} finally {
+			writer.close();
+		}
+	}
+	
+	private String merge(VelocityEngine velocityEngine, String templateName) throws Exception {
+		StringWriter writer = new StringWriter();
+		velocityEngine.getTemplate(templateName, "UTF-8").merge(new VelocityContext(), writer);
+		return writer.toString().trim();
+	}
+	
+	public void testSameEngine() throws Exception {
+		String folder = new File(TEMPLATES_FOLDER).getAbsolutePath();
+		VelocityEngineManager.removeVelocityEngine(folder);
+		new File(folder).mkdirs();
+		VelocityEngine velocityEngine = VelocityEngineManager.getVelocityEngine(folder);
+		assertSame(velocityEngine, VelocityEngineManager.getVelocityEngine(folder));
+		VelocityEngineManager.removeVelocityEngine(folder);
+		assertNotSame(velocityEngine, VelocityEngineManager.getVelocityEngine(folder));
+	}
+	
+	public void testInlineMacrosLocalScope() throws Exception {
+		File folder = new File(TEMPLATES_FOLDER);
+		folder.mkdirs();
+		writeTemplate(folder, "macro_a.vm", "#macro( title )A#end\n#title()");
+		writeTemplate(folder, "macro_b.vm", "#macro( title )B#end\n#title()");
+		writeTemplate(folder, "macro_c.vm", "#title()");
+		
+		String folderPath = folder.getAbsolutePath();
+		VelocityEngineManager.removeVelocityEngine(folderPath);
+		VelocityEngine velocityEngine = VelocityEngineManager.getVelocityEngine(folderPath);
+		assertEquals("A", merge(velocityEngine, "macro_a.vm"));
+		assertEquals("B", merge(velocityEngine, "macro_b.vm")); // not the macro of the first template
+		assertEquals("#title()", merge(velocityEngine, "macro_c.vm")); // not defined in this template
+		assertEquals("A", merge(velocityEngine, "macro_a.vm"));
+		VelocityEngineManager.removeVelocityEngine(folderPath);
+	}
+}
@@ -0,0 +1,134 @@
+package org.telosys.tools.test.generator.context;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.telosys.tools.commons.ConsoleLogger;
+import org.telosys.tools.generator.EntitiesManager;
+import org.telosys.tools.generator.config.GeneratorConfig;
+import org.telosys.tools.generator.config.GeneratorConfigManager;
+import org.telosys.tools.generator.context.AttributeInContext;
+import org.telosys.tools.generator.context.Const;
+import org.telosys.tools.generator.context.EntityInContext;
+import org.telosys.tools.generator.context.EnvInContext;
+import org.telosys.tools.generator.context.ImportsList;
+import org.telosys.tools.generator.context.Java;
+import org.telosys.tools.generator.context.LinkInContext;
+import org.telosys.tools.repository.model.RepositoryModel;
+import org.telosys.tools.repository.persistence.StandardFilePersistenceManager;
+
+public class EntityInContextTest extends TestCase {
+
+	private final static String PROJECT_LOCATION = "src/test/resources" ;
+	private final static String REPOSITORY_FILE  = PROJECT_LOCATION + "/repos/DERBY-Tests-Jan-2014-10.dbrep" ;
+
+	private EntitiesManager getEntitiesManager() throws Exception {
+		ConsoleLogger logger = new ConsoleLogger();
+		RepositoryModel repositoryModel = new StandardFilePersistenceManager(REPOSITORY_FILE, logger).load();
+		GeneratorConfig generatorConfig = new GeneratorConfigManager(logger).initFromDirectory(PROJECT_LOCATION, null);
+		return new EntitiesManager(repositoryModel, generatorConfig);
+	}
+	
+	public void testAttributesByCriteria() throws Exception {
+		EntityInContext entity = getEntitiesManager().getEntity("BOOK");
+		
+		List<AttributeInContext> keyAttributes = entity.getAttributesByCriteria(Const.KEY);
+		assertEquals(entity.getKeyAttributes(), keyAttributes);
+		assertEquals(keyAttributes, entity.getAttributesByCriteria(Const.KEY));
+		
+		List<AttributeInContext> attributes = entity.getAttributesByCriteria(Const.NOT_KEY, Const.NOT_IN_SELECTED_LINKS);
+		assertEquals(attributes, entity.getAttributesByCriteria(Const.NOT_IN_SELECTED_LINKS, Const.NOT_KEY));
+		assertFalse(attributes.isEmpty());
+		for ( AttributeInContext attribute : attributes ) {
+			assertFalse(attribute.isKeyElement());
+			assertFalse(attribute.isUsedInLinkJoinColumn(entity.getSelectedLinks()));
+		}
+		
+		//--- The template can modify the returned lists ( copies of the cached lists )
+		int size = attributes.size();
+		attributes.clear();
+		assertEquals(size, entity.getAttributesByCriteria(Const.NOT_KEY, Const.NOT_IN_SELECTED_LINKS).size());
+		
+		List<LinkInContext> links = entity.getSelectedLinks();
+		assertFalse(links.isEmpty());
+		links.clear();
+		assertFalse(entity.getSelectedLinks().isEmpty());
+		
+		List<AttributeInContext> nonTextAttributes = entity.getNonTextAttributes();
+		assertEquals(nonTextAttributes, entity.getNonTextAttributes());
+		nonTextAttributes.clear();
+		assertFalse(entity.getNonTextAttributes().isEmpty());
+	}
+
+	public void testModelListsNotShared() throws Exception {
+		EntitiesManager entitiesManager = getEntitiesManager();
+		EntityInContext entity = entitiesManager.getEntity("BOOK");
+		int attributesCount = entity.getAttributesCount();
+		int keyAttributesCount = entity.getKeyAttributesCount();
+		int nonKeyAttributesCount = entity.getNonKeyAttributesCount();
+		int linksCount = entity.getLinks().size();
+		int foreignKeysCount = entity.getDatabaseForeignKeysCount();
+		assertTrue(linksCount > 0);
+		
+		//--- A first target modifies the returned lists 
+		entity.getAttributes().clear();
+		entity.getKeyAttributes().clear();
+		entity.getNonKeyAttributes().clear();
+		entity.getLinks().clear();
+		entity.getDatabaseForeignKeys().clear();
+		
+		//--- The next target ( same entity ) sees the original lists 
+		entity = entitiesManager.getEntity("BOOK");
+		assertEquals(attributesCount, entity.getAttributes().size());
+		assertEquals(keyAttributesCount, entity.getKeyAttributes().size());
+		assertEquals(nonKeyAttributesCount, entity.getNonKeyAttributes().size());
+		assertEquals(linksCount, entity.getLinks().size());
+		assertEquals(foreignKeysCount, entity.getDatabaseForeignKeys().size());
+		assertEquals(attributesCount, keyAttributesCount + nonKeyAttributesCount);
+	}
+
+	public void testReferencedEntityTypes() throws Exception {
+		EntitiesManager entitiesManager = getEntitiesManager();
+		EntityInContext entity = entitiesManager.getEntity("BOOK");
+		
+		List<String> types = entity.referencedEntityTypes();
+		assertTrue(types.contains("Author"));
+		assertTrue(types.contains("Publisher"));
+		
+		//--- The names depend on the current environment 
+		EnvInContext env = new EnvInContext();
+		env.setEntityClassNamePrefix("My");
+		entitiesManager.setEnv(env);
+		types = entity.referencedEntityTypes();
+		assertTrue(types.contains("MyAuthor"));
+		assertTrue(types.contains("MyPublisher"));
+	}
+
+	public void testImports() throws Exception {
+		EntityInContext entity = getEntitiesManager().getEntity("AUTHOR");
+		Java java = new Java();
+		List<String> imports = java.imports(entity);
+		assertEquals(imports, java.imports(entity));
+		assertTrue(imports.contains("java.util.List"));
+		for ( int i = 1 ; i < imports.size() ; i++ ) {
+			assertTrue(imports.get(i-1).compareTo(imports.get(i)) < 0); // sorted, no duplicate
+		}
+		imports.add("foo.Bar"); // modifiable copy
+		assertFalse(java.imports(entity).contains("foo.Bar"));
+	}
+
+	public void testImportsList() {
+		ImportsList imports = new ImportsList();
+		imports.declareType("java.util.Date");
+		imports.declareType("int");
+		imports.declareType("java.math.BigDecimal");
+		imports.declareType("java.util.Date");
+		imports.declareType("java.lang.String");
+		assertEquals(2, imports.getList().size());
+		assertEquals("java.util.Date", imports.getList().get(0));
+		assertTrue(imports.isDeclared("java.math.BigDecimal"));
+		assertFalse(imports.isDeclared("java.lang.String"));
+		assertFalse(imports.isDeclared(null));
+	}
+}
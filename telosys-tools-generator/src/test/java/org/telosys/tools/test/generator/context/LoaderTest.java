@@ -0,0 +1,124 @@
+package org.telosys.tools.test.generator.context;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import junit.framework.TestCase;
+
+import org.telosys.tools.generator.ClassLoaderManager;
+import org.telosys.tools.generator.context.Loader;
+
+public class LoaderTest extends TestCase {
+
+	private File templatesFolder ;
+	private File classesFolder ;
+	
+	@Override
+	protected void setUp() throws Exception {
+		templatesFolder = File.createTempFile("telosys-loader", "");
+		templatesFolder.delete();
+		classesFolder = new File(templatesFolder, "classes");
+		classesFolder.mkdirs();
+		ClassLoaderManager.setModificationCheckInterval(0); // check the files on each call
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		ClassLoaderManager.clear();
+		ClassLoaderManager.setModificationCheckInterval(2000);
+		delete(templatesFolder);
+	}
+	
+	private void delete(File file) {
+		File[] files = file.listFiles();
+		if ( files != null ) {
+			for ( File f : files ) {
+				delete(f);
+			}
+		}
+		file.delete();
+	}
+	
+	/**
+	 * Compiles the "MyTool" class in the "classes" folder 
+	 * @return false if no compiler is available (JRE)
+	 */
+	private boolean compileTool(String version) throws IOException {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if ( compiler == null ) {
+			System.out.println("No Java compiler available : test skipped");
+			return false ;
+		}
+		File sourceFolder = new File(templatesFolder, "src");
+		sourceFolder.mkdirs();
+		File source = new File(sourceFolder, "MyTool.java");
+		FileWriter writer = new FileWriter(source);
+		writer.write("public class MyTool { public String getVersion() { return \"" + version + "\"; } }");
+		writer.close();
+		int r = compiler.run(null, null, null, "-d", classesFolder.getAbsolutePath(), source.getAbsolutePath());
+		assertEquals(0, r);
+		return true ;
+	}
+	
+	private String getVersion(Object tool) throws Exception {
+		return (String) tool.getClass().getMethod("getVersion").invoke(tool);
+	}
+
+	public void testLoadClassWithCache() throws Exception {
+		if ( ! compileTool("1") ) return ;
+		
+		Loader loader = new Loader(templatesFolder.getAbsolutePath());
+		Class<?> class1 = loader.loadClass("MyTool");
+		Class<?> class2 = loader.loadClass("MyTool");
+		assertSame(class1, class2);
+		
+		// Another loader on the same templates folder => same class loader
+		Loader loader2 = new Loader(templatesFolder.getAbsolutePath() + "/");
+		assertSame(class1, loader2.loadClass("MyTool"));
+		assertEquals("1", getVersion(loader2.newInstance("MyTool")));
+	}
+
+	public void testReloadAfterChange() throws Exception {
+		if ( ! compileTool("1") ) return ;
+		
+		Loader loader = new Loader(templatesFolder.getAbsolutePath());
+		Class<?> class1 = loader.loadClass("MyTool");
+		assertEquals("1", getVersion(loader.newInstance("MyTool")));
+		
+		compileTool("2");
+		File classFile = new File(classesFolder, "MyTool.class");
+		classFile.setLastModified(classFile.lastModified() + 10000); // ensure a different timestamp
+		
+		Class<?> class2 = loader.loadClass("MyTool");
+		assertNotSame(class1, class2);
+		assertEquals("2", getVersion(loader.newInstance("MyTool")));
+		
+		// The replaced class loader is still usable ( not closed )
+		assertNotNull(class1.getClassLoader().getResource("MyTool.class"));
+		ClassLoaderManager.clear();
+		assertNotNull(class2.getClassLoader().getResource("MyTool.class"));
+	}
+
+	public void testSharedInstance() throws Exception {
+		if ( ! compileTool("1") ) return ;
+		
+		Map<String,Object> sharedInstances = new HashMap<String,Object>(); // one map per generation run
+		Loader loader1 = new Loader(templatesFolder.getAbsolutePath(), sharedInstances);
+		Loader loader2 = new Loader(templatesFolder.getAbsolutePath(), sharedInstances);
+		
+		Object tool = loader1.sharedInstance("MyTool");
+		assertSame(tool, loader1.sharedInstance("MyTool"));
+		assertSame(tool, loader2.sharedInstance("MyTool"));
+		assertNotSame(tool, loader1.newInstance("MyTool"));
+		
+		// Another generation run 
+		Loader loader3 = new Loader(templatesFolder.getAbsolutePath(), new HashMap<String,Object>());
+		assertNotSame(tool, loader3.sharedInstance("MyTool"));
+	}
+}
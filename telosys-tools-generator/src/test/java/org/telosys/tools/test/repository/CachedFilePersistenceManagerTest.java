@@ -0,0 +1,183 @@
+package org.telosys.tools.test.repository;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+
+import junit.framework.TestCase;
+
+import org.telosys.tools.repository.model.Entity;
+import org.telosys.tools.repository.model.RepositoryModel;
+import org.telosys.tools.repository.persistence.CachedFilePersistenceManager;
+import org.telosys.tools.repository.persistence.StandardFilePersistenceManager;
+
+public class CachedFilePersistenceManagerTest extends TestCase {
+
+	private final static String[] REPOSITORIES = {
+		"src/test/resources/repos/repo_for_tests.dbrep",
+		"src/test/resources/repos/DERBY-Tests-Jan-2014-10.dbrep" } ;
+	
+	private File tmpFolder ;
+	
+	@Override
+	protected void setUp() throws Exception {
+		tmpFolder = File.createTempFile("telosys-snapshot", "");
+		tmpFolder.delete();
+		tmpFolder.mkdirs();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		for ( File file : tmpFolder.listFiles() ) {
+			file.delete();
+		}
+		tmpFolder.delete();
+	}
+
+	private File copyToTmpFolder(String fileName) throws IOException {
+		File source = new File(fileName);
+		File copy = new File(tmpFolder, source.getName());
+		InputStream in = new FileInputStream(source);
+		OutputStream out = new FileOutputStream(copy);
+		try {
+			byte[] buffer = new byte[8192];
+			int n ;
+			while ( ( n = in.read(buffer) ) > 0 ) {
+				out.write(buffer, 0, n);
+			}
+		} finally {
+			in.close();
+			out.close();
+		}
+		return copy ;
+	}
+	
+	private String saveWithStandard(RepositoryModel model) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new StandardFilePersistenceManager("unused.dbrep", null).save(out, model);
+		return out.toString("UTF-8");
+	}
+	
+	public void testLoadFromSnapshot() throws Exception {
+		for ( String fileName : REPOSITORIES ) {
+			File file = copyToTmpFolder(fileName);
+			RepositoryModel standardModel = new StandardFilePersistenceManager(file, null).load();
+			
+			//--- First load : XML file 
+			CachedFilePersistenceManager pm = new CachedFilePersistenceManager(file, null);
+			assertFalse(pm.getSnapshotFile().exists());
+			RepositoryModel model1 = pm.load();
+			assertFalse(pm.isLoadedFromSnapshot());
+			assertTrue(pm.getSnapshotFile().exists());
+			
+			//--- Second load : snapshot 
+			CachedFilePersistenceManager pm2 = new CachedFilePersistenceManager(file, null);
+			RepositoryModel model2 = pm2.load();
+			assertTrue(pm2.isLoadedFromSnapshot());
+			
+			assertEquals(fileName, saveWithStandard(standardModel), saveWithStandard(model1));
+			assertEquals(fileName, saveWithStandard(standardModel), saveWithStandard(model2));
+		}
+	}
+
+	public void testOutOfDateSnapshot() throws Exception {
+		File file = copyToTmpFolder(REPOSITORIES[0]);
+		CachedFilePersistenceManager pm = new CachedFilePersistenceManager(file, null);
+		RepositoryModel model = pm.load();
+		
+		//--- Change the XML file with another tool
+		Entity entity = model.getEntities()[0];
+		entity.setBeanJavaClass(entity.getBeanJavaClass() + "X");
+		new StandardFilePersistenceManager(file, null).save(model);
+		
+		pm = new CachedFilePersistenceManager(file, null);
+		RepositoryModel model2 = pm.load();
+		assertFalse(pm.isLoadedFromSnapshot());
+		assertEquals(entity.getBeanJavaClass(), model2.getEntityByName(entity.getName()).getBeanJavaClass());
+
+		//--- Rebuilt snapshot 
+		pm = new CachedFilePersistenceManager(file, null);
+		model2 = pm.load();
+		assertTrue(pm.isLoadedFromSnapshot());
+		assertEquals(entity.getBeanJavaClass(), model2.getEntityByName(entity.getName()).getBeanJavaClass());
+	}
+
+	public void testSave() throws Exception {
+		File file = copyToTmpFolder(REPOSITORIES[0]);
+		CachedFilePersistenceManager pm = new CachedFilePersistenceManager(file, null);
+		RepositoryModel model = pm.load();
+		assertTrue(pm.getSnapshotFile().exists());
+		pm.save(model);
+		assertFalse(pm.getSnapshotFile().exists());
+		pm.load();
+		assertFalse(pm.isLoadedFromSnapshot());
+	}
+
+	public void testInvalidSnapshot() throws Exception {
+		File file = copyToTmpFolder(REPOSITORIES[0]);
+		CachedFilePersistenceManager pm = new CachedFilePersistenceManager(file, null);
+		String expected = saveWithStandard(pm.load());
+		
+		//--- Truncated snapshot 
+		RandomAccessFile raf = new RandomAccessFile(pm.getSnapshotFile(), "rw");
+		try {
+			raf.setLength(raf.length() / 2);
+		} finally {
+			raf.close();
+		}
+		RepositoryModel model = pm.load();
+		assertFalse(pm.isLoadedFromSnapshot());
+		assertEquals(expected, saveWithStandard(model));
+		
+		//--- Not a snapshot 
+		OutputStream out = new FileOutputStream(pm.getSnapshotFile());
+		try {
+			out.write("not a snapshot file, just text".getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+		model = pm.load();
+		assertFalse(pm.isLoadedFromSnapshot());
+		assertEquals(expected, saveWithStandard(model));
+		
+		//--- Rewritten 
+		model = pm.load();
+		assertTrue(pm.isLoadedFromSnapshot());
+		assertEquals(expected, saveWithStandard(model));
+	}
+
+	private void writeStringsCount(File snapshotFile, int count) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(snapshotFile, "rw");
+		try {
+			raf.seek(24); // after the header ( magic, version, source length, source checksum ) 
+			raf.writeInt(count);
+		} finally {
+			raf.close();
+		}
+	}
+	
+	public void testCorruptedCount() throws Exception {
+		File file = copyToTmpFolder(REPOSITORIES[0]);
+		CachedFilePersistenceManager pm = new CachedFilePersistenceManager(file, null);
+		String expected = saveWithStandard(pm.load());
+		
+		int[] corruptedCounts = { -1, Integer.MIN_VALUE, Integer.MAX_VALUE, (int) pm.getSnapshotFile().length() } ;
+		for ( int count : corruptedCounts ) {
+			writeStringsCount(pm.getSnapshotFile(), count);
+			RepositoryModel model = pm.load(); // no NegativeArraySizeException or OutOfMemoryError 
+			assertFalse(pm.isLoadedFromSnapshot());
+			assertEquals(expected, saveWithStandard(model));
+		}
+		
+		//--- Too few strings : invalid index in the records 
+		writeStringsCount(pm.getSnapshotFile(), 1);
+		RepositoryModel model = pm.load();
+		assertFalse(pm.isLoadedFromSnapshot());
+		assertEquals(expected, saveWithStandard(model));
+	}
+}
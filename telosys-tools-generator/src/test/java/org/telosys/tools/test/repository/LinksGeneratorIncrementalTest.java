@@ -0,0 +1,173 @@
+package org.telosys.tools.test.repository;
+
+import java.io.File;
+import java.sql.Types;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+
+import org.telosys.tools.commons.ConsoleLogger;
+import org.telosys.tools.db.metadata.ColumnMetaData;
+import org.telosys.tools.db.metadata.ForeignKeyColumnMetaData;
+import org.telosys.tools.db.metadata.PrimaryKeyColumnMetaData;
+import org.telosys.tools.db.metadata.TableMetaData;
+import org.telosys.tools.db.model.DatabaseTable;
+import org.telosys.tools.db.model.DatabaseTables;
+import org.telosys.tools.repository.LinksGenerator;
+import org.telosys.tools.repository.RepositoryUpdator;
+import org.telosys.tools.repository.UpdateLogWriter;
+import org.telosys.tools.repository.changes.RepositoryChanges;
+import org.telosys.tools.repository.config.EntityInformationProviderJava;
+import org.telosys.tools.repository.config.UserInterfaceInformationProviderHTML5;
+import org.telosys.tools.repository.model.Entity;
+import org.telosys.tools.repository.model.Link;
+import org.telosys.tools.repository.model.RepositoryModel;
+
+public class LinksGeneratorIncrementalTest extends TestCase {
+
+	private File logFile ;
+	
+	@Override
+	protected void setUp() throws Exception {
+		logFile = File.createTempFile("telosys-update", ".log");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		logFile.delete();
+	}
+
+	private RepositoryUpdator createUpdator() {
+		return new RepositoryUpdator(new EntityInformationProviderJava(), new UserInterfaceInformationProviderHTML5(), 
+				new ConsoleLogger(), new UpdateLogWriter(logFile));
+	}
+	
+	private static class TestDatabaseTables extends DatabaseTables {
+		TestDatabaseTables add(DatabaseTable table) {
+			addTable(table);
+			return this ;
+		}
+	}
+	
+	private static class TableBuilder {
+		private final String tableName ;
+		private final List<ColumnMetaData> columns = new LinkedList<ColumnMetaData>();
+		private final List<PrimaryKeyColumnMetaData> pkColumns = new LinkedList<PrimaryKeyColumnMetaData>();
+		private final List<ForeignKeyColumnMetaData> fkColumns = new LinkedList<ForeignKeyColumnMetaData>();
+		
+		TableBuilder(String tableName) {
+			this.tableName = tableName ;
+		}
+		TableBuilder pk(String name) {
+			column(name);
+			pkColumns.add(new PrimaryKeyColumnMetaData(null, null, tableName, name, (short) pkColumns.size(), "PK_" + tableName));
+			return this ;
+		}
+		TableBuilder column(String name) {
+			columns.add(new ColumnMetaData(null, null, tableName, name, Types.INTEGER, "INTEGER", false, 10, 0, 10, 
+					10, columns.size() + 1, null, ""));
+			return this ;
+		}
+		TableBuilder fk(String fkName, String column, String refTable) {
+			fkColumns.add(new ForeignKeyColumnMetaData(null, null, refTable, "ID", null, null, tableName, column, 
+					(short) 1, (short) 0, (short) 0, fkName, "PK_" + refTable, (short) 0));
+			return this ;
+		}
+		DatabaseTable build() {
+			return new DatabaseTable(new TableMetaData(tableName, "TABLE", null, null, ""), columns, pkColumns, fkColumns);
+		}
+	}
+	
+	/**
+	 * AUTHOR, PUBLISHER, BOOK --> AUTHOR
+	 */
+	private DatabaseTables buildDatabaseV1() {
+		return new TestDatabaseTables()
+			.add( new TableBuilder("AUTHOR").pk("ID").build() )
+			.add( new TableBuilder("PUBLISHER").pk("ID").build() )
+			.add( new TableBuilder("BOOK").pk("ID").column("AUTHOR_ID").column("PUBLISHER_ID")
+					.fk("FK_BOOK_AUTHOR", "AUTHOR_ID", "AUTHOR").build() );
+	}
+	
+	/**
+	 * BOOK --> PUBLISHER ( instead of AUTHOR ), REVIEW --> BOOK added, AUTHOR_BOOK join table added 
+	 */
+	private DatabaseTables buildDatabaseV2() {
+		return new TestDatabaseTables()
+			.add( new TableBuilder("AUTHOR").pk("ID").build() )
+			.add( new TableBuilder("PUBLISHER").pk("ID").build() )
+			.add( new TableBuilder("BOOK").pk("ID").column("AUTHOR_ID").column("PUBLISHER_ID")
+					.fk("FK_BOOK_PUBLISHER", "PUBLISHER_ID", "PUBLISHER").build() )
+			.add( new TableBuilder("REVIEW").pk("ID").column("BOOK_ID")
+					.fk("FK_REVIEW_BOOK", "BOOK_ID", "BOOK").build() )
+			.add( new TableBuilder("AUTHOR_BOOK").pk("AUTHOR_ID").pk("BOOK_ID")
+					.fk("FK_AB_AUTHOR", "AUTHOR_ID", "AUTHOR").fk("FK_AB_BOOK", "BOOK_ID", "BOOK").build() );
+	}
+	
+	/**
+	 * REVIEW and AUTHOR_BOOK removed 
+	 */
+	private DatabaseTables buildDatabaseV3() {
+		return new TestDatabaseTables()
+			.add( new TableBuilder("AUTHOR").pk("ID").build() )
+			.add( new TableBuilder("PUBLISHER").pk("ID").build() )
+			.add( new TableBuilder("BOOK").pk("ID").column("AUTHOR_ID").column("PUBLISHER_ID")
+					.fk("FK_BOOK_PUBLISHER", "PUBLISHER_ID", "PUBLISHER").build() );
+	}
+	
+	private RepositoryModel buildFullModel(DatabaseTables database) throws Exception {
+		RepositoryModel model = new RepositoryModel();
+		update(model, database);
+		new LinksGenerator(null).generateAllLinks(model);
+		return model ;
+	}
+	
+	private Set<String> getLinksIds(RepositoryModel model) {
+		Set<String> ids = new TreeSet<String>();
+		for ( Entity entity : model.getEntitiesCollection() ) {
+			for ( Link link : entity.getLinksCollection() ) {
+				ids.add( entity.getName() + ":" + link.getId() + ":" + link.getComparableString() );
+			}
+		}
+		return ids ;
+	}
+	
+	private RepositoryChanges update(RepositoryModel model, DatabaseTables database) throws Exception {
+		RepositoryUpdator updator = createUpdator();
+		RepositoryChanges changes = updator.computeChanges(model, database);
+		updator.applyChanges(model, changes);
+		return changes ;
+	}
+	
+	public void testIncrementalGeneration() throws Exception {
+		LinksGenerator linksGenerator = new LinksGenerator(null);
+		RepositoryModel model = buildFullModel(buildDatabaseV1());
+		assertNotNull(model.getLinkById("LINK_FK_FK_BOOK_AUTHOR_O"));
+		
+		//--- V1 --> V2 
+		RepositoryChanges changes = update(model, buildDatabaseV2());
+		assertEquals(6, linksGenerator.generateChangedLinks(model, changes));
+		assertNull(model.getLinkById("LINK_FK_FK_BOOK_AUTHOR_O"));
+		assertNull(model.getLinkById("LINK_FK_FK_BOOK_AUTHOR_I"));
+		assertNotNull(model.getLinkById("LINK_FK_FK_BOOK_PUBLISHER_O"));
+		assertNotNull(model.getLinkById("LINK_FK_FK_REVIEW_BOOK_I"));
+		assertNotNull(model.getLinkById("LINK_JT_AUTHOR_BOOK_O"));
+		assertEquals(getLinksIds(buildFullModel(buildDatabaseV2())), getLinksIds(model));
+		
+		//--- V2 --> V3 
+		changes = update(model, buildDatabaseV3());
+		assertEquals(0, linksGenerator.generateChangedLinks(model, changes));
+		assertNull(model.getLinkById("LINK_FK_FK_REVIEW_BOOK_I"));
+		assertNull(model.getLinkById("LINK_JT_AUTHOR_BOOK_O"));
+		assertNull(model.getLinkById("LINK_JT_AUTHOR_BOOK_I"));
+		assertEquals(getLinksIds(buildFullModel(buildDatabaseV3())), getLinksIds(model));
+		
+		//--- No change 
+		changes = update(model, buildDatabaseV3());
+		assertEquals(0, linksGenerator.generateChangedLinks(model, changes));
+		assertEquals(getLinksIds(buildFullModel(buildDatabaseV3())), getLinksIds(model));
+	}
+}
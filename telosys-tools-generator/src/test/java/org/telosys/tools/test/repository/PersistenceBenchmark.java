@@ -0,0 +1,139 @@
+package org.telosys.tools.test.repository;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.telosys.tools.commons.TelosysToolsException;
+import org.telosys.tools.repository.model.RepositoryModel;
+import org.telosys.tools.repository.persistence.CachedFilePersistenceManager;
+import org.telosys.tools.repository.persistence.PersistenceManager;
+import org.telosys.tools.repository.persistence.StandardFilePersistenceManager;
+import org.telosys.tools.repository.persistence.StreamingFilePersistenceManager;
+
+/**
+ * Load/save timing and heap usage of the repository persistence managers (DOM, streaming, snapshot) <br>
+ * on a large synthetic repository (the tables of "repo_for_tests.dbrep" duplicated N times) <br>
+ * Usage : launch from the project folder ( "telosys-tools-generator" ) with the number of copies as argument
+ *
+ * @author Laurent Guerin
+ *
+ */
+public class PersistenceBenchmark {
+
+	private final static String REPOSITORY_FILE = "src/test/resources/repos/repo_for_tests.dbrep" ;
+
+	private final static String OUTPUT_FOLDER = "../../../target/BENCH_REPOS" ; // out of the sources
+	
+	private final static int DEFAULT_COPIES = 1000 ;
+
+	private final static int RUNS = 3 ;
+
+	public static void main(String[] args) throws Exception {
+		int copies = ( args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_COPIES ) ;
+		
+		File folder = new File(OUTPUT_FOLDER);
+		folder.mkdirs();
+		File synthetic = new File(folder, "synthetic.dbrep");
+		buildSyntheticRepository(copies, synthetic);
+		RepositoryModel model = new StreamingFilePersistenceManager(synthetic, null).load();
+		System.out.println("Synthetic repository : " + model.getNumberOfEntities() + " entities, " 
+				+ ( synthetic.length() / 1024 ) + " KB" );
+		model = null ;
+		new CachedFilePersistenceManager(synthetic, null).load(); // writes the snapshot 
+		System.out.println("Snapshot : " + ( new File(synthetic.getPath() + CachedFilePersistenceManager.SNAPSHOT_SUFFIX).length() / 1024 ) + " KB" );
+		
+		for ( int run = 1 ; run <= RUNS ; run++ ) {
+			System.out.println("Run #" + run + " :");
+			bench("DOM      ", new StandardFilePersistenceManager(synthetic, null), 
+					new StandardFilePersistenceManager(new File(folder, "standard.dbrep"), null) );
+			bench("Streaming", new StreamingFilePersistenceManager(synthetic, null), 
+					new StreamingFilePersistenceManager(new File(folder, "streaming.dbrep"), null) );
+			bench("Snapshot ", new CachedFilePersistenceManager(synthetic, null), 
+					new CachedFilePersistenceManager(new File(folder, "cached.dbrep"), null) );
+		}
+	}
+	
+	private static void bench(String name, PersistenceManager loader, PersistenceManager writer) throws TelosysToolsException {
+		resetPeakHeap();
+		long t0 = System.currentTimeMillis();
+		RepositoryModel model = loader.load();
+		long loadTime = System.currentTimeMillis() - t0 ;
+		long loadHeap = getPeakHeap();
+		
+		resetPeakHeap();
+		t0 = System.currentTimeMillis();
+		writer.save(model);
+		long saveTime = System.currentTimeMillis() - t0 ;
+		long saveHeap = getPeakHeap();
+		
+		System.out.println(" " + name + " : load " + loadTime + " ms ( peak heap " + ( loadHeap / (1024*1024) ) + " MB ), "
+				+ "save " + saveTime + " ms ( peak heap " + ( saveHeap / (1024*1024) ) + " MB )" );
+	}
+
+	private static void resetPeakHeap() {
+		System.gc();
+		for ( MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans() ) {
+			if ( pool.getType() == MemoryType.HEAP ) {
+				pool.resetPeakUsage();
+			}
+		}
+	}
+	
+	private static long getPeakHeap() {
+		long peak = 0 ;
+		for ( MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans() ) {
+			if ( pool.getType() == MemoryType.HEAP ) {
+				peak = peak + pool.getPeakUsage().getUsed() ;
+			}
+		}
+		return peak ;
+	}
+
+	/**
+	 * Writes a repository file with the tables of the test repository duplicated N times ( "NAME" => "NAME_n" )
+	 * @param copies
+	 * @param file
+	 * @throws Exception
+	 */
+	private static void buildSyntheticRepository(int copies, File file) throws Exception {
+		String xml = readFile(new File(REPOSITORY_FILE));
+		int start = xml.indexOf("<table ");
+		int end = xml.lastIndexOf("</tableList>");
+		String header = xml.substring(0, start);
+		String tables = xml.substring(start, end);
+		String footer = xml.substring(end);
+		
+		Pattern tableName = Pattern.compile("(<table [^>]*name=\")([^\"]*)(\")");
+		Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			out.write(header);
+			for ( int i = 1 ; i <= copies ; i++ ) {
+				Matcher m = tableName.matcher(tables);
+				out.write( m.replaceAll("$1$2_" + i + "$3") );
+			}
+			out.write(footer);
+		} finally {
+			out.close();
+		}
+	}
+	
+	private static String readFile(File file) throws Exception {
+		byte[] bytes = new byte[(int) file.length()];
+		DataInputStream in = new DataInputStream(new FileInputStream(file));
+		try {
+			in.readFully(bytes);
+		} finally {
+			in.close();
+		}
+		return new String(bytes, "UTF-8");
+	}
+}
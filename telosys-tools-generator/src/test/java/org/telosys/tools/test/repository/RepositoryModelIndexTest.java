@@ -0,0 +1,157 @@
+package org.telosys.tools.test.repository;
+
+import junit.framework.TestCase;
+
+import org.telosys.tools.repository.model.Entity;
+import org.telosys.tools.repository.model.ForeignKey;
+import org.telosys.tools.repository.model.Link;
+import org.telosys.tools.repository.model.RelationLinks;
+import org.telosys.tools.repository.model.RepositoryModel;
+import org.telosys.tools.repository.persistence.StandardFilePersistenceManager;
+
+public class RepositoryModelIndexTest extends TestCase {
+
+	private Entity buildEntity(String name) {
+		Entity entity = new Entity();
+		entity.setName(name);
+		entity.setBeanJavaClass(name);
+		return entity ;
+	}
+	
+	private ForeignKey buildForeignKey(String name) {
+		ForeignKey fk = new ForeignKey();
+		fk.setName(name);
+		return fk ;
+	}
+	
+	private Link buildLink(String id, String source, String target, boolean owningSide, String inverseSideOf) {
+		Link link = new Link();
+		link.setId(id);
+		link.setSourceTableName(source);
+		link.setTargetTableName(target);
+		link.setOwningSide(owningSide);
+		link.setInverseSideOf(inverseSideOf);
+		return link ;
+	}
+	
+	/**
+	 * BOOK ( FK_BOOK_AUTHOR ) --> AUTHOR 
+	 * @return
+	 */
+	private RepositoryModel buildModel() {
+		RepositoryModel model = new RepositoryModel();
+		Entity author = buildEntity("AUTHOR");
+		Entity book = buildEntity("BOOK");
+		book.storeForeignKey(buildForeignKey("FK_BOOK_AUTHOR"));
+		book.storeLink(buildLink("LINK_FK_FK_BOOK_AUTHOR_O", "BOOK", "AUTHOR", true, ""));
+		model.storeEntity(book);
+		model.storeEntity(author);
+		//--- Link added after the entity ( the entity updates the model indexes )
+		author.storeLink(buildLink("LINK_FK_FK_BOOK_AUTHOR_I", "AUTHOR", "BOOK", false, "LINK_FK_FK_BOOK_AUTHOR_O"));
+		return model ;
+	}
+	
+	public void testLookup() {
+		RepositoryModel model = buildModel();
+		
+		Link owningSide = model.getLinkById("LINK_FK_FK_BOOK_AUTHOR_O");
+		Link inverseSide = model.getLinkById("LINK_FK_FK_BOOK_AUTHOR_I");
+		assertNotNull(owningSide);
+		assertNotNull(inverseSide);
+		assertNull(model.getLinkById("NONE"));
+		assertNull(model.getLinkById(null));
+		
+		RelationLinks relation = model.getRelationByLinkId("LINK_FK_FK_BOOK_AUTHOR_O");
+		assertSame(owningSide, relation.getOwningSideLink());
+		assertSame(inverseSide, relation.getInverseSideLink());
+		relation = model.getRelationByLinkId("LINK_FK_FK_BOOK_AUTHOR_I");
+		assertSame(owningSide, relation.getOwningSideLink());
+		assertSame(inverseSide, relation.getInverseSideLink());
+		assertNull(model.getRelationByLinkId("NONE"));
+		
+		assertSame(model.getEntityByName("BOOK").getForeignKey("FK_BOOK_AUTHOR"), model.getForeignKeyByName("FK_BOOK_AUTHOR"));
+		assertNull(model.getForeignKeyByName("NONE"));
+		
+		assertEquals(1, model.getLinksByTargetTableName("AUTHOR").length);
+		assertSame(owningSide, model.getLinksByTargetTableName("AUTHOR")[0]);
+		assertEquals(1, model.getLinksByTargetTableName("BOOK").length);
+		assertEquals(0, model.getLinksByTargetTableName("NONE").length);
+	}
+
+	public void testRemoveLink() {
+		RepositoryModel model = buildModel();
+		model.removeLinkById("LINK_FK_FK_BOOK_AUTHOR_I");
+		assertNull(model.getLinkById("LINK_FK_FK_BOOK_AUTHOR_I"));
+		assertEquals(0, model.getLinksByTargetTableName("BOOK").length);
+		RelationLinks relation = model.getRelationByLinkId("LINK_FK_FK_BOOK_AUTHOR_O");
+		assertNotNull(relation.getOwningSideLink());
+		assertNull(relation.getInverseSideLink());
+		
+		model.removeAllLinks();
+		assertNull(model.getLinkById("LINK_FK_FK_BOOK_AUTHOR_O"));
+		assertNull(model.getRelationByLinkId("LINK_FK_FK_BOOK_AUTHOR_O"));
+		assertEquals(0, model.getLinksByTargetTableName("AUTHOR").length);
+		assertNotNull(model.getForeignKeyByName("FK_BOOK_AUTHOR")); // not a link
+	}
+
+	public void testRemoveEntity() {
+		RepositoryModel model = buildModel();
+		Entity book = model.getEntityByName("BOOK");
+		model.removeEntity("BOOK");
+		assertNull(model.getLinkById("LINK_FK_FK_BOOK_AUTHOR_O"));
+		assertNull(model.getForeignKeyByName("FK_BOOK_AUTHOR"));
+		assertNotNull(model.getLinkById("LINK_FK_FK_BOOK_AUTHOR_I"));
+		
+		//--- The removed entity doesn't change the model anymore
+		book.removeAllLinks();
+		book.storeLink(buildLink("LINK_X", "BOOK", "AUTHOR", true, ""));
+		assertNull(model.getLinkById("LINK_X"));
+		
+		//--- Stored again 
+		model.storeEntity(book);
+		assertNotNull(model.getLinkById("LINK_X"));
+		assertNotNull(model.getForeignKeyByName("FK_BOOK_AUTHOR"));
+	}
+
+	public void testReplace() {
+		RepositoryModel model = buildModel();
+		
+		//--- Same link id in the same entity 
+		Link newLink = buildLink("LINK_FK_FK_BOOK_AUTHOR_O", "BOOK", "AUTHOR", true, "");
+		model.getEntityByName("BOOK").storeLink(newLink);
+		assertSame(newLink, model.getLinkById("LINK_FK_FK_BOOK_AUTHOR_O"));
+		assertEquals(1, model.getLinksByTargetTableName("AUTHOR").length);
+		
+		//--- Same entity name 
+		Entity newBook = buildEntity("BOOK");
+		model.storeEntity(newBook);
+		assertNull(model.getLinkById("LINK_FK_FK_BOOK_AUTHOR_O"));
+		assertNull(model.getForeignKeyByName("FK_BOOK_AUTHOR"));
+		
+		//--- Same FK name in 2 entities => the first entity in alphabetic order
+		ForeignKey fk1 = buildForeignKey("FK_SAME");
+		ForeignKey fk2 = buildForeignKey("FK_SAME");
+		newBook.storeForeignKey(fk1);
+		model.getEntityByName("AUTHOR").storeForeignKey(fk2);
+		assertSame(fk2, model.getForeignKeyByName("FK_SAME"));
+		model.getEntityByName("AUTHOR").removeForeignKey(fk2);
+		assertSame(fk1, model.getForeignKeyByName("FK_SAME"));
+	}
+
+	public void testLoadedModel() throws Exception {
+		RepositoryModel model = new StandardFilePersistenceManager("src/test/resources/repos/repo_for_tests.dbrep", null).load();
+		int n = 0 ;
+		for ( Entity entity : model.getEntities() ) {
+			for ( Link link : entity.getLinks() ) {
+				assertSame(link, model.getLinkById(link.getId()));
+				RelationLinks relation = model.getRelationByLinkId(link.getId());
+				assertTrue(relation.getOwningSideLink() == link || relation.getInverseSideLink() == link);
+				n++ ;
+			}
+			for ( ForeignKey fk : entity.getForeignKeys() ) {
+				assertSame(fk, model.getForeignKeyByName(fk.getName()));
+			}
+		}
+		assertTrue(n > 0);
+	}
+}
@@ -0,0 +1,124 @@
+package org.telosys.tools.test.repository;
+
+import org.telosys.tools.repository.model.Entity;
+import org.telosys.tools.repository.model.ForeignKey;
+import org.telosys.tools.repository.model.Link;
+import org.telosys.tools.repository.model.RepositoryModel;
+
+/**
+ * Links and foreign keys lookup timing in the repository model for different model sizes <br>
+ * ( indexed lookup vs full scan of the sorted entities as done before the model indexes ) <br>
+ * Each entity has 1 foreign key and 2 links ( owning side + inverse side ) 
+ *
+ * @author Laurent Guerin
+ *
+ */
+public class RepositoryModelLookupBenchmark {
+
+	private final static int[] MODEL_SIZES = { 100, 500, 1000, 2000 } ;
+
+	public static void main(String[] args) throws Exception {
+		for ( int size : MODEL_SIZES ) {
+			RepositoryModel model = buildModel(size);
+			lookupAll(model, size); // warm up
+			scanAll(model, size);   // warm up
+			
+			long t0 = System.nanoTime();
+			int found = lookupAll(model, size);
+			long indexed = System.nanoTime() - t0 ;
+			
+			t0 = System.nanoTime();
+			int scanned = scanAll(model, size);
+			long scan = System.nanoTime() - t0 ;
+			
+			if ( found != scanned ) {
+				throw new IllegalStateException("Different results : " + found + " / " + scanned);
+			}
+			System.out.println(size + " entities : " + found + " lookups : indexed " + ( indexed / 1000000 ) + " ms ("
+					+ ( indexed / found ) + " ns per lookup), scan " + ( scan / 1000000 ) + " ms ("
+					+ ( scan / found ) + " ns per lookup)" );
+		}
+	}
+	
+	private static RepositoryModel buildModel(int size) {
+		RepositoryModel model = new RepositoryModel();
+		for ( int i = 0 ; i < size ; i++ ) {
+			Entity entity = new Entity();
+			entity.setName("TABLE_" + i);
+			model.storeEntity(entity);
+		}
+		for ( int i = 0 ; i < size ; i++ ) {
+			String source = "TABLE_" + i ;
+			String target = "TABLE_" + ( ( i + 1 ) % size ) ;
+			ForeignKey fk = new ForeignKey();
+			fk.setName("FK_" + i);
+			model.getEntityByName(source).storeForeignKey(fk);
+			model.getEntityByName(source).storeLink( buildLink("LINK_O_" + i, source, target, true, "") );
+			model.getEntityByName(target).storeLink( buildLink("LINK_I_" + i, target, source, false, "LINK_O_" + i) );
+		}
+		return model ;
+	}
+	
+	private static Link buildLink(String id, String source, String target, boolean owningSide, String inverseSideOf) {
+		Link link = new Link();
+		link.setId(id);
+		link.setSourceTableName(source);
+		link.setTargetTableName(target);
+		link.setOwningSide(owningSide);
+		link.setInverseSideOf(inverseSideOf);
+		return link ;
+	}
+	
+	private static int lookupAll(RepositoryModel model, int size) {
+		int found = 0 ;
+		for ( int i = 0 ; i < size ; i++ ) {
+			if ( model.getLinkById("LINK_I_" + i) != null ) found++ ;
+			if ( model.getRelationByLinkId("LINK_O_" + i).getInverseSideLink() != null ) found++ ;
+			if ( model.getForeignKeyByName("FK_" + i) != null ) found++ ;
+		}
+		return found ;
+	}
+	
+	//--- Same lookups with a scan of the entities
+	private static int scanAll(RepositoryModel model, int size) {
+		int found = 0 ;
+		for ( int i = 0 ; i < size ; i++ ) {
+			if ( scanLinkById(model, "LINK_I_" + i) != null ) found++ ;
+			if ( scanLinkById(model, "LINK_O_" + i) != null && scanInverseSide(model, "LINK_O_" + i) != null ) found++ ;
+			if ( scanForeignKeyByName(model, "FK_" + i) != null ) found++ ;
+		}
+		return found ;
+	}
+	
+	private static Link scanLinkById(RepositoryModel model, String id) {
+		for ( Entity entity : model.getEntities() ) {
+			for ( Link link : entity.getLinks() ) {
+				if ( id.equals( link.getId() ) ) {
+					return link ;
+				}
+			}
+		}
+		return null ;
+	}
+	
+	private static Link scanInverseSide(RepositoryModel model, String id) {
+		for ( Entity entity : model.getEntities() ) {
+			for ( Link link : entity.getLinks() ) {
+				if ( ! link.isOwningSide() && id.equals( link.getInverseSideOf() ) ) {
+					return link ;
+				}
+			}
+		}
+		return null ;
+	}
+	
+	private static ForeignKey scanForeignKeyByName(RepositoryModel model, String name) {
+		for ( Entity entity : model.getEntities() ) {
+			ForeignKey fk = entity.getForeignKey(name);
+			if ( fk != null ) {
+				return fk ;
+			}
+		}
+		return null ;
+	}
+}
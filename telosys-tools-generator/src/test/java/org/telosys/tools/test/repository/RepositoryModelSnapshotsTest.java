@@ -0,0 +1,158 @@
+package org.telosys.tools.test.repository;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.telosys.tools.repository.model.Column;
+import org.telosys.tools.repository.model.Entity;
+import org.telosys.tools.repository.model.ForeignKey;
+import org.telosys.tools.repository.model.RepositoryModel;
+
+public class RepositoryModelSnapshotsTest extends TestCase {
+
+	private Column buildColumn(String name, int position) {
+		Column column = new Column();
+		column.setDatabaseName(name);
+		column.setDatabasePosition(position);
+		return column ;
+	}
+	
+	private Entity buildEntity(String name) {
+		Entity entity = new Entity();
+		entity.setName(name);
+		return entity ;
+	}
+	
+	public void testColumns() {
+		Entity entity = buildEntity("BOOK");
+		entity.storeColumn(buildColumn("TITLE", 2));
+		entity.storeColumn(buildColumn("ID", 1));
+		entity.storeColumn(buildColumn("PRICE", 3));
+		
+		Collection<Column> columns = entity.getColumnsCollection();
+		assertSame(columns, entity.getColumnsCollection()); // no change => same snapshot
+		assertEquals("ID", columns.iterator().next().getDatabaseName());
+		Column[] array = entity.getColumns();
+		assertEquals(3, array.length);
+		assertEquals("ID",    array[0].getDatabaseName());
+		assertEquals("TITLE", array[1].getDatabaseName());
+		assertEquals("PRICE", array[2].getDatabaseName());
+		
+		//--- The array is a copy 
+		array[0] = null ;
+		assertNotNull(entity.getColumns()[0]);
+		
+		//--- The collection is unmodifiable 
+		try {
+			columns.clear();
+			fail("Exception expected");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		
+		//--- Changes => new snapshot 
+		entity.removeColumn(entity.getColumn("ID"));
+		entity.storeColumn(buildColumn("AUTHOR", 0));
+		assertEquals(3, columns.size()); // previous snapshot not changed
+		Collection<Column> columns2 = entity.getColumnsCollection();
+		assertNotSame(columns, columns2);
+		Iterator<Column> iterator = columns2.iterator();
+		assertEquals("AUTHOR", iterator.next().getDatabaseName());
+		assertEquals("TITLE",  iterator.next().getDatabaseName());
+		assertEquals("PRICE",  iterator.next().getDatabaseName());
+		assertFalse(iterator.hasNext());
+	}
+
+	public void testForeignKeys() {
+		Entity entity = buildEntity("BOOK");
+		for ( String name : new String[] { "FK_B", "FK_C", "FK_A" } ) {
+			ForeignKey fk = new ForeignKey();
+			fk.setName(name);
+			entity.storeForeignKey(fk);
+		}
+		Collection<ForeignKey> foreignKeys = entity.getForeignKeysCollection();
+		assertSame(foreignKeys, entity.getForeignKeysCollection());
+		ForeignKey[] array = entity.getForeignKeys();
+		assertEquals("FK_A", array[0].getName());
+		assertEquals("FK_B", array[1].getName());
+		assertEquals("FK_C", array[2].getName());
+		
+		entity.removeForeignKey(array[0]);
+		assertEquals(3, foreignKeys.size());
+		assertEquals(2, entity.getForeignKeysCollection().size());
+		assertEquals("FK_B", entity.getForeignKeys()[0].getName());
+	}
+
+	public void testEntities() {
+		RepositoryModel model = new RepositoryModel();
+		model.storeEntity(buildEntity("CUSTOMER"));
+		model.storeEntity(buildEntity("AUTHOR"));
+		model.storeEntity(buildEntity("BOOK"));
+		
+		List<String> names = model.getEntitiesNamesList();
+		assertSame(names, model.getEntitiesNamesList());
+		assertEquals("AUTHOR",   names.get(0));
+		assertEquals("BOOK",     names.get(1));
+		assertEquals("CUSTOMER", names.get(2));
+		String[] namesArray = model.getEntitiesNames();
+		assertEquals(3, namesArray.length);
+		assertEquals("AUTHOR", namesArray[0]);
+		
+		Collection<Entity> entities = model.getEntitiesCollection();
+		assertSame(entities, model.getEntitiesCollection());
+		assertEquals("AUTHOR", model.getEntities()[0].getName());
+		
+		//--- Remove during iteration ( iteration on a snapshot )
+		for ( String name : model.getEntitiesNamesList() ) {
+			if ( name.startsWith("B") ) {
+				model.removeEntity(name);
+			}
+		}
+		model.storeEntity(buildEntity("ACTOR"));
+		assertEquals(3, names.size());
+		names = model.getEntitiesNamesList();
+		assertEquals(3, names.size());
+		assertEquals("ACTOR",    names.get(0));
+		assertEquals("AUTHOR",   names.get(1));
+		assertEquals("CUSTOMER", names.get(2));
+		assertEquals("ACTOR", model.getEntities()[0].getName());
+	}
+
+	public void testConcurrentReads() throws Exception {
+		final Entity entity = buildEntity("BOOK");
+		for ( int i = 0 ; i < 200 ; i++ ) {
+			entity.storeColumn(buildColumn("COL_" + i, 200 - i));
+		}
+		final int[] errors = new int[1] ;
+		Thread[] threads = new Thread[4];
+		for ( int t = 0 ; t < threads.length ; t++ ) {
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for ( int n = 0 ; n < 1000 ; n++ ) {
+						int previous = Integer.MIN_VALUE ;
+						for ( Column column : entity.getColumnsCollection() ) {
+							if ( column.getDatabasePosition() < previous ) {
+								synchronized (errors) { errors[0]++ ; }
+							}
+							previous = column.getDatabasePosition() ;
+						}
+					}
+				}
+			};
+			threads[t].start();
+		}
+		//--- Concurrent updates 
+		for ( int i = 0 ; i < 200 ; i++ ) {
+			entity.storeColumn(buildColumn("NEW_" + i, 1000 + i));
+		}
+		for ( Thread thread : threads ) {
+			thread.join();
+		}
+		assertEquals(0, errors[0]);
+		assertEquals(400, entity.getColumnsCollection().size());
+	}
+}
@@ -0,0 +1,169 @@
+package org.telosys.tools.test.repository;
+
+import java.io.File;
+import java.sql.Types;
+import java.util.LinkedList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.telosys.tools.commons.ConsoleLogger;
+import org.telosys.tools.db.metadata.ColumnMetaData;
+import org.telosys.tools.db.metadata.ForeignKeyColumnMetaData;
+import org.telosys.tools.db.metadata.PrimaryKeyColumnMetaData;
+import org.telosys.tools.db.metadata.TableMetaData;
+import org.telosys.tools.db.model.DatabaseTable;
+import org.telosys.tools.db.model.DatabaseTables;
+import org.telosys.tools.repository.RepositoryUpdator;
+import org.telosys.tools.repository.UpdateLogWriter;
+import org.telosys.tools.repository.changes.AttributeChange;
+import org.telosys.tools.repository.changes.Change;
+import org.telosys.tools.repository.changes.ColumnChange;
+import org.telosys.tools.repository.changes.EntityChange;
+import org.telosys.tools.repository.changes.RepositoryChanges;
+import org.telosys.tools.repository.config.EntityInformationProviderJava;
+import org.telosys.tools.repository.config.UserInterfaceInformationProviderHTML5;
+import org.telosys.tools.repository.model.RepositoryModel;
+
+public class RepositoryUpdatorChangesTest extends TestCase {
+
+	private File logFile ;
+	
+	@Override
+	protected void setUp() throws Exception {
+		logFile = File.createTempFile("telosys-update", ".log");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		logFile.delete();
+	}
+
+	private RepositoryUpdator createUpdator() {
+		return new RepositoryUpdator(new EntityInformationProviderJava(), new UserInterfaceInformationProviderHTML5(), 
+				new ConsoleLogger(), new UpdateLogWriter(logFile));
+	}
+	
+	private static class TestDatabaseTables extends DatabaseTables {
+		void add(DatabaseTable table) {
+			addTable(table);
+		}
+	}
+	
+	private static class TableBuilder {
+		private final String tableName ;
+		private final List<ColumnMetaData> columns = new LinkedList<ColumnMetaData>();
+		private final List<PrimaryKeyColumnMetaData> pkColumns = new LinkedList<PrimaryKeyColumnMetaData>();
+		private final List<ForeignKeyColumnMetaData> fkColumns = new LinkedList<ForeignKeyColumnMetaData>();
+		
+		TableBuilder(String tableName) {
+			this.tableName = tableName ;
+		}
+		TableBuilder pk(String name) {
+			column(name, Types.INTEGER, "INTEGER", 10);
+			pkColumns.add(new PrimaryKeyColumnMetaData(null, null, tableName, name, (short) 1, "PK_" + tableName));
+			return this ;
+		}
+		TableBuilder column(String name, int typeCode, String typeName, int size) {
+			columns.add(new ColumnMetaData(null, null, tableName, name, typeCode, typeName, false, size, 0, 10, 
+					size, columns.size() + 1, null, ""));
+			return this ;
+		}
+		TableBuilder fk(String fkName, String column, String refTable, String refColumn) {
+			fkColumns.add(new ForeignKeyColumnMetaData(null, null, refTable, refColumn, null, null, tableName, column, 
+					(short) 1, (short) 0, (short) 0, fkName, "PK_" + refTable, (short) 0));
+			return this ;
+		}
+		DatabaseTable build() {
+			return new DatabaseTable(new TableMetaData(tableName, "TABLE", null, null, ""), columns, pkColumns, fkColumns);
+		}
+	}
+	
+	/**
+	 * Version 1 : AUTHOR, BOOK ( with FK to AUTHOR )
+	 * @return
+	 */
+	private DatabaseTables buildDatabaseV1() {
+		TestDatabaseTables tables = new TestDatabaseTables();
+		tables.add( new TableBuilder("AUTHOR").pk("ID").column("NAME", Types.VARCHAR, "VARCHAR", 40).build() );
+		tables.add( new TableBuilder("BOOK").pk("ID").column("TITLE", Types.VARCHAR, "VARCHAR", 50)
+				.column("AUTHOR_ID", Types.INTEGER, "INTEGER", 10).column("OLD", Types.INTEGER, "INTEGER", 10)
+				.fk("FK_BOOK_AUTHOR", "AUTHOR_ID", "AUTHOR", "ID").build() );
+		return tables ;
+	}
+	
+	/**
+	 * Version 2 : AUTHOR removed, BOOK updated, PUBLISHER added
+	 * @return
+	 */
+	private DatabaseTables buildDatabaseV2() {
+		TestDatabaseTables tables = new TestDatabaseTables();
+		tables.add( new TableBuilder("BOOK").pk("ID").column("TITLE", Types.VARCHAR, "VARCHAR", 100)
+				.column("AUTHOR_ID", Types.INTEGER, "INTEGER", 10).column("PRICE", Types.DECIMAL, "DECIMAL", 10).build() );
+		tables.add( new TableBuilder("PUBLISHER").pk("ID").build() );
+		return tables ;
+	}
+	
+	public void testChanges() throws Exception {
+		RepositoryUpdator updator = createUpdator();
+		RepositoryModel model = new RepositoryModel();
+		
+		//--- Empty model => all the tables are new 
+		RepositoryChanges changes = updator.computeChanges(model, buildDatabaseV1());
+		assertEquals(2, changes.getChangesCount());
+		assertEquals(2, changes.getEntityChanges(Change.ADDED).size());
+		assertEquals(0, model.getNumberOfEntities()); // not applied
+		updator.applyChanges(model, changes);
+		assertEquals(2, model.getNumberOfEntities());
+		assertEquals(4, model.getEntityByName("BOOK").getColumns().length);
+		assertNotNull(model.getEntityByName("BOOK").getForeignKey("FK_BOOK_AUTHOR"));
+		
+		//--- No change 
+		changes = updator.computeChanges(model, buildDatabaseV1());
+		assertTrue(changes.isEmpty());
+		assertEquals(2, changes.getEntityChanges(Change.UNCHANGED).size());
+		
+		//--- Version 2 
+		changes = updator.computeChanges(model, buildDatabaseV2());
+		assertEquals(1, changes.getEntityChanges(Change.ADDED).size());
+		assertEquals(1, changes.getEntityChanges(Change.REMOVED).size());
+		assertEquals("AUTHOR", changes.getEntityChanges(Change.REMOVED).get(0).getName());
+		List<EntityChange> updated = changes.getEntityChanges(Change.UPDATED) ;
+		assertEquals(1, updated.size());
+		EntityChange bookChange = updated.get(0);
+		assertEquals("BOOK", bookChange.getName());
+		// TITLE size updated, OLD removed, PRICE added, FK removed
+		assertEquals(4, bookChange.getChangesCount()); 
+		assertEquals(6, changes.getChangesCount()); 
+		assertEquals(1, bookChange.getForeignKeyChanges().size());
+		assertTrue(bookChange.getForeignKeyChanges().get(0).isRemoved());
+		List<ColumnChange> columnChanges = bookChange.getColumnChanges();
+		assertEquals(3, columnChanges.size());
+		assertTrue(columnChanges.get(0).isRemoved()); // removed first
+		assertEquals("OLD", columnChanges.get(0).getName());
+		assertTrue(columnChanges.get(1).isUpdated());
+		assertEquals("TITLE", columnChanges.get(1).getName());
+		AttributeChange sizeChange = columnChanges.get(1).getAttributeChanges().get(0);
+		assertEquals(ColumnChange.SIZE, sizeChange.getAttribute());
+		assertEquals("50", sizeChange.getOldValue());
+		assertEquals("100", sizeChange.getNewValue());
+		assertTrue(columnChanges.get(2).isAdded());
+		assertEquals("PRICE", columnChanges.get(2).getName());
+		
+		//--- Dry run : nothing changed in the model
+		assertNotNull(model.getEntityByName("AUTHOR"));
+		assertNull(model.getEntityByName("PUBLISHER"));
+		assertEquals(50, model.getEntityByName("BOOK").getColumn("TITLE").getDatabaseSize());
+		assertNotNull(model.getEntityByName("BOOK").getColumn("OLD"));
+		
+		//--- Apply 
+		updator.applyChanges(model, changes);
+		assertNull(model.getEntityByName("AUTHOR"));
+		assertNotNull(model.getEntityByName("PUBLISHER"));
+		assertEquals(100, model.getEntityByName("BOOK").getColumn("TITLE").getDatabaseSize());
+		assertNull(model.getEntityByName("BOOK").getColumn("OLD"));
+		assertNotNull(model.getEntityByName("BOOK").getColumn("PRICE"));
+		assertNull(model.getEntityByName("BOOK").getForeignKey("FK_BOOK_AUTHOR"));
+		assertTrue(updator.computeChanges(model, buildDatabaseV2()).isEmpty());
+	}
+}
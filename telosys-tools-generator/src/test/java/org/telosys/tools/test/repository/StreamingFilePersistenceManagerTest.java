@@ -0,0 +1,100 @@
+package org.telosys.tools.test.repository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+
+import junit.framework.TestCase;
+
+import org.telosys.tools.repository.model.Column;
+import org.telosys.tools.repository.model.Entity;
+import org.telosys.tools.repository.model.RepositoryModel;
+import org.telosys.tools.repository.persistence.StandardFilePersistenceManager;
+import org.telosys.tools.repository.persistence.StreamingFilePersistenceManager;
+
+public class StreamingFilePersistenceManagerTest extends TestCase {
+
+	private final static String[] REPOSITORIES = {
+		"src/test/resources/repos/repo_for_tests.dbrep",
+		"src/test/resources/repos/DERBY-Tests-Jan-2014-10.dbrep" } ;
+	
+	private final static String NO_FILE = "unused.dbrep" ;
+
+	private String saveWithStandard(RepositoryModel model) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new StandardFilePersistenceManager(NO_FILE, null).save(out, model);
+		return out.toString("UTF-8");
+	}
+	
+	private String saveWithStreaming(RepositoryModel model) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new StreamingFilePersistenceManager(NO_FILE, null).save(out, model);
+		return out.toString("UTF-8");
+	}
+	
+	private RepositoryModel loadWithStreaming(String xml) throws Exception {
+		return new StreamingFilePersistenceManager(NO_FILE, null).load( new ByteArrayInputStream(xml.getBytes("UTF-8")) );
+	}
+	
+	private RepositoryModel loadWithStandard(String xml) throws Exception {
+		return new StandardFilePersistenceManager(NO_FILE, null).load( new ByteArrayInputStream(xml.getBytes("UTF-8")) );
+	}
+	
+	/**
+	 * The standard serializer doesn't indent the elements before Java 9 <br>
+	 * and puts the root element on the comment line after : removes these differences 
+	 * @param xml
+	 * @return
+	 */
+	private String withoutIndentation(String xml) {
+		StringBuilder sb = new StringBuilder();
+		for ( String line : xml.replace("--><root>", "-->\n<root>").split("\r?\n") ) {
+			sb.append(line.trim()).append("\n");
+		}
+		return sb.toString();
+	}
+
+	public void testLoad() throws Exception {
+		for ( String fileName : REPOSITORIES ) {
+			RepositoryModel standardModel = new StandardFilePersistenceManager(fileName, null).load();
+			RepositoryModel streamingModel = new StreamingFilePersistenceManager(new File(fileName), null).load();
+			assertEquals(standardModel.getNumberOfEntities(), streamingModel.getNumberOfEntities());
+			// Same model => same XML 
+			assertEquals(fileName, saveWithStandard(standardModel), saveWithStandard(streamingModel));
+		}
+	}
+
+	public void testSave() throws Exception {
+		for ( String fileName : REPOSITORIES ) {
+			RepositoryModel model = new StandardFilePersistenceManager(fileName, null).load();
+			String standardXml  = saveWithStandard(model) ;
+			String streamingXml = saveWithStreaming(model) ;
+			if ( standardXml.indexOf("--><root>") < 0 ) {
+				// Same serializer layout ( Java 6 to 8 ) 
+				assertEquals(fileName, standardXml, streamingXml);
+			}
+			else {
+				assertEquals(fileName, withoutIndentation(standardXml), withoutIndentation(streamingXml));
+			}
+			// Round trip ( the links order is not kept by the model => compare with the standard loader )
+			assertEquals(fileName, saveWithStreaming(loadWithStandard(streamingXml)), saveWithStreaming(loadWithStreaming(streamingXml)));
+		}
+	}
+
+	public void testSpecialCharacters() throws Exception {
+		RepositoryModel model = new StandardFilePersistenceManager(REPOSITORIES[0], null).load();
+		Entity entity = model.getEntities()[0];
+		Column column = entity.getColumns()[0];
+		String comment = "a & b < c > d \"e\" 'f'\nline 2\r\n\ttab \u00e9\u20ac \ud83d\ude00" ;
+		column.setDatabaseComment(comment);
+		
+		String streamingXml = saveWithStreaming(model) ;
+		assertTrue(streamingXml.indexOf("a &amp; b &lt; c &gt; d &quot;e&quot; 'f'&#10;line 2&#13;&#10;&#9;tab \u00e9\u20ac &#128512;") > 0);
+		
+		//--- Read by the 2 managers 
+		Column c1 = loadWithStreaming(streamingXml).getEntityByName(entity.getName()).getColumn(column.getDatabaseName());
+		assertEquals(comment, c1.getDatabaseComment());
+		Column c2 = loadWithStandard(streamingXml).getEntityByName(entity.getName()).getColumn(column.getDatabaseName());
+		assertEquals(comment, c2.getDatabaseComment());
+	}
+}
@@ -0,0 +1,123 @@
+package org.telosys.tools.test.repository;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.util.LinkedList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.telosys.tools.repository.UpdateLogWriter;
+
+public class UpdateLogWriterTest extends TestCase {
+
+	private File createTempFile() throws Exception {
+		File file = File.createTempFile("update-log", ".txt");
+		file.deleteOnExit();
+		return file ;
+	}
+	
+	private List<String> readLines(File file, String charset) throws Exception {
+		List<String> lines = new LinkedList<String>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), charset));
+		try {
+			String line ;
+			while ( ( line = reader.readLine() ) != null ) {
+				lines.add(line);
+			}
+		} finally {
+			reader.close();
+		}
+		return lines ;
+	}
+	
+	public void testAllLinesWritten() throws Exception {
+		File file = createTempFile();
+		UpdateLogWriter writer = new UpdateLogWriter(file);
+		writer.setFlushEveryLines(100);
+		for ( int i = 0 ; i < 20000 ; i++ ) {
+			writer.println("Line " + i);
+		}
+		writer.println(null);
+		writer.close();
+		writer.close(); // no effect
+		
+		List<String> lines = readLines(file, "UTF-8");
+		assertEquals(20001, lines.size());
+		assertEquals("Line 0", lines.get(0));
+		assertEquals("Line 19999", lines.get(19999));
+		assertEquals("null", lines.get(20000));
+	}
+
+	public void testCharset() throws Exception {
+		String text = "Caf\u00e9 \u00e0 l'\u00e9cole \u20ac" ;
+		File file = createTempFile();
+		UpdateLogWriter writer = new UpdateLogWriter(file, "ISO-8859-15", 10);
+		writer.println(text);
+		writer.close();
+		
+		List<String> lines = readLines(file, "ISO-8859-15");
+		assertEquals(1, lines.size());
+		assertEquals(text, lines.get(0));
+		assertEquals(text.length() + 1, file.length());
+	}
+
+	public void testTimeBasedFlush() throws Exception {
+		File file = createTempFile();
+		UpdateLogWriter writer = new UpdateLogWriter(file);
+		writer.setFlushInterval(10);
+		writer.println("Line 1");
+		long t0 = System.currentTimeMillis();
+		while ( file.length() == 0 && System.currentTimeMillis() - t0 < 5000 ) {
+			Thread.sleep(10);
+		}
+		assertEquals(7, file.length()); // flushed before close
+		writer.close();
+	}
+
+	public void testCloseAfterWriteError() throws Exception {
+		File deviceFull = new File("/dev/full"); // each write fails ( "No space left on device" )
+		if ( ! deviceFull.exists() ) {
+			System.out.println("No '/dev/full' device : test skipped");
+			return ;
+		}
+		final UpdateLogWriter writer = new UpdateLogWriter(deviceFull, "UTF-8", 1);
+		writer.setFlushEveryLines(1);
+		try {
+			for ( int i = 0 ; i < 1000 ; i++ ) {
+				writer.println("Line " + i);
+			}
+			fail("Exception expected");
+		} catch (RuntimeException e) {
+			// expected : the writer thread is stopped ( the queue can be full ) 
+		}
+		final List<RuntimeException> errors = new LinkedList<RuntimeException>();
+		Thread closer = new Thread() {
+			public void run() {
+				try {
+					writer.close();
+				} catch (RuntimeException e) {
+					errors.add(e);
+				}
+			}
+		};
+		closer.start();
+		closer.join(10000);
+		assertFalse(closer.isAlive()); // "close" never blocked 
+		assertEquals(1, errors.size());
+	}
+
+	public void testPrintlnAfterClose() throws Exception {
+		File file = createTempFile();
+		UpdateLogWriter writer = new UpdateLogWriter(file);
+		writer.close();
+		try {
+			writer.println("Line");
+			fail("Exception expected");
+		} catch (RuntimeException e) {
+			// expected
+		}
+	}
+}
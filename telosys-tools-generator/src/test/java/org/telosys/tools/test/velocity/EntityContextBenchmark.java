@@ -0,0 +1,79 @@
+package org.telosys.tools.test.velocity;
+
+import java.util.List;
+
+import org.telosys.tools.commons.TelosysToolsLogger;
+import org.telosys.tools.generator.EntitiesManager;
+import org.telosys.tools.generator.GeneratorException;
+import org.telosys.tools.generator.config.GeneratorConfig;
+import org.telosys.tools.generator.config.GeneratorConfigManager;
+import org.telosys.tools.generator.context.AttributeInContext;
+import org.telosys.tools.generator.context.Const;
+import org.telosys.tools.generator.context.EntityInContext;
+import org.telosys.tools.generator.context.Java;
+import org.telosys.tools.repository.model.RepositoryModel;
+import org.telosys.tools.repository.persistence.StandardFilePersistenceManager;
+
+/**
+ * Timing of the entity methods called many times by the templates <br>
+ * ( the same calls as "jpa_bean_with_links.vm" for each entity ) <br>
+ * Usage : launch from the project folder ( "telosys-tools-generator" )
+ *
+ * @author Laurent Guerin
+ *
+ */
+public class EntityContextBenchmark {
+
+	private final static String PROJECT_LOCATION = "src/test/resources" ;
+
+	private final static String REPOSITORY_FILE = "repos/DERBY-Tests-Jan-2014-10.dbrep" ;
+
+	private final static int RUNS = 100000 ;
+
+	public static void main(String[] args) throws Exception {
+
+		TelosysToolsLogger logger = new SilentLogger();
+		GeneratorConfig generatorConfig = new GeneratorConfigManager(logger).initFromDirectory(PROJECT_LOCATION, null);
+		RepositoryModel repositoryModel = new StandardFilePersistenceManager(
+				PROJECT_LOCATION + "/" + REPOSITORY_FILE, logger ).load();
+		
+		EntitiesManager entitiesManager = new EntitiesManager(repositoryModel, generatorConfig);
+		List<EntityInContext> entities = entitiesManager.getAllEntities();
+		Java java = new Java();
+		
+		int n = runAll(entities, java, RUNS / 10); // warm up
+		long t0 = System.currentTimeMillis();
+		n = runAll(entities, java, RUNS);
+		long duration = System.currentTimeMillis() - t0 ;
+		System.out.println(REPOSITORY_FILE + " : " + RUNS + " runs x " + entities.size() + " entities : "
+				+ duration + " ms (" + ( duration * 1000000L / RUNS / entities.size() ) + " ns per entity) [" + n + "]" );
+	}
+	
+	private static int runAll(List<EntityInContext> entities, Java java, int runs) throws GeneratorException {
+		int n = 0 ;
+		for ( int i = 0 ; i < runs ; i++ ) {
+			for ( EntityInContext entity : entities ) {
+				n = n + java.imports(entity).size() ;
+				n = n + entity.getKeyAttributes().size() ;
+				n = n + entity.getNonKeyAttributes().size() ;
+				List<AttributeInContext> attributes = entity.getAttributesByCriteria(Const.NOT_KEY, Const.NOT_IN_SELECTED_LINKS) ;
+				n = n + attributes.size() ;
+				n = n + entity.getSelectedLinks().size() ;
+				n = n + entity.referencedEntityTypes().size() ;
+				n = n + ( entity.hasAutoIncrementedKey() ? 1 : 0 ) ;
+				for ( AttributeInContext attribute : attributes ) {
+					n = n + attribute.getGetter().length() + attribute.getSetter().length() ;
+				}
+			}
+		}
+		return n ;
+	}
+
+	private static class SilentLogger implements TelosysToolsLogger {
+		public void log(Object object, String s) { }
+		public void log(String s) { }
+		public void error(String s) { System.err.println("ERROR : " + s); }
+		public void info(String s) { }
+		public void exception(Throwable exception) { exception.printStackTrace(); }
+	}
+}
@@ -0,0 +1,121 @@
+package org.telosys.tools.test.velocity;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.telosys.tools.commons.TelosysToolsException;
+import org.telosys.tools.commons.TelosysToolsLogger;
+import org.telosys.tools.commons.variables.Variable;
+import org.telosys.tools.generator.EntitiesManager;
+import org.telosys.tools.generator.GenerationManager;
+import org.telosys.tools.generator.Generator;
+import org.telosys.tools.generator.GeneratorException;
+import org.telosys.tools.generator.config.GeneratorConfig;
+import org.telosys.tools.generator.config.GeneratorConfigManager;
+import org.telosys.tools.generator.context.Target;
+import org.telosys.tools.generator.target.TargetDefinition;
+import org.telosys.tools.repository.model.Entity;
+import org.telosys.tools.repository.model.RepositoryModel;
+import org.telosys.tools.repository.persistence.StandardFilePersistenceManager;
+
+/**
+ * Bulk generation timing on the test repositories ( "repos/*.dbrep" ) <br>
+ * Each run generates all the entities with all the templates (entity x template) <br>
+ * Usage : launch from the project folder ( "telosys-tools-generator" )
+ *
+ * @author Laurent Guerin
+ *
+ */
+public class GenerationBenchmark {
+
+	private final static String PROJECT_LOCATION = "src/test/resources" ;
+
+	private final static String OUTPUT_FOLDER = "../../../target/GENERATED_BENCH" ; // out of the sources
+
+	private final static String[] REPOSITORIES = {
+		"repos/repo_for_tests.dbrep",
+		"repos/DERBY-Tests-Jan-2014-10.dbrep" } ;
+
+	private final static String[] TEMPLATES = {
+		"jpa_bean_with_links.vm" } ;
+
+	private final static int RUNS = 10 ;
+
+	public static void main(String[] args) throws Exception {
+
+		TelosysToolsLogger logger = new SilentLogger();
+
+		GeneratorConfigManager configManager = new GeneratorConfigManager(logger);
+		GeneratorConfig generatorConfig = configManager.initFromDirectory(PROJECT_LOCATION, null);
+
+		for ( String repositoryFile : REPOSITORIES ) {
+			RepositoryModel repositoryModel = loadRepository(PROJECT_LOCATION + "/" + repositoryFile, logger);
+			int n = generateAll(repositoryModel, generatorConfig, logger); // warm up
+			long t0 = System.currentTimeMillis();
+			for ( int i = 0 ; i < RUNS ; i++ ) {
+				generateAll(repositoryModel, generatorConfig, logger);
+			}
+			long duration = System.currentTimeMillis() - t0 ;
+			System.out.println(repositoryFile + " : " + RUNS + " runs x " + n + " files : "
+					+ duration + " ms (" + ( duration / RUNS ) + " ms per run)" );
+			
+			//--- Same generation with the GenerationManager workers
+			GenerationManager generationManager = new GenerationManager(repositoryModel, generatorConfig, logger);
+			t0 = System.currentTimeMillis();
+			for ( int i = 0 ; i < RUNS ; i++ ) {
+				generateAll(generationManager, repositoryModel);
+			}
+			duration = System.currentTimeMillis() - t0 ;
+			System.out.println(repositoryFile + " : " + RUNS + " runs x " + n + " files : "
+					+ duration + " ms (" + ( duration / RUNS ) + " ms per run) with "
+					+ generationManager.getParallelism() + " worker(s)" );
+		}
+	}
+	
+	private static int generateAll(GenerationManager generationManager, RepositoryModel repositoryModel) throws GeneratorException {
+		List<String> selectedEntitiesNames = new LinkedList<String>();
+		for ( String name : repositoryModel.getEntitiesNames() ) {
+			selectedEntitiesNames.add(name);
+		}
+		List<TargetDefinition> targetDefinitions = new LinkedList<TargetDefinition>();
+		for ( String template : TEMPLATES ) {
+			targetDefinitions.add( new TargetDefinition("Bench", "${BEANNAME}.java", OUTPUT_FOLDER, template, "*") );
+		}
+		return generationManager.generate(selectedEntitiesNames, targetDefinitions, null).size() ;
+	}
+
+	private static RepositoryModel loadRepository(String fileName, TelosysToolsLogger logger) throws TelosysToolsException {
+		StandardFilePersistenceManager pm = new StandardFilePersistenceManager( fileName, logger );
+		return pm.load();
+	}
+
+	private static int generateAll(RepositoryModel repositoryModel, GeneratorConfig generatorConfig,
+			TelosysToolsLogger logger) throws GeneratorException {
+		Variable[] variables = generatorConfig.getTelosysToolsCfg().getAllVariables();
+		List<String> selectedEntitiesNames = new LinkedList<String>();
+		for ( String name : repositoryModel.getEntitiesNames() ) {
+			selectedEntitiesNames.add(name);
+		}
+		List<Target> generatedTargets = new LinkedList<Target>();
+		EntitiesManager entitiesManager = new EntitiesManager(repositoryModel, generatorConfig); // one per run
+		for ( String entityName : selectedEntitiesNames ) {
+			Entity entity = repositoryModel.getEntityByName(entityName);
+			for ( String template : TEMPLATES ) {
+				TargetDefinition targetDefinition = new TargetDefinition("Bench", "${BEANNAME}.java",
+						OUTPUT_FOLDER, template, "*");
+				Target target = new Target( targetDefinition, entity.getName(), entity.getBeanJavaClass(), variables );
+				Generator generator = new Generator(target, generatorConfig, entitiesManager, logger);
+				generator.generateTarget(target, selectedEntitiesNames, generatedTargets);
+			}
+		}
+		return generatedTargets.size() ;
+	}
+
+	private static class SilentLogger implements TelosysToolsLogger {
+		public void log(Object object, String s) { }
+		public void log(String s) { }
+		public void error(String s) { System.err.println("ERROR : " + s); }
+		public void info(String s) { }
+		public void exception(Throwable exception) { exception.printStackTrace(); }
+	}
+}
@@ -1,10 +1,15 @@
 package org.telosys.tools.test.velocity.context;
 
+import java.util.LinkedList;
+import java.util.List;
+
 import junit.framework.TestCase;
 
 import org.telosys.tools.commons.variables.Variable;
 import org.telosys.tools.generator.context.Target;
+import org.telosys.tools.generator.target.CompiledTarget;
 import org.telosys.tools.generator.target.TargetDefinition;
+import org.telosys.tools.generator.target.TargetPathTemplate;
 
 public class TargetTest extends TestCase {
 
@@ -61,4 +66,51 @@ public class TargetTest extends TestCase {
 		
 	}
 	
+	public void testTargetCreation3() {
+		
+		TargetDefinition targetDef = new TargetDefinition(
+				"Target 3", 
+				"${BEANNAME}_${VAR1}_${BEANNAME_UC}.txt", 
+				"${SRC}/${ROOT_PKG}/${BEANNAME_LC}/${UNKNOWN}", 
+				"bean.vm", 
+				"*");
+		
+		Target target = new Target( targetDef, "AUTHOR", "Author", getVariables() ); 
+		
+		assertEquals("Author_VALUE1_AUTHOR.txt", target.getFile());
+		assertEquals("/src/org/demo/foo/bar/author/${UNKNOWN}", target.getFolder());
+	}
+
+	public void testCompiledTargets() {
+		
+		List<TargetDefinition> targetDefinitions = new LinkedList<TargetDefinition>();
+		targetDefinitions.add( new TargetDefinition("Target 1", "${BEANNAME}.java", "${SRC}/${ROOT_PKG}", "bean.vm", "*") );
+		targetDefinitions.add( new TargetDefinition("Target 2", "${BEANNAME}Dao.java", "${SRC}/${ENTITY_PKG}/dao", "dao.vm", "*") );
+		List<CompiledTarget> compiledTargets = CompiledTarget.compile(targetDefinitions, getVariables());
+		assertEquals(2, compiledTargets.size());
+		
+		for ( String beanName : new String[] { "Author", "Book" } ) {
+			for ( int i = 0 ; i < 2 ; i++ ) {
+				Target target = new Target( compiledTargets.get(i), beanName.toUpperCase(), beanName );
+				Target expected = new Target( targetDefinitions.get(i), beanName.toUpperCase(), beanName, getVariables() );
+				assertEquals(expected.getFile(), target.getFile());
+				assertEquals(expected.getFolder(), target.getFolder());
+				assertEquals(targetDefinitions.get(i).getTemplate(), target.getTemplate());
+			}
+		}
+		assertEquals("BookDao.java", new Target( compiledTargets.get(1), "BOOK", "Book" ).getFile());
+		assertEquals("/src/org/demo/foo/bar/bean/dao", new Target( compiledTargets.get(1), "BOOK", "Book" ).getFolder());
+	}
+
+	public void testPathTemplate() {
+		assertEquals("a}bAuthor.java", new TargetPathTemplate("a}b${BEANNAME}.java", null).apply("Author"));
+		assertEquals("Author${VAR1", new TargetPathTemplate("${BEANNAME}${VAR1", null).apply("Author"));
+		assertEquals("${}x", new TargetPathTemplate("${}x", null).apply("Author"));
+		assertEquals("", new TargetPathTemplate("", null).apply("Author"));
+		assertNull(new TargetPathTemplate(null, null).apply("Author"));
+		assertEquals("fixed", new TargetPathTemplate("fixed", null).apply("Author"));
+		assertFalse(new TargetPathTemplate("fixed", null).hasBeanName());
+		assertTrue(new TargetPathTemplate("x${BEANNAME_LC}", null).hasBeanName());
+		assertEquals(".java", new TargetPathTemplate("${BEANNAME}.java", null).apply("")); // "once" target 
+	}
 }
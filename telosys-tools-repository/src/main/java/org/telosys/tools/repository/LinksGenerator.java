@@ -19,6 +19,9 @@ import java.util.LinkedList;
 
 import org.telosys.tools.commons.TelosysToolsException;
 import org.telosys.tools.commons.TelosysToolsLogger;
+import org.telosys.tools.repository.changes.EntityChange;
+import org.telosys.tools.repository.changes.ForeignKeyChange;
+import org.telosys.tools.repository.changes.RepositoryChanges;
 import org.telosys.tools.repository.model.Entity;
 import org.telosys.tools.repository.model.ForeignKey;
 import org.telosys.tools.repository.model.ForeignKeyColumn;
@@ -66,13 +69,108 @@ public class LinksGenerator {
 		log("generateAllLinks()...");
 		
 		int count = 0 ;
-		Entity[] entities = model.getEntities();
-		for ( Entity entity : entities ) {
+		for ( Entity entity : model.getEntitiesCollection() ) {
 			count = count + generateEntityLinks(model, entity);
 		}
 		return count ;
 	}
 
+	/**
+	 * Updates the links impacted by the given changes ( the result of a repository update ) <br>
+	 * Only the links based on the changed foreign keys and entities are removed or regenerated <br>
+	 * The changes are supposed to be already applied to the model 
+	 * @param model the repository to update 
+	 * @param changes the changes applied to the repository 
+	 * @return the number of links generated 
+	 * @throws TelosysToolsException
+	 * @since 2.1.1
+	 */
+	public int generateChangedLinks(RepositoryModel model, RepositoryChanges changes) throws TelosysToolsException 
+	{
+		log("generateChangedLinks()...");
+		
+		//--- 1) Remove the links that reference the removed entities 
+		for ( EntityChange entityChange : changes.getEntityChanges(EntityChange.REMOVED) ) {
+			String tableName = entityChange.getName() ;
+			removeLinks(model, model.getLinksByTargetTableName(tableName) );
+			removeLinks(model, model.getLinksByJoinTableName(tableName) );
+		}
+		
+		//--- 2) Remove the links of the removed foreign keys  
+		for ( EntityChange entityChange : changes.getEntityChanges(EntityChange.UPDATED) ) {
+			for ( ForeignKeyChange fkChange : entityChange.getForeignKeyChanges() ) {
+				if ( fkChange.isRemoved() ) {
+					removeLinks(model, model.getLinksByForeignKeyName( fkChange.getName() ) );
+				}
+			}
+		}
+		
+		//--- 3) Generate the links of the added entities and of the added or updated foreign keys
+		int count = 0 ;
+		for ( EntityChange entityChange : changes.getEntityChanges() ) {
+			Entity entity = model.getEntityByName( entityChange.getName() );
+			if ( entity == null ) {
+				continue ; // removed entity
+			}
+			if ( entityChange.isAdded() ) {
+				count = count + generateEntityLinks(model, entity);
+			}
+			else if ( entityChange.isUpdated() ) {
+				count = count + generateUpdatedEntityLinks(model, entity, entityChange);
+			}
+		}
+		return count ;
+	}
+
+	/**
+	 * Generates the links for an updated entity 
+	 * @param model
+	 * @param entity
+	 * @param entityChange
+	 * @return the number of links generated 
+	 * @throws TelosysToolsException
+	 */
+	private int generateUpdatedEntityLinks(RepositoryModel model, Entity entity, EntityChange entityChange) throws TelosysToolsException 
+	{
+		Link[] joinTableLinks = model.getLinksByJoinTableName( entity.getName() );
+		if ( entity.isJoinTable() || joinTableLinks.length > 0 ) {
+			//--- Is or was a "Join Table" ( the columns changes can change its status ) => all the entity links 
+			removeLinks(model, joinTableLinks);
+			for ( ForeignKey fk : entity.getForeignKeysCollection() ) {
+				removeLinks(model, model.getLinksByForeignKeyName( fk.getName() ) );
+			}
+			return generateEntityLinks(model, entity);
+		}
+		else {
+			//--- Only the links based on the added or updated foreign keys 
+			int count = 0 ;
+			for ( ForeignKeyChange fkChange : entityChange.getForeignKeyChanges() ) {
+				if ( fkChange.isAdded() || fkChange.isUpdated() ) {
+					ForeignKey fk = entity.getForeignKey( fkChange.getName() );
+					if ( fk != null ) {
+						count = count + generateBasicLinks(model, entity, fk);
+					}
+				}
+			}
+			return count ;
+		}
+	}
+
+	/**
+	 * Removes the given links from their entities 
+	 * @param model
+	 * @param links
+	 */
+	private void removeLinks(RepositoryModel model, Link[] links) 
+	{
+		for ( Link link : links ) {
+			Entity entity = model.getEntityByName( link.getSourceTableName() );
+			if ( entity != null ) {
+				entity.removeLink(link);
+			}
+		}
+	}
+
 	/**
 	 * Generate the links ( owning side and inverse side ) for the given entity
 	 * @param model
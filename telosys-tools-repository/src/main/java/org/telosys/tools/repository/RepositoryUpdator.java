@@ -18,8 +18,12 @@ package org.telosys.tools.repository;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.telosys.tools.commons.StrUtil;
 import org.telosys.tools.commons.TelosysToolsException;
@@ -29,6 +33,12 @@ import org.telosys.tools.db.model.DatabaseForeignKey;
 import org.telosys.tools.db.model.DatabaseModelManager;
 import org.telosys.tools.db.model.DatabaseTable;
 import org.telosys.tools.db.model.DatabaseTables;
+import org.telosys.tools.repository.changes.AttributeChange;
+import org.telosys.tools.repository.changes.Change;
+import org.telosys.tools.repository.changes.ColumnChange;
+import org.telosys.tools.repository.changes.EntityChange;
+import org.telosys.tools.repository.changes.ForeignKeyChange;
+import org.telosys.tools.repository.changes.RepositoryChanges;
 import org.telosys.tools.repository.config.EntityInformationProvider;
 import org.telosys.tools.repository.config.UserInterfaceInformationProvider;
 import org.telosys.tools.repository.model.Column;
@@ -44,6 +54,10 @@ import org.telosys.tools.repository.model.RepositoryModel;
 public class RepositoryUpdator extends RepositoryManager
 {
 	private UpdateLogWriter _updateLogger = null;
+	
+	private boolean _dryRun = false ;
+	
+	private RepositoryChanges _lastChanges = null ;
 
 //	/**
 //	 * Constructor
@@ -65,108 +79,33 @@ public class RepositoryUpdator extends RepositoryManager
 		_updateLogger = updateLogger;
 	}
 
-	private Column addEntityAttribute(Entity entity, DatabaseColumn dbColumn ) 
-	{
-		Column column = buildColumn( dbColumn ) ;
-		
-		//--- Add the "column" to the "entity"
-		entity.storeColumn(column);
-		return column;
-	}
-
-	private int updateEntityAttribute(Column column, DatabaseColumn col) 
-	{
-		int r = 0;
-
-		//--- Update the column 
-		r = r + updateDbType(column, col.getDbTypeName()); // Database native type		
-		r = r + updateTypeCode(column, col.getJdbcTypeCode()); // JDBC type code 
-		r = r + updateNotNull(column, col.getNotNullAsString()); // Not null
-		r = r + updateSize(column, col.getSize()); // Size
-		r = r + updateComment(column, col.getComment()); // Database comment - v 2.1.1 #LCH 
-
-//		// --- If this column is in the Table Primary Key
-		r = r + updatePrimaryKey(column, col.isInPrimaryKey()); // Column in Primary Key
-		
-		// TODO 
-		// . default value
-		// . comment
-		// . auto incremented
-		// . in foreign key
-
-		return r;
-	}
-
-	private int updateTypeCode( Column column, int iDbTypeCode) 
-	{
-		int r = 0;
-		int i = column.getJdbcTypeCode();
-		if ( i != iDbTypeCode ) {
-			_updateLogger.println(" . Column '" + column.getDatabaseName() + "' : JDBC type code changed to " + iDbTypeCode);
-			column.setJdbcTypeCode(iDbTypeCode);
-			r++;
-		}
-		return r;
-	}
-
-	private int updateDbType( Column column, String sDbType ) 
-	{
-		int r = 0;
-		String s = column.getDatabaseTypeName();
-		if ( ! s.equals(sDbType) ) {
-			_updateLogger.println(" . Column '" + column.getDatabaseName() + "' : Database type changed to " + sDbType);
-			column.setDatabaseTypeName(sDbType);
-			r++;
-		}
-		return r;
-	}
-
-	private int updateNotNull( Column column, String sNotNull) 
-	{
-		int r = 0;
-		String s = column.getDatabaseNotNullAsString();
-		if ( ! s.equals(sNotNull) ) {
-			_updateLogger.println(" . Column '" + column.getDatabaseName() + "' : NotNull changed to " + sNotNull);
-			column.setDatabaseNotNull(sNotNull);
-			r++;
-		}
-		return r;
-	}
-
-	private int updateSize( Column column, int iSize) 
-	{
-		int r = 0;
-		if ( column.getDatabaseSize() != iSize ) 
-		{
-			_updateLogger.println(" . Column '" + column.getDatabaseName() + "' : Size changed to " + iSize);
-			column.setDatabaseSize(iSize);
-			r++;
-		}
-		return r;
+	//-----------------------------------------------------------------------------------------------------
+	/**
+	 * Set the "dry run" mode : if true the changes are computed and logged but the repository <br>
+	 * model is not updated
+	 * @param dryRun
+	 * @since 2.1.1
+	 */
+	public void setDryRun(boolean dryRun) {
+		_dryRun = dryRun ;
 	}
 
-	private int updateComment( Column column, String sComment)  // Database comment - v 2.1.1 #LCH 
-	{
-		int r = 0;
-		if ( ! column.getDatabaseComment().equals(sComment) )
-		{
-			_updateLogger.println(" . Column '" + column.getDatabaseName() + "' : Comment changed to " + sComment);
-			column.setDatabaseComment(sComment);
-			r++;
-		}
-		return r;
+	/**
+	 * Returns true if the "dry run" mode is set 
+	 * @return
+	 * @since 2.1.1
+	 */
+	public boolean isDryRun() {
+		return _dryRun ;
 	}
 
-	private int updatePrimaryKey( Column column, boolean isPrimaryKey) 
-	{
-		int r = 0;
-		if ( column.isPrimaryKey() != isPrimaryKey )
-		{
-			_updateLogger.println(" . Column '" + column.getDatabaseName() + "' : Primary Key flag changed to " + isPrimaryKey);
-			column.setPrimaryKey(isPrimaryKey);
-			r++;
-		}
-		return r;
+	/**
+	 * Returns the changes found by the last "updateRepository" call ( or null if none )
+	 * @return
+	 * @since 2.1.1
+	 */
+	public RepositoryChanges getLastChanges() {
+		return _lastChanges ;
 	}
 
 	// -----------------------------------------------------------------------------------------------------
@@ -174,6 +113,7 @@ public class RepositoryUpdator extends RepositoryManager
 	// -----------------------------------------------------------------------------------------------------
 	/**
 	 * Updates the given repository with the database metadata.
+	 * ( in "dry run" mode the changes are only computed and logged )
 	 * 
 	 * @param con
 	 * @param repositoryModel
@@ -200,13 +140,22 @@ public class RepositoryUpdator extends RepositoryManager
 
 				logger.log(" . update repository from database tables");
 				_updateLogger.println("Update date : " + now);
+				if ( _dryRun ) {
+					_updateLogger.println("Dry run : the repository is not updated");
+				}
 				
 				//--- Load the Database Model
 				DatabaseModelManager manager = new DatabaseModelManager( this.getLogger() );
 				DatabaseTables dbTables = manager.getDatabaseTables(con, sCatalog, sSchema, sTableNamePattern, arrayTableTypes, sTableNameInclude, sTableNameExclude);
 
-				//updateRepository(repositoryModel, dbmd, sCatalog, sSchema, sTableNamePattern, arrayTableTypes);
-				changesCount = updateRepository(repositoryModel, dbTables);
+				//--- Compare, update and log 
+				RepositoryChanges changes = computeChanges(repositoryModel, dbTables);
+				if ( ! _dryRun ) {
+					applyChanges(repositoryModel, changes);
+				}
+				printChanges(changes);
+				_lastChanges = changes ;
+				changesCount = changes.getChangesCount();
 
 			} catch (SQLException e) {
 				throw new TelosysToolsException("SQLException", e);
@@ -220,212 +169,306 @@ public class RepositoryUpdator extends RepositoryManager
 		return changesCount ;
 	}
 
-	private int updateRepository(RepositoryModel repositoryModel, DatabaseTables dbTables ) throws SQLException 
+	// -----------------------------------------------------------------------------------------------------
+	// CHANGES COMPUTATION ( no change in the repository model )
+	// -----------------------------------------------------------------------------------------------------
+	/**
+	 * Computes all the changes between the repository model and the database tables <br>
+	 * The repository model is not modified
+	 * 
+	 * @param repositoryModel
+	 * @param dbTables
+	 * @return
+	 * @since 2.1.1
+	 */
+	public RepositoryChanges computeChanges(RepositoryModel repositoryModel, DatabaseTables dbTables) 
 	{
-//		if (sTableNamePattern == null) {
-//			sTableNamePattern = "%";
-//		}
-		int changesCount = 0 ;
-		
-		LinkedList<String> databaseTables = new LinkedList<String>();
+		RepositoryChanges changes = new RepositoryChanges();
+		Set<String> databaseTables = new HashSet<String>();
 
-		//-----------------------------------------------------------------------
-		// STEP 1 : Update existing tables and Create new ones
-		//-----------------------------------------------------------------------
-		//--- For each table in the database ...
-		int iTablesCount = 0;
+		//--- Existing tables and new tables ( for each table in the database )
 		for ( DatabaseTable dbTable : dbTables.getTables() ) {
-			iTablesCount++;
-			
 			logger.log("   --------------------------------------------------------------");
 			logger.log("   Table '" + dbTable.getTableName() 
 					+ "' ( catalog = '" + dbTable.getCatalogName() 
 					+ "', schema = '"+ dbTable.getSchemaName() + "' )");
 
 			String sTableName = dbTable.getTableName();
-
-			// --- Store the table name in the list used to delete entities
 			databaseTables.add(sTableName);
 
-			_updateLogger.println(" ");
 			Entity entity = repositoryModel.getEntityByName(sTableName);
-			
-			if ( entity != null ) 
-			{
-				// --- The <table ..> exists in the repository => update it
-				_updateLogger.println(" Table '" + sTableName + "' found in repository");
-				//int r = updateEntity(repositoryModel, dbmd, sCurrentCatalog, sCurrentSchema, sTableName, entity);
-				int entityChanges = updateEntity(repositoryModel, dbTable, entity);
-				if (entityChanges > 0) {
-					_updateLogger.println(" (*) table '" + sTableName + "' updated : " + entityChanges + " change(s)");
-				} else {
-					_updateLogger.println(" (=) table '" + sTableName + "' unchanged");
-				}
-				changesCount = changesCount + entityChanges ;
+			if ( entity != null ) {
+				changes.addEntityChange( computeEntityChange(dbTable, entity) );
 			} else {
-				// --- The TABLE doesn't exist in the repository => add it
-				_updateLogger.println(" Table '" + sTableName + "' not found in repository");
-				addEntity(repositoryModel, dbTable) ;
-				_updateLogger.println(" (+) table '" + sTableName + "' added");
-				changesCount++;
+				changes.addEntityChange( new EntityChange(Change.ADDED, sTableName, dbTable) );
 			}
 		}
 
-		//-----------------------------------------------------------------------
-		// STEP 2 : Remove tables that no longer exist in the database
-		//-----------------------------------------------------------------------
-		//--- For each table in the repository ...
-		String[] tableNames = repositoryModel.getEntitiesNames();
-		for (int i = 0; i < tableNames.length; i++) 
-		{
-			String sTableName = tableNames[i];
-			if (checkTableExistsInDatabase(sTableName, databaseTables) != true) {
-				//--- This table in the repository no longer exists in the database
-				_updateLogger.println(" ");
-				_updateLogger.println(" Table '" + sTableName + "' no longer exists in database");
-				//--- => Remove it
-				repositoryModel.removeEntity(sTableName);
-				_updateLogger.println(" (-) table '" + sTableName + "' removed");
-				changesCount++;
+		//--- Tables that no longer exist in the database ( for each table in the repository )
+		for ( String sTableName : repositoryModel.getEntitiesNamesList() ) {
+			if ( ! databaseTables.contains(sTableName) ) {
+				changes.addEntityChange( new EntityChange(Change.REMOVED, sTableName, null) );
 			}
 		}
-		
-		return changesCount ;
+		return changes ;
 	}
 	
-	private int updateEntity( RepositoryModel repositoryModel, DatabaseTable dbTable, Entity entity) throws SQLException 
+	private EntityChange computeEntityChange(DatabaseTable dbTable, Entity entity) 
 	{
-		int changeCount = 0;
-		//--------------------------------------------------------------------------------
-		// 0) added in ver 2.0.7 
-		//--------------------------------------------------------------------------------
-		//--- Set or update TABLE TYPE ( "TABLE", "VIEW", ... )
+		//--- TABLE TYPE ( "TABLE", "VIEW", ... ) : set if not yet set, updated if changed ( v 2.0.7 )
+		String databaseType = null ;
+		AttributeChange databaseTypeChange = null ;
 		String tableType = dbTable.getTableType() ;
 		if ( tableType != null ) {
 			if ( StrUtil.nullOrVoid(entity.getDatabaseType()) ) {
-				// Not set yet => Set type
-				entity.setDatabaseType(tableType);
+				databaseType = tableType ; // Not set yet => Set type ( not considered as a change )
 			}
-			else {
-				String originalType = entity.getDatabaseType() ;
-				if ( tableType.equals(originalType) == false ) {
-					// The type has changed => Update type
-					entity.setDatabaseType(tableType);
-					changeCount++;
-					_updateLogger.println(" . Type has changed '" + originalType + "' --> '" + tableType + "'");
-				}
+			else if ( ! tableType.equals(entity.getDatabaseType()) ) {
+				databaseType = tableType ;
+				databaseTypeChange = new AttributeChange(EntityChange.DATABASE_TYPE, "Type", entity.getDatabaseType(), tableType);
 			}
 		}
 		
-		//--------------------------------------------------------------------------------
-		// 1) remove the colums that doesn't exist in the Database 
-		//--------------------------------------------------------------------------------
-		//--- For each column in the repository ...
-		Column[] columns = entity.getColumns();
-		for (int i = 0; i < columns.length; i++) 
-		{
-			Column e = columns[i];
-			String sColumnName = e.getDatabaseName();
-			// Does it still exist in the DATABASE ?
-			if ( null == dbTable.getColumnByName(sColumnName) )
-			{
-				//--- This column doesn't exist in the DB => remove it from the repo
-				entity.removeColumn(e);
-				changeCount++;
-				_updateLogger.println(" . Column '" + sColumnName + "' removed");
+		//--- Database columns and foreign keys indexed by name 
+		Map<String, DatabaseColumn> dbColumns = new HashMap<String, DatabaseColumn>();
+		for ( DatabaseColumn dbColumn : dbTable.getColumns() ) {
+			dbColumns.put(dbColumn.getColumnName(), dbColumn);
+		}
+		Set<String> dbForeignKeys = new HashSet<String>();
+		for ( DatabaseForeignKey dbForeignKey : dbTable.getForeignKeys() ) {
+			dbForeignKeys.add(dbForeignKey.getForeignKeyName());
+		}
+		
+		List<ColumnChange> columnChanges = new LinkedList<ColumnChange>();
+		List<ForeignKeyChange> foreignKeyChanges = new LinkedList<ForeignKeyChange>();
+		
+		//--- Columns and foreign keys that no longer exist in the database 
+		for ( Column column : entity.getColumnsCollection() ) {
+			if ( ! dbColumns.containsKey(column.getDatabaseName()) ) {
+				columnChanges.add( new ColumnChange(Change.REMOVED, column.getDatabaseName(), null) );
 			}
 		}
-
-		//--------------------------------------------------------------------------------
-		// 2) remove the foreign keys that doesn't exist in the Database 
-		//--------------------------------------------------------------------------------
-		//--- For each fk in the repository ...
-		ForeignKey[] fkeys = entity.getForeignKeys();
-		for (int i = 0; i < fkeys.length; i++) 
-		{
-			ForeignKey fk = fkeys[i];
-			String sFkName = fk.getName();
-			// Does it still exist in the DATABASE ?
-			if ( null == dbTable.getForeignKeyByName(sFkName) )
-			{
-				//--- This FK doesn't exist in the DB => remove it from the repo
-				entity.removeForeignKey(fk);
-				changeCount++;
-				_updateLogger.println(" . Foreign key '" + sFkName + "' removed");
+		for ( ForeignKey fk : entity.getForeignKeysCollection() ) {
+			if ( ! dbForeignKeys.contains(fk.getName()) ) {
+				foreignKeyChanges.add( new ForeignKeyChange(Change.REMOVED, fk.getName(), fk) );
 			}
 		}
 
-		//--------------------------------------------------------------------------------
-		// 3) UPDATE existing COLUMNS if necessary and ADD new ones
-		//--------------------------------------------------------------------------------
-		//--- For each column of the table in the DataBase ...
-		List<DatabaseColumn> dbColumns = dbTable.getColumns();
-		for ( DatabaseColumn dbColumn : dbColumns ) {
+		//--- Existing columns ( updated if necessary ) and new columns
+		for ( DatabaseColumn dbColumn : dbTable.getColumns() ) {
 			String sColumnName = dbColumn.getColumnName();
-			
-			//--- Search this column in the REPOSITORY
 			Column column = entity.getColumn(sColumnName);
-			if ( column != null ) 
-			{
-				// The column exists => update it
-				changeCount = changeCount + updateEntityAttribute(column, dbColumn);
-
+			if ( column != null ) {
+				List<AttributeChange> attributeChanges = computeColumnAttributesChanges(column, dbColumn);
+				if ( ! attributeChanges.isEmpty() ) {
+					columnChanges.add( new ColumnChange(Change.UPDATED, sColumnName, dbColumn, attributeChanges) );
+				}
 			} else {
-				// The column doesn't exist => add it
-				column = addEntityAttribute(entity, dbColumn);
-				_updateLogger.println(" . Column '" + sColumnName + "' added");
-				changeCount++;
+				columnChanges.add( new ColumnChange(Change.ADDED, sColumnName, dbColumn) );
 			}
-			//--- If this column is a member of a Foreign Key
-			//setFkAttribute(sColumnName, column, listFK);
 		}
 
-		//--------------------------------------------------------------------------------
-		// 4) UPDATE existing FOREIGN KEYS if necessary and ADD new ones
-		//--------------------------------------------------------------------------------
-		//--- For each FK of the table in the DataBase ...( v 0.9.0 )
-		List<DatabaseForeignKey> dbForeignKeys = dbTable.getForeignKeys();
-		for ( DatabaseForeignKey dbForeignKey : dbForeignKeys ) {
-			
+		//--- Existing foreign keys ( updated if changed ) and new foreign keys ( v 0.9.0 )
+		for ( DatabaseForeignKey dbForeignKey : dbTable.getForeignKeys() ) {
 			String sFkName = dbForeignKey.getForeignKeyName();
-			
-			//--- Search this foreign key in the REPOSITORY
 			ForeignKey newForeignKey = buildForeignKey(dbForeignKey) ;
 			ForeignKey foreignKey = entity.getForeignKey(sFkName);
-			if ( foreignKey != null ) 
-			{
-				// The FK exists => update it if it has changed
-				if ( ! foreignKey.equals( newForeignKey ) )
-				{
-					// 
-					entity.storeForeignKey(newForeignKey);
-					changeCount++;
-					_updateLogger.println(" . Foreign key '" + sFkName + "' updated");
+			if ( foreignKey != null ) {
+				if ( ! foreignKey.equals( newForeignKey ) ) {
+					foreignKeyChanges.add( new ForeignKeyChange(Change.UPDATED, sFkName, newForeignKey) );
+				}
+			} else {
+				foreignKeyChanges.add( new ForeignKeyChange(Change.ADDED, sFkName, newForeignKey) );
+			}
+		}
+		
+		boolean changed = databaseTypeChange != null || ! columnChanges.isEmpty() || ! foreignKeyChanges.isEmpty() ;
+		return new EntityChange(changed ? Change.UPDATED : Change.UNCHANGED, entity.getName(), dbTable, 
+				databaseType, databaseTypeChange, columnChanges, foreignKeyChanges);
+	}
+
+	private List<AttributeChange> computeColumnAttributesChanges(Column column, DatabaseColumn dbColumn) 
+	{
+		List<AttributeChange> changes = new LinkedList<AttributeChange>();
+		checkAttribute(changes, ColumnChange.DATABASE_TYPE,  "Database type",    
+				column.getDatabaseTypeName(), dbColumn.getDbTypeName() ); // Database native type	
+		checkAttribute(changes, ColumnChange.JDBC_TYPE_CODE, "JDBC type code",   
+				String.valueOf(column.getJdbcTypeCode()), String.valueOf(dbColumn.getJdbcTypeCode()) ); 
+		checkAttribute(changes, ColumnChange.NOT_NULL,       "NotNull",          
+				column.getDatabaseNotNullAsString(), dbColumn.getNotNullAsString() ); 
+		checkAttribute(changes, ColumnChange.SIZE,           "Size",             
+				String.valueOf(column.getDatabaseSize()), String.valueOf(dbColumn.getSize()) ); 
+		checkAttribute(changes, ColumnChange.COMMENT,        "Comment",          
+				column.getDatabaseComment(), dbColumn.getComment() ); // Database comment - v 2.1.1 #LCH 
+		checkAttribute(changes, ColumnChange.PRIMARY_KEY,    "Primary Key flag", 
+				String.valueOf(column.isPrimaryKey()), String.valueOf(dbColumn.isInPrimaryKey()) ); 
+		// TODO 
+		// . default value
+		// . auto incremented
+		// . in foreign key
+		return changes ;
+	}
+	
+	private void checkAttribute(List<AttributeChange> changes, int attribute, String label, String currentValue, String newValue) 
+	{
+		boolean same = ( currentValue == null ? newValue == null : currentValue.equals(newValue) ) ;
+		if ( ! same ) {
+			changes.add( new AttributeChange(attribute, label, currentValue, newValue) );
+		}
+	}
+
+	// -----------------------------------------------------------------------------------------------------
+	// CHANGES APPLICATION 
+	// -----------------------------------------------------------------------------------------------------
+	/**
+	 * Applies the given changes to the repository model 
+	 * 
+	 * @param repositoryModel
+	 * @param changes the changes computed for this repository model
+	 * @since 2.1.1
+	 */
+	public void applyChanges(RepositoryModel repositoryModel, RepositoryChanges changes) 
+	{
+		for ( EntityChange entityChange : changes.getEntityChanges() ) {
+			if ( entityChange.isAdded() ) {
+				addEntity(repositoryModel, entityChange.getDatabaseTable()) ;
+			}
+			else if ( entityChange.isRemoved() ) {
+				repositoryModel.removeEntity(entityChange.getName());
+			}
+			else {
+				Entity entity = repositoryModel.getEntityByName(entityChange.getName());
+				if ( entity != null ) {
+					applyEntityChange(entity, entityChange);
 				}
 			}
-			else
-			{
-				// The FK doesn't exist => add it to the list
-				entity.storeForeignKey(newForeignKey);
-				changeCount++;
-				_updateLogger.println(" . Foreign key '" + sFkName + "' added");
+		}
+	}
+	
+	private void applyEntityChange(Entity entity, EntityChange entityChange) 
+	{
+		if ( entityChange.getDatabaseType() != null ) {
+			entity.setDatabaseType(entityChange.getDatabaseType());
+		}
+		for ( ColumnChange columnChange : entityChange.getColumnChanges() ) {
+			Column column = entity.getColumn(columnChange.getName());
+			if ( columnChange.isRemoved() ) {
+				if ( column != null ) {
+					entity.removeColumn(column);
+				}
+			}
+			else if ( columnChange.isAdded() ) {
+				entity.storeColumn( buildColumn( columnChange.getDatabaseColumn() ) );
+			}
+			else if ( column != null ) {
+				updateColumn(column, columnChange);
 			}
 		}
+		for ( ForeignKeyChange foreignKeyChange : entityChange.getForeignKeyChanges() ) {
+			if ( foreignKeyChange.isRemoved() ) {
+				entity.removeForeignKey(foreignKeyChange.getForeignKey());
+			}
+			else {
+				entity.storeForeignKey(foreignKeyChange.getForeignKey());
+			}
+		}
+	}
+	
+	private void updateColumn(Column column, ColumnChange columnChange) 
+	{
+		DatabaseColumn dbColumn = columnChange.getDatabaseColumn();
+		for ( AttributeChange change : columnChange.getAttributeChanges() ) {
+			switch ( change.getAttribute() ) {
+			case ColumnChange.DATABASE_TYPE :
+				column.setDatabaseTypeName(dbColumn.getDbTypeName());
+				break ;
+			case ColumnChange.JDBC_TYPE_CODE :
+				column.setJdbcTypeCode(dbColumn.getJdbcTypeCode());
+				break ;
+			case ColumnChange.NOT_NULL :
+				column.setDatabaseNotNull(dbColumn.getNotNullAsString());
+				break ;
+			case ColumnChange.SIZE :
+				column.setDatabaseSize(dbColumn.getSize());
+				break ;
+			case ColumnChange.COMMENT :
+				column.setDatabaseComment(dbColumn.getComment());
+				break ;
+			case ColumnChange.PRIMARY_KEY :
+				column.setPrimaryKey(dbColumn.isInPrimaryKey());
+				break ;
+			default :
+				break ;
+			}
+		}
+	}
 
-		//--- Number of changes
-		return changeCount;
+	// -----------------------------------------------------------------------------------------------------
+	// UPDATE LOG 
+	// -----------------------------------------------------------------------------------------------------
+	private void printChanges(RepositoryChanges changes) 
+	{
+		for ( EntityChange entityChange : changes.getEntityChanges() ) {
+			String sTableName = entityChange.getName();
+			_updateLogger.println(" ");
+			if ( entityChange.isAdded() ) {
+				_updateLogger.println(" Table '" + sTableName + "' not found in repository");
+				_updateLogger.println(" (+) table '" + sTableName + "' added");
+			}
+			else if ( entityChange.isRemoved() ) {
+				_updateLogger.println(" Table '" + sTableName + "' no longer exists in database");
+				_updateLogger.println(" (-) table '" + sTableName + "' removed");
+			}
+			else {
+				_updateLogger.println(" Table '" + sTableName + "' found in repository");
+				printEntityChanges(entityChange);
+				int entityChanges = entityChange.getChangesCount();
+				if (entityChanges > 0) {
+					_updateLogger.println(" (*) table '" + sTableName + "' updated : " + entityChanges + " change(s)");
+				} else {
+					_updateLogger.println(" (=) table '" + sTableName + "' unchanged");
+				}
+			}
+		}
 	}
 	
-	private boolean checkTableExistsInDatabase(String sTableName, LinkedList<String> databaseTables) {
-		// --- Search the Table Name in the Database Tables
-		int n = databaseTables.size();
-		for (int i = 0; i < n; i++) {
-			String s = databaseTables.get(i);
-			if (s != null) {
-				if (s.equals(sTableName))
-					return true;
+	private void printEntityChanges(EntityChange entityChange) 
+	{
+		AttributeChange typeChange = entityChange.getDatabaseTypeChange() ;
+		if ( typeChange != null ) {
+			_updateLogger.println(" . Type has changed '" + typeChange.getOldValue() + "' --> '" + typeChange.getNewValue() + "'");
+		}
+		//--- Removed columns and foreign keys
+		for ( ColumnChange change : entityChange.getColumnChanges() ) {
+			if ( change.isRemoved() ) {
+				_updateLogger.println(" . Column '" + change.getName() + "' removed");
+			}
+		}
+		for ( ForeignKeyChange change : entityChange.getForeignKeyChanges() ) {
+			if ( change.isRemoved() ) {
+				_updateLogger.println(" . Foreign key '" + change.getName() + "' removed");
+			}
+		}
+		//--- Updated and added columns 
+		for ( ColumnChange change : entityChange.getColumnChanges() ) {
+			if ( change.isUpdated() ) {
+				for ( AttributeChange attributeChange : change.getAttributeChanges() ) {
+					_updateLogger.println(" . Column '" + change.getName() + "' : " 
+							+ attributeChange.getLabel() + " changed to " + attributeChange.getNewValue());
+				}
+			}
+			else if ( change.isAdded() ) {
+				_updateLogger.println(" . Column '" + change.getName() + "' added");
+			}
+		}
+		//--- Updated and added foreign keys 
+		for ( ForeignKeyChange change : entityChange.getForeignKeyChanges() ) {
+			if ( change.isUpdated() ) {
+				_updateLogger.println(" . Foreign key '" + change.getName() + "' updated");
+			}
+			else if ( change.isAdded() ) {
+				_updateLogger.println(" . Foreign key '" + change.getName() + "' added");
 			}
 		}
-		return false;
 	}
 }
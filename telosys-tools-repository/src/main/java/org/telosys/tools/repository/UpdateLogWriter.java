@@ -16,90 +16,267 @@
 package org.telosys.tools.repository ;
 
 /**
+ * Writer for the repository update log <br>
+ * The lines are queued and written in the file by a background thread ( buffered writer ) <br>
+ * The file is flushed : <br>
+ * . on close ( always ) <br>
+ * . every N lines ( if set ) <br>
+ * . after a time interval ( if set ) or when there's no more line to write <br>
+ * 
  * @author Laurent GUERIN
  * 
  */
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 public class UpdateLogWriter
 {
-    private final static int                LF              = 1;
+	public final static String DEFAULT_CHARSET        = "UTF-8" ;
+	
+	public final static int    DEFAULT_QUEUE_CAPACITY = 10000 ;
+	
+	public final static long   DEFAULT_FLUSH_INTERVAL = 1000 ; // 1 second
+	
+	private final static long  QUEUE_CHECK_INTERVAL   = 100 ; // writer thread checked every 100 ms when the queue is full 
+	
+	private final static int   LF   = 1;
+
+	private final static int   CRLF = 2;
+
+	//--- Type de fin de ligne
+	private int                _iEndOfLine     = LF;
+	
+	private final static String END_OF_QUEUE = new String("END_OF_QUEUE") ; // compared by reference
+	
+	private final File                  _file ;
+	
+	private final Writer                _writer ;
+	
+	private final BlockingQueue<String> _queue ;
+	
+	private final Thread                _writerThread ;
+	
+	//--- Flush policy and console mirror ( can be changed before the first line ) 
+	private volatile int     _flushEveryLines    = 0 ; // 0 : no flush after N lines 
+	
+	private volatile long    _flushIntervalMillis = DEFAULT_FLUSH_INTERVAL ; // 0 : no periodic flush 
+	
+	private volatile boolean _consoleMirror      = false ;
+	
+	private volatile IOException _writeError = null ;
+	
+	private boolean _closed = false ;
+	
+	//-----------------------------------------------------------------------------
+	//--- CONSTRUCTORS
+	//-----------------------------------------------------------------------------
+	public UpdateLogWriter(File file)
+	{
+		this(file, DEFAULT_CHARSET, DEFAULT_QUEUE_CAPACITY);
+	}
+	
+	/**
+	 * Constructor
+	 * @param file the log file
+	 * @param charset the charset used to write the file 
+	 * @param queueCapacity the maximum number of lines waiting to be written ( "println" waits when the queue is full )
+	 * @since 2.1.1
+	 */
+	public UpdateLogWriter(File file, String charset, int queueCapacity)
+	{
+		if (file == null)
+		{
+			throw new RuntimeException("LogWriter constructor : file parameter is null");
+		}
+		_file = file ;
+		_writer = init(file, charset);
+		_queue = new ArrayBlockingQueue<String>(queueCapacity);
+		_writerThread = new Thread(new QueueWriter(), "UpdateLogWriter");
+		_writerThread.setDaemon(true);
+		_writerThread.start();
+	}
+	
+	private Writer init(File file, String charset)
+	{
+		try
+		{
+			return new BufferedWriter( new OutputStreamWriter( new FileOutputStream(file), charset ) );
+		} catch (FileNotFoundException ex) // Cannot create file
+		{
+			throw new RuntimeException("LogWriter : Cannot create file '" + file.getAbsolutePath() + "'");
+		} catch (UnsupportedEncodingException e) 
+		{
+			throw new RuntimeException("LogWriter : Unsupported charset '" + charset + "'");
+		}
+	}
+	
+	//-----------------------------------------------------------------------------
+	/**
+	 * Flush the file every N lines 
+	 * @param n number of lines ( 0 for no flush by number of lines )
+	 * @since 2.1.1
+	 */
+	public void setFlushEveryLines(int n) {
+		_flushEveryLines = n ;
+	}
+
+	/**
+	 * Flush the file after the given interval ( if there are lines not yet flushed ) 
+	 * @param millis interval in milliseconds ( 0 for no periodic flush )
+	 * @since 2.1.1
+	 */
+	public void setFlushInterval(long millis) {
+		_flushIntervalMillis = millis ;
+	}
+
+	/**
+	 * Print each line on the console too ( "System.out" )
+	 * @param consoleMirror
+	 * @since 2.1.1
+	 */
+	public void setConsoleMirror(boolean consoleMirror) {
+		_consoleMirror = consoleMirror ;
+	}
+
+	//-----------------------------------------------------------------------------
+	public void println( String msg )
+	{
+		if ( _consoleMirror ) {
+			System.out.println(msg);
+		}
+		checkState();
+		try {
+			if ( ! enqueue( String.valueOf(msg) ) ) {
+				throw new RuntimeException("LogWriter : cannot write (writer thread stopped)");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("LogWriter : cannot write (interrupted)");
+		}
+	}
+
+	/**
+	 * Puts the given line in the queue, waiting if the queue is full as long as the writer thread is alive
+	 * @param line
+	 * @return false if the writer thread is stopped ( the line cannot be written )
+	 * @throws InterruptedException
+	 */
+	private boolean enqueue(String line) throws InterruptedException 
+	{
+		while ( ! _queue.offer(line, QUEUE_CHECK_INTERVAL, TimeUnit.MILLISECONDS) ) {
+			if ( ! _writerThread.isAlive() ) {
+				return false ; // nobody will take the line
+			}
+		}
+		return true ;
+	}
+
+	private void checkState() 
+	{
+		if ( _writeError != null ) {
+			throw new RuntimeException("LogWriter : cannot write (IOException)");
+		}
+		synchronized (this) {
+			if ( _closed ) {
+				throw new RuntimeException("LogWriter : cannot write (closed) '" + _file.getAbsolutePath() + "'");
+			}
+		}
+	}
 
-    private final static int                CRLF            = 2;
+	//-----------------------------------------------------------------------------
+	/**
+	 * Writes all the pending lines, flushes and closes the file 
+	 */
+	synchronized public void close()
+	{
+		if ( _closed ) {
+			return ;
+		}
+		_closed = true ;
+		try {
+			if ( enqueue(END_OF_QUEUE) ) {
+				_writerThread.join();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			_writer.close();
+		} catch (IOException e) {
+			throw new RuntimeException("LogWriter : cannot close (IOException)");
+		}
+		if ( _writeError != null ) {
+			throw new RuntimeException("LogWriter : cannot write (IOException)");
+		}
+	}
 
-    //--- Type de fin de ligne
-    private int                             _iEndOfLine     = LF;
-	
-	private FileOutputStream _fos = null ;
-	
-    //-----------------------------------------------------------------------------
-    //--- CONSTRUCTORS
-    //-----------------------------------------------------------------------------
-    public UpdateLogWriter(File file)
-    {
-        if (file != null)
-        {
-	    	init(file);
-        }
-        else
-        {
-        	throw new RuntimeException("LogWriter constructor : file parameter is null");
-        	//MsgBox.error("LogWriter constructor : file parameter is null");
-        }
-    }
-    
-    private void init(File file)
-    {
-        try
-        {
-            _fos = new FileOutputStream(file);
-        } catch (FileNotFoundException ex) // Cannot create file
-        {
-        	throw new RuntimeException("LogWriter : Cannot create file '" + file.getAbsolutePath() + "'");
-        	//MsgBox.error("LogWriter : Cannot create file '" + file.getAbsolutePath() + "'");
-        }
-    }
-    
-    //-----------------------------------------------------------------------------
-    synchronized public void println( String msg )
-    {
-    	System.out.println("LogWritter.println (" + msg + ")");
-        if (_fos != null)
-        {
-            try
-            {
-                _fos.write(msg.getBytes());
-                if (_iEndOfLine == CRLF)
-                {
-                	_fos.write('\r');
-                	_fos.write('\n');
-                }
-                else
-                {
-                	_fos.write('\n');
-                }
-                _fos.flush();
-            } catch (IOException ex)
-            {
-            	throw new RuntimeException("LogWriter : cannot write (IOException)");
-	        	//MsgBox.error("LogWriter : cannot write (IOException)");
-            }
-        }
-    }
-    //-----------------------------------------------------------------------------
-    synchronized public void close()
-    {
-        if (_fos != null)
-        {
-        	try {
-				_fos.close();
+	//-----------------------------------------------------------------------------
+	/**
+	 * Background task writing the queued lines 
+	 */
+	private class QueueWriter implements Runnable
+	{
+		public void run() 
+		{
+			int notFlushed = 0 ;
+			long lastFlush = System.currentTimeMillis();
+			try {
+				while ( true ) {
+					long interval = _flushIntervalMillis ;
+					String line = ( notFlushed > 0 && interval > 0 ) 
+							? _queue.poll(Math.max(1, lastFlush + interval - System.currentTimeMillis()), TimeUnit.MILLISECONDS) 
+							: _queue.take() ;
+					if ( line == END_OF_QUEUE ) {
+						break ;
+					}
+					if ( line != null && _writeError == null ) {
+						writeLine(line);
+						notFlushed++ ;
+					}
+					//--- Flush policy 
+					int everyLines = _flushEveryLines ;
+					boolean flushByLines = everyLines > 0 && notFlushed >= everyLines ;
+					boolean flushByTime  = interval > 0 && notFlushed > 0 
+							&& ( line == null || System.currentTimeMillis() - lastFlush >= interval ) ;
+					if ( ( flushByLines || flushByTime ) && _writeError == null ) {
+						_writer.flush();
+						notFlushed = 0 ;
+						lastFlush = System.currentTimeMillis();
+					}
+				}
+			} catch (InterruptedException e) {
+				// stop writing 
+			} catch (IOException e) {
+				_writeError = e ;
+			} catch (RuntimeException e) {
+				_writeError = new IOException("Unexpected error in writer thread", e) ;
+			}
+		}
+		
+		private void writeLine(String line) 
+		{
+			try {
+				_writer.write(line);
+				if (_iEndOfLine == CRLF)
+				{
+					_writer.write("\r\n");
+				}
+				else
+				{
+					_writer.write('\n');
+				}
 			} catch (IOException e) {
-				throw new RuntimeException("LogWriter : cannot close (IOException)");
-	        	//MsgBox.error("LogWriter : cannot close (IOException)");
+				_writeError = e ;
 			}
-        }
-    }
-}
\ No newline at end of file
+		}
+	}
+}
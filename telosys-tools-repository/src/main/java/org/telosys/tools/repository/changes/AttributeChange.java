@@ -0,0 +1,70 @@
+/**
+ *  Copyright (C) 2008-2013  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.repository.changes;
+
+/**
+ * Change on a single attribute ( of an entity or a column ) 
+ * 
+ * @author Laurent Guerin
+ * @since 2.1.1
+ */
+public class AttributeChange 
+{
+	private final int    attribute ;
+	
+	private final String label ;
+	
+	private final String oldValue ;
+	
+	private final String newValue ;
+
+	public AttributeChange(int attribute, String label, String oldValue, String newValue) {
+		super();
+		this.attribute = attribute ;
+		this.label = label ;
+		this.oldValue = oldValue ;
+		this.newValue = newValue ;
+	}
+
+	/**
+	 * Returns the attribute id ( see the constants in ColumnChange and EntityChange )
+	 * @return
+	 */
+	public int getAttribute() {
+		return attribute ;
+	}
+
+	/**
+	 * Returns the attribute label used in the update log ( e.g. "Database type" )
+	 * @return
+	 */
+	public String getLabel() {
+		return label ;
+	}
+
+	public String getOldValue() {
+		return oldValue ;
+	}
+
+	public String getNewValue() {
+		return newValue ;
+	}
+	
+	@Override
+	public String toString() {
+		return label + " : '" + oldValue + "' --> '" + newValue + "'" ;
+	}
+}
@@ -0,0 +1,75 @@
+/**
+ *  Copyright (C) 2008-2013  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.repository.changes;
+
+/**
+ * Base class of all the changes found between the repository and the database <br>
+ * ( a change on an entity, a column or a foreign key identified by its name )
+ * 
+ * @author Laurent Guerin
+ * @since 2.1.1
+ */
+public abstract class Change 
+{
+	public final static int UNCHANGED = 0 ;
+	public final static int ADDED     = 1 ;
+	public final static int REMOVED   = 2 ;
+	public final static int UPDATED   = 3 ;
+	
+	private final int    type ;
+	
+	private final String name ;
+
+	protected Change(int type, String name) {
+		super();
+		this.type = type ;
+		this.name = name ;
+	}
+
+	/**
+	 * Returns the type of change ( ADDED, REMOVED, UPDATED or UNCHANGED )
+	 * @return
+	 */
+	public int getType() {
+		return type ;
+	}
+
+	/**
+	 * Returns the name of the changed element ( table name, column name or foreign key name )
+	 * @return
+	 */
+	public String getName() {
+		return name ;
+	}
+
+	public boolean isAdded() {
+		return type == ADDED ;
+	}
+
+	public boolean isRemoved() {
+		return type == REMOVED ;
+	}
+
+	public boolean isUpdated() {
+		return type == UPDATED ;
+	}
+
+	/**
+	 * Returns the number of elementary changes ( 1 for an added or removed element )
+	 * @return
+	 */
+	public abstract int getChangesCount() ;
+}
@@ -0,0 +1,86 @@
+/**
+ *  Copyright (C) 2008-2013  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.repository.changes;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.telosys.tools.db.model.DatabaseColumn;
+
+/**
+ * Change on a column of an entity 
+ * 
+ * @author Laurent Guerin
+ * @since 2.1.1
+ */
+public class ColumnChange extends Change
+{
+	//--- Column attributes checked by the repository update
+	public final static int DATABASE_TYPE  = 1 ;
+	public final static int JDBC_TYPE_CODE = 2 ;
+	public final static int NOT_NULL       = 3 ;
+	public final static int SIZE           = 4 ;
+	public final static int COMMENT        = 5 ;
+	public final static int PRIMARY_KEY    = 6 ;
+	
+	private final DatabaseColumn        databaseColumn ;
+	
+	private final List<AttributeChange> attributeChanges ;
+
+	/**
+	 * Constructor for an added or removed column
+	 * @param type
+	 * @param name
+	 * @param databaseColumn the database column ( null if removed )
+	 */
+	public ColumnChange(int type, String name, DatabaseColumn databaseColumn) {
+		this(type, name, databaseColumn, Collections.<AttributeChange>emptyList());
+	}
+
+	/**
+	 * Constructor for an updated column
+	 * @param type
+	 * @param name
+	 * @param databaseColumn the database column 
+	 * @param attributeChanges the changes on the column attributes
+	 */
+	public ColumnChange(int type, String name, DatabaseColumn databaseColumn, List<AttributeChange> attributeChanges) {
+		super(type, name);
+		this.databaseColumn = databaseColumn ;
+		this.attributeChanges = Collections.unmodifiableList(attributeChanges) ;
+	}
+
+	/**
+	 * Returns the database column ( null if the column has been removed from the database )
+	 * @return
+	 */
+	public DatabaseColumn getDatabaseColumn() {
+		return databaseColumn ;
+	}
+
+	/**
+	 * Returns the changes on the column attributes ( for an updated column )
+	 * @return
+	 */
+	public List<AttributeChange> getAttributeChanges() {
+		return attributeChanges ;
+	}
+
+	@Override
+	public int getChangesCount() {
+		return isUpdated() ? attributeChanges.size() : 1 ;
+	}
+}
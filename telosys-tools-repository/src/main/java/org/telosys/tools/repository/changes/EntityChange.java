@@ -0,0 +1,133 @@
+/**
+ *  Copyright (C) 2008-2013  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.repository.changes;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.telosys.tools.db.model.DatabaseTable;
+
+/**
+ * Change on an entity ( a table added, removed, updated or unchanged ) 
+ * 
+ * @author Laurent Guerin
+ * @since 2.1.1
+ */
+public class EntityChange extends Change
+{
+	//--- Entity attributes checked by the repository update
+	public final static int DATABASE_TYPE = 1 ;
+	
+	private final DatabaseTable          databaseTable ;
+	
+	private final String                 databaseType ;
+	
+	private final AttributeChange        databaseTypeChange ;
+	
+	private final List<ColumnChange>     columnChanges ;
+	
+	private final List<ForeignKeyChange> foreignKeyChanges ;
+
+	/**
+	 * Constructor for an added or removed entity
+	 * @param type
+	 * @param name
+	 * @param databaseTable the database table ( null if removed )
+	 */
+	public EntityChange(int type, String name, DatabaseTable databaseTable) {
+		this(type, name, databaseTable, null, null, 
+				Collections.<ColumnChange>emptyList(), Collections.<ForeignKeyChange>emptyList() );
+	}
+
+	/**
+	 * Constructor for an existing entity ( updated or unchanged )
+	 * @param type
+	 * @param name
+	 * @param databaseTable the database table 
+	 * @param databaseType the database type to set in the entity ( or null if none )
+	 * @param databaseTypeChange the change on the database type ( or null if none )
+	 * @param columnChanges 
+	 * @param foreignKeyChanges
+	 */
+	public EntityChange(int type, String name, DatabaseTable databaseTable, 
+			String databaseType, AttributeChange databaseTypeChange,
+			List<ColumnChange> columnChanges, List<ForeignKeyChange> foreignKeyChanges) {
+		super(type, name);
+		this.databaseTable = databaseTable ;
+		this.databaseType = databaseType ;
+		this.databaseTypeChange = databaseTypeChange ;
+		this.columnChanges = Collections.unmodifiableList(columnChanges) ;
+		this.foreignKeyChanges = Collections.unmodifiableList(foreignKeyChanges) ;
+	}
+
+	/**
+	 * Returns the database table ( null if the table has been removed from the database )
+	 * @return
+	 */
+	public DatabaseTable getDatabaseTable() {
+		return databaseTable ;
+	}
+
+	/**
+	 * Returns the database type ( "TABLE", "VIEW", ... ) to be set in the entity <br>
+	 * ( not null if changed or not yet set in the entity )
+	 * @return
+	 */
+	public String getDatabaseType() {
+		return databaseType ;
+	}
+
+	/**
+	 * Returns the change on the database type ( null if the type has not changed )
+	 * @return
+	 */
+	public AttributeChange getDatabaseTypeChange() {
+		return databaseTypeChange ;
+	}
+
+	/**
+	 * Returns the changes on the columns <br>
+	 * ( the removed columns first, then the updated and added columns in the database order )
+	 * @return
+	 */
+	public List<ColumnChange> getColumnChanges() {
+		return columnChanges ;
+	}
+
+	/**
+	 * Returns the changes on the foreign keys <br>
+	 * ( the removed foreign keys first, then the updated and added ones in the database order )
+	 * @return
+	 */
+	public List<ForeignKeyChange> getForeignKeyChanges() {
+		return foreignKeyChanges ;
+	}
+
+	@Override
+	public int getChangesCount() {
+		if ( isAdded() || isRemoved() ) {
+			return 1 ;
+		}
+		int count = ( databaseTypeChange != null ? 1 : 0 ) ;
+		for ( ColumnChange change : columnChanges ) {
+			count = count + change.getChangesCount() ;
+		}
+		for ( ForeignKeyChange change : foreignKeyChanges ) {
+			count = count + change.getChangesCount() ;
+		}
+		return count ;
+	}
+}
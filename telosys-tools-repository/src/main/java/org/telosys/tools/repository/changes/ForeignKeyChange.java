@@ -0,0 +1,53 @@
+/**
+ *  Copyright (C) 2008-2013  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.repository.changes;
+
+import org.telosys.tools.repository.model.ForeignKey;
+
+/**
+ * Change on a foreign key of an entity 
+ * 
+ * @author Laurent Guerin
+ * @since 2.1.1
+ */
+public class ForeignKeyChange extends Change
+{
+	private final ForeignKey foreignKey ;
+
+	/**
+	 * Constructor
+	 * @param type
+	 * @param name
+	 * @param foreignKey the new foreign key ( or the removed one )
+	 */
+	public ForeignKeyChange(int type, String name, ForeignKey foreignKey) {
+		super(type, name);
+		this.foreignKey = foreignKey ;
+	}
+
+	/**
+	 * Returns the foreign key built from the database ( or the removed one )
+	 * @return
+	 */
+	public ForeignKey getForeignKey() {
+		return foreignKey ;
+	}
+
+	@Override
+	public int getChangesCount() {
+		return 1 ;
+	}
+}
@@ -0,0 +1,79 @@
+/**
+ *  Copyright (C) 2008-2013  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.repository.changes;
+
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * All the changes found between the repository and the database <br>
+ * ( the existing and new tables in the database order, then the removed tables )
+ * 
+ * @author Laurent Guerin
+ * @since 2.1.1
+ */
+public class RepositoryChanges 
+{
+	private final List<EntityChange> entityChanges = new LinkedList<EntityChange>();
+
+	public void addEntityChange(EntityChange change) {
+		entityChanges.add(change);
+	}
+
+	/**
+	 * Returns all the entities ( including the unchanged ones )
+	 * @return
+	 */
+	public List<EntityChange> getEntityChanges() {
+		return Collections.unmodifiableList(entityChanges) ;
+	}
+
+	/**
+	 * Returns the entities with the given type of change 
+	 * @param type ADDED, REMOVED, UPDATED or UNCHANGED
+	 * @return
+	 */
+	public List<EntityChange> getEntityChanges(int type) {
+		List<EntityChange> list = new LinkedList<EntityChange>();
+		for ( EntityChange change : entityChanges ) {
+			if ( change.getType() == type ) {
+				list.add(change);
+			}
+		}
+		return list ;
+	}
+
+	/**
+	 * Returns the total number of elementary changes
+	 * @return
+	 */
+	public int getChangesCount() {
+		int count = 0 ;
+		for ( EntityChange change : entityChanges ) {
+			count = count + change.getChangesCount() ;
+		}
+		return count ;
+	}
+	
+	/**
+	 * Returns true if there's no change 
+	 * @return
+	 */
+	public boolean isEmpty() {
+		return getChangesCount() == 0 ;
+	}
+}
@@ -17,7 +17,9 @@ package org.telosys.tools.repository.model;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Hashtable;
+import java.util.List;
 
 /**
  * "Entity" model class ( a Database Table mapped to a Java Class ) <br>
@@ -57,6 +59,22 @@ public class Entity implements Comparable<Entity>
 
 	private Hashtable<String,Link>       links       = new Hashtable<String,Link>() ;
 
+	private RepositoryModel model = null ; // the model holding this entity ( keeps its indexes up to date )
+
+	//--- Sorted snapshots of the columns and foreign keys ( reset after each change, rebuilt when needed )
+	private volatile List<Column>     sortedColumns     = null ;
+
+	private volatile List<ForeignKey> sortedForeignKeys = null ;
+
+	/**
+	 * Set the model holding this entity 
+	 * @param model the model or null if the entity is removed from its model
+	 * @since 2.1.1
+	 */
+	void setModel(RepositoryModel model) {
+		this.model = model ;
+	}
+
 	/**
 	 * Returns true if the entity can be considered as a "Join Table" <br>
 	 * Conditions : <br>
@@ -74,14 +92,14 @@ public class Entity implements Comparable<Entity>
 		} 
 				
 		//--- Check if all the columns are in the Primary Key
-		for ( Column column : getColumns() ) {
+		for ( Column column : getColumnsCollection() ) {
 			if ( ! column.isPrimaryKey() ) {
 				return false ;
 			}
 		}
 		
 		//--- Check if all the columns are in a Foreign Key
-		for ( Column column : getColumns() ) {
+		for ( Column column : getColumnsCollection() ) {
 			if ( ! column.isForeignKey() ) {
 				return false ;
 			}
@@ -236,29 +254,50 @@ public class Entity implements Comparable<Entity>
 	 */
 	public Column[] getColumns()
 	{
-		//return (Column[]) columns.values().toArray(new Column[columns.size()]);
-		Column[] cols = (Column[]) ( columns.values().toArray( new Column[columns.size()] ) );
-		Arrays.sort(cols);
-		return cols ;
+		List<Column> list = getSortedColumns();
+		return list.toArray( new Column[list.size()] );
 	}
 
 	/**
 	 * Returns a collection of all the columns of the entity.<br>
-	 * The columns are sorted by ordinal position (the original database order).
+	 * The columns are sorted by ordinal position (the original database order).<br>
+	 * The collection is an unmodifiable snapshot ( not changed by the next updates of the entity )
 	 * 
 	 * @return
 	 */
 	public Collection<Column> getColumnsCollection()
 	{
-		//return this.columns.values();
-		Column[] cols = getColumns();
-		return Arrays.asList(cols);
-		
+		return getSortedColumns();
 	}
 
+	private List<Column> getSortedColumns()
+	{
+		List<Column> snapshot = sortedColumns ;
+		if ( snapshot == null ) {
+			synchronized ( columns ) {
+				snapshot = sortedColumns ;
+				if ( snapshot == null ) {
+					Column[] cols = columns.values().toArray( new Column[columns.size()] );
+					Arrays.sort(cols);
+					snapshot = Collections.unmodifiableList( Arrays.asList(cols) );
+					sortedColumns = snapshot ;
+				}
+			}
+		}
+		return snapshot ;
+	}
+
+	/**
+	 * Store (add or update) the given column <br>
+	 * The column position must be set before ( the columns order is kept in a snapshot )
+	 * @param column
+	 */
 	public void storeColumn(Column column)
 	{
-		columns.put(column.getDatabaseName(), column);
+		synchronized ( columns ) {
+			columns.put(column.getDatabaseName(), column);
+			sortedColumns = null ;
+		}
 	}
 
 	public Column getColumn(String name)
@@ -268,7 +307,10 @@ public class Entity implements Comparable<Entity>
 
 	public void removeColumn(Column column)
 	{
-		columns.remove(column.getDatabaseName());
+		synchronized ( columns ) {
+			columns.remove(column.getDatabaseName());
+			sortedColumns = null ;
+		}
 	}
 
 	//--------------------------------------------------------------------------
@@ -282,28 +324,51 @@ public class Entity implements Comparable<Entity>
 	 */
 	public ForeignKey[] getForeignKeys()
 	{
-		ForeignKey[] array = (ForeignKey[]) foreignKeys.values().toArray(new ForeignKey[foreignKeys.size()]);
-		Arrays.sort(array);
-		return array ;
-		
+		List<ForeignKey> list = getSortedForeignKeys();
+		return list.toArray( new ForeignKey[list.size()] );
 	}
 	
 	/**
 	 * Returns a collection of all the foreign keys of the entity (table).<br>
-	 * The foreign keys are sorted by name.
+	 * The foreign keys are sorted by name.<br>
+	 * The collection is an unmodifiable snapshot ( not changed by the next updates of the entity )
 	 * @return
 	 */
 	public Collection<ForeignKey> getForeignKeysCollection()
 	{
-		//return foreignKeys.values() ;
-		ForeignKey[] array = getForeignKeys();
-		return Arrays.asList(array);
-		
+		return getSortedForeignKeys();
+	}
+	
+	private List<ForeignKey> getSortedForeignKeys()
+	{
+		List<ForeignKey> snapshot = sortedForeignKeys ;
+		if ( snapshot == null ) {
+			synchronized ( foreignKeys ) {
+				snapshot = sortedForeignKeys ;
+				if ( snapshot == null ) {
+					ForeignKey[] array = foreignKeys.values().toArray( new ForeignKey[foreignKeys.size()] );
+					Arrays.sort(array);
+					snapshot = Collections.unmodifiableList( Arrays.asList(array) );
+					sortedForeignKeys = snapshot ;
+				}
+			}
+		}
+		return snapshot ;
 	}
 	
 	public void storeForeignKey(ForeignKey foreignKey)
 	{
-		foreignKeys.put(foreignKey.getName(), foreignKey);
+		ForeignKey previous ;
+		synchronized ( foreignKeys ) {
+			previous = foreignKeys.put(foreignKey.getName(), foreignKey);
+			sortedForeignKeys = null ;
+		}
+		if ( model != null ) {
+			if ( previous != null ) {
+				model.unindexForeignKey(previous);
+			}
+			model.indexForeignKey(this, foreignKey);
+		}
 	}
 	
 	public ForeignKey getForeignKey(String name)
@@ -313,7 +378,14 @@ public class Entity implements Comparable<Entity>
 	
 	public void removeForeignKey(ForeignKey foreignKey)
 	{
-		foreignKeys.remove(foreignKey.getName() );
+		ForeignKey removed ;
+		synchronized ( foreignKeys ) {
+			removed = foreignKeys.remove(foreignKey.getName() );
+			sortedForeignKeys = null ;
+		}
+		if ( removed != null && model != null ) {
+			model.unindexForeignKey(removed);
+		}
 	}
 	
 	//--------------------------------------------------------------------------
@@ -344,7 +416,13 @@ public class Entity implements Comparable<Entity>
 	 */
 	public void storeLink(Link link)
 	{
-		links.put(link.getId(), link);
+		Link previous = links.put(link.getId(), link);
+		if ( model != null ) {
+			if ( previous != null ) {
+				model.unindexLink(previous);
+			}
+			model.indexLink(this, link);
+		}
 	}
 	
 	/**
@@ -363,7 +441,10 @@ public class Entity implements Comparable<Entity>
 	 */
 	public void removeLink(Link link)
 	{
-		links.remove( link.getId() );
+		Link removed = links.remove( link.getId() );
+		if ( removed != null && model != null ) {
+			model.unindexLink(removed);
+		}
 	}
 
 	/**
@@ -371,6 +452,11 @@ public class Entity implements Comparable<Entity>
 	 */
 	public void removeAllLinks()
 	{
+		if ( model != null ) {
+			for ( Link link : links.values() ) {
+				model.unindexLink(link);
+			}
+		}
 		links.clear();
 	}
 
@@ -0,0 +1,136 @@
+/**
+ *  Copyright (C) 2008-2013  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.repository.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Secondary index of the repository model ( key --> objects held by the entities ) <br>
+ * Several objects can have the same key ( in different entities ), in this case the <br>
+ * object returned by "get" is the one of the first entity in alphabetic order <br>
+ * ( as with a search in the sorted entities )
+ * 
+ * @author Laurent Guerin
+ * @since 2.1.1
+ *
+ * @param <T>
+ */
+class ModelIndex<T> 
+{
+	private final Map<String, List<IndexEntry<T>>> map = new HashMap<String, List<IndexEntry<T>>>();
+	
+	private final static class IndexEntry<T> {
+		private final String entityName ;
+		private final T      object ;
+		IndexEntry(String entityName, T object) {
+			this.entityName = entityName ;
+			this.object = object ;
+		}
+	}
+	
+	/**
+	 * Adds an object in the index ( nothing if the key is null )
+	 * @param key
+	 * @param entity the entity holding the object
+	 * @param object
+	 */
+	void add(String key, Entity entity, T object) {
+		if ( key != null ) {
+			List<IndexEntry<T>> entries = map.get(key);
+			if ( entries == null ) {
+				entries = new ArrayList<IndexEntry<T>>(1);
+				map.put(key, entries);
+			}
+			entries.add( new IndexEntry<T>(entity.getName(), object) );
+		}
+	}
+	
+	/**
+	 * Removes an object from the index 
+	 * @param key
+	 * @param object
+	 */
+	void remove(String key, T object) {
+		if ( key != null ) {
+			List<IndexEntry<T>> entries = map.get(key);
+			if ( entries != null ) {
+				Iterator<IndexEntry<T>> iterator = entries.iterator();
+				while ( iterator.hasNext() ) {
+					if ( iterator.next().object == object ) {
+						iterator.remove();
+						break ;
+					}
+				}
+				if ( entries.isEmpty() ) {
+					map.remove(key);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Returns the object for the given key ( or null if none )
+	 * @param key
+	 * @return
+	 */
+	T get(String key) {
+		if ( key == null ) {
+			return null ;
+		}
+		List<IndexEntry<T>> entries = map.get(key);
+		if ( entries == null ) {
+			return null ;
+		}
+		IndexEntry<T> first = entries.get(0);
+		for ( int i = 1 ; i < entries.size() ; i++ ) {
+			IndexEntry<T> entry = entries.get(i);
+			if ( compare(entry.entityName, first.entityName) < 0 ) {
+				first = entry ;
+			}
+		}
+		return first.object ;
+	}
+	
+	/**
+	 * Returns all the objects for the given key ( void list if none )
+	 * @param key
+	 * @return
+	 */
+	List<T> getAll(String key) {
+		List<T> objects = new LinkedList<T>();
+		if ( key != null ) {
+			List<IndexEntry<T>> entries = map.get(key);
+			if ( entries != null ) {
+				for ( IndexEntry<T> entry : entries ) {
+					objects.add(entry.object);
+				}
+			}
+		}
+		return objects ;
+	}
+	
+	private static int compare(String name1, String name2) {
+		if ( name1 == null || name2 == null ) {
+			return 0 ; // same rule as Entity.compareTo
+		}
+		return name1.compareTo(name2);
+	}
+}
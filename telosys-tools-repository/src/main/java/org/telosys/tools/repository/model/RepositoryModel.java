@@ -17,8 +17,10 @@ package org.telosys.tools.repository.model;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Hashtable;
+import java.util.List;
 
 public class RepositoryModel 
 {
@@ -36,6 +38,24 @@ public class RepositoryModel
 	
 	private Hashtable<String,Entity> htEntities = new Hashtable<String,Entity>() ; 
 
+	//--- Sorted snapshots of the entities and entities names ( reset after each change, rebuilt when needed )
+	private volatile List<Entity> sortedEntities = null ;
+	
+	private volatile List<String> sortedEntitiesNames = null ;
+
+	//--- Secondary indexes ( updated by the entities of the model when their links or foreign keys change )
+	private final ModelIndex<Link>       linksById         = new ModelIndex<Link>() ; 
+	
+	private final ModelIndex<Link>       inverseSideLinks  = new ModelIndex<Link>() ; // key = owning side link id
+	
+	private final ModelIndex<Link>       linksByTarget     = new ModelIndex<Link>() ; // key = target table name
+	
+	private final ModelIndex<Link>       linksByForeignKey = new ModelIndex<Link>() ; // key = foreign key name
+	
+	private final ModelIndex<Link>       linksByJoinTable  = new ModelIndex<Link>() ; // key = join table name
+	
+	private final ModelIndex<ForeignKey> foreignKeysByName = new ModelIndex<ForeignKey>() ; 
+
 	//-----------------------------------------------
 	public String getVersion() {
 		return version;
@@ -119,21 +139,19 @@ public class RepositoryModel
 	 * @return
 	 */
 	public Entity[] getEntities() {
-		Entity[] array = (Entity[]) htEntities.values().toArray( new Entity[htEntities.size()] );
-		Arrays.sort(array);
-		return array ;
+		List<Entity> list = getSortedEntities();
+		return list.toArray( new Entity[list.size()] );
 	}
 	
 	/**
 	 * Returns a collection of all the entities of the model.<br>
-	 * The entities are sorted by name.
+	 * The entities are sorted by name.<br>
+	 * The collection is an unmodifiable snapshot ( not changed by the next updates of the model )
 	 * 
 	 * @return
 	 */
 	public Collection<Entity> getEntitiesCollection() {
-		//return htEntities.values() ;
-		Entity[] entities = getEntities();
-		return Arrays.asList(entities);
+		return getSortedEntities();
 	}
 	
 	/**
@@ -143,17 +161,52 @@ public class RepositoryModel
 	 * @return
 	 */
 	public String[] getEntitiesNames() {
-		Collection<Entity> values = htEntities.values();
-		String[] names = new String[values.size()];
-		int cpt = 0;
-//		for (Iterator iterator = values.iterator(); iterator.hasNext();) {
-//			Entity entity = (Entity) iterator.next();
-		for ( Entity entity : values ) {
-			names[cpt] = entity.getName();
-			cpt++;
+		List<String> list = getSortedEntitiesNames();
+		return list.toArray( new String[list.size()] );
+	}
+	
+	/**
+	 * Returns the names of all the entities of the model.<br>
+	 * The names are sorted in alphabetic order.<br>
+	 * The list is an unmodifiable snapshot ( not changed by the next updates of the model )
+	 * 
+	 * @return
+	 * @since 2.1.1
+	 */
+	public List<String> getEntitiesNamesList() {
+		return getSortedEntitiesNames();
+	}
+	
+	private List<Entity> getSortedEntities() {
+		List<Entity> snapshot = sortedEntities ;
+		if ( snapshot == null ) {
+			synchronized ( htEntities ) {
+				snapshot = sortedEntities ;
+				if ( snapshot == null ) {
+					Entity[] array = htEntities.values().toArray( new Entity[htEntities.size()] );
+					Arrays.sort(array);
+					snapshot = Collections.unmodifiableList( Arrays.asList(array) );
+					sortedEntities = snapshot ;
+				}
+			}
 		}
-		Arrays.sort(names);
-		return names;
+		return snapshot ;
+	}
+	
+	private List<String> getSortedEntitiesNames() {
+		List<String> snapshot = sortedEntitiesNames ;
+		if ( snapshot == null ) {
+			synchronized ( htEntities ) {
+				snapshot = sortedEntitiesNames ;
+				if ( snapshot == null ) {
+					String[] names = htEntities.keySet().toArray( new String[htEntities.size()] );
+					Arrays.sort(names);
+					snapshot = Collections.unmodifiableList( Arrays.asList(names) );
+					sortedEntitiesNames = snapshot ;
+				}
+			}
+		}
+		return snapshot ;
 	}
 	
 	public Entity getEntityByName(String name) {
@@ -161,11 +214,83 @@ public class RepositoryModel
 	}
 	
 	public void storeEntity(Entity entity) {
-		htEntities.put(entity.getName(), entity);
+		Entity previous ;
+		synchronized ( htEntities ) {
+			previous = htEntities.put(entity.getName(), entity);
+			sortedEntities = null ;
+			sortedEntitiesNames = null ;
+		}
+		if ( previous != entity ) {
+			if ( previous != null ) {
+				unindexEntity(previous);
+			}
+			indexEntity(entity);
+		}
 	}
 	
 	public void removeEntity(String name) {
-		htEntities.remove(name);
+		Entity removed ;
+		synchronized ( htEntities ) {
+			removed = htEntities.remove(name);
+			sortedEntities = null ;
+			sortedEntitiesNames = null ;
+		}
+		if ( removed != null ) {
+			unindexEntity(removed);
+		}
+	}
+	
+	//-------------------------------------------------------------------------------
+	// INDEXES management
+	// The indexed attributes ( link id, inverse side, target table, foreign key name, join table name ) 
+	// are supposed to be set before storing the link or the foreign key in its entity
+	//-------------------------------------------------------------------------------
+	private void indexEntity(Entity entity) {
+		entity.setModel(this);
+		for ( Link link : entity.getLinksCollection() ) {
+			indexLink(entity, link);
+		}
+		for ( ForeignKey foreignKey : entity.getForeignKeysCollection() ) {
+			indexForeignKey(entity, foreignKey);
+		}
+	}
+	
+	private void unindexEntity(Entity entity) {
+		entity.setModel(null);
+		for ( Link link : entity.getLinksCollection() ) {
+			unindexLink(link);
+		}
+		for ( ForeignKey foreignKey : entity.getForeignKeysCollection() ) {
+			unindexForeignKey(foreignKey);
+		}
+	}
+	
+	void indexLink(Entity entity, Link link) {
+		linksById.add(link.getId(), entity, link);
+		linksByTarget.add(link.getTargetTableName(), entity, link);
+		linksByForeignKey.add(link.getForeignKeyName(), entity, link);
+		linksByJoinTable.add(link.getJoinTableName(), entity, link);
+		if ( ! link.isOwningSide() ) {
+			inverseSideLinks.add(link.getInverseSideOf(), entity, link);
+		}
+	}
+	
+	void unindexLink(Link link) {
+		linksById.remove(link.getId(), link);
+		linksByTarget.remove(link.getTargetTableName(), link);
+		linksByForeignKey.remove(link.getForeignKeyName(), link);
+		linksByJoinTable.remove(link.getJoinTableName(), link);
+		if ( ! link.isOwningSide() ) {
+			inverseSideLinks.remove(link.getInverseSideOf(), link);
+		}
+	}
+	
+	void indexForeignKey(Entity entity, ForeignKey foreignKey) {
+		foreignKeysByName.add(foreignKey.getName(), entity, foreignKey);
+	}
+	
+	void unindexForeignKey(ForeignKey foreignKey) {
+		foreignKeysByName.remove(foreignKey.getName(), foreignKey);
 	}
 	
 	//-------------------------------------------------------------------------------
@@ -177,20 +302,43 @@ public class RepositoryModel
 	 * @return
 	 */
 	public Link getLinkById(String id) {
-		if ( id != null ) {
-			Entity [] entities = this.getEntities();
-			for ( int i = 0 ; i < entities.length ; i++ ) {
-				Entity entity = entities[i];
-				Link [] links = entity.getLinks();
-				for ( int j = 0 ; j < links.length ; j++ ) {
-					Link link = links[j];
-					if ( id.equals( link.getId() ) )  {
-						return link;
-					}
-				}
-			}
-		}
-		return null ;
+		return linksById.get(id) ;
+	}
+
+	//-------------------------------------------------------------------------------
+	/**
+	 * Returns all the links targeting the given table ( the "incoming" links )
+	 * @param tableName
+	 * @return
+	 * @since 2.1.1
+	 */
+	public Link[] getLinksByTargetTableName(String tableName) {
+		List<Link> links = linksByTarget.getAll(tableName);
+		return links.toArray( new Link[links.size()] );
+	}
+
+	//-------------------------------------------------------------------------------
+	/**
+	 * Returns all the links generated from the given Foreign Key ( owning side and inverse side )
+	 * @param foreignKeyName
+	 * @return
+	 * @since 2.1.1
+	 */
+	public Link[] getLinksByForeignKeyName(String foreignKeyName) {
+		List<Link> links = linksByForeignKey.getAll(foreignKeyName);
+		return links.toArray( new Link[links.size()] );
+	}
+
+	//-------------------------------------------------------------------------------
+	/**
+	 * Returns all the links generated from the given Join Table ( owning side and inverse side )
+	 * @param joinTableName
+	 * @return
+	 * @since 2.1.1
+	 */
+	public Link[] getLinksByJoinTableName(String joinTableName) {
+		List<Link> links = linksByJoinTable.getAll(joinTableName);
+		return links.toArray( new Link[links.size()] );
 	}
 
 	//-------------------------------------------------------------------------------
@@ -198,9 +346,7 @@ public class RepositoryModel
 	 * Removes all the links 
 	 */
 	public void removeAllLinks() {
-		Entity [] entities = this.getEntities();
-		for ( int i = 0 ; i < entities.length ; i++ ) {
-			Entity entity = entities[i];
+		for ( Entity entity : htEntities.values() ) {
 			entity.removeAllLinks();
 		}
 	}
@@ -231,22 +377,9 @@ public class RepositoryModel
 		Link link1 = getLinkById(linkId);
 		if ( link1 != null ) {
 			if ( link1.isOwningSide() ) {
-				//--- Owning Side => try to found the inverse side
-				Entity [] entities = this.getEntities();
-				for ( int i = 0 ; i < entities.length ; i++ ) {
-					Entity entity = entities[i];
-					Link [] links = entity.getLinks();
-					for ( int j = 0 ; j < links.length ; j++ ) {
-						Link link2 = links[j];
-						if ( link2.isOwningSide() == false ) {
-							if ( linkId.equals( link2.getInverseSideOf() ) ) {
-								return new RelationLinks ( link1, link2 );
-							}
-						}
-					}
-				}
-				// inverse side not found 
-				return new RelationLinks ( link1, null );
+				//--- Owning Side => try to found the inverse side ( null if not found )
+				Link link2 = inverseSideLinks.get( linkId ) ;
+				return new RelationLinks ( link1, link2 );
 			}
 			else {
 				//--- Inverse Side => try to found the owning side
@@ -267,14 +400,7 @@ public class RepositoryModel
 	 */
 	public ForeignKey getForeignKeyByName(String fkName)
 	{
-		Entity [] entities = this.getEntities();
-		for ( Entity entity : entities ) {
-			ForeignKey fk = entity.getForeignKey(fkName);
-			if ( fk != null ) {
-				return fk ; // FOUND 
-			}
-		}
-		return null ;
+		return foreignKeysByName.get(fkName) ;
 	}
 	
 }
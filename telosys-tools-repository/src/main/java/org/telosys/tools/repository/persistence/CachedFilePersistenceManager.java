@@ -0,0 +1,217 @@
+/**
+ *  Copyright (C) 2008-2013  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.repository.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+import org.telosys.tools.commons.TelosysToolsException;
+import org.telosys.tools.commons.TelosysToolsLogger;
+import org.telosys.tools.repository.model.RepositoryModel;
+
+/**
+ * Repository persistence manager with a binary "snapshot" cache <br>
+ * 
+ * After each load of the XML file ( ".dbrep" ) a snapshot file is written next to it <br>
+ * ( same name + ".snapshot" ). The next loads use the snapshot as long as it has been built <br>
+ * from the current XML file ( same length and same CRC32 ), without XML parsing. <br>
+ * If the snapshot is missing, out of date or invalid, the XML file is loaded (and a new <br>
+ * snapshot is written). <br>
+ * The XML file remains the reference : the model is always saved in the XML file. 
+ * 
+ * @author Laurent Guerin
+ * @since 2.1.1
+ */
+public class CachedFilePersistenceManager implements PersistenceManager
+{
+	public final static String SNAPSHOT_SUFFIX = ".snapshot" ;
+	
+	private final File _file ;
+	
+	private final File _snapshotFile ;
+	
+	private final TelosysToolsLogger _logger ;
+	
+	private boolean _loadedFromSnapshot = false ;
+	
+	public CachedFilePersistenceManager(String fileName, TelosysToolsLogger logger) {
+		this(new File(fileName), logger);
+	}
+
+	public CachedFilePersistenceManager(File file, TelosysToolsLogger logger) {
+		super();
+		this._file = file.getAbsoluteFile() ;
+		this._snapshotFile = new File(this._file.getPath() + SNAPSHOT_SUFFIX);
+		this._logger = logger ;
+	}
+
+	private void log(String msg) {
+		if ( _logger != null ) {
+			_logger.log("[LOG] " + this.getClass().getName() + " : " + msg);
+		}
+	}
+
+	/**
+	 * Returns the snapshot file associated with the repository file
+	 * @return
+	 */
+	public File getSnapshotFile() {
+		return _snapshotFile ;
+	}
+	
+	/**
+	 * Returns true if the last model loaded by this manager has been loaded from the snapshot
+	 * @return
+	 */
+	public boolean isLoadedFromSnapshot() {
+		return _loadedFromSnapshot ;
+	}
+
+	//-----------------------------------------------------------------------------------------
+	// LOAD
+	//-----------------------------------------------------------------------------------------
+	public RepositoryModel load() throws TelosysToolsException {
+		if ( ! _file.exists() ) {
+			throw new TelosysToolsException("file not found : " + _file);
+		}
+		long length = _file.length();
+		RepositoryModel model = loadSnapshot(length);
+		if ( model != null ) {
+			_loadedFromSnapshot = true ;
+			return model ;
+		}
+		_loadedFromSnapshot = false ;
+		return loadXml(length);
+	}
+	
+	/**
+	 * Loads the model from the snapshot file if it is still valid 
+	 * @param length the current length of the XML file
+	 * @return the model or null if the snapshot cannot be used
+	 */
+	private RepositoryModel loadSnapshot(long length) {
+		if ( ! _snapshotFile.exists() ) {
+			log("no snapshot");
+			return null ;
+		}
+		try {
+			RepositorySnapshotReader reader = new RepositorySnapshotReader(_snapshotFile);
+			if ( ! reader.isCurrentVersion() ) {
+				log("snapshot ignored (previous version)");
+				return null ;
+			}
+			if ( reader.getSourceLength() != length || reader.getSourceChecksum() != checksum(_file) ) {
+				log("snapshot ignored (out of date)");
+				return null ;
+			}
+			RepositoryModel model = reader.load();
+			log("model loaded from snapshot " + _snapshotFile);
+			return model ;
+		} catch (IOException e) {
+			log("snapshot ignored (cannot read : " + e.getMessage() + ")");
+			return null ;
+		} catch (TelosysToolsException e) {
+			log("snapshot ignored (" + e.getMessage() + ")");
+			return null ;
+		} catch (RuntimeException e) {
+			//--- Corrupted snapshot not detected by the reader : the XML file is still the reference
+			log("snapshot ignored (invalid : " + e + ")");
+			return null ;
+		}
+	}
+	
+	/**
+	 * Loads the model from the XML file and writes a new snapshot 
+	 * @param length the current length of the XML file
+	 * @return
+	 * @throws TelosysToolsException
+	 */
+	private RepositoryModel loadXml(long length) throws TelosysToolsException {
+		RepositorySnapshotWriter recorder = new RepositorySnapshotWriter();
+		RepositoryModel model = null ;
+		long checksum = 0 ;
+		CheckedInputStream is = null ;
+		try {
+			is = new CheckedInputStream( new BufferedInputStream( new FileInputStream(_file) ), new CRC32() );
+			//--- the XML reader can close the stream at the end of the document
+			InputStream xmlStream = new FilterInputStream(is) {
+				@Override
+				public void close() {
+					// keep open to compute the checksum of the whole file
+				}
+			};
+			model = new StreamingFilePersistenceManager(_file, _logger).load(xmlStream, recorder);
+			skipAll(is); // the checksum of the whole file
+			checksum = is.getChecksum().getValue();
+		} catch (FileNotFoundException e) {
+			throw new TelosysToolsException("file not found : " + _file, e);
+		} catch (IOException e) {
+			throw new TelosysToolsException("cannot read file " + _file, e);
+		} finally {
+			if ( is != null ) {
+				try {
+					is.close();
+				} catch (IOException e) {
+					// NOTHING TO DO 
+				}
+			}
+		}
+		
+		//--- The snapshot is only an optimization : cannot stop the load if it cannot be written 
+		try {
+			recorder.write(_snapshotFile, length, checksum);
+			log("snapshot written : " + _snapshotFile);
+		} catch (IOException e) {
+			log("cannot write snapshot " + _snapshotFile + " : " + e.getMessage());
+		}
+		return model ;
+	}
+	
+	private static void skipAll(InputStream is) throws IOException {
+		byte[] buffer = new byte[8192];
+		while ( is.read(buffer) >= 0 ) {
+			// read up to the end
+		}
+	}
+	
+	private static long checksum(File file) throws IOException {
+		CheckedInputStream is = new CheckedInputStream( new FileInputStream(file), new CRC32() );
+		try {
+			skipAll(is);
+			return is.getChecksum().getValue();
+		} finally {
+			is.close();
+		}
+	}
+
+	//-----------------------------------------------------------------------------------------
+	// SAVE
+	//-----------------------------------------------------------------------------------------
+	public void save(RepositoryModel model) throws TelosysToolsException {
+		new StreamingFilePersistenceManager(_file, _logger).save(model);
+		//--- The snapshot is out of date ( rebuilt at the next load )
+		if ( _snapshotFile.exists() && ! _snapshotFile.delete() ) {
+			log("cannot delete snapshot " + _snapshotFile);
+		}
+	}
+}
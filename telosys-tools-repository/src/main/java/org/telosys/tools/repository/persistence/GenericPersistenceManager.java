@@ -182,21 +182,37 @@ public abstract class GenericPersistenceManager implements PersistenceManager {
 	private void addEntity(Document doc, Entity entity, Element parentElement) 
 	{
 		log("addEntity()");
-		// --- Create XML element "table"
-		Element entityElement = RepositoryConst.ENTITY_WRAPPER.getXmlDesc(entity, doc);
+		Element entityElement = getEntityElement(doc, entity);
 
 		//doc.getElementsByTagName(RepositoryConst.TABLELIST).item(0).appendChild(entityElement);
 
+		parentElement.appendChild(entityElement);
+	}
+
+	/**
+	 * Builds the XML element of the given entity with all its sub-elements ( columns, foreign keys, links ) <br>
+	 * The element is created in the given document but is not attached to it 
+	 * 
+	 * @param doc
+	 * @param entity
+	 * @return
+	 * @since 2.1.1
+	 */
+	public static Element getEntityElement(Document doc, Entity entity) 
+	{
+		// --- Create XML element "table"
+		Element entityElement = RepositoryConst.ENTITY_WRAPPER.getXmlDesc(entity, doc);
+
 		addColumns(doc, entity, entityElement);
 
 		addForeignKeys(doc, entity, entityElement);
 
 		addLinks(doc, entity, entityElement);
 
-		parentElement.appendChild(entityElement);
+		return entityElement ;
 	}
 
-	private void addLinks(Document doc, Entity entity, Element entityElement) 
+	private static void addLinks(Document doc, Entity entity, Element entityElement) 
 	{
 		Link[] links = entity.getLinks();
 		for ( Link link : links )
@@ -219,7 +235,7 @@ public abstract class GenericPersistenceManager implements PersistenceManager {
 		}
 	}
 	
-	private void addJoinColumns(Document doc, JoinColumns joinColumns, Element linkElement) 
+	private static void addJoinColumns(Document doc, JoinColumns joinColumns, Element linkElement) 
 	{
 		if ( joinColumns != null ) {
 			Element joinColumnsElement = RepositoryConst.JOIN_COLUMNS_WRAPPER.getXmlDesc(joinColumns, doc);
@@ -232,7 +248,7 @@ public abstract class GenericPersistenceManager implements PersistenceManager {
 		}
 	}
 	
-	private void addJoinTable(Document doc, JoinTable joinTable, Element linkElement) 
+	private static void addJoinTable(Document doc, JoinTable joinTable, Element linkElement) 
 	{
 		//--- Add the "JoinTable" element
 		Element joinTableElement = RepositoryConst.JOIN_TABLE_WRAPPER.getXmlDesc(joinTable, doc);
@@ -269,7 +285,7 @@ public abstract class GenericPersistenceManager implements PersistenceManager {
 //		element.appendChild(joinColumnElement);
 //	}
 	
-	private void addForeignKeys(Document doc, Entity entity, Element table) {
+	private static void addForeignKeys(Document doc, Entity entity, Element table) {
 		// --- Foreign Keys
 		Collection<ForeignKey> foreignKeys = entity.getForeignKeysCollection();
 //		for (Iterator iterator = foreignKeys.iterator(); iterator.hasNext();) {			
@@ -277,13 +293,13 @@ public abstract class GenericPersistenceManager implements PersistenceManager {
 		for ( ForeignKey foreignKey : foreignKeys ) {
 			final Element fkElement = RepositoryConst.FOREIGNKEY_WRAPPER.getXmlDesc(foreignKey, doc);
 
-			this.addForeignKeyColumns(doc, foreignKey, fkElement);
+			addForeignKeyColumns(doc, foreignKey, fkElement);
 
 			table.appendChild(fkElement);
 		}
 	}
 
-	private void addForeignKeyColumns(Document doc, ForeignKey foreignKey, final Element fkElement) {
+	private static void addForeignKeyColumns(Document doc, ForeignKey foreignKey, final Element fkElement) {
 		// --- Foreign Key Columns
 		ForeignKeyColumn[] foreignKeyColumns = foreignKey.getForeignKeyColumns();
 		for (int i = 0; i < foreignKeyColumns.length; i++) {
@@ -293,7 +309,7 @@ public abstract class GenericPersistenceManager implements PersistenceManager {
 		}
 	}
 
-	private void addColumns(Document doc, Entity entity, Element parentElement) {
+	private static void addColumns(Document doc, Entity entity, Element parentElement) {
 		// --- Columns/attributes
 		Collection<Column> colcols = entity.getColumnsCollection();
 //		for (Iterator iterator = colcols.iterator(); iterator.hasNext();) {
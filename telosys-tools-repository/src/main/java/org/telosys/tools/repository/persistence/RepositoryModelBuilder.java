@@ -0,0 +1,224 @@
+/**
+ *  Copyright (C) 2008-2013  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.repository.persistence;
+
+import java.util.LinkedList;
+
+import org.telosys.tools.commons.TelosysToolsException;
+import org.telosys.tools.repository.model.Column;
+import org.telosys.tools.repository.model.Entity;
+import org.telosys.tools.repository.model.ForeignKey;
+import org.telosys.tools.repository.model.ForeignKeyColumn;
+import org.telosys.tools.repository.model.GeneratedValue;
+import org.telosys.tools.repository.model.InverseJoinColumns;
+import org.telosys.tools.repository.model.JoinColumn;
+import org.telosys.tools.repository.model.JoinColumns;
+import org.telosys.tools.repository.model.JoinTable;
+import org.telosys.tools.repository.model.Link;
+import org.telosys.tools.repository.model.RepositoryModel;
+import org.telosys.tools.repository.model.SequenceGenerator;
+import org.telosys.tools.repository.model.TableGenerator;
+import org.telosys.tools.repository.persistence.util.RepositoryConst;
+import org.w3c.dom.Element;
+
+/**
+ * Builds the repository model from a sequence of "start element" / "end element" events <br>
+ * ( each element is converted into a model object by the XML wrappers and attached to its <br>
+ * parent when the element is closed ) <br>
+ * Used by the streaming XML loader and by the snapshot loader. 
+ * 
+ * @author Laurent Guerin
+ * @since 2.1.1
+ */
+class RepositoryModelBuilder 
+{
+	private final LinkedList<Object> stack = new LinkedList<Object>();
+	
+	private RepositoryModel model = null ;
+	
+	/**
+	 * Starts a new element (the element is used without its children)
+	 * @param element
+	 * @throws TelosysToolsException
+	 */
+	void startElement(Element element) throws TelosysToolsException {
+		Object object = buildObject(element);
+		if ( object instanceof RepositoryModel ) {
+			model = (RepositoryModel) object ;
+		}
+		stack.addFirst(object);
+	}
+	
+	/**
+	 * Ends the current element (attaches its object to the parent object)
+	 * @throws TelosysToolsException
+	 */
+	void endElement() throws TelosysToolsException {
+		if ( stack.isEmpty() ) {
+			throw new TelosysToolsException("XML error : unexpected end of element");
+		}
+		Object object = stack.removeFirst();
+		if ( ! stack.isEmpty() ) {
+			attach(object, stack.getFirst());
+		}
+	}
+	
+	/**
+	 * Returns the model built with all the elements
+	 * @return
+	 * @throws TelosysToolsException
+	 */
+	RepositoryModel getModel() throws TelosysToolsException {
+		if ( model == null ) {
+			throw new TelosysToolsException("XML error : no '" + RepositoryConst.TABLELIST + "' element");
+		}
+		if ( ! stack.isEmpty() ) {
+			throw new TelosysToolsException("XML error : " + stack.size() + " element(s) not closed");
+		}
+		return model ;
+	}
+
+	/**
+	 * Builds the model object for the given XML element (without its children)
+	 * @param element
+	 * @return
+	 * @throws TelosysToolsException
+	 */
+	private Object buildObject(Element element) throws TelosysToolsException {
+		String name = element.getNodeName();
+		if ( RepositoryConst.TABLE.equals(name) ) {
+			return RepositoryConst.ENTITY_WRAPPER.getEntity(element);
+		}
+		else if ( RepositoryConst.COLUMN.equals(name) ) {
+			return RepositoryConst.COLUMN_WRAPPER.getColumn(element);
+		}
+		else if ( RepositoryConst.FK.equals(name) ) {
+			return RepositoryConst.FOREIGNKEY_WRAPPER.getForeignKey(element);
+		}
+		else if ( RepositoryConst.FKCOL.equals(name) ) {
+			return RepositoryConst.FOREIGNKEY_COLUMN_WRAPPER.getForeignKeyColumn(element);
+		}
+		else if ( RepositoryConst.LINK.equals(name) ) {
+			return RepositoryConst.LINK_WRAPPER.getLink(element);
+		}
+		else if ( RepositoryConst.JOIN_TABLE_ELEMENT.equals(name) ) {
+			return RepositoryConst.JOIN_TABLE_WRAPPER.getObject(element);
+		}
+		else if ( RepositoryConst.JOIN_COLUMNS_ELEMENT.equals(name) ) {
+			return RepositoryConst.JOIN_COLUMNS_WRAPPER.getJoinColumns(element);
+		}
+		else if ( RepositoryConst.INVERSE_JOIN_COLUMNS_ELEMENT.equals(name) ) {
+			return RepositoryConst.INVERSE_JOIN_COLUMNS_WRAPPER.getObject(element);
+		}
+		else if ( RepositoryConst.JOIN_COLUMN_ELEMENT.equals(name) ) {
+			return RepositoryConst.JOIN_COLUMN_WRAPPER.getJoinColumn(element);
+		}
+		else if ( RepositoryConst.GENERATED_VALUE_ELEMENT.equals(name) ) {
+			return RepositoryConst.GENERATED_VALUE_WRAPPER.getGeneratedValue(element);
+		}
+		else if ( RepositoryConst.SEQUENCE_GENERATOR_ELEMENT.equals(name) ) {
+			return RepositoryConst.SEQUENCE_GENERATOR_WRAPPER.getSequenceGenerator(element);
+		}
+		else if ( RepositoryConst.TABLE_GENERATOR_ELEMENT.equals(name) ) {
+			return RepositoryConst.TABLE_GENERATOR_WRAPPER.getTableGenerator(element);
+		}
+		else if ( RepositoryConst.TABLELIST.equals(name) ) {
+			return RepositoryConst.BASE_WRAPPER.getBase(element);
+		}
+		else if ( RepositoryConst.ROOT_ELEMENT.equals(name) ) {
+			return name ;
+		}
+		else {
+			throw new TelosysToolsException("XML error : unsupported element '" + name + "'");
+		}
+	}
+	
+	/**
+	 * Attaches a complete object (with all its children) to its parent object
+	 * @param object
+	 * @param parent
+	 * @throws TelosysToolsException
+	 */
+	private void attach(Object object, Object parent) throws TelosysToolsException {
+		if ( parent instanceof Entity ) {
+			Entity entity = (Entity) parent ;
+			if ( object instanceof Column ) {
+				entity.storeColumn((Column) object);
+			} else if ( object instanceof ForeignKey ) {
+				entity.storeForeignKey((ForeignKey) object);
+			} else if ( object instanceof Link ) {
+				entity.storeLink((Link) object);
+			} else {
+				throw unsupportedChild(object, parent);
+			}
+		}
+		else if ( parent instanceof Column ) {
+			Column column = (Column) parent ;
+			if ( object instanceof GeneratedValue ) {
+				column.setGeneratedValue((GeneratedValue) object);
+			} else if ( object instanceof SequenceGenerator ) {
+				column.setSequenceGenerator((SequenceGenerator) object);
+			} else if ( object instanceof TableGenerator ) {
+				column.setTableGenerator((TableGenerator) object);
+			} else {
+				throw unsupportedChild(object, parent);
+			}
+		}
+		else if ( parent instanceof ForeignKey && object instanceof ForeignKeyColumn ) {
+			((ForeignKey) parent).storeForeignKeyColumn((ForeignKeyColumn) object);
+		}
+		else if ( parent instanceof Link ) {
+			Link link = (Link) parent ;
+			if ( object instanceof JoinTable ) {
+				link.setJoinTable((JoinTable) object);
+			} else if ( object instanceof JoinColumns ) {
+				link.setJoinColumns((JoinColumns) object);
+			} else {
+				throw unsupportedChild(object, parent);
+			}
+		}
+		else if ( parent instanceof JoinTable ) {
+			JoinTable joinTable = (JoinTable) parent ;
+			if ( object instanceof JoinColumns ) {
+				joinTable.setJoinColumns((JoinColumns) object);
+			} else if ( object instanceof InverseJoinColumns ) {
+				joinTable.setInverseJoinColumns((InverseJoinColumns) object);
+			} else {
+				throw unsupportedChild(object, parent);
+			}
+		}
+		else if ( parent instanceof JoinColumns && object instanceof JoinColumn ) {
+			((JoinColumns) parent).add((JoinColumn) object);
+		}
+		else if ( parent instanceof InverseJoinColumns && object instanceof JoinColumn ) {
+			((InverseJoinColumns) parent).add((JoinColumn) object);
+		}
+		else if ( parent instanceof RepositoryModel && object instanceof Entity ) {
+			((RepositoryModel) parent).storeEntity((Entity) object);
+		}
+		else if ( parent instanceof String && object instanceof RepositoryModel ) {
+			// root element : nothing to do 
+		}
+		else {
+			throw unsupportedChild(object, parent);
+		}
+	}
+	
+	private TelosysToolsException unsupportedChild(Object object, Object parent) {
+		return new TelosysToolsException("XML error : unsupported child " + object.getClass().getSimpleName() 
+				+ " in " + parent.getClass().getSimpleName() );
+	}
+}
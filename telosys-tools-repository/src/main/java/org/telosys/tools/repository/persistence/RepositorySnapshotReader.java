@@ -0,0 +1,206 @@
+/**
+ *  Copyright (C) 2008-2013  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.repository.persistence;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import org.telosys.tools.commons.TelosysToolsException;
+import org.telosys.tools.repository.model.RepositoryModel;
+import org.telosys.tools.repository.persistence.util.Xml;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Reads a repository snapshot file ( see RepositorySnapshotWriter for the file layout ) <br>
+ * The whole file is read in memory, then the recorded elements are replayed in a <br>
+ * RepositoryModelBuilder ( no XML parsing ) 
+ * 
+ * @author Laurent Guerin
+ * @since 2.1.1
+ */
+class RepositorySnapshotReader 
+{
+	private final File   file ;
+	
+	private final byte[] data ;
+	
+	private final int    version ;
+	
+	private final long   sourceLength ;
+	
+	private final long   sourceChecksum ;
+	
+	private int position ;
+	
+	/**
+	 * Constructor : reads the snapshot file and its header
+	 * @param file
+	 * @throws IOException if the file cannot be read or is not a snapshot file
+	 */
+	RepositorySnapshotReader(File file) throws IOException {
+		this.file = file ;
+		long length = file.length();
+		if ( length < 24 || length > Integer.MAX_VALUE ) {
+			throw new IOException("Invalid snapshot file size (" + length + ")");
+		}
+		this.data = new byte[(int) length] ;
+		DataInputStream in = new DataInputStream( new FileInputStream(file) );
+		try {
+			in.readFully(data);
+		} finally {
+			in.close();
+		}
+		this.position = 0 ;
+		if ( readInt() != RepositorySnapshotWriter.MAGIC ) {
+			throw new IOException("Not a snapshot file : " + file);
+		}
+		this.version = readInt();
+		this.sourceLength = readLong();
+		this.sourceChecksum = readLong();
+	}
+	
+	/**
+	 * Returns true if the snapshot file has been written with the current file layout
+	 * @return
+	 */
+	boolean isCurrentVersion() {
+		return version == RepositorySnapshotWriter.VERSION ;
+	}
+	
+	/**
+	 * Returns the length of the XML file used to build the snapshot
+	 * @return
+	 */
+	long getSourceLength() {
+		return sourceLength ;
+	}
+	
+	/**
+	 * Returns the CRC32 of the XML file used to build the snapshot
+	 * @return
+	 */
+	long getSourceChecksum() {
+		return sourceChecksum ;
+	}
+	
+	/**
+	 * Builds the repository model from the snapshot records
+	 * @return
+	 * @throws TelosysToolsException if the snapshot is invalid 
+	 */
+	RepositoryModel load() throws TelosysToolsException {
+		if ( ! isCurrentVersion() ) {
+			throw new TelosysToolsException("Snapshot version " + version + " not supported : " + file);
+		}
+		try {
+			//--- Strings table
+			String[] strings = new String[readCount()]; // at least 1 byte per string
+			for ( int i = 0 ; i < strings.length ; i++ ) {
+				int length = readVarint();
+				checkAvailable(length);
+				strings[i] = new String(data, position, length, "UTF-8");
+				position = position + length ;
+			}
+			
+			//--- Records
+			int recordsSize = readInt();
+			checkAvailable(recordsSize);
+			Document elementsFactory = Xml.createDomDocument(); // only used to create the elements passed to the wrappers
+			RepositoryModelBuilder builder = new RepositoryModelBuilder();
+			while ( true ) {
+				byte record = readByte();
+				if ( record == RepositorySnapshotWriter.START_ELEMENT ) {
+					Element element = elementsFactory.createElement( strings[readVarint()] );
+					int n = readVarint();
+					checkAvailable(n); // at least 1 byte per attribute
+					for ( int i = 0 ; i < n ; i++ ) {
+						String name = strings[readVarint()];
+						element.setAttribute(name, strings[readVarint()]);
+					}
+					builder.startElement(element);
+				}
+				else if ( record == RepositorySnapshotWriter.END_ELEMENT ) {
+					builder.endElement();
+				}
+				else if ( record == RepositorySnapshotWriter.END_OF_RECORDS ) {
+					break ;
+				}
+				else {
+					throw new IOException("Invalid record type " + record);
+				}
+			}
+			return builder.getModel();
+		} catch (IOException e) {
+			throw new TelosysToolsException("Invalid snapshot file " + file, e);
+		} catch (ArrayIndexOutOfBoundsException e) {
+			throw new TelosysToolsException("Invalid snapshot file " + file + " (invalid string index)", e);
+		}
+	}
+	
+	//-----------------------------------------------------------------------------------------
+	private void checkAvailable(int n) throws EOFException {
+		if ( n < 0 || n > data.length - position ) { // no overflow with a corrupted size 
+			throw new EOFException("Unexpected end of snapshot file");
+		}
+	}
+	
+	private byte readByte() throws EOFException {
+		checkAvailable(1);
+		return data[position++] ;
+	}
+	
+	private int readInt() throws EOFException {
+		checkAvailable(4);
+		int value = ( ( data[position] & 0xFF ) << 24 ) | ( ( data[position+1] & 0xFF ) << 16 ) 
+				| ( ( data[position+2] & 0xFF ) << 8 ) | ( data[position+3] & 0xFF ) ;
+		position = position + 4 ;
+		return value ;
+	}
+	
+	/**
+	 * Reads a number of elements stored with at least 1 byte each <br>
+	 * ( a corrupted count cannot be greater than the remaining bytes )
+	 * @return
+	 * @throws EOFException
+	 */
+	private int readCount() throws EOFException {
+		int count = readInt();
+		checkAvailable(count);
+		return count ;
+	}
+	
+	private long readLong() throws EOFException {
+		long high = readInt() & 0xFFFFFFFFL ;
+		long low  = readInt() & 0xFFFFFFFFL ;
+		return ( high << 32 ) | low ;
+	}
+	
+	private int readVarint() throws IOException {
+		int value = 0 ;
+		for ( int shift = 0 ; shift < 32 ; shift = shift + 7 ) {
+			byte b = readByte();
+			value = value | ( ( b & 0x7F ) << shift ) ;
+			if ( ( b & 0x80 ) == 0 ) {
+				return value ;
+			}
+		}
+		throw new IOException("Invalid varint");
+	}
+}
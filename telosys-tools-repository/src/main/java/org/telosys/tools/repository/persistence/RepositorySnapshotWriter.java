@@ -0,0 +1,199 @@
+/**
+ *  Copyright (C) 2008-2013  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.repository.persistence;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * Records the XML elements of a repository while it is loaded, and writes them in a <br>
+ * compact binary "snapshot" file. <br>
+ * 
+ * Snapshot file layout : <br>
+ * . header : MAGIC (int), VERSION (int), source file length (long), source file CRC32 (long) <br>
+ * . strings table : number of strings (int), then each string ( UTF-8 length + UTF-8 bytes ) <br>
+ *   ( all the element names, attribute names and attribute values, each distinct string stored once ) <br>
+ * . records size (int), then the records : <br>
+ *   START_ELEMENT + name index + number of attributes + ( name index, value index ) for each attribute <br>
+ *   END_ELEMENT <br>
+ *   END_OF_RECORDS <br>
+ * All the lengths, counts and indexes in the strings table and in the records are "varints" <br>
+ * ( 7 bits per byte, high bit set if another byte follows ) 
+ * 
+ * @author Laurent Guerin
+ * @since 2.1.1
+ */
+class RepositorySnapshotWriter 
+{
+	final static int  MAGIC   = 0x54534E50 ; // "TSNP"
+	
+	final static int  VERSION = 1 ; // to be incremented for each change in the file layout
+	
+	final static byte START_ELEMENT  = 1 ;
+	final static byte END_ELEMENT    = 2 ;
+	final static byte END_OF_RECORDS = 0 ;
+	
+	private final Map<String, Integer> stringsIndex = new HashMap<String, Integer>();
+	
+	private final List<String> strings = new ArrayList<String>();
+	
+	private final ByteArray records = new ByteArray(64 * 1024);
+	
+	/**
+	 * Records the given element (without its children)
+	 * @param element
+	 */
+	void startElement(Element element) {
+		records.writeByte(START_ELEMENT);
+		records.writeVarint( stringIndex(element.getNodeName()) );
+		NamedNodeMap attributes = element.getAttributes();
+		int n = attributes.getLength();
+		records.writeVarint(n);
+		for ( int i = 0 ; i < n ; i++ ) {
+			Node attribute = attributes.item(i);
+			records.writeVarint( stringIndex(attribute.getNodeName()) );
+			records.writeVarint( stringIndex(attribute.getNodeValue()) );
+		}
+	}
+	
+	/**
+	 * Records the end of the current element
+	 */
+	void endElement() {
+		records.writeByte(END_ELEMENT);
+	}
+	
+	private int stringIndex(String s) {
+		Integer index = stringsIndex.get(s);
+		if ( index == null ) {
+			index = strings.size() ;
+			strings.add(s);
+			stringsIndex.put(s, index);
+		}
+		return index ;
+	}
+	
+	/**
+	 * Writes the snapshot file with all the recorded elements <br>
+	 * The file is written in a temporary file and then renamed ( never partially written )
+	 * 
+	 * @param file the snapshot file 
+	 * @param sourceLength the length of the XML file 
+	 * @param sourceChecksum the CRC32 of the XML file
+	 * @throws IOException
+	 */
+	void write(File file, long sourceLength, long sourceChecksum) throws IOException {
+		ByteArray stringsTable = new ByteArray(strings.size() * 16);
+		for ( String s : strings ) {
+			byte[] bytes = utf8(s);
+			stringsTable.writeVarint(bytes.length);
+			stringsTable.write(bytes);
+		}
+		
+		File tmpFile = new File(file.getPath() + ".tmp");
+		DataOutputStream out = new DataOutputStream( new FileOutputStream(tmpFile) );
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(sourceLength);
+			out.writeLong(sourceChecksum);
+			out.writeInt(strings.size());
+			stringsTable.writeTo(out);
+			out.writeInt(records.size() + 1);
+			records.writeTo(out);
+			out.writeByte(END_OF_RECORDS);
+		} finally {
+			out.close();
+		}
+		if ( file.exists() && ! file.delete() ) {
+			tmpFile.delete();
+			throw new IOException("Cannot delete the previous snapshot " + file);
+		}
+		if ( ! tmpFile.renameTo(file) ) {
+			tmpFile.delete();
+			throw new IOException("Cannot rename " + tmpFile + " to " + file);
+		}
+	}
+	
+	private static byte[] utf8(String s) {
+		try {
+			return s.getBytes("UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException("UTF-8 not supported", e); // cannot happen
+		}
+	}
+	
+	//-----------------------------------------------------------------------------------------
+	/**
+	 * Growable bytes array ( no synchronization, unlike ByteArrayOutputStream )
+	 */
+	private static class ByteArray 
+	{
+		private byte[] bytes ;
+		private int size = 0 ;
+		
+		ByteArray(int initialCapacity) {
+			bytes = new byte[Math.max(initialCapacity, 16)];
+		}
+		
+		private void ensureCapacity(int n) {
+			if ( size + n > bytes.length ) {
+				byte[] newBytes = new byte[Math.max(bytes.length * 2, size + n)];
+				System.arraycopy(bytes, 0, newBytes, 0, size);
+				bytes = newBytes ;
+			}
+		}
+		
+		void writeByte(int b) {
+			ensureCapacity(1);
+			bytes[size++] = (byte) b ;
+		}
+		
+		void writeVarint(int value) {
+			ensureCapacity(5);
+			while ( ( value & ~0x7F ) != 0 ) {
+				bytes[size++] = (byte) ( ( value & 0x7F ) | 0x80 ) ;
+				value = value >>> 7 ;
+			}
+			bytes[size++] = (byte) value ;
+		}
+		
+		void write(byte[] b) {
+			ensureCapacity(b.length);
+			System.arraycopy(b, 0, bytes, size, b.length);
+			size = size + b.length ;
+		}
+		
+		int size() {
+			return size ;
+		}
+		
+		void writeTo(DataOutputStream out) throws IOException {
+			out.write(bytes, 0, size);
+		}
+	}
+}
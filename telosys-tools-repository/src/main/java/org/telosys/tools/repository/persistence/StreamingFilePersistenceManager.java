@@ -0,0 +1,401 @@
+/**
+ *  Copyright (C) 2008-2013  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.repository.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.telosys.tools.commons.TelosysToolsException;
+import org.telosys.tools.commons.TelosysToolsLogger;
+import org.telosys.tools.repository.model.Column;
+import org.telosys.tools.repository.model.Entity;
+import org.telosys.tools.repository.model.ForeignKey;
+import org.telosys.tools.repository.model.ForeignKeyColumn;
+import org.telosys.tools.repository.model.InverseJoinColumns;
+import org.telosys.tools.repository.model.JoinColumn;
+import org.telosys.tools.repository.model.JoinColumns;
+import org.telosys.tools.repository.model.JoinTable;
+import org.telosys.tools.repository.model.Link;
+import org.telosys.tools.repository.model.RepositoryModel;
+import org.telosys.tools.repository.persistence.util.RepositoryConst;
+import org.telosys.tools.repository.persistence.util.Xml;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+/**
+ * Repository persistence manager reading and writing the ".dbrep" file in streaming mode <br>
+ * (without the whole DOM document in memory) <br>
+ * 
+ * The file is read with a StAX reader and written element by element, in the same format <br>
+ * as the StandardFilePersistenceManager ( same elements, same attributes order, same escaping ). <br>
+ * The XML wrappers are still used to convert each element into a model object and vice versa, <br>
+ * with a small "one element" DOM instead of the document tree. 
+ * 
+ * @author Laurent Guerin
+ * @since 2.1.1
+ */
+public class StreamingFilePersistenceManager implements PersistenceManager
+{
+	private final static String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>" ;
+	
+	private final static String XML_COMMENT     = "<!-- Telosys Database Repository -->" ;
+	
+	private final static String ENCODING        = "UTF-8" ;
+	
+	private final String _fileName ;
+	
+	private final TelosysToolsLogger _logger ;
+	
+	public StreamingFilePersistenceManager(String fileName, TelosysToolsLogger logger) {
+		super();
+		this._fileName = fileName ;
+		this._logger = logger ;
+	}
+
+	public StreamingFilePersistenceManager(File file, TelosysToolsLogger logger) {
+		this(file.getAbsolutePath(), logger);
+	}
+
+	private void log(String msg) {
+		if ( _logger != null ) {
+			_logger.log("[LOG] " + this.getClass().getName() + " : " + msg);
+		}
+	}
+
+	//-----------------------------------------------------------------------------------------
+	// LOAD
+	//-----------------------------------------------------------------------------------------
+	public RepositoryModel load() throws TelosysToolsException {
+		InputStream is = null ;
+		try {
+			is = new BufferedInputStream( new FileInputStream(this._fileName) );
+			return load(is);
+		} catch (FileNotFoundException e) {
+			throw new TelosysToolsException("file not found : " + this._fileName, e);
+		} finally {
+			if ( is != null ) {
+				try {
+					is.close();
+				} catch (IOException e) {
+					// NOTHING TO DO 
+				}
+			}
+		}
+	}
+
+	/**
+	 * Loads the repository model from the given XML stream
+	 * 
+	 * @param is
+	 * @return
+	 * @throws TelosysToolsException
+	 */
+	public RepositoryModel load(InputStream is) throws TelosysToolsException {
+		return load(is, null);
+	}
+
+	/**
+	 * Loads the repository model from the given XML stream, and records all the elements <br>
+	 * in the given snapshot writer (if any)
+	 * 
+	 * @param is
+	 * @param recorder the snapshot writer (or null)
+	 * @return
+	 * @throws TelosysToolsException
+	 */
+	RepositoryModel load(InputStream is, RepositorySnapshotWriter recorder) throws TelosysToolsException {
+		log("load(InputStream)... ");
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		
+		//--- Only used to create the element passed to the wrappers  
+		Document elementsFactory = Xml.createDomDocument();
+		
+		RepositoryModelBuilder builder = new RepositoryModelBuilder();
+		try {
+			XMLStreamReader reader = factory.createXMLStreamReader(is);
+			try {
+				while ( reader.hasNext() ) {
+					int event = reader.next();
+					if ( event == XMLStreamConstants.START_ELEMENT ) {
+						Element element = buildElement(reader, elementsFactory);
+						builder.startElement(element);
+						if ( recorder != null ) {
+							recorder.startElement(element);
+						}
+					}
+					else if ( event == XMLStreamConstants.END_ELEMENT ) {
+						builder.endElement();
+						if ( recorder != null ) {
+							recorder.endElement();
+						}
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new TelosysToolsException("XML error : Cannot parse : XMLStreamException", e);
+		}
+		return builder.getModel() ;
+	}
+	
+	private Element buildElement(XMLStreamReader reader, Document elementsFactory) {
+		Element element = elementsFactory.createElement( reader.getLocalName() );
+		int n = reader.getAttributeCount();
+		for ( int i = 0 ; i < n ; i++ ) {
+			element.setAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+		}
+		return element ;
+	}
+	
+	//-----------------------------------------------------------------------------------------
+	// SAVE
+	//-----------------------------------------------------------------------------------------
+	public void save(RepositoryModel model) throws TelosysToolsException {
+		OutputStream os = null ;
+		try {
+			os = new FileOutputStream(this._fileName, false);
+			save(os, model);
+		} catch (FileNotFoundException e) {
+			throw new TelosysToolsException("file not found : " + this._fileName, e);
+		} finally {
+			if ( os != null ) {
+				try {
+					os.close();
+				} catch (IOException e) {
+					throw new TelosysToolsException("cannot close file " + this._fileName, e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Saves the repository model in the given XML stream
+	 * 
+	 * @param os
+	 * @param model
+	 * @throws TelosysToolsException
+	 */
+	public void save(OutputStream os, RepositoryModel model) throws TelosysToolsException 
+	{
+		log("save(OutputStream, RepositoryModel)... ");
+		if ( model == null ) {
+			throw new TelosysToolsException("Cannot save a null model");
+		}
+		try {
+			XmlElementWriter writer = new XmlElementWriter( new BufferedWriter( new OutputStreamWriter(os, ENCODING) ) );
+			Document doc = Xml.createDomDocument(); // only used to create the elements passed to the wrappers 
+			
+			writer.writeLine(XML_DECLARATION);
+			writer.writeLine(XML_COMMENT);
+			writer.startElement(doc.createElement(RepositoryConst.ROOT_ELEMENT), true);
+			
+			Entity[] entities = model.getEntities();
+			writer.startElement(RepositoryConst.BASE_WRAPPER.getXmlDesc(model, doc), entities.length > 0);
+			for ( Entity entity : entities ) {
+				writeEntity(writer, doc, entity);
+			}
+			writer.endElement(RepositoryConst.TABLELIST, entities.length > 0);
+			
+			writer.endElement(RepositoryConst.ROOT_ELEMENT, true);
+			writer.flush();
+		} catch (IOException e) {
+			throw new TelosysToolsException("XML error : Cannot save : IOException", e);
+		}
+	}
+
+	private void writeEntity(XmlElementWriter writer, Document doc, Entity entity) throws IOException 
+	{
+		Column[] columns = entity.getColumns();
+		ForeignKey[] foreignKeys = entity.getForeignKeys();
+		Link[] links = entity.getLinks();
+		boolean withChildren = columns.length > 0 || foreignKeys.length > 0 || links.length > 0 ;
+		
+		writer.startElement(RepositoryConst.ENTITY_WRAPPER.getXmlDesc(entity, doc), withChildren);
+		
+		//--- Columns 
+		for ( Column column : columns ) {
+			boolean withGenerators = column.getGeneratedValue() != null 
+					|| column.getSequenceGenerator() != null || column.getTableGenerator() != null ;
+			writer.startElement(RepositoryConst.COLUMN_WRAPPER.getXmlDesc(column, doc), withGenerators);
+			if ( column.getGeneratedValue() != null ) {
+				writer.writeElement(RepositoryConst.GENERATED_VALUE_WRAPPER.getXmlDesc(column.getGeneratedValue(), doc));
+			}
+			if ( column.getSequenceGenerator() != null ) {
+				writer.writeElement(RepositoryConst.SEQUENCE_GENERATOR_WRAPPER.getXmlDesc(column.getSequenceGenerator(), doc));
+			}
+			if ( column.getTableGenerator() != null ) {
+				writer.writeElement(RepositoryConst.TABLE_GENERATOR_WRAPPER.getXmlDesc(column.getTableGenerator(), doc));
+			}
+			writer.endElement(RepositoryConst.COLUMN, withGenerators);
+		}
+		
+		//--- Foreign Keys
+		for ( ForeignKey foreignKey : foreignKeys ) {
+			ForeignKeyColumn[] fkColumns = foreignKey.getForeignKeyColumns();
+			writer.startElement(RepositoryConst.FOREIGNKEY_WRAPPER.getXmlDesc(foreignKey, doc), fkColumns.length > 0);
+			for ( ForeignKeyColumn fkColumn : fkColumns ) {
+				writer.writeElement(RepositoryConst.FOREIGNKEY_COLUMN_WRAPPER.getXmlDesc(fkColumn, doc));
+			}
+			writer.endElement(RepositoryConst.FK, fkColumns.length > 0);
+		}
+		
+		//--- Links 
+		for ( Link link : links ) {
+			JoinTable joinTable = link.getJoinTable();
+			JoinColumns joinColumns = link.getJoinColumns();
+			boolean withJoin = joinTable != null || joinColumns != null ;
+			writer.startElement(RepositoryConst.LINK_WRAPPER.getXmlDesc(link, doc), withJoin);
+			if ( joinTable != null ) {
+				writeJoinTable(writer, doc, joinTable);
+			}
+			else if ( joinColumns != null ) {
+				writeJoinColumns(writer, RepositoryConst.JOIN_COLUMNS_WRAPPER.getXmlDesc(joinColumns, doc), joinColumns, doc);
+			}
+			writer.endElement(RepositoryConst.LINK, withJoin);
+		}
+		
+		writer.endElement(RepositoryConst.TABLE, withChildren);
+	}
+	
+	private void writeJoinTable(XmlElementWriter writer, Document doc, JoinTable joinTable) throws IOException 
+	{
+		JoinColumns joinColumns = joinTable.getJoinColumns();
+		InverseJoinColumns inverseJoinColumns = joinTable.getInverseJoinColumns();
+		boolean withChildren = joinColumns != null || inverseJoinColumns != null ;
+		writer.startElement(RepositoryConst.JOIN_TABLE_WRAPPER.getXmlDesc(joinTable, doc), withChildren);
+		if ( joinColumns != null ) {
+			writeJoinColumns(writer, RepositoryConst.JOIN_COLUMNS_WRAPPER.getXmlDesc(joinColumns, doc), joinColumns, doc);
+		}
+		if ( inverseJoinColumns != null ) {
+			writeJoinColumns(writer, RepositoryConst.INVERSE_JOIN_COLUMNS_WRAPPER.getXmlDesc(inverseJoinColumns, doc), inverseJoinColumns, doc);
+		}
+		writer.endElement(RepositoryConst.JOIN_TABLE_ELEMENT, withChildren);
+	}
+	
+	private void writeJoinColumns(XmlElementWriter writer, Element element, Iterable<JoinColumn> joinColumns, Document doc) throws IOException 
+	{
+		boolean withChildren = joinColumns.iterator().hasNext() ;
+		writer.startElement(element, withChildren);
+		for ( JoinColumn joinColumn : joinColumns ) {
+			writer.writeElement(RepositoryConst.JOIN_COLUMN_WRAPPER.getXmlDesc(joinColumn, doc));
+		}
+		writer.endElement(element.getNodeName(), withChildren);
+	}
+
+	//-----------------------------------------------------------------------------------------
+	/**
+	 * Writes the XML elements one by one, with the same layout and escaping as the standard <br>
+	 * XML serializer used by the StandardFilePersistenceManager ( one element per line, <br>
+	 * attributes in the DOM order, no indentation )
+	 */
+	private static class XmlElementWriter 
+	{
+		private final static String EOL = System.getProperty("line.separator") ;
+		
+		private final Writer out ;
+		
+		XmlElementWriter(Writer out) {
+			this.out = out ;
+		}
+		
+		void writeLine(String s) throws IOException {
+			out.write(s);
+			out.write(EOL);
+		}
+		
+		void startElement(Element element, boolean withChildren) throws IOException {
+			out.write('<');
+			out.write(element.getNodeName());
+			NamedNodeMap attributes = element.getAttributes();
+			for ( int i = 0 ; i < attributes.getLength() ; i++ ) {
+				Node attribute = attributes.item(i);
+				out.write(' ');
+				out.write(attribute.getNodeName());
+				out.write("=\"");
+				writeEscaped(attribute.getNodeValue());
+				out.write('"');
+			}
+			out.write( withChildren ? ">" : "/>" );
+			out.write(EOL);
+		}
+		
+		void writeElement(Element element) throws IOException {
+			startElement(element, false);
+		}
+		
+		void endElement(String name, boolean withChildren) throws IOException {
+			if ( withChildren ) {
+				out.write("</");
+				out.write(name);
+				out.write('>');
+				out.write(EOL);
+			}
+		}
+		
+		void flush() throws IOException {
+			out.flush();
+		}
+		
+		private void writeEscaped(String value) throws IOException {
+			int length = value.length();
+			for ( int i = 0 ; i < length ; i++ ) {
+				char c = value.charAt(i);
+				switch ( c ) {
+				case '&'  : out.write("&amp;");  break ;
+				case '<'  : out.write("&lt;");   break ;
+				case '>'  : out.write("&gt;");   break ;
+				case '"'  : out.write("&quot;"); break ;
+				default :
+					if ( c < 0x20 ) {
+						//--- control characters ( '\n', '\r', '\t', ... ) 
+						writeCharRef(c);
+					}
+					else if ( Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i+1)) ) {
+						writeCharRef( Character.toCodePoint(c, value.charAt(i+1)) );
+						i++ ;
+					}
+					else {
+						out.write(c);
+					}
+				}
+			}
+		}
+		
+		private void writeCharRef(int codePoint) throws IOException {
+			out.write("&#");
+			out.write(Integer.toString(codePoint));
+			out.write(';');
+		}
+	}
+}